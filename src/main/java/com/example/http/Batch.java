@@ -0,0 +1,228 @@
+package com.example.http;
+
+import com.example.http.http.HttpRequest;
+import com.example.http.http.HttpResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量请求（POST /batch）：一次往返执行多个子请求
+ *
+ * 请求体每行一个子请求"方法 请求目标"，如"GET /hello.txt"。只支持 GET 和 HEAD：
+ * 子请求没有请求体、互不依赖，可以并行执行。以空白开头的行是上一个子请求的附加头部，
+ * 如"  If-None-Match: \"abc\""；空行和以#开头的行被忽略。
+ * 子请求继承批量请求的头部（Cookie、Accept-Encoding等），但不继承与请求体、连接和条件请求有关的头部——
+ * 这些头部针对的是批量请求本身。
+ *
+ * 回复为 multipart/mixed：每个子请求一个部分（Content-Type: application/http，Content-ID为从1开始的序号），
+ * 内容是完整的HTTP响应报文。子响应在发出前整个保存在内存中，因此一个批量请求的全部子响应共享一个字节预算
+ * （{@link #MAX_RESPONSE_BYTES}），超出预算的子请求回复413，客户端应单独请求这些资源。
+ * 大小事先可知的内容（如静态文件）在读取之前按大小占用预算（{@link SubRequest#reserve}），
+ * 预算不足时直接回复413，不读文件。
+ */
+final class Batch {
+
+    /** 一个批量请求最多包含的子请求数 */
+    static final int MAX_REQUESTS = 32;
+
+    /** 批量请求体的大小上限 */
+    static final int MAX_BODY_BYTES = 16 * 1024;
+
+    /** 一个批量请求中全部子响应报文的总字节数上限 */
+    static final long MAX_RESPONSE_BYTES = 4L * 1024 * 1024;
+
+    /** 不由子请求继承的头部 */
+    private static final Set<String> NOT_INHERITED = Set.of(
+            "content-length", "content-type", "transfer-encoding", "expect", "connection", "keep-alive",
+            "te", "trailer", "upgrade", "if-none-match", "if-modified-since", "if-match", "if-unmodified-since",
+            "if-range", "range");
+
+    private Batch() { }
+
+    /**
+     * 解析批量请求体
+     *
+     * @param body 请求体（UTF-8）
+     * @param outer 批量请求，子请求继承它的头部
+     * @param budget 全部子响应共享的字节预算
+     * @return 子请求，按出现顺序
+     * @throws IllegalArgumentException 格式错误、方法不支持或子请求过多，消息可直接回复给客户端
+     */
+    static List<SubRequest> parse(byte[] body, HttpRequest outer, AtomicLong budget) {
+        List<SubRequest> requests = new ArrayList<>();
+        SubRequest current = null;
+        int lineNo = 0;
+        for (String line : new String(body, StandardCharsets.UTF_8).split("\r?\n")) {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("#")) continue;
+            if (Character.isWhitespace(line.charAt(0))) {
+                int colon = line.indexOf(':');
+                if (current == null || colon < 0) {
+                    throw new IllegalArgumentException("第 " + lineNo + " 行: 附加头部格式应为\"  名称: 值\"，且跟在子请求之后");
+                }
+                current.addHeader(line.substring(0, colon).trim(), line.substring(colon + 1));
+                continue;
+            }
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2 || !parts[1].startsWith("/")) {
+                throw new IllegalArgumentException("第 " + lineNo + " 行: 子请求格式应为\"方法 /路径\"");
+            }
+            String method = parts[0].toUpperCase(Locale.ROOT);
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                throw new IllegalArgumentException("第 " + lineNo + " 行: 子请求只支持 GET 和 HEAD");
+            }
+            if (requests.size() == MAX_REQUESTS) {
+                throw new IllegalArgumentException("子请求超过 " + MAX_REQUESTS + " 个");
+            }
+            current = new SubRequest(budget);
+            current.setStartLine(method, parts[1], "HTTP/1.1");
+            for (Map.Entry<String, List<String>> header : outer.headers().entrySet()) {
+                if (NOT_INHERITED.contains(header.getKey())) continue;
+                for (String value : header.getValue()) {
+                    current.addHeader(header.getKey(), value);
+                }
+            }
+            requests.add(current);
+        }
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("没有子请求");
+        }
+        return requests;
+    }
+
+    /**
+     * 把子请求的响应编码为完整的HTTP响应报文
+     */
+    static byte[] encode(HttpResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        response.writeTo(out, true, true);
+        return out.toByteArray();
+    }
+
+    /**
+     * 把子请求的响应编码为完整的HTTP响应报文，编码出的字节计入批量请求的预算
+     *
+     * 先用处理子请求时预先占用的预算，不够的部分再从共享预算中扣除；多占的部分在编码完成后退回。
+     *
+     * @return 编码后的报文；超出预算时返回null，已占用的预算（包括预先占用的）全部退回
+     */
+    static byte[] encode(HttpResponse response, SubRequest request) throws IOException {
+        BudgetedOutputStream out = new BudgetedOutputStream(request.budget, request.reserved);
+        request.reserved = 0;
+        try {
+            response.writeTo(out, true, true);
+        } catch (BudgetExceededException e) {
+            request.budget.addAndGet(out.held);
+            return null;
+        }
+        request.budget.addAndGet(out.held - out.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * 批量请求中的一个子请求，带着各子请求共享的字节预算
+     *
+     * 子请求由一个线程从头处理到编码完成，预先占用的数量不需要同步。
+     */
+    static final class SubRequest extends HttpRequest {
+        private final AtomicLong budget;
+        private long reserved;
+
+        SubRequest(AtomicLong budget) {
+            this.budget = budget;
+        }
+
+        /**
+         * 在读取或生成内容之前，按已知的大小预先占用预算，编码回复时先使用这部分
+         *
+         * @return 预算不足时返回false，不占用任何预算
+         */
+        boolean reserve(long bytes) {
+            if (budget.addAndGet(-bytes) < 0) {
+                budget.addAndGet(bytes);
+                return false;
+            }
+            reserved += bytes;
+            return true;
+        }
+    }
+
+    /**
+     * 写入前先从预算中扣除，预算不足时抛出 {@link BudgetExceededException}，不再继续读文件或生成内容
+     */
+    private static final class BudgetedOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        private final AtomicLong budget;
+        /** 已从预算中占用的字节数，初始为预先占用的数量 */
+        private long held;
+
+        BudgetedOutputStream(AtomicLong budget, long reserved) {
+            this.budget = budget;
+            this.held = reserved;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            buffer.write(b, off, len);
+        }
+
+        private void reserve(int n) throws BudgetExceededException {
+            long needed = buffer.size() + (long) n - held;
+            if (needed <= 0) return;
+            if (budget.addAndGet(-needed) < 0) {
+                budget.addAndGet(needed);
+                throw new BudgetExceededException();
+            }
+            held += needed;
+        }
+
+        int size() {
+            return buffer.size();
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    private static final class BudgetExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * 写出一个部分
+     *
+     * @param id 子请求的序号（从1开始）
+     * @param message 子请求的响应报文
+     */
+    static void writePart(OutputStream out, String boundary, int id, byte[] message) throws IOException {
+        out.write(("--" + boundary + "\r\nContent-Type: application/http\r\nContent-ID: <" + id + ">\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(message);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    /**
+     * 写出结束分隔行
+     */
+    static void writeEnd(OutputStream out, String boundary) throws IOException {
+        out.write(("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
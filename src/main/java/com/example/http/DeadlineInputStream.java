@@ -0,0 +1,131 @@
+package com.example.http;
+
+import com.example.http.http.HttpParseException;
+import com.example.http.http.HttpStatus;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带总时限和最低速率的Socket输入流
+ *
+ * Socket的SO_TIMEOUT只限制单次read()的等待时间：客户端每隔9秒发一个字节，
+ * 就能在10秒超时下无限期占住一个工作线程（Slowloris）。
+ * 这里按"阶段"（读请求头、读请求体）计时：
+ * - 总时限：每次read()前把SO_TIMEOUT调整为距离期限的剩余时间，期限一到即失败
+ * - 最低速率：宽限期过后，已读字节数低于 速率×已用时间 即失败
+ * 失败时抛出状态码为408的 {@link HttpParseException}。
+ *
+ * 不在任何阶段中时（如等待长连接的下一个请求），行为与原始流相同。
+ */
+final class DeadlineInputStream extends FilterInputStream {
+
+    /** 最低速率检查的宽限期：连接刚开始时的短暂停顿不算慢 */
+    private static final long RATE_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Socket socket;
+    private final int idleTimeoutMillis;
+
+    private String phase;
+    private long phaseStart;
+    private long deadline;
+    private long minBytesPerSecond;
+    private long phaseBytes;
+
+    /**
+     * @param socket 客户端连接
+     * @param idleTimeoutMillis 不在阶段中时使用的SO_TIMEOUT
+     */
+    DeadlineInputStream(Socket socket, int idleTimeoutMillis) throws IOException {
+        super(socket.getInputStream());
+        this.socket = socket;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * 开始一个读取阶段
+     *
+     * @param name 阶段名称，用于错误信息，如"请求头"
+     * @param timeoutMillis 阶段总时限（毫秒），0 表示不限
+     * @param minBytesPerSecond 最低速率（字节/秒），0 表示不检查
+     */
+    void begin(String name, long timeoutMillis, long minBytesPerSecond) {
+        this.phase = name;
+        this.phaseStart = System.nanoTime();
+        this.deadline = timeoutMillis > 0 ? phaseStart + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        this.minBytesPerSecond = minBytesPerSecond;
+        this.phaseBytes = 0;
+    }
+
+    /**
+     * 结束当前阶段，恢复普通的SO_TIMEOUT
+     */
+    void end() throws IOException {
+        if (phase == null) return;
+        phase = null;
+        socket.setSoTimeout(idleTimeoutMillis);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (phase == null) return super.read(b, off, len);
+        beforeRead();
+        int n;
+        try {
+            n = super.read(b, off, len);
+        } catch (SocketTimeoutException e) {
+            throw timeout("未在期限内完成");
+        }
+        if (n > 0) afterRead(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // 走read()以便同样受期限约束
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    private void beforeRead() throws IOException {
+        int timeout = idleTimeoutMillis;
+        if (deadline != 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw timeout("未在期限内完成");
+            long remainingMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining));
+            timeout = (int) Math.min(timeout, remainingMillis);
+        }
+        socket.setSoTimeout(timeout);
+    }
+
+    private void afterRead(int n) throws IOException {
+        phaseBytes += n;
+        if (minBytesPerSecond <= 0) return;
+        long elapsed = System.nanoTime() - phaseStart;
+        if (elapsed > RATE_GRACE_NANOS && phaseBytes * 1_000_000_000.0 / elapsed < minBytesPerSecond) {
+            throw timeout("发送速率低于 " + minBytesPerSecond + " 字节/秒");
+        }
+    }
+
+    private HttpParseException timeout(String reason) {
+        String message = phase + reason;
+        return new HttpParseException(HttpStatus.REQUEST_TIMEOUT, message);
+    }
+}
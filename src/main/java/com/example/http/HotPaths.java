@@ -0,0 +1,126 @@
+package com.example.http;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 静态资源访问计数
+ *
+ * 服务器运行期间按URL路径统计静态资源的命中次数，停止时把访问最多的路径写入列表文件，
+ * 下次启动时 {@link Warmup} 按这个列表预读和预热。
+ *
+ * 列表文件为UTF-8文本，每行一个已解码的URL路径，按访问次数从多到少排列；以"#"开头的行和空行被忽略。
+ * 只统计索引中存在的资源，键的数量不超过资源数。
+ *
+ * 线程安全。
+ */
+final class HotPaths {
+
+    private final ConcurrentHashMap<String, LongAdder> hits = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次命中
+     *
+     * @param urlPath 资源的URL路径，如"/index.html"
+     */
+    void hit(String urlPath) {
+        LongAdder counter = hits.get(urlPath);
+        if (counter == null) {
+            counter = hits.computeIfAbsent(urlPath, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 清空计数（预热结束后调用，合成请求不计入）
+     */
+    void reset() {
+        hits.clear();
+    }
+
+    /**
+     * 访问次数最多的路径
+     *
+     * @param limit 最多返回的个数
+     * @return 按访问次数从多到少排列
+     */
+    List<String> top(int limit) {
+        return hits.entrySet().stream()
+                .map(e -> Map.entry(e.getKey(), e.getValue().sum()))
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 读取列表文件
+     *
+     * @return 文件中的路径，按文件中的顺序；文件不存在时返回空列表
+     */
+    static List<String> load(Path file) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        List<String> paths = new ArrayList<>();
+        for (String line : lines) {
+            String path = line.trim();
+            if (path.isEmpty() || path.startsWith("#")) continue;
+            if (path.startsWith("/")) paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * 把访问最多的路径写入列表文件
+     *
+     * 先写入同目录下的临时文件再原子地替换，写到一半时停止不会留下残缺的列表。
+     * 本次运行没有任何命中（如刚启动就停止）时不覆盖原有列表。
+     *
+     * @param limit 最多写入的路径数
+     * @return 写入的路径数
+     */
+    int save(Path file, int limit) throws IOException {
+        List<String> paths = top(limit);
+        if (paths.isEmpty()) return 0;
+        Path target = file.toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                out.write("# 访问次数最多的静态资源路径，服务器停止时生成，启动预热时读取");
+                out.newLine();
+                for (String path : paths) {
+                    out.write(path);
+                    out.newLine();
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return paths.size();
+    }
+
+    @Override
+    public String toString() {
+        return "{paths=" + hits.size() + "}";
+    }
+}
@@ -404,16 +404,23 @@ public class HttpClientGui {
             String head = headerBuf.toString(StandardCharsets.US_ASCII);
             String[] lines = head.split("\r\n");
             
-            // 解析 Content-Length
+            // 解析 Content-Length / Transfer-Encoding
             int contentLength = -1;
+            boolean chunked = false;
             for (String l : lines) {
                 if (l.toLowerCase().startsWith("content-length:")) {
                     try { contentLength = Integer.parseInt(l.substring(15).trim()); } catch (NumberFormatException ignore) {}
                 }
+                if (l.toLowerCase().startsWith("transfer-encoding:") && l.toLowerCase().contains("chunked")) {
+                    chunked = true;
+                }
             }
             
             byte[] bodyResp = new byte[0];
-            if (contentLength > 0) {
+            if (chunked) {
+                // 流式响应：按块解码，尾部字段不显示
+                bodyResp = new com.example.http.http.ChunkedInputStream(in, 64L * 1024 * 1024, 32_768, null).readAllBytes();
+            } else if (contentLength > 0) {
                 bodyResp = in.readNBytes(contentLength);
             } else {
                 socket.setSoTimeout(800);
@@ -0,0 +1,111 @@
+package com.example.http;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个客户端连接在多次请求之间需要保留的状态
+ *
+ * 启用空闲连接停放后，同一个连接的多个请求可能由不同的工作线程处理：
+ * 两次请求之间连接交给 {@link IdleConnectionParker} 停放，不占用线程。
+ * 请求计数、录制编号等跨请求的状态因此放在这里，而不是放在 SimpleHttpWorker 中。
+ */
+public final class HttpConnection {
+
+    private final Socket socket;
+    private final String clientAddress;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /** 带缓冲的输入流，跨请求、跨停放保留，缓冲中的数据（如流水线请求）不会丢失 */
+    private InputStream input;
+
+    /** input 底层的时限控制流 */
+    private DeadlineInputStream deadlines;
+
+    /** 已处理的请求数 */
+    int requestCount;
+
+    /** 录制用的连接编号，-1 表示该连接未被抽样；首次处理时确定 */
+    long captureConnectionId = Long.MIN_VALUE;
+
+    /** 最近一次进入停放的时刻（System.nanoTime） */
+    long parkedAt;
+
+    /** 启动预热时在内存中构造的连接（见 {@link Warmup}），不打印逐连接、逐请求的日志 */
+    boolean synthetic;
+
+    /**
+     * @param socket 客户端连接
+     * @param onClose 连接关闭时的回调（只调用一次），可为null
+     */
+    public HttpConnection(Socket socket, Runnable onClose) {
+        this.socket = socket;
+        this.clientAddress = String.valueOf(socket.getRemoteSocketAddress());
+        this.onClose = onClose;
+    }
+
+    public Socket socket() {
+        return socket;
+    }
+
+    /**
+     * 底层的SocketChannel；由普通 {@code new ServerSocket()} 接受的连接没有通道，返回null，此时无法停放
+     */
+    public SocketChannel channel() {
+        return socket.getChannel();
+    }
+
+    /**
+     * 连接的输入流
+     *
+     * 按字节读取请求行和头部时，每次read()都直接落到Socket上代价很高，
+     * 因此包一层缓冲；停放判断使用它的available()，缓冲中有数据时不会停放。
+     */
+    public InputStream input() throws IOException {
+        if (input == null) {
+            deadlines = new DeadlineInputStream(socket, SimpleHttpServer.SOCKET_TIMEOUT);
+            input = new BufferedInputStream(deadlines, 8192);
+        }
+        return input;
+    }
+
+    /**
+     * 输入流底层的时限控制，用于划分"读请求头""读请求体"等阶段
+     */
+    DeadlineInputStream deadlines() throws IOException {
+        input();
+        return deadlines;
+    }
+
+    public String clientAddress() {
+        return clientAddress;
+    }
+
+    public int requestCount() {
+        return requestCount;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 关闭连接，可重复调用
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            socket.close();
+            if (!synthetic) System.out.println("[服务器] 连接已关闭: " + clientAddress);
+        } catch (IOException e) {
+            System.err.println("[服务器] 关闭连接时发生错误: " + e.getMessage());
+        } finally {
+            if (onClose != null) onClose.run();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.http;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 空闲长连接停放器
+ *
+ * 阻塞模型下，等待下一个请求的长连接会一直占着一个工作线程。
+ * 启用停放后，工作线程处理完一个请求、且连接上没有已到达的数据时，
+ * 把连接交给这里的单个Selector线程，自己立即回到线程池；
+ * 连接上有新数据到达时再重新提交给线程池处理。
+ * 这样线程池只需要按"同时在处理的请求数"来配置，而不是按"已连接的客户端数"。
+ *
+ * 停放超过空闲超时的连接直接关闭。
+ *
+ * 注意：注册过Selector的通道，必须在SelectionKey取消、且Selector完成一次选择之后才能切回阻塞模式，
+ * 因此就绪的连接先cancel，再selectNow()一次，然后才交还给工作线程。
+ */
+final class IdleConnectionParker implements Runnable {
+
+    private final Selector selector;
+    private final Queue<HttpConnection> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<HttpConnection> onReadable;
+    private final long idleTimeoutNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicInteger parked = new AtomicInteger();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * @param idleTimeoutMillis 空闲超时（毫秒）
+     * @param onReadable 连接有数据可读时的回调，在停放线程上调用，此时通道已切回阻塞模式
+     */
+    IdleConnectionParker(long idleTimeoutMillis, Consumer<HttpConnection> onReadable) throws IOException {
+        this.selector = Selector.open();
+        this.onReadable = onReadable;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.thread = new Thread(this, "http-idle-parker");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 停放一个连接，直到有新数据到达或空闲超时
+     */
+    void park(HttpConnection connection) {
+        if (!running) {
+            // 服务器正在关闭，不再停放
+            connection.close();
+            return;
+        }
+        connection.parkedAt = System.nanoTime();
+        parked.incrementAndGet();
+        pending.add(connection);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        List<HttpConnection> ready = new ArrayList<>();
+        long selectMillis = Math.max(1, Math.min(1000, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 4));
+        try {
+            while (running) {
+                registerPending();
+                selector.select(selectMillis);
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    key.cancel();
+                    ready.add((HttpConnection) key.attachment());
+                }
+                selector.selectedKeys().clear();
+
+                expireIdle();
+
+                if (!ready.isEmpty()) {
+                    // 完成一次选择，使已取消的key真正注销，之后通道才能切回阻塞模式
+                    selector.selectNow();
+                    for (HttpConnection connection : ready) {
+                        resume(connection);
+                    }
+                    ready.clear();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("[服务器] 空闲连接停放线程异常退出: " + e.getMessage());
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * 把待停放的连接注册到Selector
+     */
+    private void registerPending() {
+        HttpConnection connection;
+        while ((connection = pending.poll()) != null) {
+            try {
+                connection.channel().configureBlocking(false);
+                connection.channel().register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                parked.decrementAndGet();
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 关闭停放超时的连接
+     */
+    private void expireIdle() {
+        long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid()) continue;
+            HttpConnection connection = (HttpConnection) key.attachment();
+            if (now - connection.parkedAt > idleTimeoutNanos) {
+                key.cancel();
+                parked.decrementAndGet();
+                timedOut.incrementAndGet();
+                System.out.println("[服务器] 长连接空闲超时，关闭: " + connection.clientAddress());
+                connection.close();
+            }
+        }
+    }
+
+    private void resume(HttpConnection connection) {
+        parked.decrementAndGet();
+        try {
+            connection.channel().configureBlocking(true);
+        } catch (IOException e) {
+            connection.close();
+            return;
+        }
+        resumed.incrementAndGet();
+        onReadable.accept(connection);
+    }
+
+    /**
+     * 关闭停放器及所有仍在停放的连接
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 与park()并发时可能有漏网的连接
+        HttpConnection connection;
+        while ((connection = pending.poll()) != null) {
+            parked.decrementAndGet();
+            connection.close();
+        }
+    }
+
+    private void closeAll() {
+        HttpConnection connection;
+        while ((connection = pending.poll()) != null) {
+            parked.decrementAndGet();
+            connection.close();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (!key.isValid()) continue;
+                parked.decrementAndGet();
+                ((HttpConnection) key.attachment()).close();
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException ignore) {
+            // 已关闭
+        }
+    }
+
+    /** 当前停放中的连接数 */
+    int getParked() {
+        return parked.get();
+    }
+
+    @Override
+    public String toString() {
+        return "IdleConnectionParker{parked=" + parked.get() + ", resumed=" + resumed.get()
+                + ", timedOut=" + timedOut.get() + "}";
+    }
+}
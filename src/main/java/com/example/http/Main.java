@@ -1,5 +1,16 @@
 package com.example.http;
 
+import com.example.http.bench.ExecutorBenchmark;
+import com.example.http.bench.LoadGenerator;
+import com.example.http.bench.PerfRegressionSuite;
+import com.example.http.bench.TrafficReplayer;
+import com.example.http.resource.AssetBundle;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class Main {
     
     public static void main(String[] args) {
@@ -12,6 +23,11 @@ public class Main {
         switch (mode) {
             case "server" -> startServerMode(args);
             case "client" -> startClientMode(args);
+            case "bench" -> startBenchMode(args);
+            case "perf" -> startPerfMode(args);
+            case "replay" -> startReplayMode(args);
+            case "execbench" -> startExecutorBenchMode(args);
+            case "pack" -> startPackMode(args);
             default -> handleUnknownMode(mode);
         }
     }
@@ -26,11 +42,31 @@ public class Main {
         System.out.println("使用方法:");
         System.out.println("  启动服务器: java -jar app.jar server [端口号]");
         System.out.println("  启动客户端: java -jar app.jar client [端口号]");
+        System.out.println("  压力测试:   java -jar app.jar bench [主机:端口] [选项]");
+        System.out.println("  性能回归:   java -jar app.jar perf [--update-baseline]");
+        System.out.println("  流量回放:   java -jar app.jar replay <抓包文件> [主机:端口] [--speed=倍速]");
+        System.out.println("  执行器基准: java -jar app.jar execbench [--threads=N] [--rates=10000,50000]");
+        System.out.println("  资源打包:   java -jar app.jar pack <资源包文件> [资源目录] [--no-gzip]");
         System.out.println();
         System.out.println("示例:");
         System.out.println("  java -jar app.jar server 8080  # 在8080端口启动服务器");
         System.out.println("  java -jar app.jar client       # 启动图形化客户端(默认端口8080)");
         System.out.println("  java -jar app.jar client 9090  # 启动客户端，默认目标服务器端口9090");
+        System.out.println("  java -jar app.jar bench localhost:8080 --connections=64 --rate=5000 --duration=30");
+        System.out.println("      # 64个长连接、每秒5000请求开环压测30秒（--rate=0 为闭环）");
+        System.out.println("  java -jar app.jar bench 8080 --mix=static:80,login:15,upload:5 --path=/umas.json");
+        System.out.println("      # 按比例混合静态GET、登录与上传请求");
+        System.out.println("  java -Dhttp.capture.file=traffic.cap -Dhttp.capture.sample=0.1 -jar app.jar server 8080");
+        System.out.println("      # 抽样10%的连接录制入站流量（Cookie与密码字段脱敏）");
+        System.out.println("  java -jar app.jar replay traffic.cap localhost:8080 --speed=2");
+        System.out.println("      # 以两倍速回放录制的流量");
+        System.out.println("  java -Dhttp.executor=stealing -jar app.jar server 8080");
+        System.out.println("      # 使用无锁队列+工作窃取的执行器处理连接");
+        System.out.println("  java -jar app.jar pack public.bundle src/main/resources/public");
+        System.out.println("  java -Dhttp.bundle=public.bundle -jar app.jar server 8080");
+        System.out.println("      # 把静态资源打包成一个文件，服务器内存映射后直接提供");
+        System.out.println("  java -Dhttp.warmup=true -Dhttp.warmup.paths=hot-paths.txt -jar app.jar server 8080");
+        System.out.println("      # 开始接受连接前预热，/health 在预热完成后返回200；停止时保存访问最多的路径");
         System.out.println("========================================");
     }
     
@@ -50,8 +86,13 @@ public class Main {
         
         System.out.println("正在启动HTTP服务器，端口: " + port);
         
-        // 创建服务器并启动
-        SimpleHttpServer server = new SimpleHttpServer(port);
+        // 创建服务器并启动（可通过 -Dhttp.xxx 系统属性调整配置）
+        ServerConfig config = ServerConfig.fromSystemProperties(port);
+        SimpleHttpServer server = new SimpleHttpServer(config);
+        if (config.warmupPaths() != null) {
+            // 命令行模式通常以 Ctrl+C / kill 结束，不经过 stop()，退出时单独保存热门路径
+            Runtime.getRuntime().addShutdownHook(new Thread(server::saveHotPaths, "http-hot-paths-saver"));
+        }
         server.start();
     }
     
@@ -75,6 +116,80 @@ public class Main {
         HttpClientGui.launch(defaultPort);
     }
     
+    /**
+     * 启动压测模式
+     * 
+     * @param args 命令行参数，args[1]起为目标地址与压测选项
+     */
+    private static void startBenchMode(String[] args) {
+        LoadGenerator.main(args);
+    }
+    
+    /**
+     * 启动性能回归套件，存在回归时以非0退出码结束
+     * 
+     * @param args 命令行参数，args[1]起为套件选项
+     */
+    private static void startPerfMode(String[] args) {
+        int code = PerfRegressionSuite.run(args);
+        if (code != 0) {
+            System.exit(code);
+        }
+    }
+    
+    /**
+     * 启动流量回放模式
+     * 
+     * @param args 命令行参数，args[1]为抓包文件，其后为目标地址与回放选项
+     */
+    private static void startReplayMode(String[] args) {
+        TrafficReplayer.main(args);
+    }
+    
+    /**
+     * 启动执行器交接延迟基准
+     * 
+     * @param args 命令行参数，args[1]起为基准选项
+     */
+    private static void startExecutorBenchMode(String[] args) {
+        ExecutorBenchmark.main(args);
+    }
+    
+    /**
+     * 把静态资源目录打包为资源包
+     * 
+     * @param args 命令行参数，args[1]为资源包文件，args[2]为资源目录（默认为服务器的静态资源目录）
+     */
+    private static void startPackMode(String[] args) {
+        if (args.length < 2) {
+            System.err.println("用法: pack <资源包文件> [资源目录] [--no-gzip]");
+            System.exit(2);
+        }
+        Path output = Paths.get(args[1]);
+        Path root = new ServerConfig().publicRoot();
+        boolean gzip = true;
+        for (int i = 2; i < args.length; i++) {
+            if ("--no-gzip".equals(args[i])) {
+                gzip = false;
+            } else {
+                root = Paths.get(args[i]);
+            }
+        }
+        if (!Files.isDirectory(root)) {
+            System.err.println("错误: 资源目录不存在: " + root);
+            System.exit(2);
+        }
+        try {
+            long start = System.nanoTime();
+            int count = AssetBundle.pack(root, output, gzip ? new ServerConfig().compressionMinSize() : -1);
+            System.out.printf("已打包 %d 个资源到 %s (%d 字节, %d ms)%n", count, output, Files.size(output),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.err.println("打包失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
     /**
      * 处理未知的运行模式
      * 
@@ -82,7 +197,7 @@ public class Main {
      */
     private static void handleUnknownMode(String mode) {
         System.err.println("错误: 未知的运行模式 '" + mode + "'");
-        System.err.println("支持的模式: server, client");
+        System.err.println("支持的模式: server, client, bench, perf, replay, execbench, pack");
         printUsageInstructions();
     }
     
@@ -0,0 +1,43 @@
+package com.example.http;
+
+/**
+ * 路由类别
+ *
+ * 不同路由的开销差异很大：小静态文件是微秒级，multipart上传可能是秒级。
+ * 按类别分别做并发限制，避免一类请求的突发拖垮其他请求。
+ */
+public enum RouteClass {
+
+    /** 静态资源、重定向等GET类请求 */
+    STATIC,
+
+    /** 注册、登录、退出 */
+    AUTH,
+
+    /** 文件上传 */
+    UPLOAD,
+
+    /** 管理与诊断类端点 */
+    ADMIN;
+
+    /**
+     * 根据请求方法和（已解码的）路径判断路由类别，与SimpleHttpWorker的路由规则保持一致
+     *
+     * @param method HTTP方法
+     * @param path 已解码的请求路径
+     * @return 路由类别
+     */
+    public static RouteClass of(String method, String path) {
+        if (path == null) return STATIC;
+        if ("POST".equalsIgnoreCase(method)) {
+            if ("/login".equals(path) || "/register".equals(path) || "/logout".equals(path)) return AUTH;
+            if (path.startsWith("/upload")) return UPLOAD;
+        }
+        // 可续传上传的分块写入和放弃；查询偏移是廉价的GET，仍归为STATIC
+        if (("PUT".equalsIgnoreCase(method) || "DELETE".equalsIgnoreCase(method)) && path.startsWith("/uploads/")) {
+            return UPLOAD;
+        }
+        if ("/test500".equals(path) || "/health".equals(path) || path.startsWith("/admin/")) return ADMIN;
+        return STATIC;
+    }
+}
@@ -0,0 +1,599 @@
+package com.example.http;
+
+import com.example.http.limit.RouteLimiters;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HTTP服务器配置
+ *
+ * 采用链式调用设置参数（与HttpResponse的构建风格一致），
+ * 同名无参方法用于读取参数。
+ *
+ * 除了在代码中直接构建，也可以通过系统属性覆盖默认值，例如：
+ * java -Dhttp.threads=32 -jar app.jar server 8080
+ *
+ * 支持的系统属性：
+ * - http.threads         工作线程数，默认 CPU核心数*2+2
+ * - http.backlog         监听队列长度（内核中等待accept的连接数），默认 512
+ * - http.acceptors       accept线程数，默认 1
+ * - http.reusePort       多个accept线程时是否用SO_REUSEPORT为每个线程单独监听，默认 false
+ * - http.queue           等待工作线程的连接队列上限，默认 线程数*4（停放空闲连接时 线程数*64）
+ * - http.maxConnections  最大连接数，默认 线程数+队列上限（停放空闲连接时至少 4096）
+ * - http.retryAfter      过载时503响应中Retry-After的秒数，默认 1
+ * - http.capture.file    流量抓包文件路径，不设置则不录制
+ * - http.capture.sample  抓包的连接抽样比例，默认 1.0（全部录制）
+ * - http.keepAlive.park   长连接空闲时交给Selector停放、不占用工作线程，默认 true
+ * - http.keepAlive.timeout 长连接空闲超时（毫秒），默认 10000
+ * - http.keepAlive.maxRequests 单个连接最多处理的请求数，0 表示不限，默认 1000
+ * - http.headerTimeout   从首字节起读完请求头的总时限（毫秒），默认 10000
+ * - http.bodyTimeout     读完请求体的总时限（毫秒），默认 120000
+ * - http.minDataRate     读取请求体的最低速率（字节/秒，5秒宽限期后检查），0 表示不检查，默认 1024
+ * - http.maxStartLine    请求行最大字节数，默认 8192
+ * - http.maxHeaderBytes  请求头总字节数上限，默认 16384
+ * - http.maxHeaders      请求头数量上限，默认 100
+ * - http.maxBodySize     请求体大小上限（字节），默认 64MB
+ * - http.executor        连接执行器：pool（ThreadPoolExecutor）/stealing（无锁队列+工作窃取），默认 pool
+ * - http.limit           按路由类别的自适应并发限制算法：off/aimd/gradient，默认 off
+ * - http.bulkhead        是否启用舱壁模式（按路由类别使用独立线程池执行处理逻辑），默认 false
+ * - http.bulkhead.static / .auth / .upload / .admin  各类别舱壁规格"线程数:队列上限"
+ * - http.compress        静态资源是否按 Accept-Encoding 返回 gzip/deflate 压缩变体，默认 true
+ * - http.compress.minSize 小于这个字节数的文件不压缩，默认 1024
+ * - http.compress.cacheSize 压缩变体缓存的总字节数上限，默认 32MB
+ * - http.publicRoot     静态资源目录（上传的文件也写入这里），默认 src/main/resources/public
+ * - http.bundle         静态资源包文件（由 pack 模式生成），设置后静态资源从包中内存映射读取，不再读目录，并停用上传
+ * - http.warmup         开始accept之前是否先预热（预读热门资源、用合成请求触发JIT编译），默认 false
+ * - http.warmup.time    预热的时间预算（毫秒），默认 10000
+ * - http.warmup.paths   热门路径列表文件：停止时写入访问最多的静态资源路径，预热时读取；不设置则不统计
+ * - http.batch.threads  并行执行批量请求（/batch）中子请求的线程数上限，0 表示依次执行，默认 CPU核心数
+ * - http.upload.dir     可续传上传（/uploads）的临时目录，应与静态资源目录在同一文件系统，默认 静态资源目录旁的 .uploads
+ * - http.upload.maxSize 可续传上传的单个文件大小上限（字节），默认 4GB
+ *
+ * 使用示例：
+ * ServerConfig config = new ServerConfig().port(0).threads(16);
+ * SimpleHttpServer server = new SimpleHttpServer(config);
+ */
+public class ServerConfig {
+
+    /**
+     * 连接执行器类型
+     */
+    public enum ExecutorType {
+        /** 有界队列的 ThreadPoolExecutor */
+        POOL,
+        /** 每线程无锁环形队列 + 工作窃取，见 WorkStealingExecutor */
+        STEALING
+    }
+
+    /** 监听端口，0 表示由系统分配临时端口 */
+    private int port = 8080;
+
+    /** 工作线程数 */
+    private int threads = Runtime.getRuntime().availableProcessors() * 2 + 2;
+
+    /** 监听队列长度 */
+    private int backlog = 512;
+
+    /** accept线程数 */
+    private int acceptors = 1;
+
+    /** 是否使用SO_REUSEPORT分片监听 */
+    private boolean reusePort;
+
+    /** 等待工作线程的连接队列上限，0 表示使用默认值（见 {@link #queueCapacity()}） */
+    private int queueCapacity;
+
+    /** 最大连接数，0 表示使用默认值（见 {@link #maxConnections()}） */
+    private int maxConnections;
+
+    /** 是否停放空闲长连接 */
+    private boolean keepAlivePark = true;
+
+    /** 长连接空闲超时（毫秒） */
+    private int keepAliveTimeoutMillis = 10000;
+
+    /** 单个连接最多处理的请求数，0 表示不限 */
+    private int keepAliveMaxRequests = 1000;
+
+    /** 读完请求头的总时限（毫秒） */
+    private int headerTimeoutMillis = 10000;
+
+    /** 读完请求体的总时限（毫秒） */
+    private int bodyTimeoutMillis = 120000;
+
+    /** 读取请求体的最低速率（字节/秒），0 表示不检查 */
+    private int minDataRate = 1024;
+
+    /** 请求行最大字节数 */
+    private int maxStartLine = 8192;
+
+    /** 请求头总字节数上限 */
+    private int maxHeaderBytes = 16384;
+
+    /** 请求头数量上限 */
+    private int maxHeaders = 100;
+
+    /** 请求体大小上限（字节） */
+    private long maxBodySize = 64L * 1024 * 1024;
+
+    /** 过载时Retry-After的秒数 */
+    private int retryAfterSeconds = 1;
+
+    /** 流量抓包文件，null 表示不录制 */
+    private Path captureFile;
+
+    /** 抓包的连接抽样比例 */
+    private double captureSampleRate = 1.0;
+
+    /** 连接执行器类型 */
+    private ExecutorType executorType = ExecutorType.POOL;
+
+    /** 按路由类别的并发限制算法 */
+    private RouteLimiters.Algorithm limitAlgorithm = RouteLimiters.Algorithm.OFF;
+
+    /** 是否启用舱壁模式 */
+    private boolean bulkheads;
+
+    /** 各类别的舱壁规格，未设置的类别使用默认值 */
+    private final Map<RouteClass, String> bulkheadSpecs = new EnumMap<>(RouteClass.class);
+
+    /** 是否压缩静态资源 */
+    private boolean compression = true;
+
+    /** 压缩的最小文件大小（字节） */
+    private int compressionMinSize = 1024;
+
+    /** 压缩变体缓存的总字节数上限 */
+    private long compressionCacheBytes = 32L * 1024 * 1024;
+
+    /** 静态资源目录 */
+    private Path publicRoot = Paths.get("src", "main", "resources", "public");
+
+    /** 静态资源包文件，为null时直接读取目录 */
+    private Path bundle;
+
+    /** 是否在开始accept之前预热 */
+    private boolean warmup;
+
+    /** 预热的时间预算（毫秒） */
+    private int warmupMillis = 10000;
+
+    /** 热门路径列表文件，为null时不统计也不保存 */
+    private Path warmupPaths;
+
+    /** 并行执行批量请求中子请求的线程数上限，0 表示依次执行 */
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
+    /** 可续传上传的临时目录，为null时使用静态资源目录旁的 .uploads */
+    private Path uploadDir;
+
+    /** 可续传上传的单个文件大小上限（字节） */
+    private long uploadMaxSize = 4L * 1024 * 1024 * 1024;
+
+    /**
+     * 以系统属性覆盖默认值创建配置
+     *
+     * @param port 监听端口
+     * @return 配置实例
+     */
+    public static ServerConfig fromSystemProperties(int port) {
+        ServerConfig config = new ServerConfig().port(port);
+        config.threads(intProperty("http.threads", config.threads));
+        config.backlog(intProperty("http.backlog", config.backlog));
+        config.acceptors(intProperty("http.acceptors", config.acceptors));
+        config.reusePort(Boolean.parseBoolean(System.getProperty("http.reusePort", "false").trim()));
+        config.queueCapacity(intProperty("http.queue", config.queueCapacity));
+        config.maxConnections(intProperty("http.maxConnections", config.maxConnections));
+        config.retryAfterSeconds(intProperty("http.retryAfter", config.retryAfterSeconds));
+        config.headerTimeoutMillis(intProperty("http.headerTimeout", config.headerTimeoutMillis));
+        config.bodyTimeoutMillis(intProperty("http.bodyTimeout", config.bodyTimeoutMillis));
+        config.minDataRate(intProperty("http.minDataRate", config.minDataRate));
+        config.maxStartLine(intProperty("http.maxStartLine", config.maxStartLine));
+        config.maxHeaderBytes(intProperty("http.maxHeaderBytes", config.maxHeaderBytes));
+        config.maxHeaders(intProperty("http.maxHeaders", config.maxHeaders));
+        config.maxBodySize(longProperty("http.maxBodySize", config.maxBodySize));
+        config.keepAlivePark(Boolean.parseBoolean(System.getProperty("http.keepAlive.park", "true").trim()));
+        config.keepAliveTimeoutMillis(intProperty("http.keepAlive.timeout", config.keepAliveTimeoutMillis));
+        config.keepAliveMaxRequests(intProperty("http.keepAlive.maxRequests", config.keepAliveMaxRequests));
+        String capture = System.getProperty("http.capture.file");
+        if (capture != null && !capture.isBlank()) {
+            config.captureFile(Paths.get(capture.trim()));
+        }
+        config.captureSampleRate(doubleProperty("http.capture.sample", config.captureSampleRate));
+        String executor = System.getProperty("http.executor");
+        if (executor != null && !executor.isBlank()) {
+            try {
+                config.executorType(ExecutorType.valueOf(executor.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("未知的执行器类型: " + executor + "（可选 pool/stealing）");
+            }
+        }
+        String limit = System.getProperty("http.limit");
+        if (limit != null && !limit.isBlank()) {
+            config.limitAlgorithm(RouteLimiters.Algorithm.parse(limit));
+        }
+        config.bulkheads(Boolean.parseBoolean(System.getProperty("http.bulkhead", "false").trim()));
+        for (RouteClass routeClass : RouteClass.values()) {
+            String spec = System.getProperty("http.bulkhead." + routeClass.name().toLowerCase(Locale.ROOT));
+            if (spec != null && !spec.isBlank()) {
+                config.bulkheadSpec(routeClass, spec.trim());
+            }
+        }
+        config.compression(Boolean.parseBoolean(System.getProperty("http.compress", "true").trim()));
+        config.compressionMinSize(intProperty("http.compress.minSize", config.compressionMinSize));
+        config.compressionCacheBytes(longProperty("http.compress.cacheSize", config.compressionCacheBytes));
+        String publicRoot = System.getProperty("http.publicRoot");
+        if (publicRoot != null && !publicRoot.isBlank()) {
+            config.publicRoot(Paths.get(publicRoot.trim()));
+        }
+        String bundle = System.getProperty("http.bundle");
+        if (bundle != null && !bundle.isBlank()) {
+            config.bundle(Paths.get(bundle.trim()));
+        }
+        config.warmup(Boolean.parseBoolean(System.getProperty("http.warmup", "false").trim()));
+        config.warmupMillis(intProperty("http.warmup.time", config.warmupMillis));
+        String warmupPaths = System.getProperty("http.warmup.paths");
+        if (warmupPaths != null && !warmupPaths.isBlank()) {
+            config.warmupPaths(Paths.get(warmupPaths.trim()));
+        }
+        config.batchThreads(intProperty("http.batch.threads", config.batchThreads));
+        String uploadDir = System.getProperty("http.upload.dir");
+        if (uploadDir != null && !uploadDir.isBlank()) {
+            config.uploadDir(Paths.get(uploadDir.trim()));
+        }
+        config.uploadMaxSize(longProperty("http.upload.maxSize", config.uploadMaxSize));
+        return config;
+    }
+
+    /**
+     * 读取整数类型的系统属性，格式错误时使用默认值
+     */
+    static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("警告: 系统属性 " + name + "=" + value + " 不是有效整数，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取长整数类型的系统属性，格式错误时使用默认值
+     */
+    static long longProperty(String name, long defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("警告: 系统属性 " + name + "=" + value + " 不是有效整数，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 读取浮点类型的系统属性，格式错误时使用默认值
+     */
+    static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("警告: 系统属性 " + name + "=" + value + " 不是有效数字，使用默认值 " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    // ========== 链式设置方法 ==========
+
+    public ServerConfig port(int port) {
+        if (port < 0 || port > 65535) throw new IllegalArgumentException("端口号超出范围: " + port);
+        this.port = port;
+        return this;
+    }
+
+    public ServerConfig threads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        this.threads = threads;
+        return this;
+    }
+
+    public ServerConfig backlog(int backlog) {
+        if (backlog < 1) throw new IllegalArgumentException("监听队列长度必须大于0: " + backlog);
+        this.backlog = backlog;
+        return this;
+    }
+
+    public ServerConfig acceptors(int acceptors) {
+        if (acceptors < 1) throw new IllegalArgumentException("accept线程数必须大于0: " + acceptors);
+        this.acceptors = acceptors;
+        return this;
+    }
+
+    public ServerConfig reusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+        return this;
+    }
+
+    public ServerConfig queueCapacity(int queueCapacity) {
+        if (queueCapacity < 0) throw new IllegalArgumentException("队列上限不能为负数: " + queueCapacity);
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    public ServerConfig maxConnections(int maxConnections) {
+        if (maxConnections < 0) throw new IllegalArgumentException("最大连接数不能为负数: " + maxConnections);
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public ServerConfig retryAfterSeconds(int retryAfterSeconds) {
+        if (retryAfterSeconds < 0) throw new IllegalArgumentException("Retry-After 不能为负数: " + retryAfterSeconds);
+        this.retryAfterSeconds = retryAfterSeconds;
+        return this;
+    }
+
+    public ServerConfig headerTimeoutMillis(int headerTimeoutMillis) {
+        if (headerTimeoutMillis < 1) throw new IllegalArgumentException("请求头时限必须大于0: " + headerTimeoutMillis);
+        this.headerTimeoutMillis = headerTimeoutMillis;
+        return this;
+    }
+
+    public ServerConfig bodyTimeoutMillis(int bodyTimeoutMillis) {
+        if (bodyTimeoutMillis < 1) throw new IllegalArgumentException("请求体时限必须大于0: " + bodyTimeoutMillis);
+        this.bodyTimeoutMillis = bodyTimeoutMillis;
+        return this;
+    }
+
+    public ServerConfig minDataRate(int minDataRate) {
+        if (minDataRate < 0) throw new IllegalArgumentException("最低速率不能为负数: " + minDataRate);
+        this.minDataRate = minDataRate;
+        return this;
+    }
+
+    public ServerConfig maxStartLine(int maxStartLine) {
+        if (maxStartLine < 16) throw new IllegalArgumentException("请求行上限过小: " + maxStartLine);
+        this.maxStartLine = maxStartLine;
+        return this;
+    }
+
+    public ServerConfig maxHeaderBytes(int maxHeaderBytes) {
+        if (maxHeaderBytes < 64) throw new IllegalArgumentException("请求头上限过小: " + maxHeaderBytes);
+        this.maxHeaderBytes = maxHeaderBytes;
+        return this;
+    }
+
+    public ServerConfig maxHeaders(int maxHeaders) {
+        if (maxHeaders < 1) throw new IllegalArgumentException("请求头数量上限必须大于0: " + maxHeaders);
+        this.maxHeaders = maxHeaders;
+        return this;
+    }
+
+    public ServerConfig maxBodySize(long maxBodySize) {
+        if (maxBodySize < 0 || maxBodySize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("请求体上限超出范围: " + maxBodySize);
+        }
+        this.maxBodySize = maxBodySize;
+        return this;
+    }
+
+    public ServerConfig keepAlivePark(boolean keepAlivePark) {
+        this.keepAlivePark = keepAlivePark;
+        return this;
+    }
+
+    public ServerConfig keepAliveTimeoutMillis(int keepAliveTimeoutMillis) {
+        if (keepAliveTimeoutMillis < 1) throw new IllegalArgumentException("长连接空闲超时必须大于0: " + keepAliveTimeoutMillis);
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+        return this;
+    }
+
+    public ServerConfig keepAliveMaxRequests(int keepAliveMaxRequests) {
+        if (keepAliveMaxRequests < 0) throw new IllegalArgumentException("单连接请求数上限不能为负数: " + keepAliveMaxRequests);
+        this.keepAliveMaxRequests = keepAliveMaxRequests;
+        return this;
+    }
+
+    public ServerConfig captureFile(Path captureFile) {
+        this.captureFile = captureFile;
+        return this;
+    }
+
+    public ServerConfig captureSampleRate(double captureSampleRate) {
+        if (!(captureSampleRate > 0 && captureSampleRate <= 1)) {
+            throw new IllegalArgumentException("抓包抽样比例必须在 (0, 1] 之间: " + captureSampleRate);
+        }
+        this.captureSampleRate = captureSampleRate;
+        return this;
+    }
+
+    public ServerConfig executorType(ExecutorType executorType) {
+        if (executorType == null) throw new IllegalArgumentException("执行器类型不能为空");
+        this.executorType = executorType;
+        return this;
+    }
+
+    public ServerConfig limitAlgorithm(RouteLimiters.Algorithm limitAlgorithm) {
+        if (limitAlgorithm == null) throw new IllegalArgumentException("限流算法不能为空");
+        this.limitAlgorithm = limitAlgorithm;
+        return this;
+    }
+
+    public ServerConfig bulkheads(boolean bulkheads) {
+        this.bulkheads = bulkheads;
+        return this;
+    }
+
+    /**
+     * 设置某个类别的舱壁规格
+     *
+     * @param routeClass 路由类别
+     * @param spec "线程数:队列上限"，如"2:4"
+     */
+    public ServerConfig bulkheadSpec(RouteClass routeClass, String spec) {
+        bulkheadSpecs.put(routeClass, spec);
+        return this;
+    }
+
+    public ServerConfig compression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    public ServerConfig compressionMinSize(int compressionMinSize) {
+        if (compressionMinSize < 0) throw new IllegalArgumentException("压缩最小文件大小不能为负数: " + compressionMinSize);
+        this.compressionMinSize = compressionMinSize;
+        return this;
+    }
+
+    public ServerConfig compressionCacheBytes(long compressionCacheBytes) {
+        if (compressionCacheBytes < 0) throw new IllegalArgumentException("压缩缓存上限不能为负数: " + compressionCacheBytes);
+        this.compressionCacheBytes = compressionCacheBytes;
+        return this;
+    }
+
+    public ServerConfig publicRoot(Path publicRoot) {
+        if (publicRoot == null) throw new IllegalArgumentException("静态资源目录不能为空");
+        this.publicRoot = publicRoot;
+        return this;
+    }
+
+    public ServerConfig bundle(Path bundle) {
+        this.bundle = bundle;
+        return this;
+    }
+
+    public ServerConfig warmup(boolean warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    public ServerConfig warmupMillis(int warmupMillis) {
+        if (warmupMillis <= 0) throw new IllegalArgumentException("预热时间预算必须为正数: " + warmupMillis);
+        this.warmupMillis = warmupMillis;
+        return this;
+    }
+
+    public ServerConfig warmupPaths(Path warmupPaths) {
+        this.warmupPaths = warmupPaths;
+        return this;
+    }
+
+    public ServerConfig batchThreads(int batchThreads) {
+        if (batchThreads < 0) throw new IllegalArgumentException("批量请求线程数不能为负数: " + batchThreads);
+        this.batchThreads = batchThreads;
+        return this;
+    }
+
+    public ServerConfig uploadDir(Path uploadDir) {
+        this.uploadDir = uploadDir;
+        return this;
+    }
+
+    public ServerConfig uploadMaxSize(long uploadMaxSize) {
+        if (uploadMaxSize < 0) throw new IllegalArgumentException("上传文件大小上限不能为负数: " + uploadMaxSize);
+        this.uploadMaxSize = uploadMaxSize;
+        return this;
+    }
+
+    // ========== 访问器方法 ==========
+
+    public int port() { return port; }
+
+    public int threads() { return threads; }
+
+    public int backlog() { return backlog; }
+
+    public int acceptors() { return acceptors; }
+
+    public boolean reusePort() { return reusePort; }
+
+    /**
+     * 等待工作线程的队列上限
+     * 
+     * 未显式设置时：不停放空闲连接，队列里是整条连接，取 线程数*4；
+     * 停放空闲连接时，队列里是已有数据到达、等待处理的请求，取 线程数*64。
+     */
+    public int queueCapacity() {
+        if (queueCapacity > 0) return queueCapacity;
+        return keepAlivePark ? threads * 64 : threads * 4;
+    }
+
+    /**
+     * 最大连接数
+     * 
+     * 未显式设置时：不停放空闲连接，每个连接占一个线程或队列位置，取 线程数+队列上限；
+     * 停放空闲连接时，连接数与线程数脱钩，取两者中较大者与4096。
+     */
+    public int maxConnections() {
+        if (maxConnections > 0) return maxConnections;
+        int threadBound = threads + queueCapacity();
+        return keepAlivePark ? Math.max(threadBound, 4096) : threadBound;
+    }
+
+    public int retryAfterSeconds() { return retryAfterSeconds; }
+
+    public int headerTimeoutMillis() { return headerTimeoutMillis; }
+
+    public int bodyTimeoutMillis() { return bodyTimeoutMillis; }
+
+    public int minDataRate() { return minDataRate; }
+
+    public int maxStartLine() { return maxStartLine; }
+
+    public int maxHeaderBytes() { return maxHeaderBytes; }
+
+    public int maxHeaders() { return maxHeaders; }
+
+    public long maxBodySize() { return maxBodySize; }
+
+    public boolean keepAlivePark() { return keepAlivePark; }
+
+    public int keepAliveTimeoutMillis() { return keepAliveTimeoutMillis; }
+
+    public int keepAliveMaxRequests() { return keepAliveMaxRequests; }
+
+    public Path captureFile() { return captureFile; }
+
+    public double captureSampleRate() { return captureSampleRate; }
+
+    public ExecutorType executorType() { return executorType; }
+
+    public RouteLimiters.Algorithm limitAlgorithm() { return limitAlgorithm; }
+
+    public boolean bulkheads() { return bulkheads; }
+
+    public Map<RouteClass, String> bulkheadSpecs() { return bulkheadSpecs; }
+
+    public boolean compression() { return compression; }
+
+    public int compressionMinSize() { return compressionMinSize; }
+
+    public long compressionCacheBytes() { return compressionCacheBytes; }
+
+    public Path publicRoot() { return publicRoot; }
+
+    public Path bundle() { return bundle; }
+
+    public boolean warmup() { return warmup; }
+
+    public int warmupMillis() { return warmupMillis; }
+
+    public Path warmupPaths() { return warmupPaths; }
+
+    public int batchThreads() { return batchThreads; }
+
+    /** 可续传上传的临时目录，未设置时为静态资源目录旁的 .uploads（同一文件系统，完成时可以原子地移动） */
+    public Path uploadDir() {
+        return uploadDir != null ? uploadDir : publicRoot.toAbsolutePath().normalize().resolveSibling(".uploads");
+    }
+
+    public long uploadMaxSize() { return uploadMaxSize; }
+}
@@ -1,10 +1,36 @@
 package com.example.http;
 
+import com.example.http.capture.TrafficRecorder;
+import com.example.http.exec.WorkStealingExecutor;
+import com.example.http.http.HttpResponse;
+import com.example.http.http.HttpStatus;
+import com.example.http.limit.Bulkheads;
+import com.example.http.limit.RouteLimiters;
+import com.example.http.query.JsonQueryService;
+import com.example.http.search.SearchIndex;
+import com.example.http.resource.CompressionCache;
+import com.example.http.resource.ResourceIndex;
+import com.example.http.upload.ResumableUploads;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 简易HTTP服务器主类
@@ -14,27 +40,86 @@ import java.util.concurrent.Executors;
  * - 使用线程池处理并发连接，提高性能
  * - 支持HTTP长连接（Keep-Alive）
  * - 每个连接由SimpleHttpWorker处理，可以处理多个HTTP请求
+ * - 准入控制：连接数或排队数超限时直接返回预先序列化的503，快速失败
+ * - 可选的按路由类别自适应并发限制（见 {@link RouteLimiters}）
+ * - 可选的舱壁模式：连接线程只负责读写，处理逻辑交给各路由类别独立的线程池（见 {@link Bulkheads}）
+ * - 可选的启动预热：开始accept之前预读热门资源并用合成请求触发JIT编译（见 {@link Warmup}），完成后 /health 才报告就绪
  * 
  * 工作原理：
- * 1. 创建ServerSocket监听指定端口
- * 2. 循环接受客户端连接
- * 3. 为每个连接创建SimpleHttpWorker任务
- * 4. 提交到线程池中异步处理
+ * 1. 创建ServerSocket监听指定端口（监听队列长度可配置，可开启SO_REUSEPORT分片）
+ * 2. （可选）预热，之后标记为就绪；预热期间到达的连接在监听队列中等待
+ * 3. 一个或多个accept线程循环接受客户端连接
+ * 4. 连接数未超限时为其创建SimpleHttpWorker任务
+ * 5. 提交到有界队列的线程池中异步处理，队列已满则拒绝
  * 
  */
 public class SimpleHttpServer {
     
-    // 服务器监听的端口号
+    // 服务器监听的端口号（0 表示由系统分配）
     private final int port;
     
     // 控制服务器运行状态的标志，volatile确保多线程可见性
     private volatile boolean running = true;
     
+    // 是否已就绪（预热完成、尚未停止），由 /health 报告
+    private volatile boolean ready;
+    
     // 线程池，用于处理并发连接
     private final ExecutorService threadPool;
     
+    // 当前监听的ServerSocket（分片监听时有多个），stop()时关闭它们以打断阻塞中的accept()
+    private volatile List<ServerSocket> listeners = List.of();
+    
+    // 服务器配置
+    private final ServerConfig config;
+    
+    // 流量录制器，未配置抓包文件时为null
+    private volatile TrafficRecorder recorder;
+    
+    // 按路由类别的并发限制器，未启用时为null
+    private final RouteLimiters routeLimiters;
+    
+    // 空闲长连接停放器，未启用时为null
+    private volatile IdleConnectionParker parker;
+    
+    // 按路由类别的舱壁，未启用时为null
+    private final Bulkheads bulkheads;
+    
+    // 静态资源压缩变体缓存，未启用压缩时为null
+    private final CompressionCache compressionCache;
+    
+    // 静态资源索引，启动时建立，之后由后台线程随目录变化更新
+    private volatile ResourceIndex resourceIndex;
+    
+    // JSON资源的索引查询，随静态资源索引一起建立
+    private volatile JsonQueryService queryService;
+    
+    // 文本资源的全文检索，随静态资源索引一起建立，在后台建立和更新
+    private volatile SearchIndex searchIndex;
+    
+    // 可续传上传，启动时建立，停止时作废未完成的上传；资源包模式下不接受上传，不建立
+    private volatile ResumableUploads resumableUploads;
+    
+    // 静态资源访问计数，停止时保存为热门路径列表；未配置列表文件时为null
+    private final HotPaths hotPaths;
+    
+    // 并行执行批量请求中子请求的线程池，没有空闲线程时由提交方自己执行；未启用并行时为null
+    private final ThreadPoolExecutor batchExecutor;
+    
+    // 启动预热的结果，未预热时为null
+    private volatile Warmup.Result warmupResult;
+    
+    // 当前正在处理或排队的连接数
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    
+    // 因过载被拒绝的连接数
+    private final AtomicLong rejectedConnections = new AtomicLong();
+    
+    // 过载时返回的503响应，启动时序列化一次，拒绝时直接写出字节
+    private final byte[] overloadedResponse;
+    
     // Socket读取超时时间（毫秒）
-    private static final int SOCKET_TIMEOUT = 10000;
+    static final int SOCKET_TIMEOUT = 10000;
 
     /**
      * 创建HTTP服务器实例
@@ -42,17 +127,85 @@ public class SimpleHttpServer {
      * @param port 服务器要监听的端口号
      */
     public SimpleHttpServer(int port) {
-        this.port = port;
+        this(new ServerConfig().port(port));
+    }
+    
+    /**
+     * 按配置创建HTTP服务器实例
+     * 
+     * @param config 服务器配置
+     */
+    public SimpleHttpServer(ServerConfig config) {
+        this.config = config;
+        this.port = config.port();
         int availableProcessors = Runtime.getRuntime().availableProcessors();//得到jvm的可用处理器数 q
-        int threadPoolSize = availableProcessors * 2 + 2;
+        int threadPoolSize = config.threads();
+        
+        // 创建固定大小、有界队列的线程池，线程统一命名便于排查和统计
+        // 队列满时抛出RejectedExecutionException，由handleNewConnection转为503
+        if (config.executorType() == ServerConfig.ExecutorType.STEALING) {
+            this.threadPool = new WorkStealingExecutor(threadPoolSize, config.queueCapacity(),
+                    namedThreadFactory("http-worker-"));
+        } else {
+            this.threadPool = new ThreadPoolExecutor(threadPoolSize, threadPoolSize,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(config.queueCapacity()),
+                    namedThreadFactory("http-worker-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+        
+        this.routeLimiters = RouteLimiters.create(config.limitAlgorithm(), threadPoolSize);
+        this.bulkheads = config.bulkheads() ? new Bulkheads(config.bulkheadSpecs(), threadPoolSize) : null;
+        this.compressionCache = config.compression()
+                ? new CompressionCache(config.compressionMinSize(), config.compressionCacheBytes())
+                : null;
+        this.hotPaths = config.warmupPaths() != null ? new HotPaths() : null;
+        this.batchExecutor = config.batchThreads() > 0
+                ? new ThreadPoolExecutor(0, config.batchThreads(), 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                        namedThreadFactory("http-batch-"), new ThreadPoolExecutor.CallerRunsPolicy())
+                : null;
         
-        // 创建固定大小的线程池
-        this.threadPool = Executors.newFixedThreadPool(threadPoolSize);
+        this.overloadedResponse = new HttpResponse()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(config.retryAfterSeconds()))
+                .header("Server", "SimpleSocketServer/1.0")
+                .bodyText("503 Service Unavailable - 服务器繁忙，请稍后重试", "text/plain; charset=UTF-8")
+                .omitDate()
+                .toBytes(false);
         
         System.out.println("HTTP服务器初始化完成");
         System.out.println("- 监听端口: " + port);
-        System.out.println("- 线程池大小: " + threadPoolSize + " (CPU核心数: " + availableProcessors + ")");
+        System.out.println("- 线程池大小: " + threadPoolSize + " (CPU核心数: " + availableProcessors + ", 执行器: "
+                + config.executorType().name().toLowerCase(java.util.Locale.ROOT) + ")");
+        System.out.println("- 监听队列: " + config.backlog() + ", 等待队列上限: " + config.queueCapacity()
+                + ", 最大连接数: " + config.maxConnections());
         System.out.println("- Socket超时: " + SOCKET_TIMEOUT + "ms");
+        if (config.captureFile() != null) {
+            System.out.println("- 流量录制: " + config.captureFile() + " (抽样比例 " + config.captureSampleRate() + ")");
+        }
+        if (routeLimiters != null) {
+            System.out.println("- 路由并发限制: " + config.limitAlgorithm() + " " + routeLimiters);
+        }
+        if (bulkheads != null) {
+            System.out.println("- 舱壁模式: " + bulkheads);
+        }
+        if (compressionCache != null) {
+            System.out.println("- 静态资源压缩: gzip/deflate (最小 " + config.compressionMinSize() + " 字节)");
+        }
+        if (config.warmup()) {
+            System.out.println("- 启动预热: 时间预算 " + config.warmupMillis() + "ms"
+                    + (config.warmupPaths() != null ? ", 热门路径 " + config.warmupPaths() : ""));
+        }
+    }
+    
+    /**
+     * 创建按前缀编号命名线程的工厂
+     * 
+     * @param prefix 线程名前缀，如"http-worker-"
+     */
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> new Thread(r, prefix + counter.incrementAndGet());
     }
 
     /**
@@ -60,6 +213,7 @@ public class SimpleHttpServer {
      * 
      * 这个方法会阻塞当前线程，直到服务器停止运行。
      * 服务器会持续监听端口，接受客户端连接并处理请求。
+     * 配置了多个accept线程时，额外的accept线程在后台运行，当前线程也是其中之一。
      */
     public void start() {
         System.out.println("========================================");
@@ -68,71 +222,233 @@ public class SimpleHttpServer {
         System.out.println("按 Ctrl+C 停止服务器");
         System.out.println("========================================");
         
-        // 使用try-with-resources确保ServerSocket正确关闭
-        try (ServerSocket serverSocket = createServerSocket()) {
+        List<Thread> extraAcceptors = new ArrayList<>();
+        try {
+            // 先建好静态资源索引再开始监听，第一个请求就不必扫描目录
+            resourceIndex = config.bundle() != null
+                    ? ResourceIndex.openBundle(config.bundle(), compressionCache)
+                    : ResourceIndex.open(config.publicRoot(), compressionCache, true);
+            System.out.println("[服务器] 静态资源索引: " + resourceIndex.size() + " 个资源"
+                    + (config.bundle() != null ? "（资源包 " + config.bundle() + "）" : ""));
+            queryService = new JsonQueryService(resourceIndex);
+            searchIndex = new SearchIndex(resourceIndex);
+            searchIndex.start();
+            // 建立时会创建临时目录并清理遗留的分块文件，资源包模式下用不到，不碰目录
+            if (config.bundle() == null) {
+                resumableUploads = ResumableUploads.open(config.publicRoot(), config.uploadDir(), config.uploadMaxSize());
+            }
+            List<ServerSocket> sockets = createServerSockets();
+            this.listeners = sockets;
+            // 端口已绑定：预热期间到达的连接在监听队列中等待，预热完成后按正常速度处理
+            if (config.warmup()) {
+                warmup();
+            }
+            ready = running;
+            if (config.captureFile() != null) {
+                recorder = TrafficRecorder.open(config.captureFile(), config.captureSampleRate());
+            }
+            if (config.keepAlivePark()) {
+                parker = new IdleConnectionParker(config.keepAliveTimeoutMillis(), this::dispatch);
+            }
             
-            // 主循环：持续接受客户端连接
-            while (running) {
-                try {
-                    // 等待客户端连接（这里会阻塞直到有连接到来）
-                    Socket clientSocket = serverSocket.accept();
-                    
-                    // 处理新连接
-                    handleNewConnection(clientSocket);
-                    
-                } catch (IOException e) {
-                    // 如果服务器正在运行，打印错误信息
-                    if (running) {
-                        System.err.println("接受连接时发生错误: " + e.getMessage());
-                    }
-                }
+            // 第i个accept线程使用第 i % 监听数 个ServerSocket：
+            // 共享监听时所有线程accept同一个ServerSocket，分片监听时各自accept自己的
+            int acceptors = config.acceptors();
+            for (int i = 1; i < acceptors; i++) {
+                ServerSocket listening = sockets.get(i % sockets.size());
+                Thread acceptor = new Thread(() -> acceptLoop(listening), "http-acceptor-" + (i + 1));
+                acceptor.start();
+                extraAcceptors.add(acceptor);
             }
+            acceptLoop(sockets.get(0));
             
         } catch (IOException e) {
             System.err.println("服务器启动失败: " + e.getMessage());
             e.printStackTrace();
         } finally {
+            running = false;
+            closeListeners();
+            for (Thread acceptor : extraAcceptors) {
+                try {
+                    acceptor.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
             // 确保线程池正确关闭
             shutdownServer();
         }
     }
     
+    /**
+     * 预热：读取热门路径列表，预读资源并执行合成请求；合成请求不计入访问统计
+     */
+    private void warmup() {
+        List<String> topPaths = List.of();
+        if (config.warmupPaths() != null) {
+            try {
+                topPaths = HotPaths.load(config.warmupPaths());
+            } catch (IOException e) {
+                System.err.println("[服务器] 读取热门路径列表失败，按索引中的资源预热: " + e.getMessage());
+            }
+        }
+        System.out.println("[服务器] 开始预热 (热门路径 " + topPaths.size() + " 个)...");
+        Warmup.Result result = new Warmup(this).run(topPaths, config.warmupMillis());
+        if (hotPaths != null) hotPaths.reset();
+        warmupResult = result;
+        System.out.println("[服务器] 预热完成: " + result);
+    }
+    
+    /**
+     * 把访问最多的静态资源路径写入热门路径列表文件，未配置列表文件时不做任何事
+     */
+    void saveHotPaths() {
+        if (hotPaths == null) return;
+        try {
+            int saved = hotPaths.save(config.warmupPaths(), Warmup.TOP_PATHS);
+            if (saved > 0) {
+                System.out.println("[服务器] 热门路径已保存: " + saved + " 个 -> " + config.warmupPaths());
+            }
+        } catch (IOException e) {
+            System.err.println("[服务器] 保存热门路径失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * accept主循环：只做准入判断和任务提交，其余工作都交给工作线程
+     * 
+     * @param listening 监听的ServerSocket
+     */
+    private void acceptLoop(ServerSocket listening) {
+        while (running) {
+            try {
+                // 等待客户端连接（这里会阻塞直到有连接到来）
+                Socket clientSocket = listening.accept();
+                
+                // 处理新连接
+                handleNewConnection(clientSocket);
+                
+            } catch (IOException e) {
+                // 如果服务器正在运行，打印错误信息
+                if (running) {
+                    System.err.println("接受连接时发生错误: " + e.getMessage());
+                    // 文件描述符耗尽等错误会让accept立即失败，稍作等待避免空转
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * 创建并配置ServerSocket
      * 
-     * @return 配置好的ServerSocket实例
+     * 默认所有accept线程共享一个ServerSocket；
+     * 开启 reusePort 且平台支持 SO_REUSEPORT 时，为每个accept线程创建一个绑定同一端口的ServerSocket，
+     * 由内核把新连接分散到各个监听队列，accept线程之间互不竞争。
+     * 
+     * @return 配置好的ServerSocket列表，至少一个
      * @throws IOException 如果创建Socket失败
      */
-    private ServerSocket createServerSocket() throws IOException {
-        ServerSocket serverSocket = new ServerSocket(port);
-        System.out.println("ServerSocket创建成功，端口: " + port);
-        return serverSocket;
+    private List<ServerSocket> createServerSockets() throws IOException {
+        List<ServerSocket> sockets = new ArrayList<>();
+        ServerSocket first = openServerSocket();
+        boolean sharded = config.reusePort() && config.acceptors() > 1
+                && first.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        try {
+            if (sharded) {
+                first.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            first.bind(new InetSocketAddress(port), config.backlog());
+            sockets.add(first);
+            // 端口为0时由系统分配，后续分片绑定到同一个实际端口
+            for (int i = 1; sharded && i < config.acceptors(); i++) {
+                ServerSocket shard = openServerSocket();
+                sockets.add(shard);
+                shard.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                shard.bind(new InetSocketAddress(first.getLocalPort()), config.backlog());
+            }
+        } catch (IOException e) {
+            for (ServerSocket socket : sockets) {
+                socket.close();
+            }
+            if (!sockets.contains(first)) first.close();
+            throw e;
+        }
+        if (config.reusePort() && !sharded && config.acceptors() > 1) {
+            System.out.println("当前平台不支持 SO_REUSEPORT，" + config.acceptors() + " 个accept线程共享一个ServerSocket");
+        }
+        System.out.println("ServerSocket创建成功，端口: " + first.getLocalPort()
+                + ", 监听数: " + sockets.size() + ", accept线程数: " + config.acceptors());
+        return sockets;
+    }
+    
+    /**
+     * 创建未绑定的ServerSocket
+     * 
+     * 使用ServerSocketChannel的适配器而不是 new ServerSocket()：
+     * 接受的连接同样是通道的适配器，仍按普通Socket阻塞读写，
+     * 但空闲时可以切换为非阻塞模式交给Selector停放。
+     */
+    private static ServerSocket openServerSocket() throws IOException {
+        return ServerSocketChannel.open().socket();
+    }
+    
+    /**
+     * 关闭全部监听Socket，打断阻塞中的accept()
+     */
+    private void closeListeners() {
+        for (ServerSocket listening : listeners) {
+            try {
+                listening.close();
+            } catch (IOException ignore) {
+                // 忽略关闭错误
+            }
+        }
     }
     
     /**
      * 处理新的客户端连接
      * 
+     * 在accept线程上执行，只做准入判断和提交；
+     * Socket选项设置和日志打印都放到工作线程，accept线程尽快回到accept()。
+     * 
      * @param clientSocket 客户端Socket连接
      */
     private void handleNewConnection(Socket clientSocket) {
+        // 准入控制：超过最大连接数直接拒绝，不再占用任何线程或队列
+        if (activeConnections.incrementAndGet() > config.maxConnections()) {
+            activeConnections.decrementAndGet();
+            rejectOverloaded(clientSocket);
+            return;
+        }
+        // 连接关闭时归还连接配额（停放期间连接仍计入）
+        HttpConnection connection = new HttpConnection(clientSocket, activeConnections::decrementAndGet);
         try {
-            // 记录新连接信息
-            String clientAddress = clientSocket.getRemoteSocketAddress().toString();
-            System.out.println("[服务器] 接受新连接: " + clientAddress);
-            
-            // 配置Socket选项
-            configureSocket(clientSocket);
-            
-            // 创建工作线程处理这个连接
-            SimpleHttpWorker worker = new SimpleHttpWorker(clientSocket);
-            
             // 提交到线程池异步处理
-            threadPool.submit(worker);
+            threadPool.execute(() -> {
+                System.out.println("[服务器] 接受新连接: " + connection.clientAddress());
+                
+                // 配置Socket选项
+                configureSocket(clientSocket);
+                
+                // 在当前工作线程上处理这个连接
+                new SimpleHttpWorker(connection, this).run();
+            });
             
+        } catch (RejectedExecutionException e) {
+            // 等待队列已满（或线程池正在关闭）
+            activeConnections.decrementAndGet();
+            rejectOverloaded(clientSocket);
         } catch (Exception e) {
+            activeConnections.decrementAndGet();
             System.err.println("处理新连接时发生错误: " + e.getMessage());
             
-            // 如果配置失败，关闭连接
+            // 如果提交失败，关闭连接
             try {
                 clientSocket.close();
             } catch (IOException ignore) {
@@ -141,6 +457,53 @@ public class SimpleHttpServer {
         }
     }
     
+    /**
+     * 停放的连接有新数据到达，重新提交给线程池处理
+     * 
+     * @param connection 有数据可读的连接
+     */
+    private void dispatch(HttpConnection connection) {
+        try {
+            threadPool.execute(() -> new SimpleHttpWorker(connection, this).run());
+        } catch (RejectedExecutionException e) {
+            rejectOverloaded(connection.socket());
+            connection.close();
+        }
+    }
+    
+    /**
+     * 向过载时被拒绝的连接写出预先序列化的503并关闭
+     * 
+     * 在accept线程上执行，因此只做最少的工作：
+     * 写出响应（新连接的发送缓冲区必然足够，不会阻塞）、半关闭输出、
+     * 丢弃客户端已发来的数据（避免关闭时内核发送RST导致客户端收不到503），然后关闭。
+     * 
+     * @param socket 被拒绝的连接
+     */
+    private void rejectOverloaded(Socket socket) {
+        long rejected = rejectedConnections.incrementAndGet();
+        // 过载时逐个打印会拖慢accept循环，只在首次和每1000次时提示
+        if (rejected == 1 || rejected % 1000 == 0) {
+            System.err.println("[服务器] 过载，已拒绝 " + rejected + " 个连接 (当前连接数: " + activeConnections.get() + ")");
+        }
+        try {
+            socket.setSoTimeout(100);
+            socket.getOutputStream().write(overloadedResponse);
+            socket.shutdownOutput();
+            InputStream in = socket.getInputStream();
+            int available = in.available();
+            if (available > 0) in.skip(available);
+        } catch (IOException ignore) {
+            // 客户端已断开，无需处理
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // 忽略关闭错误
+            }
+        }
+    }
+    
     /**
      * 配置客户端Socket选项
      * 
@@ -166,12 +529,14 @@ public class SimpleHttpServer {
     /**
      * 停止HTTP服务器
      * 
-     * 这个方法会设置running标志为false，并关闭线程池。
-     * 注意：这不会立即停止服务器，而是让主循环自然退出。
+     * 这个方法会设置running标志为false，关闭全部监听Socket并关闭线程池。
+     * 关闭监听Socket会打断阻塞中的accept()，主循环随之退出。
      */
     public void stop() {
         System.out.println("正在停止HTTP服务器...");
+        ready = false;
         running = false;
+        closeListeners();
         shutdownServer();
     }
     
@@ -180,6 +545,7 @@ public class SimpleHttpServer {
      */
     //等价于直接shutdownnow
     private void shutdownServer() {
+        ready = false;
         System.out.println("正在关闭线程池...");
         
         // 优雅关闭线程池
@@ -197,6 +563,51 @@ public class SimpleHttpServer {
             Thread.currentThread().interrupt();
         }
         
+        // 线程池关闭后不会再有连接被停放，关闭停放器及其中的空闲连接
+        IdleConnectionParker activeParker = parker;
+        if (activeParker != null) {
+            parker = null;
+            activeParker.shutdown();
+        }
+        
+        // 连接线程都已结束，舱壁里不会再有新任务
+        if (bulkheads != null) {
+            try {
+                bulkheads.shutdown(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        if (compressionCache != null) {
+            compressionCache.shutdown();
+        }
+        if (batchExecutor != null) {
+            batchExecutor.shutdown();
+        }
+        ResourceIndex activeIndex = resourceIndex;
+        if (activeIndex != null) {
+            activeIndex.close();
+        }
+        SearchIndex activeSearch = searchIndex;
+        if (activeSearch != null) {
+            activeSearch.close();
+        }
+        ResumableUploads activeUploads = resumableUploads;
+        if (activeUploads != null) {
+            activeUploads.close();
+        }
+        
+        // 连接线程都已结束，访问计数不再变化，保存供下次启动预热
+        saveHotPaths();
+        
+        // 线程池关闭后不会再有新请求，此时结束录制
+        TrafficRecorder activeRecorder = recorder;
+        if (activeRecorder != null) {
+            recorder = null;
+            activeRecorder.close();
+        }
+        
         System.out.println("HTTP服务器已停止");
     }
     
@@ -209,6 +620,164 @@ public class SimpleHttpServer {
         return port;
     }
     
+    /**
+     * 获取实际监听的端口
+     * 
+     * 以端口0启动时由系统分配端口，需要通过此方法获取。
+     * 
+     * @return 实际监听的端口号，尚未开始监听时返回-1
+     */
+    public int getLocalPort() {
+        List<ServerSocket> current = listeners;
+        return current.isEmpty() ? -1 : current.get(0).getLocalPort();
+    }
+    
+    /**
+     * 获取当前正在处理或排队的连接数
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+    
+    /**
+     * 获取因过载被拒绝的连接总数
+     */
+    public long getRejectedConnections() {
+        return rejectedConnections.get();
+    }
+    
+    /**
+     * 获取按路由类别的并发限制器，未启用时返回null
+     */
+    public RouteLimiters getRouteLimiters() {
+        return routeLimiters;
+    }
+    
+    /**
+     * 获取空闲长连接停放器，未启用时返回null
+     */
+    IdleConnectionParker getParker() {
+        return parker;
+    }
+    
+    /**
+     * 获取按路由类别的舱壁，未启用时返回null
+     */
+    public Bulkheads getBulkheads() {
+        return bulkheads;
+    }
+    
+    /**
+     * 生成运行统计（纯文本，每行一项），供 /admin/stats 使用
+     */
+    public String describeStats() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("activeConnections=").append(getActiveConnections()).append('\n');
+        sb.append("rejectedConnections=").append(getRejectedConnections()).append('\n');
+        IdleConnectionParker activeParker = parker;
+        if (activeParker != null) {
+            sb.append("idleParker=").append(activeParker).append('\n');
+        }
+        if (threadPool instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) threadPool;
+            sb.append("connectionPool={threads=").append(pool.getMaximumPoolSize())
+              .append(", active=").append(pool.getActiveCount())
+              .append(", queued=").append(pool.getQueue().size())
+              .append(", completed=").append(pool.getCompletedTaskCount()).append("}\n");
+        } else {
+            sb.append("connectionPool=").append(threadPool).append('\n');
+        }
+        if (routeLimiters != null) {
+            sb.append("limiters=").append(routeLimiters).append('\n');
+        }
+        if (bulkheads != null) {
+            sb.append("bulkheads=").append(bulkheads).append('\n');
+        }
+        if (compressionCache != null) {
+            sb.append("compression=").append(compressionCache).append('\n');
+        }
+        if (resourceIndex != null) {
+            sb.append("resources=").append(resourceIndex).append('\n');
+        }
+        if (queryService != null) {
+            sb.append("queries=").append(queryService).append('\n');
+        }
+        if (searchIndex != null) {
+            sb.append("search=").append(searchIndex).append('\n');
+        }
+        if (resumableUploads != null) {
+            sb.append("uploads=").append(resumableUploads).append('\n');
+        }
+        sb.append("ready=").append(ready).append('\n');
+        if (warmupResult != null) {
+            sb.append("warmup=").append(warmupResult).append('\n');
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * 获取服务器配置
+     */
+    public ServerConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * 获取静态资源压缩变体缓存，未启用压缩时返回null
+     */
+    CompressionCache getCompressionCache() {
+        return compressionCache;
+    }
+    
+    /**
+     * 获取静态资源索引，服务器启动之前返回null
+     */
+    ResourceIndex getResourceIndex() {
+        return resourceIndex;
+    }
+    
+    /**
+     * 获取JSON资源的索引查询，服务器启动之前返回null
+     */
+    JsonQueryService getQueryService() {
+        return queryService;
+    }
+    
+    /**
+     * 获取执行批量请求中子请求的线程池，未启用并行时返回null
+     */
+    Executor getBatchExecutor() {
+        return batchExecutor;
+    }
+    
+    /**
+     * 获取全文检索，服务器启动之前返回null
+     */
+    SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    
+    /**
+     * 获取可续传上传，服务器启动之前或资源包模式下返回null
+     */
+    ResumableUploads getResumableUploads() {
+        return resumableUploads;
+    }
+    
+    /**
+     * 获取静态资源访问计数，未配置热门路径列表文件时返回null
+     */
+    HotPaths getHotPaths() {
+        return hotPaths;
+    }
+    
+    /**
+     * 获取流量录制器，未启用时返回null
+     */
+    TrafficRecorder getRecorder() {
+        return recorder;
+    }
+    
     /**
      * 检查服务器是否正在运行
      * 
@@ -217,4 +786,11 @@ public class SimpleHttpServer {
     public boolean isRunning() {
         return running;
     }
+    
+    /**
+     * 检查服务器是否已就绪：已开始接受连接（启用预热时预热已完成），且尚未停止
+     */
+    public boolean isReady() {
+        return ready;
+    }
 }
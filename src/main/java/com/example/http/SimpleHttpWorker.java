@@ -1,93 +1,281 @@
 package com.example.http;
 
+import com.example.http.capture.TrafficRecorder;
 import com.example.http.http.*;
+import com.example.http.limit.Bulkheads;
+import com.example.http.limit.ConcurrencyLimiter;
+import com.example.http.limit.RouteLimiters;
+import com.example.http.query.JsonQueryService;
+import com.example.http.resource.CompressionCache;
+import com.example.http.resource.FileMetadata;
+import com.example.http.resource.Preconditions;
+import com.example.http.resource.ResourceIndex;
+import com.example.http.resource.StaticResource;
+import com.example.http.search.SearchIndex;
+import com.example.http.upload.ResumableUploads;
+import com.example.http.upload.UploadChecksum;
+import com.example.http.upload.UploadException;
 import com.example.http.user.UserService;
 
 import java.io.*;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class SimpleHttpWorker implements Runnable {
     
+    // 客户端连接及其跨请求的状态
+    private final HttpConnection connection;
+    
     // 客户端Socket连接
     private final Socket socket;
     
+    // 所属服务器，单独使用worker时为null
+    private final SimpleHttpServer server;
+    
+    // 流量录制器，为null时不录制
+    private final TrafficRecorder recorder;
+    
+    // 按路由类别的并发限制器，为null时不限制
+    private final RouteLimiters routeLimiters;
+    
+    // 按路由类别的舱壁，为null时在连接线程上直接处理
+    private final Bulkheads bulkheads;
+    
+    // 服务器配置（单独使用worker时为默认配置）
+    private final ServerConfig config;
+    
+    // 空闲长连接停放器，为null时在当前线程上阻塞等待下一个请求
+    private final IdleConnectionParker parker;
+    
+    // 静态资源压缩变体缓存，为null时不压缩
+    private final CompressionCache compressionCache;
+    
+    // 静态资源索引
+    private final ResourceIndex resourceIndex;
+    
+    // 静态资源访问计数，供下次启动预热使用；为null时不计数
+    private final HotPaths hotPaths;
+    
+    // JSON资源的索引查询
+    private final JsonQueryService queryService;
+    
+    // 文本资源的全文检索
+    private final SearchIndex searchIndex;
+    
+    // 可续传上传；资源包模式下服务器不建立，单独使用worker时第一次用到才建立
+    private final ResumableUploads resumableUploads;
+    
     // 用户服务，处理注册和登录
     private static final UserService USER_SERVICE = new UserService();
     
     // 服务器名称，用于响应头
     private static final String SERVER_NAME = "SimpleSocketServer/1.0";
     
-    // 静态资源目录路径
-    // 所有静态文件（HTML、CSS、JS、图片等）都存放在这里
-    // 上传的文件也会保存到这里，便于通过HTTP直接访问
-    private static final Path PUBLIC_ROOT = Paths.get("src","main","resources","public");
-    
     // 会话存储：sessionId -> 用户名
     // 使用ConcurrentHashMap确保线程安全
     private static final Map<String,String> SESSIONS = new java.util.concurrent.ConcurrentHashMap<>();
     
     // 会话Cookie的名称
-    private static final String SESSION_COOKIE = "SID";
+    static final String SESSION_COOKIE = "SID";
     
-    // HTTP日期格式化器（RFC1123格式）
-    // 使用ThreadLocal确保每个线程有自己的格式化器实例，避免线程安全问题
-    private static final ThreadLocal<SimpleDateFormat> RFC_1123 = ThreadLocal.withInitial(() -> {
-        SimpleDateFormat f = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
-        f.setTimeZone(TimeZone.getTimeZone("Asia/Shanghai"));
-        return f;
-    });
+    // 处理方没有读完的请求体，剩余不超过这个大小时读出丢弃以便复用连接，否则回复后关闭连接
+    private static final long MAX_DRAIN_BYTES = 64 * 1024;
     
     public SimpleHttpWorker(Socket socket) {
-        this.socket = socket;
+        this(new HttpConnection(socket, null), null);
+    }
+    
+    /**
+     * @param connection 客户端连接
+     * @param server 所属服务器，提供录制器、限流器等共享组件；可为null
+     */
+    public SimpleHttpWorker(HttpConnection connection, SimpleHttpServer server) {
+        this.connection = connection;
+        this.socket = connection.socket();
+        this.server = server;
+        this.recorder = server != null ? server.getRecorder() : null;
+        if (connection.captureConnectionId == Long.MIN_VALUE) {
+            connection.captureConnectionId = recorder != null ? recorder.sampleConnection() : -1;
+        }
+        this.routeLimiters = server != null ? server.getRouteLimiters() : null;
+        this.bulkheads = server != null ? server.getBulkheads() : null;
+        this.config = server != null ? server.getConfig() : new ServerConfig();
+        this.parker = server != null && connection.channel() != null ? server.getParker() : null;
+        this.compressionCache = server != null ? server.getCompressionCache() : null;
+        ResourceIndex index = server != null ? server.getResourceIndex() : null;
+        this.resourceIndex = index != null ? index : StandaloneIndex.get();
+        this.hotPaths = server != null ? server.getHotPaths() : null;
+        JsonQueryService queries = server != null ? server.getQueryService() : null;
+        this.queryService = queries != null ? queries : StandaloneIndex.queries();
+        SearchIndex search = server != null ? server.getSearchIndex() : null;
+        this.searchIndex = search != null ? search : StandaloneIndex.search();
+        this.resumableUploads = server != null ? server.getResumableUploads() : null;
+    }
+    
+    /**
+     * 单独使用worker（没有服务器）时共享的静态资源索引、JSON查询、全文检索和可续传上传，第一次使用时建立，不监视目录变化
+     * 
+     * 可续传上传在第一次上传时才建立：建立时会创建临时目录并清理其中遗留的分块文件，
+     * 只读取资源的用法（如基准测试、预热）不应碰它，建立失败也只影响上传请求。
+     */
+    private static final class StandaloneIndex {
+        private static final ResourceIndex INDEX;
+        private static final JsonQueryService QUERIES;
+        private static final SearchIndex SEARCH;
+        private static ResumableUploads uploads;
+        static {
+            ServerConfig defaults = new ServerConfig();
+            try {
+                INDEX = ResourceIndex.open(defaults.publicRoot(), null, false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("建立静态资源索引失败", e);
+            }
+            QUERIES = new JsonQueryService(INDEX);
+            SEARCH = new SearchIndex(INDEX);
+            SEARCH.start();
+        }
+        
+        static ResourceIndex get() {
+            return INDEX;
+        }
+        
+        static JsonQueryService queries() {
+            return QUERIES;
+        }
+        
+        static SearchIndex search() {
+            return SEARCH;
+        }
+        
+        static synchronized ResumableUploads uploads() throws IOException {
+            if (uploads == null) {
+                ServerConfig defaults = new ServerConfig();
+                uploads = ResumableUploads.open(defaults.publicRoot(), defaults.uploadDir(), defaults.uploadMaxSize());
+            }
+            return uploads;
+        }
     }
 
+    /**
+     * 处理连接上的请求，直到连接关闭或（启用停放时）连接进入空闲
+     * 
+     * 连接空闲时交给停放器并返回，不关闭连接；之后有新数据到达会由新的worker继续处理。
+     */
     @Override
     public void run() {
-        String clientAddress = socket.getRemoteSocketAddress().toString();
-        System.out.println("[服务器] 开始处理连接: " + clientAddress);
+        String clientAddress = connection.clientAddress();
+        if (connection.requestCount == 0 && !connection.synthetic) {
+            System.out.println("[服务器] 开始处理连接: " + clientAddress);
+        }
+        boolean parked = false;
         
-        try (InputStream in = socket.getInputStream(); 
-            OutputStream out = socket.getOutputStream()) {
+        try {
+            InputStream in = connection.input();
+            OutputStream out = socket.getOutputStream();
+            
+            // 新连接上请求还没到达（握手完成通常早于数据到达）：先停放，不占用线程等待
+            if (parker != null && connection.requestCount == 0 && connection.parkedAt == 0 && in.available() == 0) {
+                parked = true;
+                parker.park(connection);
+                return;
+            }
             
             // HTTP/1.1默认保持连接，除非客户端明确要求关闭
             boolean keepAlive = true;
-            int requestCount = 0;
+            int maxRequests = config.keepAliveMaxRequests();
             
             // 循环处理连接上的所有HTTP请求
             while (keepAlive && !socket.isClosed()) {
                 try {
-                    // 解析HTTP请求
+                    // 解析HTTP请求；未启用停放时，等待后续请求使用长连接空闲超时
+                    if (connection.requestCount > 0 && parker == null) {
+                        socket.setSoTimeout(config.keepAliveTimeoutMillis());
+                    }
                     HttpRequest request = parseRequest(in);
                     if (request == null) {
-                        System.out.println("[服务器] 客户端关闭连接或发送无效数据: " + clientAddress);
+                        if (!connection.synthetic) System.out.println("[服务器] 客户端关闭连接或发送无效数据: " + clientAddress);
                         break;
                     }
                     
-                    requestCount++;
+                    int requestCount = ++connection.requestCount;
                     logRequest(request, requestCount, clientAddress);
+                    // 被抽样录制的连接需要完整的请求体，只有这些连接会整体缓冲请求体
+                    if (connection.captureConnectionId >= 0) {
+                        recorder.record(connection.captureConnectionId, requestCount, request);
+                    }
                     
                     // 检查客户端是否要求关闭连接
                     keepAlive = shouldKeepConnectionAlive(request, keepAlive);
                     
+                    // 达到单连接请求数上限后关闭，促使客户端重新建连以便负载重新分布
+                    if (maxRequests > 0 && requestCount >= maxRequests) {
+                        keepAlive = false;
+                    }
+                    
                     // 处理请求并生成响应
                     HttpResponse response = processRequest(request);
+                    if ("HEAD".equalsIgnoreCase(request.method())) {
+                        response.headOnly();
+                    }
+                    
+                    // 处理方没有读完的请求体（如401直接拒绝的大POST）：剩余不多时丢弃后复用连接，
+                    // 否则不再读取，回复后关闭连接
+                    boolean bodyConsumed = request.discardBody(MAX_DRAIN_BYTES);
+                    connection.deadlines().end();
+                    if (!bodyConsumed) {
+                        System.out.println("[服务器] 请求体未读取完 (剩余超过 " + MAX_DRAIN_BYTES + " 字节)，回复后关闭连接");
+                        keepAlive = false;
+                    }
                     
-                    // 发送响应给客户端
-                    sendResponse(out, response, keepAlive);
+                    // HTTP/1.0 客户端不认识 chunked：流式响应改为以关闭连接表示结束
+                    boolean chunked = !"HTTP/1.0".equalsIgnoreCase(request.version());
+                    if (response.isStreaming() && !chunked) {
+                        keepAlive = false;
+                    }
+                    
+                    // 发送响应给客户端；发送失败时响应可能已经发出一部分，不能再回复错误响应，直接关闭连接
+                    try {
+                        sendResponse(out, response, keepAlive, chunked);
+                    } catch (IOException e) {
+                        break;
+                    }
+                    if (!bodyConsumed) {
+                        // 先半关闭发送方向，让客户端在连接被重置前收到完整的响应
+                        socket.shutdownOutput();
+                    }
                     
                     // 检查是否需要关闭连接
                     keepAlive = shouldCloseConnection(response, keepAlive);
                     
                     logConnectionStatus(keepAlive, requestCount);
                     
+                    // 下一个请求还没到：停放连接，归还线程
+                    if (keepAlive && parker != null && in.available() == 0) {
+                        parked = true;
+                        parker.park(connection);
+                        return;
+                    }
+                    
+                } catch (HttpParseException e) {
+                    // 请求没有读完整，回复对应状态码后关闭连接
+                    System.err.println("[服务器] 拒绝请求 (" + e.status().code() + "): " + e.getMessage() + " - " + clientAddress);
+                    sendParseErrorResponse(out, e);
+                    break;
+                } catch (SocketTimeoutException e) {
+                    System.out.println("[服务器] 读取超时，关闭连接: " + clientAddress);
+                    break;
                 } catch (Exception e) {
                     System.err.println("[服务器] 处理请求时发生错误: " + e.getMessage());
                     sendErrorResponse(out, e);
@@ -98,7 +286,9 @@ public class SimpleHttpWorker implements Runnable {
         } catch (IOException e) {
             System.err.println("[服务器] 连接处理异常,关闭当前worker连接: " + e.getMessage());
         } finally {
-            closeConnection(clientAddress);
+            if (!parked) {
+                connection.close();
+            }
         }
     }
     
@@ -106,6 +296,7 @@ public class SimpleHttpWorker implements Runnable {
      * 记录请求信息
      */
     private void logRequest(HttpRequest request, int requestCount, String clientAddress) {
+        if (connection.synthetic) return;
         System.out.println(String.format("[服务器] 处理请求 #%d - %s %s (连接: %s)", 
                 requestCount, request.method(), request.path(), clientAddress));
     }
@@ -124,16 +315,75 @@ public class SimpleHttpWorker implements Runnable {
     
     /**
      * 处理HTTP请求
+     * 
+     * 启用路由限流时，先按路由类别获取许可，超过上限直接返回503，不进入处理逻辑；
+     * 处理耗时作为样本反馈给限流算法。
+     * 启用舱壁模式时，处理逻辑在该类别专用的线程池中执行，舱壁已满同样直接返回503。
+     * 处理方读取请求体时超时或过慢，抛出 {@link HttpParseException}，由调用方回复后关闭连接。
+     * 
+     * 许可和舱壁只覆盖 {@link #handle}：返回时许可已释放、舱壁线程已归还。流式响应体在之后由连接线程
+     * 边生成边发送（{@link #sendResponse}），不受二者约束——发送速度取决于客户端，占着舱壁线程会让慢客户端
+     * 拖住整个类别，计入许可则会把网络耗时当作处理耗时反馈给限流算法。流式路由要自己控制生成的开销。
      */
-    private HttpResponse processRequest(HttpRequest request) {
+    private HttpResponse processRequest(HttpRequest request) throws HttpParseException {
+        // 批量请求的每个子请求各自经过这里的限流和舱壁；批量请求本身只做分发，
+        // 不在舱壁线程上等待子请求（子请求可能排在同一个舱壁里）
+        if ("POST".equalsIgnoreCase(request.method()) && "/batch".equals(decodePath(request.path()))) {
+            return handleBatch(request);
+        }
+        RouteClass routeClass = routeLimiters != null || bulkheads != null
+                ? RouteClass.of(request.method(), decodePath(request.path()))
+                : null;
+        ConcurrencyLimiter.Permit permit = null;
+        if (routeLimiters != null) {
+            permit = routeLimiters.get(routeClass).tryAcquire();
+            if (permit == null) {
+                return createLimitedResponse(routeClass);
+            }
+        }
         try {
-            return handle(request);
+            HttpResponse response = bulkheads != null
+                    ? bulkheads.get(routeClass).call(() -> handle(request))
+                    : handle(request);
+            if (permit != null) {
+                if (response.status() == HttpStatus.SERVICE_UNAVAILABLE) permit.dropped();
+                else permit.success();
+            }
+            return response;
+        } catch (RejectedExecutionException ex) {
+            // 舱壁已满：对限流算法而言是明确的过载信号
+            if (permit != null) permit.dropped();
+            return createLimitedResponse(routeClass);
         } catch (Exception ex) {
+            // 处理异常多为程序错误而非容量问题，不作为限流样本
+            if (permit != null) permit.ignore();
+            HttpParseException parseError = bodyReadError(ex);
+            if (parseError != null) throw parseError;
             System.err.println("[服务器] 请求处理异常: " + ex.getMessage());
             return createErrorResponse(ex);
         }
     }
     
+    /**
+     * 读取请求体失败（超时、速率过低）时的异常，表单解析会把它包装为 UncheckedIOException
+     */
+    private static HttpParseException bodyReadError(Exception ex) {
+        if (ex instanceof HttpParseException parseError) return parseError;
+        if (ex instanceof UncheckedIOException && ex.getCause() instanceof HttpParseException parseError) return parseError;
+        return null;
+    }
+    
+    /**
+     * 路由并发超限时的503响应，没有读取的请求体随后按常规丢弃，连接通常可以继续复用
+     */
+    private HttpResponse createLimitedResponse(RouteClass routeClass) {
+        return new HttpResponse()
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", String.valueOf(config.retryAfterSeconds()))
+                .bodyText("503 Service Unavailable - " + routeClass.name().toLowerCase(Locale.ROOT) + " 请求过多，请稍后重试",
+                        "text/plain; charset=UTF-8");
+    }
+    
     /**
      * 如果响应错误，创建500错误码
      */
@@ -147,10 +397,17 @@ public class SimpleHttpWorker implements Runnable {
      * 发送HTTP响应
      */
     private void sendResponse(OutputStream out, HttpResponse response, boolean keepAlive) throws IOException {
+        sendResponse(out, response, keepAlive, true);
+    }
+    
+    /**
+     * 发送HTTP响应；流式响应体在这里边生成边发送
+     * 
+     * @param chunked 流式响应是否使用 chunked 传输编码
+     */
+    private void sendResponse(OutputStream out, HttpResponse response, boolean keepAlive, boolean chunked) throws IOException {
         try {
-            byte[] responseBytes = response.toBytes(keepAlive);
-            out.write(responseBytes);
-            out.flush();//刷新缓冲区，即立即输出。
+            response.writeTo(out, connection.channel(), keepAlive, chunked);
         } catch (IOException e) {
             System.err.println("[服务器] 发送响应失败: " + e.getMessage());
             throw e;
@@ -169,6 +426,20 @@ public class SimpleHttpWorker implements Runnable {
         }
     }
     
+    /**
+     * 发送请求读取/解析失败的响应，随后连接将被关闭
+     */
+    private void sendParseErrorResponse(OutputStream out, HttpParseException e) {
+        try {
+            HttpResponse response = new HttpResponse()
+                    .status(e.status())
+                    .bodyText(e.status().format() + " - " + e.getMessage(), "text/plain; charset=UTF-8");
+            sendResponse(out, response, false);
+        } catch (IOException ioException) {
+            // 慢速客户端可能已经不再读取，无需处理
+        }
+    }
+    
     /**
      * 判断是否应该关闭连接
      */
@@ -181,6 +452,7 @@ public class SimpleHttpWorker implements Runnable {
      * 记录连接状态
      */
     private void logConnectionStatus(boolean keepAlive, int requestCount) {
+        if (connection.synthetic) return;
         if (keepAlive) {
             System.out.println("[服务器] 保持连接，等待下一个请求... (已处理: " + requestCount + " 个请求)");
         } else {
@@ -189,60 +461,108 @@ public class SimpleHttpWorker implements Runnable {
     }
     
     /**
-     * 关闭连接
+     * 解析请求：读取起始行 + 头部，请求体以流的形式挂到请求上，由处理方按需读取。
+     * 请求体按 Content-Length 定界，或使用 chunked 传输编码（不支持其他传输编码）。
+     * 
+     * 等待第一个字节属于长连接空闲等待；从第一个字节开始，请求头必须在时限内读完。
+     * 请求体从第一次读取时开始计时，必须在时限内读完且速率不低于下限。
+     * 起始行长度、请求头总字节数与数量、请求体大小均有上限，超出时抛出带对应状态码的 {@link HttpParseException}。
      */
-    private void closeConnection(String clientAddress) {
+    private HttpRequest parseRequest(InputStream in) throws IOException {
+        // 等待请求的第一个字节，不计入请求头时限
+        in.mark(1);
+        if (in.read() == -1) return null;
+        in.reset();
+        
+        DeadlineInputStream deadlines = connection.deadlines();
+        deadlines.begin("请求头", config.headerTimeoutMillis(), 0);
         try {
-            if (!socket.isClosed()) {
-                socket.close();
-                System.out.println("[服务器] 连接已关闭: " + clientAddress);
+            // 读取请求行
+            String start = readLine(in, config.maxStartLine(), HttpStatus.URI_TOO_LONG);
+            if (start == null || start.isEmpty()) return null;
+            String[] parts = start.split(" ");
+            if (parts.length < 3) return null;
+            HttpRequest req = new HttpRequest();
+            req.setStartLine(parts[0], parts[1], parts[2]);
+            // 读取头部
+            int headerBytes = 0;
+            int headerCount = 0;
+            String l;
+            while ((l = readLine(in, config.maxHeaderBytes() - headerBytes, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE)) != null) {
+                if (l.isEmpty()) break; // 头结束
+                headerBytes += l.length() + 2;
+                if (++headerCount > config.maxHeaders()) {
+                    throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                            "请求头数量超过上限 " + config.maxHeaders());
+                }
+                int c = l.indexOf(':');
+                if (c > 0) {
+                    String name = l.substring(0,c).trim();
+                    String value = l.substring(c+1).trim();
+                    req.addHeader(name, value);
+                }
             }
-        } catch (IOException e) {
-            System.err.println("[服务器] 关闭连接时发生错误: " + e.getMessage());
+            Runnable beginBody = () -> deadlines.begin("请求体", config.bodyTimeoutMillis(), config.minDataRate());
+            String transferEncoding = req.headerFirst("transfer-encoding");
+            if (transferEncoding != null) {
+                // 同时带 Transfer-Encoding 和 Content-Length 的请求可能被前后两层代理按不同方式定界（请求走私），直接拒绝
+                if (req.headerFirst("content-length") != null) {
+                    throw new HttpParseException(HttpStatus.BAD_REQUEST, "请求同时带有 Transfer-Encoding 和 Content-Length");
+                }
+                if (!"chunked".equalsIgnoreCase(transferEncoding.trim()) || req.headerValues("transfer-encoding").size() > 1) {
+                    throw new HttpParseException(HttpStatus.NOT_IMPLEMENTED, "不支持的 Transfer-Encoding: " + transferEncoding);
+                }
+                req.setBodyStream(new ChunkedInputStream(in, config.maxBodySize(), config.maxHeaderBytes(), beginBody), -1);
+                return req;
+            }
+            long contentLength = parseContentLength(req.headerFirst("content-length"));
+            if (contentLength > 0) {
+                req.setBodyStream(new BoundedInputStream(in, contentLength, beginBody), contentLength);
+            }
+            return req;
+        } finally {
+            deadlines.end();
         }
     }
 
-
     /**
-     * 解析请求：读取起始行 + 头部 + 可选 body。
+     * 校验Content-Length：必须是非负整数且不超过请求体上限
      */
-    private HttpRequest parseRequest(InputStream in) throws IOException {
-        // 读取请求行
-        String start = readLine(in);
-        if (start == null || start.isEmpty()) return null;
-        String[] parts = start.split(" ");
-        if (parts.length < 3) return null;
-        HttpRequest req = new HttpRequest();
-        req.setStartLine(parts[0], parts[1], parts[2]);
-        // 读取头部
-        String l;
-        while ((l = readLine(in)) != null) {
-            if (l.isEmpty()) break; // 头结束
-            int c = l.indexOf(':');
-            if (c > 0) {
-                String name = l.substring(0,c).trim();
-                String value = l.substring(c+1).trim();
-                req.addHeader(name, value);
-            }
+    private long parseContentLength(String value) throws HttpParseException {
+        if (value == null) return 0;
+        long length;
+        try {
+            length = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Content-Length 无效: " + value);
         }
-        int contentLength = 0;
-        String cl = req.headerFirst("content-length");
-        if (cl != null) {
-            try { contentLength = Integer.parseInt(cl); } catch (NumberFormatException ignore) {}
+        if (length < 0) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST, "Content-Length 无效: " + value);
         }
-        if (contentLength > 0) {
-            byte[] body = in.readNBytes(contentLength);
-            req.setBody(body);
+        if (length > config.maxBodySize()) {
+            throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "请求体 " + length + " 字节超过上限 " + config.maxBodySize() + " 字节");
         }
-        return req;
+        return length;
     }
 
-    // 读取一行（不包含 CRLF），支持 CRLF 或 LF 结尾
-    private String readLine(InputStream in) throws IOException {
+    /**
+     * 读取一行（不包含 CRLF），支持 CRLF 或 LF 结尾
+     * 
+     * @param maxBytes 本行最多允许的字节数（含行尾）
+     * @param tooLong 超出时回复的状态码
+     */
+    private String readLine(InputStream in, int maxBytes, HttpStatus tooLong) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         int b;
+        int count = 0;
         boolean seenCR = false;
         while ((b = in.read()) != -1) {//按ascii码逐字节读取
+            if (++count > maxBytes) {
+                throw new HttpParseException(tooLong, tooLong == HttpStatus.URI_TOO_LONG
+                        ? "请求行超过 " + config.maxStartLine() + " 字节"
+                        : "请求头超过 " + config.maxHeaderBytes() + " 字节");
+            }
             if (b == '\r') {
                 seenCR = true;
                 continue;
@@ -263,12 +583,11 @@ public class SimpleHttpWorker implements Runnable {
         // 限制：只支持 HTTP/1.1
     // keep-alive 由外层控制
         String method = req.method();
+        // HEAD 与 GET 走同样的路由，响应体由外层去掉
+        if ("HEAD".equalsIgnoreCase(method)) method = "GET";
         String path = decodePath(req.path());
         if (path == null || path.isEmpty()) path = "/";
 
-    // 确保静态资源目录存在（上传会写入该目录）
-    try { Files.createDirectories(PUBLIC_ROOT); } catch (IOException ignore) {}
-
         // 路由：用户接口
         if ("POST".equalsIgnoreCase(method) && "/register".equals(path)) {
             return handleRegister(req);
@@ -276,6 +595,10 @@ public class SimpleHttpWorker implements Runnable {
         if ("POST".equalsIgnoreCase(method) && "/login".equals(path)) {
             return handleLogin(req);
         }
+        // 可续传上传：创建、写入分块、查询偏移、完成、放弃，见 handleResumableUpload
+        if ("/uploads".equals(path) || path.startsWith("/uploads/")) {
+            return handleResumableUpload(method, path, req);
+        }
         if ("POST".equalsIgnoreCase(method) && path.startsWith("/upload")) {
             return handleUpload(req);
         }
@@ -283,6 +606,11 @@ public class SimpleHttpWorker implements Runnable {
             return handleLogout(req);
         }
 
+        // 就绪检查：预热完成前和停止过程中返回503，负载均衡据此决定是否转发流量
+        if ("/health".equals(path)) {
+            return handleHealth();
+        }
+
         // 测试 500 错误的端点
         if ("/test500".equals(path)) {
             try {
@@ -295,6 +623,17 @@ public class SimpleHttpWorker implements Runnable {
             }
         }
 
+        // 运行统计，仅允许本机访问
+        if ("/admin/stats".equals(path) && server != null) {
+            if (!socket.getInetAddress().isLoopbackAddress()) {
+                return new HttpResponse().status(HttpStatus.FORBIDDEN)
+                        .bodyText("403 Forbidden", "text/plain; charset=UTF-8");
+            }
+            return new HttpResponse().status(HttpStatus.OK)
+                    .header("Cache-Control", "no-store")
+                    .bodyText(server.describeStats(), "text/plain; charset=UTF-8");
+        }
+
         // 重定向示例
         if ("/old".equals(path)) {
             return redirect(HttpStatus.MOVED_PERMANENTLY, "/new");
@@ -310,9 +649,9 @@ public class SimpleHttpWorker implements Runnable {
                         .header("WWW-Authenticate", "Cookie realm=\"Simple\"")
                         .bodyText("401 Unauthorized - 请先登录", "text/plain; charset=UTF-8");
             }
-            Path file = PUBLIC_ROOT.resolve("new.html");
-            if (Files.exists(file)) {
-                return serveStatic(req, file, "new.html");
+            StaticResource page = resourceIndex.get("/new.html");
+            if (page != null) {
+                return serveStatic(req, page);
             }
         }
 
@@ -324,30 +663,141 @@ public class SimpleHttpWorker implements Runnable {
                     .bodyText("401 Unauthorized - 请先登录", "text/plain; charset=UTF-8");
         }
 
-        // 仅支持 GET/POST 访问静态/简单动态
+        // 仅支持 GET/HEAD/POST 访问静态/简单动态
         if (!method.equalsIgnoreCase("GET") && !method.equalsIgnoreCase("POST")) {
             return new HttpResponse().status(HttpStatus.METHOD_NOT_ALLOWED)
+                    .header("Allow", "GET, HEAD, POST")
                     .bodyText("Method Not Allowed", "text/plain; charset=UTF-8");
         }
 
-        // 根路径 -> index.html
-        if ("/".equals(path)) {
-            Path idx = PUBLIC_ROOT.resolve("index.html");
-            if (Files.exists(idx)) {
-                return serveStatic(req, idx, "index.html");
-            }
+        // 静态资源目录清单，流式生成
+        if ("/list".equals(path) && method.equalsIgnoreCase("GET")) {
+            return handleList();
+        }
+
+        // JSON资源的索引查询：/query/umas.json?role_id=...&fields=...&offset=0&limit=10
+        if (path.startsWith("/query/") && method.equalsIgnoreCase("GET")) {
+            return handleQuery(path.substring("/query".length()), req);
+        }
+
+        // 文本资源的全文检索：/search?q=...&limit=10
+        if ("/search".equals(path) && method.equalsIgnoreCase("GET")) {
+            return handleSearch(req);
         }
-        // 其他静态文件
-        String relativePath = path.substring(1);
-        if (relativePath.isEmpty()) relativePath = "index.html";
-        Path target = PUBLIC_ROOT.resolve(relativePath).normalize();
-        if (Files.exists(target) && Files.isRegularFile(target)) {
-            return serveStatic(req, target, target.getFileName().toString());
+
+        // 静态文件：在启动时建立的索引中查找，根路径 -> index.html
+        StaticResource resource = resourceIndex.get("/".equals(path) ? "/index.html" : path);
+        if (resource != null) {
+            return serveStatic(req, resource);
         }
         return new HttpResponse().status(HttpStatus.NOT_FOUND)
                 .bodyText("Not Found", "text/plain; charset=UTF-8");
     }
 
+    private HttpResponse handleQuery(String resourcePath, HttpRequest req) throws IOException {
+        JsonQueryService.Result result = queryService.query(resourcePath, req.queryParams());
+        return new HttpResponse().status(result.status())
+                .header("Cache-Control", "private, no-cache")
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .body(result.body());
+    }
+
+    /**
+     * 批量请求：子请求并行执行，回复按子请求的顺序流式发出，前面的完成即发送，不等后面的
+     * 
+     * 子请求走与普通请求相同的 {@link #processRequest}（限流、舱壁、路由、鉴权）。
+     * 并行线程池没有空闲线程时子请求在当前线程上执行，因此不会因为线程池满而失败或相互等待。
+     */
+    private HttpResponse handleBatch(HttpRequest req) throws HttpParseException {
+        if (req.contentLength() > Batch.MAX_BODY_BYTES) {
+            return new HttpResponse().status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .bodyText("批量请求体超过 " + Batch.MAX_BODY_BYTES + " 字节", "text/plain; charset=UTF-8");
+        }
+        AtomicLong budget = new AtomicLong(Batch.MAX_RESPONSE_BYTES);
+        List<Batch.SubRequest> requests;
+        try {
+            byte[] body = req.bodyStream().readNBytes(Batch.MAX_BODY_BYTES + 1);
+            if (body.length > Batch.MAX_BODY_BYTES) {
+                return new HttpResponse().status(HttpStatus.PAYLOAD_TOO_LARGE)
+                        .bodyText("批量请求体超过 " + Batch.MAX_BODY_BYTES + " 字节", "text/plain; charset=UTF-8");
+            }
+            requests = Batch.parse(body, req, budget);
+        } catch (HttpParseException e) {
+            throw e;
+        } catch (IOException e) {
+            return new HttpResponse().status(HttpStatus.BAD_REQUEST)
+                    .bodyText("读取批量请求失败: " + e.getMessage(), "text/plain; charset=UTF-8");
+        } catch (IllegalArgumentException e) {
+            return new HttpResponse().status(HttpStatus.BAD_REQUEST)
+                    .bodyText("批量请求格式错误: " + e.getMessage(), "text/plain; charset=UTF-8");
+        }
+        
+        Executor executor = server != null ? server.getBatchExecutor() : null;
+        List<CompletableFuture<byte[]>> parts = new ArrayList<>(requests.size());
+        for (Batch.SubRequest sub : requests) {
+            parts.add(executor != null
+                    ? CompletableFuture.supplyAsync(() -> executeSubRequest(sub), executor)
+                    : CompletableFuture.completedFuture(executeSubRequest(sub)));
+        }
+        String boundary = "batch_" + UUID.randomUUID().toString().replace("-", "");
+        return new HttpResponse().status(HttpStatus.OK)
+                .header("Cache-Control", "no-store")
+                .bodyStream("multipart/mixed; boundary=" + boundary, (out, trailers) -> {
+                    for (int i = 0; i < parts.size(); i++) {
+                        Batch.writePart(out, boundary, i + 1, parts.get(i).join());
+                    }
+                    Batch.writeEnd(out, boundary);
+                });
+    }
+    
+    /**
+     * 执行一个子请求，返回编码后的响应报文；超出批量请求字节预算的子请求回复413
+     */
+    private byte[] executeSubRequest(Batch.SubRequest sub) {
+        HttpResponse response;
+        try {
+            response = processRequest(sub);
+        } catch (HttpParseException e) {
+            // 子请求没有请求体，不会发生
+            response = new HttpResponse().status(e.status())
+                    .bodyText(e.status().format() + " - " + e.getMessage(), "text/plain; charset=UTF-8");
+        }
+        if ("HEAD".equals(sub.method())) {
+            response.headOnly();
+        }
+        try {
+            byte[] message = Batch.encode(response, sub);
+            return message != null ? message : Batch.encode(batchTooLarge(sub));
+        } catch (IOException e) {
+            // 流式响应体生成失败
+            try {
+                return Batch.encode(createErrorResponse(e));
+            } catch (IOException impossible) {
+                throw new UncheckedIOException(impossible);
+            }
+        }
+    }
+
+    private HttpResponse handleSearch(HttpRequest req) {
+        SearchIndex.Result result = searchIndex.query(req.queryParams());
+        return new HttpResponse().status(result.status())
+                .header("Cache-Control", "private, no-cache")
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .body(result.body());
+    }
+
+    private HttpResponse handleHealth() {
+        if (server == null || server.isReady()) {
+            return new HttpResponse().status(HttpStatus.OK)
+                    .header("Cache-Control", "no-store")
+                    .bodyText("ready", "text/plain; charset=UTF-8");
+        }
+        return new HttpResponse().status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Cache-Control", "no-store")
+                .header("Retry-After", String.valueOf(config.retryAfterSeconds()))
+                .bodyText(server.isRunning() ? "warming up" : "stopping", "text/plain; charset=UTF-8");
+    }
+
     private String decodePath(String p) {
         try { return URLDecoder.decode(p, StandardCharsets.UTF_8); } catch (Exception e) { return p; }
     }
@@ -378,13 +828,16 @@ public class SimpleHttpWorker implements Runnable {
                 .bodyText("登录失败(用户名或密码错误)", "text/plain; charset=UTF-8");
     }
 
-    private HttpResponse handleUpload(HttpRequest req) {
+    private HttpResponse handleUpload(HttpRequest req) throws IOException {
         //先检查登录与否
         String user = authenticate(req);
         if (user == null) {
             return new HttpResponse().status(HttpStatus.UNAUTHORIZED)
                     .bodyText("未登录，无法上传", "text/plain; charset=UTF-8");
         }
+        if (config.bundle() != null) {
+            return uploadsDisabled();
+        }
         //格式检查
         String ctype = req.headerFirst("content-type");
         if (ctype == null || !ctype.toLowerCase().startsWith("multipart/form-data")) {
@@ -453,8 +906,9 @@ public class SimpleHttpWorker implements Runnable {
             }
             // 保存文件到静态资源目录，以便通过 HTTP 直接访问
             try {
-                Path target = PUBLIC_ROOT.resolve(filename).normalize();
-                if (!target.startsWith(PUBLIC_ROOT)) {
+                Files.createDirectories(config.publicRoot());
+                Path target = config.publicRoot().resolve(filename).normalize();
+                if (!target.startsWith(config.publicRoot())) {
                     return new HttpResponse().status(HttpStatus.METHOD_NOT_ALLOWED)
                             .bodyText("路径不允许", "text/plain; charset=UTF-8");
                 }
@@ -470,6 +924,13 @@ public class SimpleHttpWorker implements Runnable {
             return new HttpResponse().status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .bodyText("未解析到文件", "text/plain; charset=UTF-8");
         }
+        // 不等目录监视线程，只登记写入的文件，上传的文件立即可以访问
+        List<String> uploadedPaths = new ArrayList<>();
+        for (String fileInfo : saved) {
+            uploadedPaths.add("/" + fileInfo.split("\\(")[0]);
+        }
+        // 全文检索在后台增量索引变化的资源，不拖慢上传的回复
+        searchIndex.update(resourceIndex.update(uploadedPaths));
         // 构建返回的URL，格式为 /resource/public/文件名
         StringBuilder responseText = new StringBuilder("上传成功:\n");
         for (String fileInfo : saved) {
@@ -481,6 +942,156 @@ public class SimpleHttpWorker implements Runnable {
                 .bodyText(responseText.toString(), "text/plain; charset=UTF-8");
     }
 
+    /**
+     * 静态资源来自资源包时，写入目录的文件不会出现在索引中，不能通过URL访问，因此拒绝上传
+     */
+    private HttpResponse uploadsDisabled() {
+        return new HttpResponse().status(HttpStatus.CONFLICT)
+                .bodyText("静态资源由资源包提供，上传的文件无法访问，已停用上传", "text/plain; charset=UTF-8");
+    }
+
+    /**
+     * 可续传上传（协议参照 tus）
+     * 
+     * - POST /uploads：创建上传，头部 Upload-Name 为文件名、Upload-Length 为总长度，回复201和 Location
+     * - PUT /uploads/{id}：写入一个分块，头部 Upload-Offset 为起始偏移（必须等于当前偏移），
+     *   可选 Upload-Checksum 为分块的校验和；回复204，Upload-Offset 为新的偏移
+     * - HEAD/GET /uploads/{id}：查询当前偏移，连接中断后据此继续
+     * - POST /uploads/{id}：完成上传，文件移动到静态资源目录；可选 Upload-Checksum 为整个文件的校验和
+     * - DELETE /uploads/{id}：放弃上传
+     * 
+     * 需要登录，上传只对创建者可见。偏移不符时回复409并在 Upload-Offset 中给出当前偏移。
+     */
+    private HttpResponse handleResumableUpload(String method, String path, HttpRequest req) throws IOException {
+        String user = authenticate(req);
+        if (user == null) {
+            return new HttpResponse().status(HttpStatus.UNAUTHORIZED)
+                    .header("WWW-Authenticate", "Cookie realm=\"Simple\"")
+                    .bodyText("未登录，无法上传", "text/plain; charset=UTF-8");
+        }
+        // 资源包模式下服务器没有建立可续传上传，先于取用它拒绝
+        if (config.bundle() != null) {
+            return uploadsDisabled();
+        }
+        ResumableUploads uploads = server != null ? resumableUploads : StandaloneIndex.uploads();
+        if ("/uploads".equals(path)) {
+            if (!method.equalsIgnoreCase("POST")) {
+                return new HttpResponse().status(HttpStatus.METHOD_NOT_ALLOWED)
+                        .header("Allow", "POST")
+                        .bodyText("Method Not Allowed", "text/plain; charset=UTF-8");
+            }
+            return createResumableUpload(uploads, user, req);
+        }
+        ResumableUploads.Upload upload = uploads.get(path.substring("/uploads/".length()), user);
+        if (upload == null) {
+            return new HttpResponse().status(HttpStatus.NOT_FOUND)
+                    .bodyText("上传不存在或已结束", "text/plain; charset=UTF-8");
+        }
+        try {
+            switch (method.toUpperCase(Locale.ROOT)) {
+                case "GET": {
+                    return new HttpResponse().status(HttpStatus.OK)
+                            .header("Upload-Offset", String.valueOf(upload.offset()))
+                            .header("Upload-Length", String.valueOf(upload.length()))
+                            .header("Cache-Control", "no-store")
+                            .bodyText(upload.offset() + "/" + upload.length(), "text/plain; charset=UTF-8");
+                }
+                case "PUT": {
+                    long offset = parseLength(req.headerFirst("upload-offset"), "Upload-Offset");
+                    UploadChecksum checksum = UploadChecksum.parse(req.headerFirst("upload-checksum"));
+                    long newOffset = uploads.write(upload, offset, req.bodyStream(), checksum);
+                    return new HttpResponse().status(HttpStatus.NO_CONTENT)
+                            .header("Upload-Offset", String.valueOf(newOffset));
+                }
+                case "POST": {
+                    UploadChecksum checksum = UploadChecksum.parse(req.headerFirst("upload-checksum"));
+                    String urlPath = uploads.complete(upload, checksum);
+                    // 与普通上传一样：文件立即可以访问，全文检索在后台增量索引
+                    searchIndex.update(resourceIndex.update(List.of(urlPath)));
+                    return new HttpResponse().status(HttpStatus.OK)
+                            .bodyText("上传成功:\n/resource/public" + urlPath, "text/plain; charset=UTF-8");
+                }
+                case "DELETE": {
+                    uploads.abort(upload);
+                    return new HttpResponse().status(HttpStatus.NO_CONTENT);
+                }
+                default:
+                    return new HttpResponse().status(HttpStatus.METHOD_NOT_ALLOWED)
+                            .header("Allow", "GET, HEAD, PUT, POST, DELETE")
+                            .bodyText("Method Not Allowed", "text/plain; charset=UTF-8");
+            }
+        } catch (UploadException e) {
+            return new HttpResponse().status(e.status())
+                    .header("Upload-Offset", String.valueOf(upload.offset()))
+                    .header("Cache-Control", "no-store")
+                    .bodyText(e.getMessage(), "text/plain; charset=UTF-8");
+        }
+    }
+
+    private HttpResponse createResumableUpload(ResumableUploads uploads, String user, HttpRequest req) throws IOException {
+        try {
+            long length = parseLength(req.headerFirst("upload-length"), "Upload-Length");
+            ResumableUploads.Upload upload = uploads.create(user, req.headerFirst("upload-name"), length);
+            System.out.println("[服务器] 创建可续传上传: " + upload.filename() + " (" + length + " 字节) 用户=" + user);
+            return new HttpResponse().status(HttpStatus.CREATED)
+                    .header("Location", "/uploads/" + upload.id())
+                    .header("Upload-Offset", "0")
+                    .header("Upload-Length", String.valueOf(length))
+                    .bodyText(upload.id(), "text/plain; charset=UTF-8");
+        } catch (UploadException e) {
+            return new HttpResponse().status(e.status())
+                    .bodyText(e.getMessage(), "text/plain; charset=UTF-8");
+        }
+    }
+
+    /**
+     * 解析非负整数的头部
+     * 
+     * @throws UploadException 缺少或格式错误（400）
+     */
+    private static long parseLength(String value, String name) throws UploadException {
+        if (value == null) {
+            throw new UploadException(HttpStatus.BAD_REQUEST, "缺少 " + name + " 头部");
+        }
+        try {
+            long n = Long.parseLong(value.trim());
+            if (n >= 0) return n;
+        } catch (NumberFormatException e) {
+            // 按格式错误处理
+        }
+        throw new UploadException(HttpStatus.BAD_REQUEST, name + " 应为非负整数");
+    }
+
+    /**
+     * 列出静态资源目录下的全部文件
+     * 
+     * 边遍历目录边以 chunked 编码发送，内存占用与文件数量无关；
+     * 文件数在遍历结束后才知道，作为尾部字段 X-File-Count 发送。
+     * 遍历发生在发送阶段，不在限流许可和舱壁的覆盖范围内（见 {@link #processRequest}）。
+     */
+    private HttpResponse handleList() {
+        return new HttpResponse().status(HttpStatus.OK)
+                .header("Cache-Control", "no-store")
+                .header("Trailer", "X-File-Count")
+                .bodyStream("text/plain; charset=UTF-8", (out, trailers) -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    long count = 0;
+                    Path root = config.publicRoot();
+                    try (java.util.stream.Stream<Path> files = Files.walk(root)) {
+                        Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+                        while (it.hasNext()) {
+                            Path file = it.next();
+                            writer.write("/" + root.relativize(file).toString().replace('\\', '/')
+                                    + "\t" + Files.size(file) + "\n");
+                            // 第一行立即发出，之后按块大小自然分块
+                            if (++count == 1) writer.flush();
+                        }
+                    }
+                    writer.flush();
+                    trailers.put("X-File-Count", String.valueOf(count));
+                });
+    }
+
     private HttpResponse handleLogout(HttpRequest req) {
         String sid = req.cookie(SESSION_COOKIE);
         if (sid != null) {
@@ -492,6 +1103,19 @@ public class SimpleHttpWorker implements Runnable {
                 .bodyText("已退出登录", "text/plain; charset=UTF-8");
     }
 
+    /**
+     * 为预热的合成请求创建会话，返回会话ID；用完后调用 {@link #closeSession(String)}
+     */
+    static String openSession(String username) {
+        String sid = java.util.UUID.randomUUID().toString();
+        SESSIONS.put(sid, username);
+        return sid;
+    }
+
+    static void closeSession(String sid) {
+        SESSIONS.remove(sid);
+    }
+
     private String authenticate(HttpRequest req) {
         String sid = req.cookie(SESSION_COOKIE);
         if (sid == null) return null;
@@ -504,35 +1128,91 @@ public class SimpleHttpWorker implements Runnable {
                 .bodyText(status.reason(), "text/plain; charset=UTF-8");
     }
 
-    private HttpResponse serveStatic(HttpRequest req, Path file, String name) throws IOException, ParseException {
-        // 条件 GET - If-Modified-Since
-        String ifModifiedSince = req.headerFirst("if-modified-since");
-        long lastModified = Files.getLastModifiedTime(file).toMillis();
-        if (ifModifiedSince != null) {
-            try {
-                Date since = RFC_1123.get().parse(ifModifiedSince);
-                // 四舍五入 1 秒
-                if (Math.abs(lastModified - since.getTime()) < 1000) {
-                    return new HttpResponse().status(HttpStatus.NOT_MODIFIED)
-                            .header("Date", formatDate(System.currentTimeMillis()))
-                            .header("Last-Modified", formatDate(lastModified))
-                            .header("Server", SERVER_NAME)
-                            .body(new byte[0]);
-                }
-            } catch (Exception ignore) {}
-        }
-        byte[] data = Files.readAllBytes(file);
-        String mime = MimeTypes.get(name);
-        return new HttpResponse()
-                .status(HttpStatus.OK)
-                .header("Content-Type", mime)
-                .header("Date", formatDate(System.currentTimeMillis()))
-                .header("Last-Modified", formatDate(lastModified))
-                .header("Server", SERVER_NAME)
-                .body(data);
+    /**
+     * 子请求超出批量回复字节预算时的回复
+     */
+    private static HttpResponse batchTooLarge(HttpRequest sub) {
+        return new HttpResponse().status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .bodyText("批量回复超过 " + Batch.MAX_RESPONSE_BYTES + " 字节，请单独请求 " + sub.path(),
+                        "text/plain; charset=UTF-8");
     }
 
-    private String formatDate(long time) {
-        return RFC_1123.get().format(new Date(time));
+    /**
+     * 返回静态文件
+     * 
+     * 元数据和固定的头部都来自索引，条件请求（304/412）和HEAD请求不读取文件内容。
+     * 批量请求的子请求在读取文件之前按文件大小占用批量回复的预算，预算不足时回复413，不读文件。
+     */
+    private HttpResponse serveStatic(HttpRequest req, StaticResource resource) throws IOException {
+        if (hotPaths != null) hotPaths.hit(resource.urlPath());
+        FileMetadata metadata = resource.metadata();
+        Path file = metadata.file();
+        long lastModified = metadata.lastModified();
+        // 可压缩的资源按 Accept-Encoding 协商；无论本次是否压缩，缓存都要按 Accept-Encoding 区分
+        boolean compressible = resource.compressible() && compressionCache != null;
+        String encoding = compressible ? CompressionCache.negotiate(req.headerFirst("accept-encoding")) : null;
+        
+        // 只有压缩变体已经可以发送时才使用它的ETag，否则200发的是原始内容，304也要带原始内容的ETag
+        boolean variantReady = encoding != null && (resource.inMemory() ? resource.content(encoding) != null
+                : compressionCache.peek(file, lastModified, encoding) != null);
+        Preconditions.Outcome outcome = Preconditions.evaluate(req, metadata,
+                variantReady ? metadata.etag(encoding) : null, HttpDate::parse);
+        if (outcome != null && outcome.status() == HttpStatus.NOT_MODIFIED) {
+            HttpResponse notModified = new HttpResponse().status(HttpStatus.NOT_MODIFIED)
+                    .header("Last-Modified", resource.lastModifiedHeader())
+                    .header("ETag", outcome.etag())
+                    .header("Server", SERVER_NAME);
+            // 304 要带上与200相同的缓存策略，客户端据此更新缓存的有效期
+            if (resource.cacheControl() != null) notModified.header("Cache-Control", resource.cacheControl());
+            if (compressible) notModified.header("Vary", "Accept-Encoding");
+            return notModified;
+        }
+        if (outcome != null) {
+            return new HttpResponse().status(outcome.status())
+                    .header("ETag", metadata.etag())
+                    .bodyText(outcome.status().format(), "text/plain; charset=UTF-8");
+        }
+        
+        boolean head = "HEAD".equalsIgnoreCase(req.method());
+        HttpResponse response = new HttpResponse()
+                .status(HttpStatus.OK)
+                .header("Server", SERVER_NAME);
+        if (resource.inMemory()) {
+            // 内存中的资源（改写过的页面、资源包中的切片）建索引时已有压缩变体，直接发送
+            ByteBuffer content = encoding != null ? resource.content(encoding) : null;
+            if (content != null) {
+                response.headerBlock(resource.headerBlock(encoding));
+            } else {
+                content = resource.content(null);
+                response.headerBlock(resource.headerBlock(null));
+            }
+            return head ? response.header("Content-Length", String.valueOf(content.remaining()))
+                    : response.body(content);
+        }
+        if (!head && req instanceof Batch.SubRequest sub && !sub.reserve(metadata.size())) {
+            return batchTooLarge(req);
+        }
+        if (encoding != null) {
+            // HEAD 只使用已缓存的变体，不为它读取或压缩文件
+            byte[] encoded = head ? compressionCache.peek(file, lastModified, encoding)
+                    : compressionCache.get(file, lastModified, encoding);
+            if (encoded != null) {
+                response.headerBlock(resource.headerBlock(encoding));
+                return head ? response.header("Content-Length", String.valueOf(encoded.length))
+                        : response.body(encoded);
+            }
+        }
+        response.headerBlock(resource.headerBlock(null));
+        if (head) {
+            return response.header("Content-Length", String.valueOf(metadata.size()));
+        }
+        try {
+            // 同一文件的并发读取由索引合并为一次
+            return response.body(resourceIndex.read(resource));
+        } catch (NoSuchFileException e) {
+            // 文件刚被删除，索引还没来得及更新
+            return new HttpResponse().status(HttpStatus.NOT_FOUND)
+                    .bodyText("Not Found", "text/plain; charset=UTF-8");
+        }
     }
 }
@@ -0,0 +1,295 @@
+package com.example.http;
+
+import com.example.http.resource.CompressionCache;
+import com.example.http.resource.ResourceIndex;
+import com.example.http.resource.StaticResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热
+ *
+ * 刚启动的服务器处理前几千个请求时要承担类加载、解释执行和JIT编译，静态文件也还不在页缓存中，
+ * 新节点加入负载均衡后的一段时间里p99明显偏高。预热在开始accept之前进行：
+ * 1. 预读：按上次运行保存的热门路径列表（见 {@link HotPaths}）读取文件内容，并提交压缩变体的后台压缩
+ * 2. 合成请求：把这些路径的请求（普通GET、协商压缩、条件请求、HEAD，以及401/404/健康检查）写成字节，
+ *    通过内存中的连接交给 {@link SimpleHttpWorker}，走与真实连接完全相同的解析、处理、序列化代码
+ * 3. 反复执行合成请求，直到请求数达到下限、且连续几轮JIT编译耗时不再增长（编译基本完成），或用完时间预算
+ *
+ * 合成请求使用临时会话，结束后删除；合成连接不打印逐请求日志，也不被流量录制。
+ * 预热期间 /health 返回503，完成后服务器标记为就绪。
+ */
+final class Warmup {
+
+    /** 热门路径列表的长度：预热和保存都只取前这么多个 */
+    static final int TOP_PATHS = 50;
+
+    /** 至少执行的合成请求数，保证热点方法的调用次数越过编译阈值 */
+    private static final int MIN_REQUESTS = 5000;
+
+    /** JIT编译耗时连续这么多轮不增长，视为编译完成 */
+    private static final int STABLE_ROUNDS = 3;
+
+    /**
+     * 预热结果
+     *
+     * @param preloaded 预读的资源数
+     * @param requests 执行的合成请求数
+     * @param rounds 轮数
+     * @param elapsedMillis 总耗时
+     * @param compileMillis 预热期间JIT编译的累计耗时，不支持统计时为-1
+     * @param converged 是否因编译完成而结束（否则是达到请求数下限或用完时间预算）
+     */
+    record Result(int preloaded, long requests, int rounds, long elapsedMillis, long compileMillis, boolean converged) {
+        @Override
+        public String toString() {
+            return "{preloaded=" + preloaded + ", requests=" + requests + ", rounds=" + rounds
+                    + ", elapsed=" + elapsedMillis + "ms, jit=" + compileMillis + "ms, converged=" + converged + "}";
+        }
+    }
+
+    private final SimpleHttpServer server;
+    private final ResourceIndex index;
+    private final CompressionCache compressionCache;
+
+    Warmup(SimpleHttpServer server) {
+        this.server = server;
+        this.index = server.getResourceIndex();
+        this.compressionCache = server.getCompressionCache();
+    }
+
+    /**
+     * 执行预热
+     *
+     * @param topPaths 热门路径，按重要程度排列；为空时取索引中的前 {@link #TOP_PATHS} 个资源
+     * @param budgetMillis 时间预算（毫秒）
+     */
+    Result run(List<String> topPaths, long budgetMillis) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        List<StaticResource> hot = resolve(topPaths);
+        int preloaded = preload(hot);
+
+        String sid = SimpleHttpWorker.openSession("warmup");
+        try {
+            List<byte[]> connections = syntheticConnections(hot, sid);
+            int perRound = 0;
+            for (byte[] requests : connections) {
+                perRound += count(requests);
+            }
+
+            CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+            boolean measurable = jit != null && jit.isCompilationTimeMonitoringSupported();
+            long compileStart = measurable ? jit.getTotalCompilationTime() : -1;
+            long lastCompile = compileStart;
+            int stable = 0;
+            long requests = 0;
+            int rounds = 0;
+            boolean converged = false;
+            OutputStream sink = OutputStream.nullOutputStream();
+            while (System.nanoTime() < deadline) {
+                for (byte[] bytes : connections) {
+                    HttpConnection connection = new HttpConnection(new MemorySocket(bytes, sink), null);
+                    connection.synthetic = true;
+                    new SimpleHttpWorker(connection, server).run();
+                }
+                requests += perRound;
+                rounds++;
+                if (measurable) {
+                    long compile = jit.getTotalCompilationTime();
+                    stable = compile > lastCompile ? 0 : stable + 1;
+                    lastCompile = compile;
+                }
+                if (requests >= MIN_REQUESTS && (!measurable || stable >= STABLE_ROUNDS)) {
+                    converged = measurable;
+                    break;
+                }
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(preloaded, requests, rounds, elapsed,
+                    measurable ? lastCompile - compileStart : -1, converged);
+        } finally {
+            SimpleHttpWorker.closeSession(sid);
+        }
+    }
+
+    /**
+     * 把路径解析为索引中的资源，去掉不存在的；没有可用的路径时取索引中的前若干个
+     */
+    private List<StaticResource> resolve(List<String> topPaths) {
+        Set<String> paths = new LinkedHashSet<>(topPaths);
+        if (paths.isEmpty()) {
+            index.paths().stream().sorted().limit(TOP_PATHS).forEach(paths::add);
+        }
+        List<StaticResource> resources = new ArrayList<>();
+        for (String path : paths) {
+            StaticResource resource = index.get(path);
+            if (resource != null) resources.add(resource);
+            if (resources.size() >= TOP_PATHS) break;
+        }
+        return resources;
+    }
+
+    /**
+     * 读取文件资源的内容（进入页缓存），并提交压缩变体的后台压缩
+     *
+     * @return 预读的资源数
+     */
+    private int preload(List<StaticResource> resources) {
+        int preloaded = 0;
+        for (StaticResource resource : resources) {
+            if (resource.inMemory()) continue;
+            try {
+                index.read(resource);
+                preloaded++;
+            } catch (IOException e) {
+                System.err.println("[预热] 跳过 " + resource.urlPath() + ": " + e.getMessage());
+                continue;
+            }
+            if (compressionCache != null && resource.compressible()) {
+                long lastModified = resource.metadata().lastModified();
+                compressionCache.get(resource.metadata().file(), lastModified, CompressionCache.GZIP);
+                compressionCache.get(resource.metadata().file(), lastModified, CompressionCache.DEFLATE);
+            }
+        }
+        return preloaded;
+    }
+
+    /**
+     * 生成每轮要执行的合成连接，每个连接是若干个流水线请求的字节
+     */
+    private static List<byte[]> syntheticConnections(List<StaticResource> resources, String sid) {
+        String cookie = "Cookie: " + SimpleHttpWorker.SESSION_COOKIE + "=" + sid + "\r\n";
+        List<byte[]> connections = new ArrayList<>();
+        for (StaticResource resource : resources) {
+            String path = encodePath(resource.urlPath());
+            StringBuilder sb = new StringBuilder();
+            request(sb, "GET", path, cookie);
+            request(sb, "GET", path, cookie + "Accept-Encoding: gzip, deflate\r\n");
+            request(sb, "GET", path, cookie + "If-None-Match: " + resource.metadata().etag() + "\r\n");
+            request(sb, "HEAD", path, cookie);
+            connections.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        // 鉴权失败、不存在的路径、健康检查
+        StringBuilder sb = new StringBuilder();
+        request(sb, "GET", "/", "");
+        request(sb, "GET", "/warmup-not-found", cookie);
+        request(sb, "GET", "/health", "");
+        connections.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return connections;
+    }
+
+    private static void request(StringBuilder sb, String method, String path, String headers) {
+        sb.append(method).append(' ').append(path).append(" HTTP/1.1\r\n")
+          .append("Host: localhost\r\n")
+          .append("User-Agent: warmup\r\n")
+          .append(headers)
+          .append("\r\n");
+    }
+
+    /**
+     * 按UTF-8百分号编码路径中的非ASCII字符、空格和会被误解的字符，解码后还原为原路径
+     */
+    private static String encodePath(String path) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            if (b <= ' ' || b == 0x7f || b == '%' || b == '+' || b == '?' || b == '#') {
+                out.writeBytes(String.format("%%%02X", b & 0xff).getBytes(StandardCharsets.US_ASCII));
+            } else {
+                out.write(b);
+            }
+        }
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 合成连接中的请求数（每个请求以空行结束，且都没有请求体）
+     */
+    private static int count(byte[] requests) {
+        int n = 0;
+        for (int i = 3; i < requests.length; i++) {
+            if (requests[i - 3] == '\r' && requests[i - 2] == '\n' && requests[i - 1] == '\r' && requests[i] == '\n') n++;
+        }
+        return n;
+    }
+
+    /**
+     * 内存中的连接：从字节数组读取请求，响应写入给定的输出流
+     *
+     * 没有底层Socket和通道，超时设置被忽略；读完全部请求后工作线程看到EOF，像客户端关闭连接一样结束。
+     */
+    private static final class MemorySocket extends Socket {
+
+        private static final InetSocketAddress ADDRESS = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+        private final InputStream in;
+        private final OutputStream out;
+        private volatile boolean closed;
+
+        MemorySocket(byte[] requests, OutputStream out) {
+            this.in = new ByteArrayInputStream(requests);
+            this.out = out;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public SocketAddress getRemoteSocketAddress() {
+            return ADDRESS;
+        }
+
+        @Override
+        public InetAddress getInetAddress() {
+            return ADDRESS.getAddress();
+        }
+
+        @Override
+        public void setSoTimeout(int timeout) {
+            // 内存中的读取不会阻塞
+        }
+
+        @Override
+        public int getSoTimeout() {
+            return 0;
+        }
+
+        @Override
+        public void shutdownOutput() {
+            // 没有对端
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.http.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数
+ *
+ * 命令行格式：
+ * bench [host:port] [--connections=N] [--rate=R] [--duration=秒] [--warmup=秒]
+ *       [--mix=static:80,login:15,upload:5] [--path=/hello.txt]
+ *       [--upload-size=字节] [--user=用户名] [--password=密码]
+ *
+ * rate 为每秒请求数，大于0时开环压测（按固定速率发送，不管服务器快慢）；
+ * 等于0时闭环压测（每个连接收到响应后立即发送下一个请求）。
+ */
+public final class BenchOptions {
+
+    /** 请求类型 */
+    public enum RequestKind { STATIC, LOGIN, UPLOAD }
+
+    String host = "localhost";
+    int port = 8080;
+    int connections = 16;
+    int rate = 0;
+    int durationSeconds = 10;
+    int warmupSeconds = 2;
+    String staticPath = "/hello.txt";
+    int uploadSize = 4096;
+    String username = "bench";
+    String password = "bench";
+    /** 请求类型 -> 权重，保持声明顺序以便按累计权重抽样 */
+    final Map<RequestKind, Integer> mix = new LinkedHashMap<>();
+
+    private BenchOptions() {
+        mix.put(RequestKind.STATIC, 100);
+    }
+
+    /**
+     * 解析命令行参数
+     *
+     * @param args 完整的命令行参数，args[0]为模式名"bench"
+     * @return 解析后的参数
+     * @throws IllegalArgumentException 参数格式错误
+     */
+    public static BenchOptions parse(String[] args) {
+        BenchOptions o = new BenchOptions();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                o.parseTarget(arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("参数缺少取值: " + arg);
+            String key = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "connections" -> o.connections = positive(key, value);
+                case "rate" -> o.rate = nonNegative(key, value);
+                case "duration" -> o.durationSeconds = positive(key, value);
+                case "warmup" -> o.warmupSeconds = nonNegative(key, value);
+                case "path" -> o.staticPath = value.startsWith("/") ? value : "/" + value;
+                case "upload-size" -> o.uploadSize = positive(key, value);
+                case "user" -> o.username = value;
+                case "password" -> o.password = value;
+                case "mix" -> o.parseMix(value);
+                default -> throw new IllegalArgumentException("未知参数: " + arg);
+            }
+        }
+        return o;
+    }
+
+    private void parseTarget(String target) {
+        int colon = target.lastIndexOf(':');
+        if (colon < 0) {
+            port = Integer.parseInt(target);
+            return;
+        }
+        if (colon > 0) host = target.substring(0, colon);
+        port = Integer.parseInt(target.substring(colon + 1));
+    }
+
+    private void parseMix(String value) {
+        mix.clear();
+        for (String item : value.split(",")) {
+            String[] kv = item.trim().split(":");
+            RequestKind kind = RequestKind.valueOf(kv[0].trim().toUpperCase());
+            int weight = kv.length > 1 ? nonNegative("mix", kv[1].trim()) : 1;
+            if (weight > 0) mix.put(kind, weight);
+        }
+        if (mix.isEmpty()) throw new IllegalArgumentException("mix 中至少需要一种权重大于0的请求");
+    }
+
+    private static int positive(String key, String value) {
+        int v = Integer.parseInt(value);
+        if (v <= 0) throw new IllegalArgumentException(key + " 必须大于0: " + value);
+        return v;
+    }
+
+    private static int nonNegative(String key, String value) {
+        int v = Integer.parseInt(value);
+        if (v < 0) throw new IllegalArgumentException(key + " 不能为负数: " + value);
+        return v;
+    }
+
+    boolean openLoop() { return rate > 0; }
+
+    @Override
+    public String toString() {
+        return "目标=" + host + ":" + port
+                + ", 连接数=" + connections
+                + ", 模式=" + (openLoop() ? "开环 " + rate + " req/s" : "闭环")
+                + ", 时长=" + durationSeconds + "s(预热" + warmupSeconds + "s)"
+                + ", 请求配比=" + mix;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.http.bench;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * 一次压测的统计结果
+ */
+public final class BenchResult {
+
+    /** 延迟直方图（微秒），开环为修正后的真实延迟，闭环为原始服务时间 */
+    final LatencyHistogram latency;
+
+    /** 闭环压测按期望间隔修正协调遗漏后的直方图，开环时为null */
+    final LatencyHistogram corrected;
+
+    /** 闭环修正使用的期望间隔（微秒） */
+    final long expectedIntervalMicros;
+
+    /** 状态码计数，下标为状态码 */
+    final long[] statusCounts;
+
+    final long completed;
+    /** 收到的全部响应数（含预热阶段） */
+    final long responses;
+    final long errors;
+    final long unsent;
+    final long bytesRead;
+    final double elapsedSeconds;
+
+    BenchResult(LatencyHistogram latency, LatencyHistogram corrected, long expectedIntervalMicros,
+                long[] statusCounts, long completed, long responses, long errors, long unsent,
+                long bytesRead, double elapsedSeconds) {
+        this.latency = latency;
+        this.corrected = corrected;
+        this.expectedIntervalMicros = expectedIntervalMicros;
+        this.statusCounts = statusCounts;
+        this.completed = completed;
+        this.responses = responses;
+        this.errors = errors;
+        this.unsent = unsent;
+        this.bytesRead = bytesRead;
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    /** 每秒完成的请求数 */
+    public double throughput() {
+        return elapsedSeconds <= 0 ? 0 : completed / elapsedSeconds;
+    }
+
+    /**
+     * 指定百分位的延迟（微秒），闭环时取修正后的数值
+     */
+    public long latencyMicros(double percentile) {
+        return (corrected != null ? corrected : latency).valueAtPercentile(percentile);
+    }
+
+    public long completed() { return completed; }
+
+    public long responses() { return responses; }
+
+    public long errors() { return errors; }
+
+    /**
+     * 状态码不是2xx/3xx的响应数
+     */
+    public long failedResponses() {
+        long n = 0;
+        for (int code = 400; code < statusCounts.length; code++) n += statusCounts[code];
+        return n;
+    }
+
+    /**
+     * 打印结果报告
+     */
+    public void print(PrintStream out) {
+        out.println("========================================");
+        out.println("压测结果");
+        out.println("========================================");
+        out.printf(Locale.ROOT, "统计时长: %.2fs, 完成请求: %d, 连接错误: %d, 未发出(开环积压): %d%n",
+                elapsedSeconds, completed, errors, unsent);
+        out.printf(Locale.ROOT, "吞吐量: %.1f req/s, 读取: %.2f MB/s%n",
+                throughput(), elapsedSeconds <= 0 ? 0 : bytesRead / elapsedSeconds / (1024 * 1024));
+        StringBuilder codes = new StringBuilder("状态码:");
+        for (int code = 0; code < statusCounts.length; code++) {
+            if (statusCounts[code] > 0) codes.append(' ').append(code).append('=').append(statusCounts[code]);
+        }
+        out.println(codes);
+        printHistogram(out, corrected != null ? "延迟(原始服务时间)" : "延迟(从计划发送时间起算)", latency);
+        if (corrected != null) {
+            printHistogram(out, String.format(Locale.ROOT, "延迟(协调遗漏修正, 期望间隔 %.3fms)",
+                    expectedIntervalMicros / 1000.0), corrected);
+        }
+    }
+
+    private static void printHistogram(PrintStream out, String title, LatencyHistogram h) {
+        out.println(title + ":");
+        out.printf(Locale.ROOT, "  min=%.3fms mean=%.3fms max=%.3fms%n",
+                h.min() / 1000.0, h.mean() / 1000.0, h.max() / 1000.0);
+        double[] percentiles = {50, 90, 99, 99.9, 99.99};
+        StringBuilder sb = new StringBuilder(" ");
+        for (double p : percentiles) {
+            sb.append(String.format(Locale.ROOT, " p%s=%.3fms", trim(p), h.valueAtPercentile(p) / 1000.0));
+        }
+        out.println(sb);
+    }
+
+    private static String trim(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.http.bench;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测工具使用的极简阻塞HTTP客户端
+ *
+ * 只用于准备阶段（注册、登录获取会话）这类低频操作，
+ * 复用同一个长连接，支持 Content-Length 与 Connection: close 两种响应定界方式。
+ */
+final class BlockingHttpClient implements Closeable {
+
+    /** 解析后的响应 */
+    static final class Response {
+        final int status;
+        /** 头部名称统一小写 */
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Response(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String header(String name) { return headers.get(name.toLowerCase(Locale.ROOT)); }
+
+        String bodyText() { return new String(body, StandardCharsets.UTF_8); }
+    }
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+
+    BlockingHttpClient(String host, int port, int timeoutMillis) throws IOException {
+        this.socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+        socket.setSoTimeout(timeoutMillis);
+        socket.setTcpNoDelay(true);
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = socket.getOutputStream();
+    }
+
+    /**
+     * 发送一个完整的原始请求并读取响应
+     */
+    Response send(byte[] rawRequest) throws IOException {
+        out.write(rawRequest);
+        out.flush();
+        return readResponse();
+    }
+
+    private Response readResponse() throws IOException {
+        String statusLine = readLine();
+        if (statusLine == null) throw new IOException("服务器关闭了连接");
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2) throw new IOException("无效的状态行: " + statusLine);
+        int status = Integer.parseInt(parts[1]);
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int c = line.indexOf(':');
+            if (c > 0) {
+                // 同名头部（如多个Set-Cookie）只保留第一个，准备阶段够用
+                headers.putIfAbsent(line.substring(0, c).trim().toLowerCase(Locale.ROOT), line.substring(c + 1).trim());
+            }
+        }
+        byte[] body;
+        String cl = headers.get("content-length");
+        if (cl != null) {
+            body = in.readNBytes(Integer.parseInt(cl));
+        } else if ("close".equalsIgnoreCase(headers.get("connection"))) {
+            body = in.readAllBytes();
+        } else {
+            body = new byte[0];
+        }
+        return new Response(status, headers, body);
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') break;
+            if (b != '\r') bos.write(b);
+        }
+        if (b == -1 && bos.size() == 0) return null;
+        return bos.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.http.bench;
+
+import com.example.http.exec.WorkStealingExecutor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行器交接延迟基准
+ *
+ * 模拟accept线程：单个提交线程按固定速率（开环）提交任务，
+ * 任务开始执行的时刻减去它"本应被提交"的时刻即为交接延迟，
+ * 对应真实服务器里"accept到开始处理（进而写出第一个字节）"的那段排队时间。
+ * 以计划时刻而非实际提交时刻为起点，提交线程自己落后时的延迟也会被如实计入（无协调遗漏）。
+ *
+ * 依次对比三种执行器，并逐级提高提交速率：
+ * - fixed：Executors.newFixedThreadPool 同款（LinkedBlockingQueue，无界）
+ * - pool：服务器默认的有界 ArrayBlockingQueue + AbortPolicy
+ * - stealing：{@link WorkStealingExecutor}
+ *
+ * 命令行格式：
+ * execbench [--threads=N] [--rates=20000,50000,100000] [--duration=秒] [--work=微秒]
+ */
+public final class ExecutorBenchmark {
+
+    private static final String[] EXECUTORS = {"fixed", "pool", "stealing"};
+
+    private final int threads;
+    private final int[] rates;
+    private final int durationSeconds;
+    private final long workNanos;
+
+    ExecutorBenchmark(int threads, int[] rates, int durationSeconds, long workMicros) {
+        this.threads = threads;
+        this.rates = rates;
+        this.durationSeconds = durationSeconds;
+        this.workNanos = TimeUnit.MICROSECONDS.toNanos(workMicros);
+    }
+
+    /**
+     * 按名称创建与服务器一致配置的执行器，队列上限同样取线程数*4
+     */
+    private ExecutorService create(String name) {
+        int queue = threads * 4;
+        AtomicInteger counter = new AtomicInteger();
+        java.util.concurrent.ThreadFactory factory = r -> new Thread(r, "bench-" + name + "-" + counter.incrementAndGet());
+        switch (name) {
+            case "fixed":
+                return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>(), factory);
+            case "pool":
+                return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queue), factory, new ThreadPoolExecutor.AbortPolicy());
+            default:
+                return new WorkStealingExecutor(threads, queue, factory);
+        }
+    }
+
+    /**
+     * 以给定速率跑一轮
+     *
+     * @return 交接延迟直方图（纳秒），未执行的任务不计入；rejected[0] 返回被拒绝的任务数
+     */
+    private LatencyHistogram runOnce(String name, int rate, long[] rejected) throws InterruptedException {
+        int total = (int) Math.min(Integer.MAX_VALUE - 8, (long) rate * durationSeconds);
+        long interval = 1_000_000_000L / rate;
+        long[] latencies = new long[total];
+        Arrays.fill(latencies, -1);
+        ExecutorService executor = create(name);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20);
+        long rejectedCount = 0;
+        for (int i = 0; i < total; i++) {
+            final int index = i;
+            final long intended = start + i * interval;
+            while (System.nanoTime() < intended) {
+                Thread.onSpinWait();
+            }
+            try {
+                executor.execute(() -> {
+                    latencies[index] = System.nanoTime() - intended;
+                    if (workNanos > 0) {
+                        long end = System.nanoTime() + workNanos;
+                        while (System.nanoTime() < end) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejectedCount++;
+            }
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long latency : latencies) {
+            if (latency >= 0) histogram.record(latency);
+        }
+        rejected[0] = rejectedCount;
+        return histogram;
+    }
+
+    /**
+     * 跑完全部执行器与速率组合并打印结果表
+     */
+    void run(PrintStream out) throws InterruptedException {
+        out.printf(Locale.ROOT, "执行器交接延迟基准: 线程数=%d, 每级时长=%ds, 任务耗时=%dus, CPU核心数=%d%n",
+                threads, durationSeconds, TimeUnit.NANOSECONDS.toMicros(workNanos),
+                Runtime.getRuntime().availableProcessors());
+        // 每种执行器先低速跑一轮预热JIT
+        for (String name : EXECUTORS) {
+            runOnce(name, Math.min(rates[0], 10_000), new long[1]);
+        }
+        out.printf(Locale.ROOT, "%-9s %9s %9s %9s %9s %9s %10s %9s%n",
+                "executor", "rate/s", "p50(us)", "p90(us)", "p99(us)", "p99.9(us)", "max(us)", "rejected");
+        for (int rate : rates) {
+            for (String name : EXECUTORS) {
+                long[] rejected = new long[1];
+                LatencyHistogram h = runOnce(name, rate, rejected);
+                out.printf(Locale.ROOT, "%-9s %9d %9.1f %9.1f %9.1f %9.1f %10.1f %9d%n",
+                        name, rate,
+                        h.valueAtPercentile(50) / 1000.0, h.valueAtPercentile(90) / 1000.0,
+                        h.valueAtPercentile(99) / 1000.0, h.valueAtPercentile(99.9) / 1000.0,
+                        h.max() / 1000.0, rejected[0]);
+            }
+        }
+    }
+
+    /**
+     * 命令行入口
+     *
+     * @param args args[0]为模式名"execbench"，其后为选项
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors() * 2 + 2;
+        int[] rates = {10_000, 50_000, 100_000, 200_000};
+        int duration = 2;
+        long work = 5;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(arg.substring(10));
+                } else if (arg.startsWith("--rates=")) {
+                    List<Integer> list = new ArrayList<>();
+                    for (String part : arg.substring(8).split(",")) {
+                        list.add(Integer.parseInt(part.trim()));
+                    }
+                    rates = list.stream().mapToInt(Integer::intValue).toArray();
+                } else if (arg.startsWith("--duration=")) {
+                    duration = Integer.parseInt(arg.substring(11));
+                } else if (arg.startsWith("--work=")) {
+                    work = Long.parseLong(arg.substring(7));
+                } else {
+                    throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+            if (threads < 1 || duration < 1 || work < 0 || rates.length == 0 || Arrays.stream(rates).anyMatch(r -> r < 1)) {
+                throw new IllegalArgumentException("参数取值无效");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: " + e.getMessage());
+            System.err.println("用法: execbench [--threads=N] [--rates=10000,50000,100000] [--duration=秒] [--work=微秒]");
+            return;
+        }
+        try {
+            new ExecutorBenchmark(threads, rates, duration, work).run(System.out);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.http.bench;
+
+/**
+ * HDR风格的延迟直方图（对数-线性分桶）
+ *
+ * 每个2的幂区间再线性切分为 2^PRECISION_BITS 个子桶，
+ * 因此任意数值的相对误差都不超过 1/2^PRECISION_BITS（约0.8%），
+ * 而内存占用固定，记录一次只是一次数组自增，不产生任何分配。
+ *
+ * 数值单位由调用方决定，压测中统一使用微秒。
+ *
+ * 关于协调遗漏（Coordinated Omission）：
+ * 闭环压测时，服务器一次卡顿会让压测端"少发"本应发出的请求，
+ * 直接记录的延迟分布会严重低估尾延迟。
+ * {@link #recordCorrected(long, long)} 按照期望发送间隔补记这些被遗漏的样本，
+ * 与 HdrHistogram 的 recordValueWithExpectedInterval 语义一致。
+ * 开环压测从"计划发送时间"开始计时，本身已经不受协调遗漏影响。
+ */
+public final class LatencyHistogram {
+
+    /** 每个2的幂区间内的线性子桶位数 */
+    private static final int PRECISION_BITS = 7;
+
+    /** 子桶数量 */
+    private static final int SUB_BUCKETS = 1 << PRECISION_BITS;
+
+    /** 桶计数，下标由 {@link #indexOf(long)} 计算 */
+    private final long[] counts = new long[(64 - PRECISION_BITS + 1) * SUB_BUCKETS];
+
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    /**
+     * 记录一个样本
+     *
+     * @param value 样本值（负数按0处理）
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    /**
+     * 记录一个样本，并按期望间隔补记被协调遗漏的样本
+     *
+     * @param value 样本值
+     * @param expectedInterval 期望的发送间隔，<=0 表示不做修正
+     */
+    public void recordCorrected(long value, long expectedInterval) {
+        record(value);
+        if (expectedInterval <= 0 || value <= expectedInterval) return;
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            record(missing);
+        }
+    }
+
+    /**
+     * 合并另一个直方图的数据
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * 清空全部数据
+     */
+    public void reset() {
+        java.util.Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * 获取指定百分位的数值（返回所在子桶的上界，偏保守）
+     *
+     * @param percentile 百分位，取值 0-100
+     * @return 百分位对应的数值，无样本时返回0
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public long totalCount() { return totalCount; }
+
+    public long min() { return totalCount == 0 ? 0 : min; }
+
+    public long max() { return max; }
+
+    public double mean() { return totalCount == 0 ? 0 : sum / totalCount; }
+
+    /**
+     * 数值 -> 桶下标
+     *
+     * 小于 2^PRECISION_BITS 的数值精确记录；
+     * 更大的数值取最高位之后的 PRECISION_BITS 位作为子桶。
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - PRECISION_BITS;
+        int mantissa = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    /**
+     * 桶下标 -> 该桶能表示的最大数值
+     */
+    static long highestEquivalentValue(int index) {
+        int block = index >>> PRECISION_BITS;
+        if (block == 0) return index;
+        int shift = block - 1;
+        long mantissa = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return (mantissa << shift) + (1L << shift) - 1;
+    }
+}
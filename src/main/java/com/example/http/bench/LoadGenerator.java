@@ -0,0 +1,397 @@
+package com.example.http.bench;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 基于NIO的HTTP压测器
+ *
+ * 单个Selector线程管理N个长连接，因此即使几千个连接，压测端也只占用一个线程，
+ * 不会因为自身线程调度而扭曲测得的延迟。
+ *
+ * 两种运行方式：
+ * - 开环（rate > 0）：按固定速率生成"计划发送时间"，请求在空闲连接上发出，
+ *   延迟从计划发送时间开始计算。服务器变慢时请求会在压测端排队，
+ *   这段排队时间同样计入延迟 —— 这正是真实用户会感受到的延迟。
+ * - 闭环（rate = 0）：每个连接收到响应后立即发下一个请求，测量原始服务时间，
+ *   并以预热阶段的中位延迟作为期望间隔，额外给出协调遗漏修正后的分布。
+ *
+ * 工作原理：
+ * 1. 用阻塞连接注册并登录，拿到会话Cookie
+ * 2. 按请求配比预先序列化所有请求模板
+ * 3. 建立N个非阻塞连接并注册到Selector
+ * 4. 主循环：生成计划请求 -> 分发到空闲连接 -> 处理读写事件 -> 记录延迟
+ */
+public final class LoadGenerator {
+
+    /** 读缓冲区大小 */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /** 压测结束后等待在途请求的最长时间 */
+    private static final long DRAIN_NANOS = 5_000_000_000L;
+
+    /** 重连失败后的重试间隔 */
+    private static final long RECONNECT_BACKOFF_NANOS = 100_000_000L;
+
+    /** 上传请求写入的文件名（每次覆盖同一个文件，避免压测污染静态目录） */
+    static final String UPLOAD_FILENAME = "bench-upload.bin";
+
+    private final BenchOptions options;
+    private final InetSocketAddress target;
+
+    /** 按累计权重排列的请求模板，类型很少，抽样时线性查找即可 */
+    private int[] cumulativeWeights;
+    private byte[][] templates;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+    private Selector selector;
+    private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+    private final List<Connection> broken = new ArrayList<>();
+
+    // 统计数据
+    private final LatencyHistogram warmupLatency = new LatencyHistogram();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final long[] statusCounts = new long[600];
+    private long completed;
+    private long responses;
+    private long errors;
+    private long bytesRead;
+    private long warmupEndNanos;
+    private long measureEndNanos;
+    /** 闭环时按期望间隔修正后的直方图 */
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    /** 闭环修正的期望间隔（微秒），预热结束后第一次记录时确定 */
+    private long expectedIntervalMicros = -1;
+
+    /**
+     * 单个压测连接的状态
+     */
+    private final class Connection {
+        SocketChannel channel;
+        SelectionKey key;
+        final ResponseParser parser = new ResponseParser();
+        ByteBuffer pendingWrite;
+        /** 当前请求的起算时间：开环为计划发送时间，闭环为实际发送时间 */
+        long startNanos;
+        boolean busy;
+        long retryAtNanos;
+
+        void open() throws IOException {
+            channel = SocketChannel.open();
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.connect(target);
+            channel.configureBlocking(false);
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        void close() {
+            if (key != null) key.cancel();
+            try {
+                if (channel != null) channel.close();
+            } catch (IOException ignore) {
+                // 忽略关闭错误
+            }
+            busy = false;
+            pendingWrite = null;
+        }
+    }
+
+    public LoadGenerator(BenchOptions options) {
+        this.options = options;
+        this.target = new InetSocketAddress(options.host, options.port);
+    }
+
+    /**
+     * 执行压测，阻塞直到结束
+     *
+     * @return 压测结果
+     * @throws IOException 准备阶段失败（无法连接、登录失败等）
+     */
+    public BenchResult run() throws IOException {
+        prepareTemplates();
+        selector = Selector.open();
+        try {
+            for (int i = 0; i < options.connections; i++) {
+                Connection c = new Connection();
+                c.open();
+                idle.add(c);
+            }
+            return loop();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            selector.close();
+        }
+    }
+
+    private void prepareTemplates() throws IOException {
+        RequestTemplates t = new RequestTemplates(options.host, options.port);
+        String cookie = t.obtainSessionCookie(options.username, options.password);
+        int n = options.mix.size();
+        cumulativeWeights = new int[n];
+        templates = new byte[n][];
+        int i = 0;
+        int sum = 0;
+        for (Map.Entry<BenchOptions.RequestKind, Integer> e : options.mix.entrySet()) {
+            sum += e.getValue();
+            cumulativeWeights[i] = sum;
+            templates[i] = switch (e.getKey()) {
+                case STATIC -> t.get(options.staticPath, cookie);
+                case LOGIN -> t.login(options.username, options.password, null);
+                case UPLOAD -> t.upload(UPLOAD_FILENAME, options.uploadSize, cookie);
+            };
+            i++;
+        }
+    }
+
+    private byte[] pickTemplate() {
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        int r = random.nextInt(total);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (r < cumulativeWeights[i]) return templates[i];
+        }
+        return templates[templates.length - 1];
+    }
+
+    private BenchResult loop() throws IOException {
+        boolean openLoop = options.openLoop();
+        long start = System.nanoTime();
+        warmupEndNanos = start + options.warmupSeconds * 1_000_000_000L;
+        measureEndNanos = warmupEndNanos + options.durationSeconds * 1_000_000_000L;
+        long periodNanos = openLoop ? 1_000_000_000L / options.rate : 0;
+        long nextIntended = start;
+        // 开环：已到计划时间但还没有空闲连接可用的请求
+        LongQueue backlog = new LongQueue();
+        int inFlight = 0;
+
+        while (true) {
+            long now = System.nanoTime();
+            boolean generating = now < measureEndNanos;
+            if (!generating && (inFlight == 0 || now > measureEndNanos + DRAIN_NANOS)) break;
+
+            if (generating && openLoop) {
+                while (nextIntended <= now && nextIntended < measureEndNanos) {
+                    backlog.add(nextIntended);
+                    nextIntended += periodNanos;
+                }
+            }
+            retryBroken(now);
+
+            // 把请求分发给空闲连接
+            while (generating && !idle.isEmpty()) {
+                long startNanos;
+                if (openLoop) {
+                    if (backlog.isEmpty()) break;
+                    startNanos = backlog.poll();
+                } else {
+                    startNanos = now;
+                }
+                Connection c = idle.poll();
+                if (send(c, startNanos)) {
+                    inFlight++;
+                } else {
+                    errors++;
+                }
+            }
+
+            long waitNanos = openLoop && generating ? nextIntended - System.nanoTime() : 100_000_000L;
+            if (waitNanos < 1_000_000L) {
+                selector.selectNow();
+            } else {
+                selector.select(Math.min(waitNanos / 1_000_000L, 100));
+            }
+
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Connection c = (Connection) key.attachment();
+                if (!key.isValid()) continue;
+                try {
+                    if (key.isWritable()) {
+                        flush(c);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        if (onReadable(c)) inFlight--;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    if (c.busy) {
+                        inFlight--;
+                        errors++;
+                    } else {
+                        // 空闲连接被服务器关闭（如keep-alive超时），重连即可
+                        idle.remove(c);
+                    }
+                    reconnect(c);
+                }
+            }
+        }
+
+        double elapsed = (Math.min(System.nanoTime(), measureEndNanos) - warmupEndNanos) / 1e9;
+        return new BenchResult(latency, openLoop ? null : corrected, Math.max(0, expectedIntervalMicros),
+                statusCounts, completed, responses, errors, backlog.size(), bytesRead, elapsed);
+    }
+
+    /**
+     * 在连接上发出一个请求
+     *
+     * @return false 表示连接写失败，已安排重连
+     */
+    private boolean send(Connection c, long startNanos) {
+        c.busy = true;
+        c.startNanos = startNanos;
+        c.parser.reset();
+        c.pendingWrite = ByteBuffer.wrap(pickTemplate());
+        try {
+            flush(c);
+            return true;
+        } catch (IOException e) {
+            reconnect(c);
+            return false;
+        }
+    }
+
+    private void flush(Connection c) throws IOException {
+        ByteBuffer buf = c.pendingWrite;
+        if (buf == null) return;
+        c.channel.write(buf);
+        if (buf.hasRemaining()) {
+            c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            c.pendingWrite = null;
+            c.key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * 处理可读事件
+     *
+     * @return true 表示一个在途请求已完成
+     */
+    private boolean onReadable(Connection c) throws IOException {
+        readBuffer.clear();
+        int n = c.channel.read(readBuffer);
+        if (n < 0) {
+            throw new IOException("服务器关闭了连接");
+        }
+        readBuffer.flip();
+        if (!c.busy) return false; // 非预期数据，忽略
+        if (!c.parser.feed(readBuffer)) return false;
+
+        long end = System.nanoTime();
+        onResponse(c, end);
+        if (c.parser.closeAfter) {
+            reconnect(c);
+        } else {
+            c.busy = false;
+            idle.add(c);
+        }
+        return true;
+    }
+
+    private void onResponse(Connection c, long endNanos) {
+        long micros = (endNanos - c.startNanos) / 1000;
+        bytesRead += c.parser.bytesRead;
+        responses++;
+        if (c.startNanos < warmupEndNanos) {
+            warmupLatency.record(micros);
+            return;
+        }
+        if (c.startNanos >= measureEndNanos) return;
+        completed++;
+        int status = c.parser.status;
+        if (status >= 0 && status < statusCounts.length) statusCounts[status]++;
+        latency.record(micros);
+        if (!options.openLoop()) {
+            // 没有预热数据时期望间隔为0，即不做修正
+            if (expectedIntervalMicros < 0) expectedIntervalMicros = warmupLatency.valueAtPercentile(50);
+            corrected.recordCorrected(micros, expectedIntervalMicros);
+        }
+    }
+
+    private void reconnect(Connection c) {
+        c.close();
+        try {
+            c.open();
+            idle.add(c);
+        } catch (IOException e) {
+            errors++;
+            c.retryAtNanos = System.nanoTime() + RECONNECT_BACKOFF_NANOS;
+            broken.add(c);
+        }
+    }
+
+    private void retryBroken(long now) {
+        for (Iterator<Connection> it = broken.iterator(); it.hasNext(); ) {
+            Connection c = it.next();
+            if (c.retryAtNanos > now) continue;
+            it.remove();
+            reconnect(c);
+        }
+    }
+
+    /**
+     * 简单的long环形队列，避免开环积压时装箱
+     */
+    private static final class LongQueue {
+        private long[] items = new long[1024];
+        private int head;
+        private int size;
+
+        void add(long v) {
+            if (size == items.length) {
+                long[] grown = new long[items.length * 2];
+                for (int i = 0; i < size; i++) grown[i] = items[(head + i) % items.length];
+                items = grown;
+                head = 0;
+            }
+            items[(head + size) % items.length] = v;
+            size++;
+        }
+
+        long poll() {
+            long v = items[head];
+            head = (head + 1) % items.length;
+            size--;
+            return v;
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        int size() { return size; }
+    }
+
+    /**
+     * 命令行入口：解析参数、执行压测并打印报告
+     */
+    public static void main(String[] args) {
+        BenchOptions options;
+        try {
+            options = BenchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: " + e.getMessage());
+            return;
+        }
+        System.out.println("开始压测: " + options);
+        try {
+            BenchResult result = new LoadGenerator(options).run();
+            result.print(System.out);
+        } catch (IOException e) {
+            System.err.println("压测失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.http.bench;
+
+import com.example.http.ServerConfig;
+import com.example.http.SimpleHttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 端到端性能回归套件
+ *
+ * 在进程内以临时端口启动 SimpleHttpServer，依次执行一组固定负载：
+ * - static-keepalive：长连接上的小文件 GET
+ * - large-pdf：大 PDF 下载
+ * - concurrent-login：并发登录
+ * - multipart-upload：multipart 上传
+ * - idle-connections：存在大量空闲长连接时的小文件 GET
+ *
+ * 每个场景记录吞吐量、p99 延迟和服务端每请求分配字节数，
+ * 与仓库中的基线文件（默认 perf/baseline.properties）按容差带比较，
+ * 任一指标超出容差即判定为回归，进程以非0退出码结束，从而让构建失败。
+ *
+ * 运行方式：
+ * - mvn -Pperf verify                                   （构建时执行）
+ * - java -jar app.jar perf [--baseline=文件] [--duration=秒]
+ * - java -jar app.jar perf --update-baseline            （在基准机器上刷新基线）
+ *
+ * 分配字节数通过 com.sun.management.ThreadMXBean 统计名称以"http-"开头的服务端线程，
+ * 压测客户端本身的分配不计入。
+ */
+public final class PerfRegressionSuite {
+
+    /** 默认基线文件 */
+    private static final String DEFAULT_BASELINE = "perf/baseline.properties";
+
+    /** 套件内服务器使用的线程数，固定下来保证结果可比 */
+    private static final int SERVER_THREADS = 16;
+
+    /** idle-connections 场景保持的空闲长连接数（需小于线程数，否则阻塞模型下无线程可用） */
+    private static final int IDLE_CONNECTIONS = 10;
+
+    /** 默认容差：吞吐量允许下降的比例、p99 与分配允许上升的比例 */
+    private static final double DEFAULT_THROUGHPUT_TOLERANCE = 0.30;
+    private static final double DEFAULT_P99_TOLERANCE = 0.50;
+    private static final double DEFAULT_ALLOC_TOLERANCE = 0.25;
+
+    /** p99 的绝对宽限（微秒），避免亚毫秒级抖动造成误报 */
+    private static final long DEFAULT_P99_SLACK_MICROS = 2000;
+
+    /**
+     * 一个固定负载场景
+     *
+     * @param name 场景名，同时作为基线文件中的键前缀
+     * @param benchArgs 传给 LoadGenerator 的参数（不含目标地址）
+     * @param idleConnections 压测期间额外保持的空闲长连接数
+     */
+    private record Scenario(String name, String[] benchArgs, int idleConnections) {}
+
+    /**
+     * 一个场景的测量结果
+     */
+    private record Measurement(double throughput, long p99Micros, long allocBytesPerRequest, long failures) {}
+
+    private final Path baselineFile;
+    private final boolean updateBaseline;
+    private final int durationSeconds;
+    private final PrintStream report;
+
+    private PerfRegressionSuite(Path baselineFile, boolean updateBaseline, int durationSeconds, PrintStream report) {
+        this.baselineFile = baselineFile;
+        this.updateBaseline = updateBaseline;
+        this.durationSeconds = durationSeconds;
+        this.report = report;
+    }
+
+    private List<Scenario> scenarios() {
+        String d = "--duration=" + durationSeconds;
+        List<Scenario> list = new ArrayList<>();
+        list.add(new Scenario("static-keepalive",
+                new String[]{"--connections=8", "--path=/hello.txt", d}, 0));
+        list.add(new Scenario("large-pdf",
+                new String[]{"--connections=4", "--path=/ICSE2021.pdf", d}, 0));
+        list.add(new Scenario("concurrent-login",
+                new String[]{"--connections=12", "--mix=login:100", d}, 0));
+        list.add(new Scenario("multipart-upload",
+                new String[]{"--connections=4", "--mix=upload:100", "--upload-size=65536", d}, 0));
+        list.add(new Scenario("idle-connections",
+                new String[]{"--connections=4", "--path=/hello.txt", d}, IDLE_CONNECTIONS));
+        return list;
+    }
+
+    /**
+     * 执行全部场景并与基线比较
+     *
+     * @return 0 表示通过，1 表示存在回归或场景失败
+     */
+    private int execute() throws Exception {
+        Map<String, Measurement> results = new LinkedHashMap<>();
+        PrintStream originalOut = System.out;
+        // 服务器逐请求打印日志，套件运行期间丢弃，避免刷屏
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        SimpleHttpServer server = new SimpleHttpServer(new ServerConfig().port(0).threads(SERVER_THREADS));
+        Thread acceptor = new Thread(server::start, "http-acceptor");
+        try {
+            acceptor.start();
+            int port = awaitPort(server);
+            report.println("性能回归套件: 服务器端口 " + port + ", 每场景 " + durationSeconds + "s");
+            // 先跑一轮混合负载让JIT完成编译，避免第一个场景吃下全部冷启动开销
+            measure(new Scenario("jit-warmup", new String[]{"--connections=8", "--duration=2",
+                    "--mix=static:50,login:25,upload:25", "--path=/ICSE2021.pdf"}, 0), port);
+            for (Scenario scenario : scenarios()) {
+                report.println("运行场景: " + scenario.name());
+                results.put(scenario.name(), measure(scenario, port));
+            }
+        } finally {
+            server.stop();
+            acceptor.join(5000);
+            System.setOut(originalOut);
+        }
+
+        if (updateBaseline) {
+            writeBaseline(results);
+            report.println("基线已更新: " + baselineFile);
+            return 0;
+        }
+        return compare(results, loadBaseline());
+    }
+
+    private static int awaitPort(SimpleHttpServer server) throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            int port = server.getLocalPort();
+            if (port > 0) return port;
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("服务器未能在10秒内开始监听");
+    }
+
+    private Measurement measure(Scenario scenario, int port) throws IOException {
+        String[] args = new String[scenario.benchArgs().length + 3];
+        args[0] = "bench";
+        args[1] = "localhost:" + port;
+        args[2] = "--warmup=1";
+        System.arraycopy(scenario.benchArgs(), 0, args, 3, scenario.benchArgs().length);
+
+        List<Socket> idle = openIdleConnections(port, scenario.idleConnections());
+        try {
+            long allocBefore = serverAllocatedBytes();
+            BenchResult result = new LoadGenerator(BenchOptions.parse(args)).run();
+            long allocAfter = serverAllocatedBytes();
+            long perRequest = result.responses() == 0 ? 0 : (allocAfter - allocBefore) / result.responses();
+            return new Measurement(result.throughput(), result.latencyMicros(99), perRequest,
+                    result.errors() + result.failedResponses());
+        } finally {
+            for (Socket s : idle) {
+                try {
+                    s.close();
+                } catch (IOException ignore) {
+                    // 忽略关闭错误
+                }
+            }
+        }
+    }
+
+    /**
+     * 建立若干长连接，每个连接先完成一次请求后保持空闲
+     */
+    private static List<Socket> openIdleConnections(int port, int count) throws IOException {
+        List<Socket> sockets = new ArrayList<>();
+        if (count == 0) return sockets;
+        RequestTemplates templates = new RequestTemplates("localhost", port);
+        String cookie = templates.obtainSessionCookie("bench", "bench");
+        byte[] request = templates.get("/hello.txt", cookie);
+        for (int i = 0; i < count; i++) {
+            Socket s = new Socket();
+            s.connect(new InetSocketAddress("localhost", port), 5000);
+            s.setSoTimeout(5000);
+            s.getOutputStream().write(request);
+            // 读到响应结束即可，hello.txt 很小，一次读完头部和体部
+            InputStream in = s.getInputStream();
+            byte[] buf = new byte[4096];
+            if (in.read(buf) <= 0) throw new IOException("空闲连接预热失败");
+            sockets.add(s);
+        }
+        return sockets;
+    }
+
+    /**
+     * 统计服务端线程（名称以"http-"开头）累计分配的字节数
+     */
+    private static long serverAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean sunBean) || !sunBean.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+        long total = 0;
+        for (ThreadInfo info : bean.getThreadInfo(bean.getAllThreadIds())) {
+            if (info == null || !info.getThreadName().startsWith("http-")) continue;
+            long bytes = sunBean.getThreadAllocatedBytes(info.getThreadId());
+            if (bytes > 0) total += bytes;
+        }
+        return total;
+    }
+
+    // ========== 基线读写与比较 ==========
+
+    private Properties loadBaseline() throws IOException {
+        Properties p = new Properties();
+        if (Files.exists(baselineFile)) {
+            try (InputStream in = Files.newInputStream(baselineFile)) {
+                p.load(in);
+            }
+        }
+        return p;
+    }
+
+    private void writeBaseline(Map<String, Measurement> results) throws IOException {
+        Properties old = loadBaseline();
+        StringBuilder sb = new StringBuilder();
+        sb.append("# 性能回归基线，由 `java -jar app.jar perf --update-baseline` 生成\n");
+        sb.append("# 基线与机器相关，请在固定的基准机器上刷新后提交\n\n");
+        sb.append("# 容差：吞吐量允许下降的比例；p99 与每请求分配允许上升的比例\n");
+        sb.append("tolerance.throughput=").append(old.getProperty("tolerance.throughput", String.valueOf(DEFAULT_THROUGHPUT_TOLERANCE))).append('\n');
+        sb.append("tolerance.p99=").append(old.getProperty("tolerance.p99", String.valueOf(DEFAULT_P99_TOLERANCE))).append('\n');
+        sb.append("tolerance.alloc=").append(old.getProperty("tolerance.alloc", String.valueOf(DEFAULT_ALLOC_TOLERANCE))).append('\n');
+        sb.append("# p99 的绝对宽限（微秒），低于该值的增长不算回归\n");
+        sb.append("tolerance.p99.slackMicros=").append(old.getProperty("tolerance.p99.slackMicros", String.valueOf(DEFAULT_P99_SLACK_MICROS))).append('\n');
+        for (Map.Entry<String, Measurement> e : results.entrySet()) {
+            Measurement m = e.getValue();
+            sb.append('\n');
+            sb.append(e.getKey()).append(".throughput=").append(String.format(Locale.ROOT, "%.1f", m.throughput())).append('\n');
+            sb.append(e.getKey()).append(".p99Micros=").append(m.p99Micros()).append('\n');
+            sb.append(e.getKey()).append(".allocBytesPerRequest=").append(m.allocBytesPerRequest()).append('\n');
+        }
+        Path parent = baselineFile.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Files.writeString(baselineFile, sb.toString(), StandardCharsets.UTF_8);
+    }
+
+    private int compare(Map<String, Measurement> results, Properties baseline) {
+        double tThroughput = doubleProp(baseline, "tolerance.throughput", DEFAULT_THROUGHPUT_TOLERANCE);
+        double tP99 = doubleProp(baseline, "tolerance.p99", DEFAULT_P99_TOLERANCE);
+        double tAlloc = doubleProp(baseline, "tolerance.alloc", DEFAULT_ALLOC_TOLERANCE);
+        long slack = (long) doubleProp(baseline, "tolerance.p99.slackMicros", DEFAULT_P99_SLACK_MICROS);
+
+        int regressions = 0;
+        report.println("========================================");
+        report.printf(Locale.ROOT, "%-18s %-16s %12s %12s %9s  %s%n", "场景", "指标", "基线", "本次", "变化", "结果");
+        for (Map.Entry<String, Measurement> e : results.entrySet()) {
+            String name = e.getKey();
+            Measurement m = e.getValue();
+            if (m.failures() > 0) {
+                report.printf(Locale.ROOT, "%-18s 出现 %d 个错误/失败响应%n", name, m.failures());
+                regressions++;
+            }
+            if (!baseline.containsKey(name + ".throughput")) {
+                report.printf(Locale.ROOT, "%-18s 无基线，跳过比较（可运行 perf --update-baseline 生成）%n", name);
+                continue;
+            }
+            double bThroughput = doubleProp(baseline, name + ".throughput", 0);
+            double bP99 = doubleProp(baseline, name + ".p99Micros", 0);
+            double bAlloc = doubleProp(baseline, name + ".allocBytesPerRequest", 0);
+            regressions += row(name, "吞吐量(req/s)", bThroughput, m.throughput(),
+                    m.throughput() < bThroughput * (1 - tThroughput));
+            regressions += row(name, "p99(us)", bP99, m.p99Micros(),
+                    m.p99Micros() > Math.max(bP99 * (1 + tP99), bP99 + slack));
+            regressions += row(name, "分配(B/req)", bAlloc, m.allocBytesPerRequest(),
+                    bAlloc > 0 && m.allocBytesPerRequest() > bAlloc * (1 + tAlloc));
+        }
+        report.println("========================================");
+        if (regressions > 0) {
+            report.println("发现 " + regressions + " 项性能回归");
+            return 1;
+        }
+        report.println("全部场景均在基线容差范围内");
+        return 0;
+    }
+
+    private int row(String scenario, String metric, double base, double current, boolean regressed) {
+        String change = base == 0 ? "-" : String.format(Locale.ROOT, "%+.1f%%", (current - base) / base * 100);
+        report.printf(Locale.ROOT, "%-18s %-16s %12.1f %12.1f %9s  %s%n",
+                scenario, metric, base, current, change, regressed ? "回归" : "通过");
+        return regressed ? 1 : 0;
+    }
+
+    private static double doubleProp(Properties p, String key, double defaultValue) {
+        String v = p.getProperty(key);
+        if (v == null) return defaultValue;
+        try {
+            return Double.parseDouble(v.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * 运行套件
+     *
+     * @param args 命令行参数，args[0]为模式名"perf"（直接作为main入口时可省略）
+     * @return 进程退出码，0 表示通过
+     */
+    public static int run(String[] args) {
+        Path baseline = Paths.get(DEFAULT_BASELINE);
+        boolean update = false;
+        int duration = 3;
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baseline = Paths.get(arg.substring("--baseline=".length()));
+            } else if (arg.equals("--update-baseline")) {
+                update = true;
+            } else if (arg.startsWith("--duration=")) {
+                duration = Integer.parseInt(arg.substring("--duration=".length()));
+            } else if (!arg.equals("perf")) {
+                System.err.println("错误: 未知参数 " + arg);
+                return 2;
+            }
+        }
+        try {
+            return new PerfRegressionSuite(baseline, update, duration, System.out).execute();
+        } catch (Exception e) {
+            System.err.println("性能回归套件执行失败: " + e);
+            return 1;
+        }
+    }
+
+    public static void main(String[] args) {
+        int code = run(args);
+        if (code != 0) System.exit(code);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.http.bench;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 预先序列化好的压测请求
+ *
+ * 压测过程中每个请求都直接复用这些字节数组，不做任何字符串拼接，
+ * 保证压测端自身的开销稳定且足够低。
+ */
+final class RequestTemplates {
+
+    /** 上传请求使用的multipart分隔符 */
+    private static final String BOUNDARY = "----BenchBoundary7MA4YWxkTrZu0gW";
+
+    private final String hostHeader;
+
+    RequestTemplates(String host, int port) {
+        this.hostHeader = host + ":" + port;
+    }
+
+    /**
+     * 注册 + 登录，返回会话Cookie（形如"SID=xxx"）
+     *
+     * 用户已存在时注册返回409，不影响后续登录。
+     */
+    String obtainSessionCookie(String username, String password) throws IOException {
+        String host = hostHeader.substring(0, hostHeader.lastIndexOf(':'));
+        int port = Integer.parseInt(hostHeader.substring(hostHeader.lastIndexOf(':') + 1));
+        try (BlockingHttpClient client = new BlockingHttpClient(host, port, 5000)) {
+            client.send(register(username, password));
+            BlockingHttpClient.Response login = client.send(login(username, password, null));
+            String setCookie = login.header("Set-Cookie");
+            if (login.status != 200 || setCookie == null) {
+                throw new IOException("登录失败，状态码 " + login.status + ": " + login.bodyText());
+            }
+            int semi = setCookie.indexOf(';');
+            return semi > 0 ? setCookie.substring(0, semi) : setCookie;
+        }
+    }
+
+    byte[] get(String path, String cookie) {
+        StringBuilder sb = new StringBuilder(128)
+                .append("GET ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(hostHeader).append("\r\n")
+                .append("User-Agent: SimpleBench/1.0\r\n");
+        if (cookie != null) sb.append("Cookie: ").append(cookie).append("\r\n");
+        sb.append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    byte[] register(String username, String password) {
+        return form("/register", username, password, null);
+    }
+
+    byte[] login(String username, String password, String cookie) {
+        return form("/login", username, password, cookie);
+    }
+
+    private byte[] form(String path, String username, String password, String cookie) {
+        String body = "username=" + URLEncoder.encode(username, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(192)
+                .append("POST ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(hostHeader).append("\r\n")
+                .append("User-Agent: SimpleBench/1.0\r\n")
+                .append("Content-Type: application/x-www-form-urlencoded\r\n")
+                .append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+        if (cookie != null) sb.append("Cookie: ").append(cookie).append("\r\n");
+        sb.append("\r\n");
+        return concat(sb.toString().getBytes(StandardCharsets.US_ASCII), bodyBytes);
+    }
+
+    /**
+     * 构造上传请求，文件内容为 size 个填充字节
+     */
+    byte[] upload(String filename, int size, String cookie) {
+        byte[] head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] payload = new byte[size];
+        Arrays.fill(payload, (byte) 'x');
+        byte[] body = concat(concat(head, payload), tail);
+        StringBuilder sb = new StringBuilder(256)
+                .append("POST /upload HTTP/1.1\r\n")
+                .append("Host: ").append(hostHeader).append("\r\n")
+                .append("User-Agent: SimpleBench/1.0\r\n")
+                .append("Content-Type: multipart/form-data; boundary=").append(BOUNDARY).append("\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n");
+        if (cookie != null) sb.append("Cookie: ").append(cookie).append("\r\n");
+        sb.append("\r\n");
+        return concat(sb.toString().getBytes(StandardCharsets.US_ASCII), body);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+}
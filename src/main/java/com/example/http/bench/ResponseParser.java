@@ -0,0 +1,130 @@
+package com.example.http.bench;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 增量式HTTP响应解析器（用于NIO压测连接）
+ *
+ * 只提取压测需要的信息：状态码、Content-Length、是否 Connection: close。
+ * 响应体只计数不保存，因此下载大文件时压测端也不会产生内存压力。
+ */
+final class ResponseParser {
+
+    /** 头部最大长度，超出视为协议错误 */
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    private final byte[] header = new byte[MAX_HEADER_BYTES];
+    private int headerLength;
+    private boolean inBody;
+    private long bodyRemaining;
+
+    int status;
+    boolean closeAfter;
+    long bytesRead;
+
+    /**
+     * 开始解析新的响应
+     */
+    void reset() {
+        headerLength = 0;
+        inBody = false;
+        bodyRemaining = 0;
+        status = 0;
+        closeAfter = false;
+        bytesRead = 0;
+    }
+
+    /**
+     * 喂入新读到的数据
+     *
+     * @param buf 读缓冲区，会被消费到响应结束处为止
+     * @return true 表示一个完整的响应已经解析完毕
+     * @throws IllegalStateException 响应格式不受支持（如分块编码或无长度）
+     */
+    boolean feed(ByteBuffer buf) {
+        while (buf.hasRemaining()) {
+            if (!inBody) {
+                byte b = buf.get();
+                bytesRead++;
+                if (headerLength == header.length) throw new IllegalStateException("响应头过长");
+                header[headerLength++] = b;
+                if (b == '\n' && headerLength >= 4
+                        && header[headerLength - 2] == '\r'
+                        && header[headerLength - 3] == '\n'
+                        && header[headerLength - 4] == '\r') {
+                    parseHeader();
+                    inBody = true;
+                    if (bodyRemaining == 0) return true;
+                }
+            } else {
+                int n = (int) Math.min(buf.remaining(), bodyRemaining);
+                buf.position(buf.position() + n);
+                bytesRead += n;
+                bodyRemaining -= n;
+                if (bodyRemaining == 0) return true;
+            }
+        }
+        return inBody && bodyRemaining == 0;
+    }
+
+    private void parseHeader() {
+        // 状态行 "HTTP/1.1 200 OK"
+        int sp = indexOf((byte) ' ', 0);
+        status = parseInt(sp + 1, sp + 4);
+        long contentLength = -1;
+        int lineStart = indexOf((byte) '\n', 0) + 1;
+        while (lineStart < headerLength - 2) {
+            int lineEnd = indexOf((byte) '\n', lineStart);
+            int colon = indexOf((byte) ':', lineStart);
+            if (colon > 0 && colon < lineEnd) {
+                if (nameEquals(lineStart, colon, "content-length")) {
+                    contentLength = parseInt(skipSpaces(colon + 1), lineEnd - 1);
+                } else if (nameEquals(lineStart, colon, "connection")) {
+                    int v = skipSpaces(colon + 1);
+                    closeAfter = (header[v] | 0x20) == 'c';
+                } else if (nameEquals(lineStart, colon, "transfer-encoding")) {
+                    throw new IllegalStateException("压测客户端不支持分块编码响应");
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        if (contentLength < 0) {
+            if (status == 304 || status == 204) {
+                contentLength = 0;
+            } else {
+                throw new IllegalStateException("响应缺少 Content-Length");
+            }
+        }
+        bodyRemaining = contentLength;
+    }
+
+    private int indexOf(byte b, int from) {
+        for (int i = from; i < headerLength; i++) {
+            if (header[i] == b) return i;
+        }
+        return headerLength;
+    }
+
+    private int skipSpaces(int i) {
+        while (i < headerLength && header[i] == ' ') i++;
+        return i;
+    }
+
+    private int parseInt(int from, int to) {
+        int v = 0;
+        for (int i = from; i < to && i < headerLength; i++) {
+            byte c = header[i];
+            if (c < '0' || c > '9') break;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private boolean nameEquals(int from, int to, String lowerName) {
+        if (to - from != lowerName.length()) return false;
+        for (int i = 0; i < lowerName.length(); i++) {
+            if ((header[from + i] | 0x20) != lowerName.charAt(i)) return false;
+        }
+        return true;
+    }
+}
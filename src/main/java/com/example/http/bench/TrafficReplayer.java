@@ -0,0 +1,295 @@
+package com.example.http.bench;
+
+import com.example.http.capture.CaptureFormat;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 抓包流量回放器
+ *
+ * 读取 {@link com.example.http.capture.TrafficRecorder} 录制的抓包文件，
+ * 按原始连接分组，在各自的长连接上按原始时间间隔（可按倍速缩放）重放请求，
+ * 从而复现真实的长连接复用、请求大小分布和上传突发。
+ *
+ * 抓包中的敏感字段已被脱敏，回放时：
+ * - 含脱敏值的 Cookie 头部替换为回放账号登录得到的会话Cookie
+ * - 表单中被脱敏的密码字段替换为回放密码
+ * - 抓包中出现的登录用户名会预先以回放密码注册，使登录请求得到与线上一致的成功响应
+ *
+ * 延迟从计划发送时间开始计算（与开环压测一致），服务器跟不上时排队时间同样计入。
+ *
+ * 命令行格式：
+ * replay <抓包文件> [host:port] [--speed=1.0] [--user=bench] [--password=bench]
+ * speed 为回放倍速，2 表示两倍速，0 表示不等待、尽快发送。
+ */
+public final class TrafficReplayer {
+
+    private final Path captureFile;
+    private final String host;
+    private final int port;
+    private final double speed;
+    private final String username;
+    private final String password;
+
+    /** 各连接线程的统计结果，结束后合并 */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final long[] statusCounts = new long[600];
+    private final AtomicLong errors = new AtomicLong();
+
+    private TrafficReplayer(Path captureFile, String host, int port, double speed, String username, String password) {
+        this.captureFile = captureFile;
+        this.host = host;
+        this.port = port;
+        this.speed = speed;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * 执行回放，阻塞直到所有连接回放完成
+     */
+    private void run() throws IOException, InterruptedException {
+        Map<Long, List<CaptureFormat.Record>> connections = new LinkedHashMap<>();
+        long records = 0;
+        long spanMicros = 0;
+        try (CaptureFormat.Reader reader = new CaptureFormat.Reader(
+                new BufferedInputStream(Files.newInputStream(captureFile), 64 * 1024))) {
+            CaptureFormat.Record r;
+            while ((r = reader.next()) != null) {
+                connections.computeIfAbsent(r.connectionId(), k -> new ArrayList<>()).add(r);
+                spanMicros = Math.max(spanMicros, r.offsetMicros());
+                records++;
+            }
+        }
+        if (records == 0) {
+            System.out.println("抓包文件中没有记录");
+            return;
+        }
+        System.out.printf(Locale.ROOT, "抓包: %d 个连接, %d 个请求, 时长 %.1fs, 回放倍速 %s%n",
+                connections.size(), records, spanMicros / 1e6, speed == 0 ? "不限" : String.valueOf(speed));
+
+        RequestTemplates templates = new RequestTemplates(host, port);
+        String cookie = templates.obtainSessionCookie(username, password);
+        registerCapturedUsers(templates, connections);
+
+        // 首个请求的时间作为回放零点
+        long firstOffset = Long.MAX_VALUE;
+        for (List<CaptureFormat.Record> list : connections.values()) {
+            firstOffset = Math.min(firstOffset, list.get(0).offsetMicros());
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService pool = Executors.newCachedThreadPool();
+        CountDownLatch done = new CountDownLatch(connections.size());
+        long startNanos = System.nanoTime();
+        for (List<CaptureFormat.Record> list : connections.values()) {
+            long delayNanos = scaledNanos(list.get(0).offsetMicros() - firstOffset);
+            long base = firstOffset;
+            scheduler.schedule(() -> pool.execute(() -> {
+                try {
+                    replayConnection(list, cookie, startNanos, base);
+                } finally {
+                    done.countDown();
+                }
+            }), delayNanos, TimeUnit.NANOSECONDS);
+        }
+        done.await();
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        scheduler.shutdown();
+        pool.shutdown();
+        report(records, elapsed);
+    }
+
+    /**
+     * 回放一个原始连接上的全部请求
+     */
+    private void replayConnection(List<CaptureFormat.Record> records, String cookie, long startNanos, long baseOffset) {
+        LatencyHistogram local = new LatencyHistogram();
+        long[] localStatus = new long[statusCounts.length];
+        BlockingHttpClient client = null;
+        try {
+            for (CaptureFormat.Record r : records) {
+                long intended = startNanos + scaledNanos(r.offsetMicros() - baseOffset);
+                long wait = intended - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+                long sendStart = speed == 0 ? System.nanoTime() : intended;
+                try {
+                    if (client == null) client = new BlockingHttpClient(host, port, 30_000);
+                    BlockingHttpClient.Response response = client.send(rewrite(r.request(), cookie));
+                    local.record((System.nanoTime() - sendStart) / 1000);
+                    if (response.status >= 0 && response.status < localStatus.length) localStatus[response.status]++;
+                    if ("close".equalsIgnoreCase(response.header("Connection"))) {
+                        client.close();
+                        client = null;
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                    closeQuietly(client);
+                    client = null;
+                }
+            }
+        } finally {
+            closeQuietly(client);
+            synchronized (this) {
+                latency.add(local);
+                for (int i = 0; i < localStatus.length; i++) statusCounts[i] += localStatus[i];
+            }
+        }
+    }
+
+    private long scaledNanos(long micros) {
+        if (speed == 0) return 0;
+        return (long) (micros * 1000 / speed);
+    }
+
+    /**
+     * 抓包中出现的登录/注册用户名，预先用回放密码注册
+     */
+    private void registerCapturedUsers(RequestTemplates templates, Map<Long, List<CaptureFormat.Record>> connections)
+            throws IOException {
+        Set<String> users = new LinkedHashSet<>();
+        for (List<CaptureFormat.Record> list : connections.values()) {
+            for (CaptureFormat.Record r : list) {
+                String raw = new String(r.request(), StandardCharsets.ISO_8859_1);
+                if (!raw.startsWith("POST /login") && !raw.startsWith("POST /register")) continue;
+                int bodyStart = raw.indexOf("\r\n\r\n");
+                if (bodyStart < 0) continue;
+                for (String pair : raw.substring(bodyStart + 4).split("&")) {
+                    if (pair.startsWith("username=")) {
+                        users.add(URLDecoder.decode(pair.substring(9), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        if (users.isEmpty()) return;
+        try (BlockingHttpClient client = new BlockingHttpClient(host, port, 5000)) {
+            for (String user : users) {
+                client.send(templates.register(user, password));
+            }
+        }
+        System.out.println("已预注册抓包中的 " + users.size() + " 个用户");
+    }
+
+    /**
+     * 用回放凭据替换抓包中的脱敏值，并修正 Content-Length
+     */
+    private byte[] rewrite(byte[] request, String cookie) {
+        String raw = new String(request, StandardCharsets.ISO_8859_1);
+        if (!raw.contains(CaptureFormat.REDACTED)) return request;
+        int headEnd = raw.indexOf("\r\n\r\n");
+        String head = headEnd >= 0 ? raw.substring(0, headEnd) : raw;
+        String body = headEnd >= 0 ? raw.substring(headEnd + 4) : "";
+        String encodedPassword = URLEncoder.encode(password, StandardCharsets.UTF_8);
+        body = body.replace("=" + CaptureFormat.REDACTED, "=" + encodedPassword);
+
+        StringBuilder sb = new StringBuilder(raw.length() + 32);
+        String[] lines = head.split("\r\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            String lower = line.toLowerCase(Locale.ROOT);
+            if (i == 0) {
+                line = line.replace("=" + CaptureFormat.REDACTED, "=" + encodedPassword);
+            } else if (lower.startsWith("cookie:") && line.contains(CaptureFormat.REDACTED)) {
+                line = "Cookie: " + cookie;
+            } else if (lower.startsWith("content-length:")) {
+                line = "Content-Length: " + body.getBytes(StandardCharsets.ISO_8859_1).length;
+            }
+            sb.append(line).append("\r\n");
+        }
+        sb.append("\r\n").append(body);
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private void report(long records, double elapsed) {
+        System.out.println("========================================");
+        System.out.println("回放结果");
+        System.out.println("========================================");
+        System.out.printf(Locale.ROOT, "请求: %d, 错误: %d, 耗时: %.2fs, 平均 %.1f req/s%n",
+                records, errors.get(), elapsed, elapsed <= 0 ? 0 : records / elapsed);
+        StringBuilder codes = new StringBuilder("状态码:");
+        for (int code = 0; code < statusCounts.length; code++) {
+            if (statusCounts[code] > 0) codes.append(' ').append(code).append('=').append(statusCounts[code]);
+        }
+        System.out.println(codes);
+        System.out.printf(Locale.ROOT, "延迟(从计划发送时间起算): p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms%n",
+                latency.valueAtPercentile(50) / 1000.0, latency.valueAtPercentile(90) / 1000.0,
+                latency.valueAtPercentile(99) / 1000.0, latency.valueAtPercentile(99.9) / 1000.0,
+                latency.max() / 1000.0);
+    }
+
+    private static void closeQuietly(BlockingHttpClient client) {
+        if (client == null) return;
+        try {
+            client.close();
+        } catch (IOException ignore) {
+            // 忽略关闭错误
+        }
+    }
+
+    /**
+     * 命令行入口
+     *
+     * @param args args[0]为模式名"replay"，args[1]为抓包文件
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("用法: replay <抓包文件> [host:port] [--speed=1.0] [--user=bench] [--password=bench]");
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        String host = "localhost";
+        int port = 8080;
+        double speed = 1.0;
+        String user = "bench";
+        String pass = "bench";
+        try {
+            for (int i = 2; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--speed=")) {
+                    speed = Double.parseDouble(arg.substring(8));
+                    if (speed < 0) throw new IllegalArgumentException("speed 不能为负数");
+                } else if (arg.startsWith("--user=")) {
+                    user = arg.substring(7);
+                } else if (arg.startsWith("--password=")) {
+                    pass = arg.substring(11);
+                } else if (!arg.startsWith("--")) {
+                    int colon = arg.lastIndexOf(':');
+                    if (colon > 0) host = arg.substring(0, colon);
+                    port = Integer.parseInt(arg.substring(colon + 1));
+                } else {
+                    throw new IllegalArgumentException("未知参数: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("错误: " + e.getMessage());
+            return;
+        }
+        try {
+            new TrafficReplayer(file, host, port, speed, user, pass).run();
+        } catch (IOException e) {
+            System.err.println("回放失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.http.capture;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流量抓包文件格式
+ *
+ * 文件头：
+ *   魔数 "SHCAP"（5字节） + 版本号（1字节） + 抓包开始的Unix毫秒时间（8字节，大端）
+ *
+ * 之后是连续的请求记录，所有整数都使用无符号变长编码（每字节7位，最高位为续位）：
+ *   连接编号 | 连接内请求序号 | 距抓包开始的微秒数 | 请求字节长度 | 请求原始字节
+ *
+ * 同一连接的记录按序号递增出现，回放时据此还原长连接复用的模式。
+ * 记录中的敏感字段已被替换为 {@link #REDACTED}，回放端负责替换成自己的凭据。
+ */
+public final class CaptureFormat {
+
+    /** 文件魔数 */
+    static final byte[] MAGIC = "SHCAP".getBytes(StandardCharsets.US_ASCII);
+
+    /** 当前格式版本 */
+    static final int VERSION = 1;
+
+    /** 脱敏占位符，仅包含URL安全字符，放进表单或Cookie都不需要再编码 */
+    public static final String REDACTED = "~redacted~";
+
+    private CaptureFormat() {}
+
+    /**
+     * 一条抓包记录
+     *
+     * @param connectionId 连接编号（仅在同一抓包文件内唯一）
+     * @param sequence 该连接上的第几个请求，从1开始
+     * @param offsetMicros 距抓包开始的微秒数
+     * @param request 请求的原始字节（已脱敏）
+     */
+    public record Record(long connectionId, int sequence, long offsetMicros, byte[] request) {}
+
+    /**
+     * 抓包文件读取器
+     */
+    public static final class Reader implements AutoCloseable {
+        private final DataInputStream in;
+        private final long startEpochMillis;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            byte[] magic = this.in.readNBytes(MAGIC.length);
+            if (!java.util.Arrays.equals(magic, MAGIC)) throw new IOException("不是有效的抓包文件");
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) throw new IOException("不支持的抓包文件版本: " + version);
+            this.startEpochMillis = this.in.readLong();
+        }
+
+        /** 抓包开始的Unix毫秒时间 */
+        public long startEpochMillis() { return startEpochMillis; }
+
+        /**
+         * 读取下一条记录
+         *
+         * @return 记录，文件结束时返回null
+         */
+        public Record next() throws IOException {
+            long connectionId;
+            try {
+                connectionId = readVarLong(in);
+            } catch (EOFException e) {
+                return null;
+            }
+            int sequence = (int) readVarLong(in);
+            long offset = readVarLong(in);
+            int length = (int) readVarLong(in);
+            byte[] request = in.readNBytes(length);
+            if (request.length != length) throw new EOFException("抓包记录被截断");
+            return new Record(connectionId, sequence, offset, request);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static void writeHeader(OutputStream out, long startEpochMillis) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (startEpochMillis >>> shift));
+        }
+    }
+
+    /**
+     * 写入无符号变长整数
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+        }
+        throw new IOException("变长整数格式错误");
+    }
+}
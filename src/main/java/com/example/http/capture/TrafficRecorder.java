@@ -0,0 +1,233 @@
+package com.example.http.capture;
+
+import com.example.http.http.HttpRequest;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入站流量录制器
+ *
+ * 以连接为单位抽样（被抽中的连接上所有请求都会录制），从而保留真实的长连接复用模式。
+ * 每个请求在工作线程中序列化并脱敏，然后交给后台写线程批量写盘；
+ * 队列积压超过上限时直接丢弃记录，录制永远不会拖慢请求处理。
+ *
+ * 脱敏规则：
+ * - Cookie 头部中每个Cookie的值
+ * - Authorization 头部的值
+ * - 查询字符串和 application/x-www-form-urlencoded 请求体中名称包含"password"的字段值
+ * 被替换为 {@link CaptureFormat#REDACTED}，并相应修正 Content-Length。
+ *
+ * 文件格式见 {@link CaptureFormat}。
+ */
+public final class TrafficRecorder implements Closeable {
+
+    /** 写队列最多积压的记录数 */
+    private static final int QUEUE_CAPACITY = 4096;
+
+    /** 写队列最多积压的字节数，超出后丢弃新记录 */
+    private static final long MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    /** 关闭时用于唤醒写线程的哨兵 */
+    private static final byte[] POISON = new byte[0];
+
+    private final double sampleRate;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong nextConnectionId = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final OutputStream out;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private TrafficRecorder(OutputStream out, double sampleRate) {
+        this.out = out;
+        this.sampleRate = sampleRate;
+        this.writer = new Thread(this::writeLoop, "capture-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * 打开抓包文件开始录制（已存在的文件会被覆盖）
+     *
+     * @param file 抓包文件路径
+     * @param sampleRate 连接抽样比例，取值 (0, 1]
+     * @return 录制器
+     */
+    public static TrafficRecorder open(Path file, double sampleRate) throws IOException {
+        if (!(sampleRate > 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("抽样比例必须在 (0, 1] 之间: " + sampleRate);
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        CaptureFormat.writeHeader(out, System.currentTimeMillis());
+        TrafficRecorder recorder = new TrafficRecorder(out, sampleRate);
+        recorder.writer.start();
+        return recorder;
+    }
+
+    /**
+     * 决定一个新连接是否被录制
+     *
+     * @return 被抽中时返回连接编号，否则返回-1
+     */
+    public long sampleConnection() {
+        if (closed) return -1;
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return -1;
+        return nextConnectionId.incrementAndGet();
+    }
+
+    /**
+     * 录制一个已解析完成的请求
+     *
+     * @param connectionId {@link #sampleConnection()} 返回的连接编号
+     * @param sequence 连接内的请求序号
+     * @param request 请求，请求体会被整体读入内存
+     * @throws IOException 读取请求体失败
+     */
+    public void record(long connectionId, int sequence, HttpRequest request) throws IOException {
+        if (closed || connectionId < 0) return;
+        long offsetMicros = (System.nanoTime() - startNanos) / 1000;
+        byte[] raw = serializeRedacted(request);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length + 16);
+        try {
+            CaptureFormat.writeVarLong(bos, connectionId);
+            CaptureFormat.writeVarLong(bos, sequence);
+            CaptureFormat.writeVarLong(bos, offsetMicros);
+            CaptureFormat.writeVarLong(bos, raw.length);
+            bos.write(raw);
+        } catch (IOException impossible) {
+            throw new IllegalStateException(impossible);
+        }
+        byte[] record = bos.toByteArray();
+        if (pendingBytes.addAndGet(record.length) > MAX_PENDING_BYTES || !queue.offer(record)) {
+            pendingBytes.addAndGet(-record.length);
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                byte[] record = queue.poll(1, TimeUnit.SECONDS);
+                if (record == null) {
+                    out.flush();
+                    continue;
+                }
+                if (record == POISON) break;
+                out.write(record);
+                pendingBytes.addAndGet(-record.length);
+                recorded.incrementAndGet();
+                if (queue.isEmpty()) out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("[抓包] 写入抓包文件失败，停止录制: " + e.getMessage());
+            closed = true;
+        }
+    }
+
+    /**
+     * 停止录制，写完积压的记录后关闭文件
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            queue.put(POISON);
+            writer.join(5000);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("[抓包] 关闭抓包文件失败: " + e.getMessage());
+        }
+        System.out.println("[抓包] 录制结束: 已写入 " + recorded.get() + " 条, 丢弃 " + dropped.get() + " 条");
+    }
+
+    // ========== 序列化与脱敏 ==========
+
+    /**
+     * 将请求还原为HTTP报文字节，同时完成脱敏
+     */
+    static byte[] serializeRedacted(HttpRequest request) throws IOException {
+        byte[] body = request.body();
+        String contentType = request.headerFirst("content-type");
+        boolean formBody = contentType != null
+                && contentType.toLowerCase(Locale.ROOT).startsWith("application/x-www-form-urlencoded");
+        if (formBody && body.length > 0) {
+            body = redactForm(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(request.method()).append(' ').append(request.path());
+        if (request.queryString() != null) sb.append('?').append(redactForm(request.queryString()));
+        sb.append(' ').append(request.version()).append("\r\n");
+        for (Map.Entry<String, List<String>> e : request.headers().entrySet()) {
+            String name = e.getKey();
+            for (String value : e.getValue()) {
+                switch (name) {
+                    case "cookie" -> value = redactCookies(value);
+                    case "authorization" -> value = CaptureFormat.REDACTED;
+                    case "content-length" -> value = String.valueOf(body.length);
+                    // chunked 请求体已被解码缓冲，按Content-Length重新定界
+                    case "transfer-encoding" -> { continue; }
+                    default -> { }
+                }
+                sb.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (request.contentLength() < 0) {
+            sb.append("content-length: ").append(body.length).append("\r\n");
+        }
+        sb.append("\r\n");
+        byte[] head = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] raw = java.util.Arrays.copyOf(head, head.length + body.length);
+        System.arraycopy(body, 0, raw, head.length, body.length);
+        return raw;
+    }
+
+    private static String redactCookies(String header) {
+        StringBuilder sb = new StringBuilder(header.length());
+        for (String part : header.split(";")) {
+            int eq = part.indexOf('=');
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(eq >= 0 ? part.substring(0, eq).trim() : part.trim()).append('=').append(CaptureFormat.REDACTED);
+        }
+        return sb.toString();
+    }
+
+    private static String redactForm(String form) {
+        StringBuilder sb = new StringBuilder(form.length());
+        for (String pair : form.split("&", -1)) {
+            if (sb.length() > 0) sb.append('&');
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            if (eq >= 0 && key.toLowerCase(Locale.ROOT).contains("password")) {
+                sb.append(key).append('=').append(CaptureFormat.REDACTED);
+            } else {
+                sb.append(pair);
+            }
+        }
+        return sb.toString();
+    }
+}
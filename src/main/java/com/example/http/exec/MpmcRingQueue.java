@@ -0,0 +1,108 @@
+package com.example.http.exec;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁多生产者多消费者环形队列（Dmitry Vyukov 的 bounded MPMC queue）
+ *
+ * 每个槽位带一个序号：
+ * - 序号 == 入队位置：槽位空闲，生产者CAS推进入队位置后写入元素，再把序号置为 位置+1
+ * - 序号 == 出队位置+1：槽位有数据，消费者CAS推进出队位置后取走元素，再把序号置为 位置+容量
+ *
+ * 入队、出队各只有一次CAS，没有锁也没有park/unpark。
+ * 满时 offer 返回false，空时 poll 返回null，由调用方决定如何处理。
+ *
+ * @param <E> 元素类型
+ */
+final class MpmcRingQueue<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequence;
+    private final AtomicLong enqueuePos = new AtomicLong();
+    private final AtomicLong dequeuePos = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整为2的幂，最小为2
+     */
+    MpmcRingQueue(int capacity) {
+        int size = 2;
+        while (size < capacity) size <<= 1;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * 入队
+     *
+     * @return 队列已满时返回false
+     */
+    boolean offer(E element) {
+        long pos = enqueuePos.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequence.get(index) - pos;
+            if (diff == 0) {
+                if (enqueuePos.compareAndSet(pos, pos + 1)) {
+                    buffer.lazySet(index, element);
+                    // 序号用volatile写发布，保证与消费者的parked标志构成完整的先行关系
+                    sequence.set(index, pos + 1);
+                    return true;
+                }
+                pos = enqueuePos.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = enqueuePos.get();
+            }
+        }
+    }
+
+    /**
+     * 出队
+     *
+     * @return 队列为空时返回null
+     */
+    E poll() {
+        long pos = dequeuePos.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequence.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (dequeuePos.compareAndSet(pos, pos + 1)) {
+                    E element = buffer.get(index);
+                    buffer.lazySet(index, null);
+                    sequence.set(index, pos + mask + 1);
+                    return element;
+                }
+                pos = dequeuePos.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = dequeuePos.get();
+            }
+        }
+    }
+
+    /**
+     * 近似元素个数（并发修改时只是一个快照）
+     */
+    int size() {
+        long size = enqueuePos.get() - dequeuePos.get();
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
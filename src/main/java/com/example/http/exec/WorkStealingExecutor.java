@@ -0,0 +1,250 @@
+package com.example.http.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 每个工作线程一个无锁环形队列、空闲时互相窃取任务的执行器
+ *
+ * 与 ThreadPoolExecutor 的区别：
+ * - 提交方按轮询把任务放进某个工作线程自己的 {@link MpmcRingQueue}，没有共享队列上的 putLock/takeLock
+ * - 只有目标线程（或某个空闲线程）确实处于park状态时才调用unpark，忙碌时提交只是一次CAS
+ * - 工作线程自己的队列空了就从其他线程的队列窃取，某个连接处理慢不会让排在它后面的任务一直等
+ *
+ * 所有队列都满时抛出 {@link RejectedExecutionException}，与 AbortPolicy 的语义一致，
+ * 服务器据此返回503。
+ */
+public final class WorkStealingExecutor extends AbstractExecutorService {
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    /** 找不到任务时先自旋的次数，之后再park */
+    private static final int SPINS = 64;
+
+    /** park的最长时间，作为丢失唤醒时的兜底 */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Worker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final CountDownLatch terminated;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong stolen = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int state = RUNNING;
+
+    /**
+     * @param threads 工作线程数
+     * @param queueCapacity 总排队上限，平均分给每个工作线程（各自向上取整为2的幂）
+     * @param threadFactory 线程工厂
+     */
+    public WorkStealingExecutor(int threads, int queueCapacity, ThreadFactory threadFactory) {
+        if (threads < 1) throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        int perWorker = Math.max(2, (queueCapacity + threads - 1) / threads);
+        this.workers = new Worker[threads];
+        this.terminated = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(perWorker);
+        }
+        for (Worker worker : workers) {
+            worker.thread = threadFactory.newThread(worker);
+            worker.thread.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) throw new NullPointerException();
+        if (state != RUNNING) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("执行器已关闭");
+        }
+        int n = workers.length;
+        int start = Math.floorMod(nextWorker.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Worker worker = workers[(start + i) % n];
+            if (worker.queue.offer(task)) {
+                signal(worker);
+                return;
+            }
+        }
+        rejected.incrementAndGet();
+        throw new RejectedExecutionException("所有工作队列已满");
+    }
+
+    /**
+     * 唤醒目标线程；目标正忙时唤醒一个空闲线程来窃取，避免任务排在慢任务后面
+     */
+    private void signal(Worker target) {
+        if (target.parked) {
+            LockSupport.unpark(target.thread);
+            return;
+        }
+        for (Worker worker : workers) {
+            if (worker.parked) {
+                LockSupport.unpark(worker.thread);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 从其他工作线程的队列中窃取一个任务，从随机位置开始以分散竞争
+     */
+    private Runnable steal(Worker thief) {
+        int n = workers.length;
+        if (n == 1) return null;
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Worker victim = workers[(start + i) % n];
+            if (victim == thief) continue;
+            Runnable task = victim.queue.poll();
+            if (task != null) {
+                stolen.incrementAndGet();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private boolean allQueuesEmpty() {
+        for (Worker worker : workers) {
+            if (!worker.queue.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        if (state == RUNNING) state = SHUTDOWN;
+        wakeAll();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        state = STOP;
+        List<Runnable> pending = new ArrayList<>();
+        for (Worker worker : workers) {
+            Runnable task;
+            while ((task = worker.queue.poll()) != null) {
+                pending.add(task);
+            }
+            worker.thread.interrupt();
+        }
+        wakeAll();
+        return pending;
+    }
+
+    private void wakeAll() {
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * 当前排队中的任务数（快照）
+     */
+    public int getQueued() {
+        int queued = 0;
+        for (Worker worker : workers) queued += worker.queue.size();
+        return queued;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkStealingExecutor{threads=" + workers.length
+                + ", queuePerThread=" + workers[0].queue.capacity()
+                + ", queued=" + getQueued()
+                + ", completed=" + completed.get()
+                + ", stolen=" + stolen.get()
+                + ", rejected=" + rejected.get() + "}";
+    }
+
+    /**
+     * 工作线程
+     */
+    private final class Worker implements Runnable {
+
+        final MpmcRingQueue<Runnable> queue;
+        Thread thread;
+        /** 即将或已经park；提交方看到true才需要unpark */
+        volatile boolean parked;
+
+        Worker(int capacity) {
+            this.queue = new MpmcRingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            try {
+                int idle = 0;
+                while (state != STOP) {
+                    Runnable task = queue.poll();
+                    if (task == null) task = steal(this);
+                    if (task != null) {
+                        idle = 0;
+                        runTask(task);
+                        continue;
+                    }
+                    if (state == SHUTDOWN && allQueuesEmpty()) break;
+                    if (++idle < SPINS) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    // 先声明要park，再检查一遍所有队列：
+                    // 提交方先发布任务再读parked，两边都是volatile，不会同时错过对方
+                    parked = true;
+                    task = queue.poll();
+                    if (task == null) task = steal(this);
+                    if (task == null && state == RUNNING) {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    parked = false;
+                    if (task != null) {
+                        idle = 0;
+                        runTask(task);
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                System.err.println("[服务器] " + Thread.currentThread().getName() + " 任务执行异常: " + t);
+            } finally {
+                completed.incrementAndGet();
+                // 任务可能中断了当前线程，清除中断标志，避免影响后续任务（shutdownNow除外）
+                if (state != STOP) Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.http.http;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 长度受限的请求体输入流
+ *
+ * 包装连接的输入流，最多读出 Content-Length 个字节，之后返回 -1，
+ * 不会越界读到同一连接上的下一个请求。
+ * - 未读完就遇到连接EOF：抛出 {@link EOFException}，而不是把不完整的请求体当成完整的
+ * - close() 不关闭底层连接，只是不再允许读取；剩余部分由 {@link #drain(long)} 丢弃
+ * - 首次读取前调用 onFirstRead 回调，服务器借此在真正读取请求体时才开始计时
+ */
+public final class BoundedInputStream extends FilterInputStream {
+
+    private final long length;
+    private long remaining;
+    private Runnable onFirstRead;
+    private boolean closed;
+
+    /**
+     * @param in 底层输入流（通常是连接的输入流）
+     * @param length 请求体长度
+     * @param onFirstRead 首次读取前的回调，可为null
+     */
+    public BoundedInputStream(InputStream in, long length, Runnable onFirstRead) {
+        super(in);
+        if (length < 0) throw new IllegalArgumentException("长度不能为负数: " + length);
+        this.length = length;
+        this.remaining = length;
+        this.onFirstRead = onFirstRead;
+    }
+
+    /**
+     * 请求体总长度
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * 尚未从连接上读出的字节数
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) throw new IOException("请求体流已关闭");
+        return readRaw(b, off, len);
+    }
+
+    private int readRaw(byte[] b, int off, int len) throws IOException {
+        if (remaining == 0) return -1;
+        if (len == 0) return 0;
+        if (onFirstRead != null) {
+            Runnable callback = onFirstRead;
+            onFirstRead = null;
+            callback.run();
+        }
+        int n = in.read(b, off, (int) Math.min(len, remaining));
+        if (n < 0) {
+            throw new EOFException("请求体不完整: 还差 " + remaining + " 字节连接就已关闭");
+        }
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (closed) throw new IOException("请求体流已关闭");
+        byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = readRaw(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed || remaining == 0) return 0;
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("请求体流不支持 mark/reset");
+    }
+
+    /**
+     * 标记为已关闭，不关闭底层连接
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * 读出剩余的全部请求体
+     *
+     * 长度已知，直接按剩余长度分配一次数组，不像 readAllBytes() 那样分块读取再拼接。
+     */
+    @Override
+    public byte[] readAllBytes() throws IOException {
+        if (closed) throw new IOException("请求体流已关闭");
+        if (remaining > Integer.MAX_VALUE - 8) throw new IOException("请求体过大，无法整体读入内存: " + remaining + " 字节");
+        byte[] data = new byte[(int) remaining];
+        int off = 0;
+        while (off < data.length) {
+            off += readRaw(data, off, data.length - off);
+        }
+        return data;
+    }
+
+    /**
+     * 丢弃请求体中尚未读取的部分，使连接可以继续读下一个请求
+     *
+     * 剩余部分超过 maxBytes 时不读取（读完它的代价比重新建连更高），返回false，调用方应关闭连接。
+     *
+     * @param maxBytes 最多愿意读取丢弃的字节数
+     * @return 请求体是否已完整读出
+     */
+    public boolean drain(long maxBytes) throws IOException {
+        if (remaining == 0) return true;
+        if (remaining > maxBytes) return false;
+        byte[] buffer = new byte[(int) Math.min(remaining, 8192)];
+        while (remaining > 0) {
+            readRaw(buffer, 0, buffer.length);
+        }
+        return true;
+    }
+}
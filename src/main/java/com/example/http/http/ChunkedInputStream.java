@@ -0,0 +1,243 @@
+package com.example.http.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * chunked 传输编码的请求体解码流（RFC 7230 4.1）
+ *
+ * chunked-body = *chunk last-chunk trailer-part CRLF
+ * chunk        = chunk-size [ chunk-ext ] CRLF chunk-data CRLF
+ * last-chunk   = 1*("0") [ chunk-ext ] CRLF
+ *
+ * 读出的是解码后的数据，读到最后一个块后返回 -1，不会越界读到同一连接上的下一个请求。
+ * - 块扩展（;name=value）被忽略
+ * - 尾部字段（trailer）在读完请求体后通过 {@link #trailers()} 获取
+ * - 解码后的累计长度超过上限抛出413，块格式错误抛出400，尾部过大抛出431
+ * - 与 {@link BoundedInputStream} 一样，close() 不关闭底层连接，首次读取前调用 onFirstRead 回调
+ */
+public final class ChunkedInputStream extends FilterInputStream {
+
+    /** 块大小行（含扩展）的长度上限 */
+    private static final int MAX_CHUNK_LINE = 4096;
+
+    private final long maxBodySize;
+    private final int maxTrailerBytes;
+    private Runnable onFirstRead;
+
+    /** 当前块还未读出的字节数 */
+    private long chunkRemaining;
+    /** 已读出的解码后字节数 */
+    private long total;
+    private boolean eof;
+    private boolean closed;
+    private Map<String, List<String>> trailers = Collections.emptyMap();
+
+    /**
+     * @param in 底层输入流（通常是连接的输入流）
+     * @param maxBodySize 解码后请求体的长度上限
+     * @param maxTrailerBytes 尾部字段总字节数上限
+     * @param onFirstRead 首次读取前的回调，可为null
+     */
+    public ChunkedInputStream(InputStream in, long maxBodySize, int maxTrailerBytes, Runnable onFirstRead) {
+        super(in);
+        this.maxBodySize = maxBodySize;
+        this.maxTrailerBytes = maxTrailerBytes;
+        this.onFirstRead = onFirstRead;
+    }
+
+    /**
+     * 已读出的解码后字节数
+     */
+    public long bytesRead() {
+        return total;
+    }
+
+    /**
+     * 是否已读到最后一个块（含尾部字段）
+     */
+    public boolean isFinished() {
+        return eof;
+    }
+
+    /**
+     * 尾部字段，名称为小写；请求体读完之前为空
+     */
+    public Map<String, List<String>> trailers() {
+        return trailers;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) throw new IOException("请求体流已关闭");
+        return readRaw(b, off, len);
+    }
+
+    private int readRaw(byte[] b, int off, int len) throws IOException {
+        if (eof) return -1;
+        if (len == 0) return 0;
+        if (onFirstRead != null) {
+            Runnable callback = onFirstRead;
+            onFirstRead = null;
+            callback.run();
+        }
+        if (chunkRemaining == 0) {
+            nextChunk();
+            if (eof) return -1;
+        }
+        int n = in.read(b, off, (int) Math.min(len, chunkRemaining));
+        if (n < 0) {
+            throw new EOFException("请求体不完整: chunked 数据块未读完连接就已关闭");
+        }
+        chunkRemaining -= n;
+        if (chunkRemaining == 0) {
+            // 块数据之后必须紧跟CRLF
+            String line = readLine(2, HttpStatus.BAD_REQUEST);
+            if (!line.isEmpty()) throw new HttpParseException(HttpStatus.BAD_REQUEST, "chunked 数据块后缺少 CRLF");
+        }
+        return n;
+    }
+
+    /**
+     * 读取下一个块的大小行；遇到最后一个块时读完尾部字段
+     */
+    private void nextChunk() throws IOException {
+        String line = readLine(MAX_CHUNK_LINE, HttpStatus.BAD_REQUEST);
+        int semicolon = line.indexOf(';');
+        String hex = (semicolon >= 0 ? line.substring(0, semicolon) : line).trim();
+        long size;
+        try {
+            if (hex.isEmpty() || hex.length() > 15) throw new NumberFormatException();
+            size = Long.parseLong(hex, 16);
+        } catch (NumberFormatException e) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST, "chunked 块大小无效: " + line);
+        }
+        if (size < 0) {
+            throw new HttpParseException(HttpStatus.BAD_REQUEST, "chunked 块大小无效: " + line);
+        }
+        if (size == 0) {
+            readTrailers();
+            eof = true;
+            return;
+        }
+        if (total + size > maxBodySize) {
+            throw new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "请求体超过上限 " + maxBodySize + " 字节");
+        }
+        total += size;
+        chunkRemaining = size;
+    }
+
+    private void readTrailers() throws IOException {
+        Map<String, List<String>> fields = null;
+        int budget = maxTrailerBytes;
+        String line;
+        while (!(line = readLine(budget, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE)).isEmpty()) {
+            budget -= line.length() + 2;
+            int c = line.indexOf(':');
+            if (c <= 0) continue;
+            if (fields == null) fields = new LinkedHashMap<>();
+            fields.computeIfAbsent(line.substring(0, c).trim().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                    .add(line.substring(c + 1).trim());
+        }
+        if (fields != null) trailers = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * 读取一行（不包含 CRLF）
+     *
+     * @param maxBytes 本行最多允许的字节数（含行尾）
+     * @param tooLong 超出时回复的状态码
+     */
+    private String readLine(int maxBytes, HttpStatus tooLong) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(16);
+        int count = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (++count > maxBytes) {
+                throw new HttpParseException(tooLong, tooLong == HttpStatus.BAD_REQUEST
+                        ? "chunked 块大小行过长" : "chunked 尾部字段超过 " + maxTrailerBytes + " 字节");
+            }
+            if (b == '\n') return bos.toString(StandardCharsets.US_ASCII);
+            if (b != '\r') bos.write(b);
+        }
+        throw new EOFException("请求体不完整: chunked 编码未结束连接就已关闭");
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (closed) throw new IOException("请求体流已关闭");
+        byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int r = readRaw(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed || eof || chunkRemaining == 0) return 0;
+        return (int) Math.min(in.available(), chunkRemaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("请求体流不支持 mark/reset");
+    }
+
+    /**
+     * 标记为已关闭，不关闭底层连接
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * 丢弃请求体中尚未读取的部分，使连接可以继续读下一个请求
+     *
+     * chunked 请求体的剩余长度事先未知：最多读取丢弃 maxBytes 个字节，仍未结束则返回false，调用方应关闭连接。
+     *
+     * @param maxBytes 最多愿意读取丢弃的字节数
+     * @return 请求体是否已完整读出
+     */
+    public boolean drain(long maxBytes) throws IOException {
+        byte[] buffer = new byte[8192];
+        long budget = maxBytes;
+        while (!eof) {
+            if (budget <= 0) return false;
+            int n = readRaw(buffer, 0, (int) Math.min(buffer.length, budget));
+            if (n > 0) budget -= n;
+        }
+        return true;
+    }
+}
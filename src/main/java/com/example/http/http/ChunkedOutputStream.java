@@ -0,0 +1,101 @@
+package com.example.http.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * chunked 传输编码的响应体输出流
+ *
+ * 写入的数据先进入固定大小的缓冲区，缓冲区满或调用 flush() 时作为一个块发出，
+ * 内存占用与响应总长度无关。需要尽快让客户端看到内容时（如首屏、进度）调用 flush()。
+ * 结束时由 {@link #finish(Map)} 写出最后一个块和尾部字段；close() 不关闭底层连接。
+ */
+public final class ChunkedOutputStream extends FilterOutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final byte[] buffer;
+    private int count;
+    private boolean finished;
+
+    /**
+     * @param out 底层输出流（通常是连接的输出流）
+     * @param bufferSize 缓冲区大小，即常规块的大小
+     */
+    public ChunkedOutputStream(OutputStream out, int bufferSize) {
+        super(out);
+        this.buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buffer.length) writeChunk(buffer, 0, count);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) throw new IOException("响应体已结束");
+        if (len >= buffer.length) {
+            // 大块数据不经缓冲，直接作为一个块发出
+            writeBuffer();
+            writeChunk(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count) writeBuffer();
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * 把缓冲区中的数据作为一个块立即发出
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        out.flush();
+    }
+
+    /**
+     * 写出剩余数据、最后一个块和尾部字段
+     *
+     * @param trailers 尾部字段，可为空
+     */
+    public void finish(Map<String, String> trailers) throws IOException {
+        if (finished) return;
+        writeBuffer();
+        finished = true;
+        StringBuilder sb = new StringBuilder("0\r\n");
+        if (trailers != null) {
+            trailers.forEach((name, value) -> sb.append(name).append(": ").append(value).append("\r\n"));
+        }
+        sb.append("\r\n");
+        out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * 结束响应体（不带尾部字段），不关闭底层连接
+     */
+    @Override
+    public void close() throws IOException {
+        finish(null);
+    }
+
+    private void writeBuffer() throws IOException {
+        if (count > 0) {
+            writeChunk(buffer, 0, count);
+        }
+    }
+
+    private void writeChunk(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return;
+        out.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(b, off, len);
+        out.write(CRLF);
+        if (b == buffer) count = 0;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.http.http;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP日期（RFC 7231 7.1.1.1）
+ *
+ * 发送时统一使用 IMF-fixdate 格式的GMT时间，如"Sun, 06 Nov 1994 08:49:37 GMT"。
+ * - {@link #now()} / {@link #dateHeaderLine()}：共享时钟，每秒最多格式化一次，所有响应复用同一份字符串和字节
+ * - {@link #formatTo(long, byte[], int)}：直接写入字节数组，不创建任何对象
+ * - {@link #parse(CharSequence)}：按位置逐字符解析，不创建任何对象；
+ *   除 IMF-fixdate 外也接受规范要求兼容的 RFC 850 和 asctime 格式
+ *
+ * 线程安全。
+ */
+public final class HttpDate {
+
+    /** IMF-fixdate 的固定长度 */
+    public static final int LENGTH = 29;
+
+    private static final String DAY_NAMES = "SunMonTueWedThuFriSat";
+    private static final String MONTH_NAMES = "JanFebMarAprMayJunJulAugSepOctNovDec";
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    /** 某一秒的格式化结果 */
+    private record Tick(long second, String value, byte[] headerLine) { }
+
+    private static volatile Tick current = tick(System.currentTimeMillis() / 1000);
+
+    private HttpDate() {
+    }
+
+    /**
+     * 当前时间，同一秒内的调用返回同一个字符串
+     */
+    public static String now() {
+        return currentTick().value();
+    }
+
+    /**
+     * 当前时间的"Date: ...\r\n"头部行，同一秒内的调用返回同一个数组，调用方不能修改
+     */
+    public static byte[] dateHeaderLine() {
+        return currentTick().headerLine();
+    }
+
+    private static Tick currentTick() {
+        long second = System.currentTimeMillis() / 1000;
+        Tick t = current;
+        if (t.second() != second) {
+            // 多个线程同时跨过一秒时可能各自格式化一次，结果相同，谁写入都可以
+            t = tick(second);
+            current = t;
+        }
+        return t;
+    }
+
+    private static Tick tick(long second) {
+        byte[] line = new byte[6 + LENGTH + 2];
+        line[0] = 'D'; line[1] = 'a'; line[2] = 't'; line[3] = 'e'; line[4] = ':'; line[5] = ' ';
+        formatTo(second * 1000, line, 6);
+        line[6 + LENGTH] = '\r';
+        line[6 + LENGTH + 1] = '\n';
+        return new Tick(second, new String(line, 6, LENGTH, StandardCharsets.US_ASCII), line);
+    }
+
+    /**
+     * 格式化为 IMF-fixdate 字符串
+     *
+     * @param epochMillis 自1970-01-01T00:00:00Z起的毫秒数，不足一秒的部分被舍去
+     */
+    public static String format(long epochMillis) {
+        byte[] buf = new byte[LENGTH];
+        formatTo(epochMillis, buf, 0);
+        return new String(buf, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 把 IMF-fixdate 写入字节数组
+     *
+     * @param epochMillis 自1970-01-01T00:00:00Z起的毫秒数
+     * @param dst 目标数组，从 off 开始至少要有 {@link #LENGTH} 个字节
+     * @param off 起始位置
+     */
+    public static void formatTo(long epochMillis, byte[] dst, int off) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(epochMillis, MILLIS_PER_DAY) / 1000);
+
+        // 由天数推算年月日（proleptic Gregorian，按400年周期计算）
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        // 1970-01-01 是星期四
+        int weekday = Math.floorMod(days + 4, 7);
+
+        int p = off;
+        for (int i = 0; i < 3; i++) dst[p++] = (byte) DAY_NAMES.charAt(weekday * 3 + i);
+        dst[p++] = ',';
+        dst[p++] = ' ';
+        p = twoDigits(dst, p, day);
+        dst[p++] = ' ';
+        for (int i = 0; i < 3; i++) dst[p++] = (byte) MONTH_NAMES.charAt((month - 1) * 3 + i);
+        dst[p++] = ' ';
+        p = twoDigits(dst, p, year / 100 % 100);
+        p = twoDigits(dst, p, year % 100);
+        dst[p++] = ' ';
+        p = twoDigits(dst, p, secondOfDay / 3600);
+        dst[p++] = ':';
+        p = twoDigits(dst, p, secondOfDay / 60 % 60);
+        dst[p++] = ':';
+        p = twoDigits(dst, p, secondOfDay % 60);
+        dst[p++] = ' ';
+        dst[p++] = 'G';
+        dst[p++] = 'M';
+        dst[p] = 'T';
+    }
+
+    private static int twoDigits(byte[] dst, int p, int value) {
+        dst[p] = (byte) ('0' + value / 10);
+        dst[p + 1] = (byte) ('0' + value % 10);
+        return p + 2;
+    }
+
+    /**
+     * 解析HTTP日期
+     *
+     * 接受的格式：
+     * - IMF-fixdate：Sun, 06 Nov 1994 08:49:37 GMT（日期为一位数也接受）
+     * - RFC 850：Sunday, 06-Nov-94 08:49:37 GMT（两位年份按 70 为界解释为 19xx/20xx）
+     * - asctime：Sun Nov  6 08:49:37 1994
+     *
+     * @return 自1970-01-01T00:00:00Z起的毫秒数，无法解析时返回-1
+     */
+    public static long parse(CharSequence s) {
+        if (s == null) return -1;
+        int len = s.length();
+        int p = 0;
+        // 星期名称只做跳过，不校验是否与日期一致
+        while (p < len && isLetter(s.charAt(p))) p++;
+        if (p == 0) return -1;
+        boolean asctime = p < len && s.charAt(p) == ' ';
+        if (!asctime) {
+            if (p >= len || s.charAt(p) != ',') return -1;
+            p++;
+        }
+        while (p < len && s.charAt(p) == ' ') p++;
+
+        int day;
+        int month;
+        int year;
+        if (asctime) {
+            month = month(s, p);
+            if (month < 0) return -1;
+            p += 3;
+            while (p < len && s.charAt(p) == ' ') p++;
+            int end = digitsEnd(s, p, 2);
+            if (end == p) return -1;
+            day = number(s, p, end);
+            p = end;
+        } else {
+            int end = digitsEnd(s, p, 2);
+            if (end == p || end >= len) return -1;
+            day = number(s, p, end);
+            p = end;
+            char sep = s.charAt(p);
+            if (sep != ' ' && sep != '-') return -1;
+            month = month(s, p + 1);
+            if (month < 0 || p + 4 >= len || s.charAt(p + 4) != sep) return -1;
+            p += 5;
+            end = digitsEnd(s, p, 4);
+            if (end - p == 4) {
+                year = number(s, p, end);
+            } else if (end - p == 2) {
+                int yy = number(s, p, end);
+                year = yy < 70 ? 2000 + yy : 1900 + yy;
+            } else {
+                return -1;
+            }
+            p = end;
+            long time = time(s, p);
+            if (time < 0) return -1;
+            p += 9;
+            if (p + 4 != len || s.charAt(p) != ' ' || s.charAt(p + 1) != 'G' || s.charAt(p + 2) != 'M'
+                    || s.charAt(p + 3) != 'T') {
+                return -1;
+            }
+            return toMillis(year, month, day, time);
+        }
+
+        // asctime：日期之后是时间和年份
+        long time = time(s, p);
+        if (time < 0) return -1;
+        p += 9;
+        if (p >= len || s.charAt(p) != ' ') return -1;
+        p++;
+        int end = digitsEnd(s, p, 4);
+        if (end - p != 4 || end != len) return -1;
+        year = number(s, p, end);
+        return toMillis(year, month, day, time);
+    }
+
+    /**
+     * 解析从 p 开始的" HH:MM:SS"（含前导空格，共9个字符）
+     *
+     * @return 当天的秒数，格式错误时返回-1
+     */
+    private static long time(CharSequence s, int p) {
+        if (p + 9 > s.length() || s.charAt(p) != ' ' || s.charAt(p + 3) != ':' || s.charAt(p + 6) != ':') return -1;
+        int h = twoDigits(s, p + 1);
+        int m = twoDigits(s, p + 4);
+        int sec = twoDigits(s, p + 7);
+        if (h < 0 || h > 23 || m < 0 || m > 59 || sec < 0 || sec > 60) return -1;
+        // 闰秒按59秒处理
+        return h * 3600L + m * 60L + Math.min(sec, 59);
+    }
+
+    private static long toMillis(int year, int month, int day, long secondOfDay) {
+        if (day < 1 || day > daysInMonth(year, month)) return -1;
+        // 由年月日推算天数，与 formatTo 中的推算互逆
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146097 + doe - 719468;
+        return (days * 86400 + secondOfDay) * 1000;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * 从 p 开始的三个字母表示的月份（区分大小写），1-12，不是月份时返回-1
+     */
+    private static int month(CharSequence s, int p) {
+        if (p + 3 > s.length()) return -1;
+        for (int i = 0; i < 12; i++) {
+            int m = i * 3;
+            if (s.charAt(p) == MONTH_NAMES.charAt(m) && s.charAt(p + 1) == MONTH_NAMES.charAt(m + 1)
+                    && s.charAt(p + 2) == MONTH_NAMES.charAt(m + 2)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int digitsEnd(CharSequence s, int p, int max) {
+        int end = p;
+        while (end < s.length() && end - p < max && isDigit(s.charAt(end))) end++;
+        return end;
+    }
+
+    private static int number(CharSequence s, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) n = n * 10 + (s.charAt(i) - '0');
+        return n;
+    }
+
+    private static int twoDigits(CharSequence s, int p) {
+        char a = s.charAt(p);
+        char b = s.charAt(p + 1);
+        if (!isDigit(a) || !isDigit(b)) return -1;
+        return (a - '0') * 10 + (b - '0');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+}
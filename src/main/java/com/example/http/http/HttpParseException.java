@@ -0,0 +1,32 @@
+package com.example.http.http;
+
+import java.io.IOException;
+
+/**
+ * 读取或解析请求失败，并且应以指定的状态码回复客户端
+ *
+ * 例如请求头超过期限（408）、请求头过大（431）、请求体过大（413）。
+ * 抛出后连接不再可靠（请求没有读完整），回复后应关闭连接。
+ */
+public class HttpParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+
+    /**
+     * @param status 回复客户端的状态码
+     * @param message 错误说明
+     */
+    public HttpParseException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * 回复客户端的状态码
+     */
+    public HttpStatus status() {
+        return status;
+    }
+}
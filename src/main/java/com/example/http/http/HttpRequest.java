@@ -1,5 +1,12 @@
 package com.example.http.http;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.*;
 
 /**
@@ -17,8 +24,8 @@ import java.util.*;
  * 主要功能：
  * - 解析和存储HTTP请求行（方法、路径、协议版本）
  * - 管理HTTP头部信息（支持多值头部）
- * - 处理请求体数据
- * - 自动解析表单参数（application/x-www-form-urlencoded）
+ * - 以流的形式提供请求体，由处理方决定是否整体缓冲
+ * - 按需解析表单参数（application/x-www-form-urlencoded）
  * - 解析Cookie头部
  * 
  * 使用示例：
@@ -54,13 +61,25 @@ public class HttpRequest {
     /** HTTP头部字段：使用LinkedHashMap保持插入顺序，支持多值头部 */
     private final Map<String, List<String>> headers = new LinkedHashMap<>();
     
-    /** 请求体数据：原始字节数组 */
+    /** 请求体数据：原始字节数组；以流设置时为null，直到第一次调用body()才整体读入 */
     private byte[] body = new byte[0];
+    
+    /** 尚未读取的请求体流，为null表示请求体已缓冲（或没有请求体） */
+    private InputStream bodyStream;
+    
+    /** 请求体长度，-1 表示事先未知（chunked） */
+    private long contentLength;
+    
+    /** 请求体已缓冲时保存的 chunked 尾部字段 */
+    private Map<String, List<String>> trailers = Collections.emptyMap();
 
     // ========== 解析后的便利字段 ==========
     
-    /** 表单参数：解析application/x-www-form-urlencoded格式的请求体 */
-    private final Map<String, String> formParams = new HashMap<>();
+    /** 表单参数：延迟解析，第一次访问表单时才读取并解析请求体 */
+    private Map<String, String> formParams;
+    
+    // 查询串参数（延迟解析）
+    private Map<String, String> queryParams;
     
     /** Cookie参数：延迟解析Cookie头部，提高性能 */
     private Map<String, String> cookies;
@@ -99,9 +118,60 @@ public class HttpRequest {
     
     /**
      * 获取请求体数据
+     * 
+     * 请求体以流的形式设置时，第一次调用会把剩余部分整体读入内存并缓存；
+     * 只需顺序处理的场景应优先使用 {@link #bodyStream()}，避免大请求体占用内存。
+     * 
      * @return 请求体的原始字节数组
+     * @throws IOException 读取请求体失败（超时、连接中断等）
+     */
+    public byte[] body() throws IOException {
+        if (bodyStream != null) {
+            InputStream stream = bodyStream;
+            body = stream.readAllBytes();
+            if (stream instanceof ChunkedInputStream chunked) trailers = chunked.trailers();
+            bodyStream = null;
+        }
+        return body;
+    }
+    
+    /**
+     * 获取请求体长度（Content-Length）
+     * @return 请求体字节数，没有请求体时为0，chunked 请求体（长度事先未知）为-1
+     */
+    public long contentLength() { return contentLength; }
+    
+    /**
+     * 以输入流的形式获取请求体
+     * 
+     * 流只能消费一次；请求体已被缓冲时返回基于缓冲内容的新流。
+     * 处理方没有读完的部分由服务器在回复后丢弃。
+     * 
+     * @return 请求体输入流，没有请求体时为空流
+     */
+    public InputStream bodyStream() {
+        return bodyStream != null ? bodyStream : new ByteArrayInputStream(body);
+    }
+    
+    /**
+     * 获取 chunked 请求体的尾部字段
+     * 
+     * 尾部字段在请求体之后发送，只有请求体读完后才有值。
+     * 
+     * @return 尾部字段（名称为小写），没有时为空Map
      */
-    public byte[] body() { return body; }
+    public Map<String, List<String>> trailers() {
+        if (bodyStream instanceof ChunkedInputStream chunked) return chunked.trailers();
+        return trailers;
+    }
+    
+    /**
+     * 以通道的形式获取请求体，语义同 {@link #bodyStream()}
+     * @return 请求体通道
+     */
+    public ReadableByteChannel bodyChannel() {
+        return Channels.newChannel(bodyStream());
+    }
 
     // ========== 请求设置方法 ==========
     
@@ -174,22 +244,67 @@ public class HttpRequest {
     /**
      * 设置请求体数据
      * 
-     * 如果Content-Type是application/x-www-form-urlencoded，
-     * 会自动解析表单参数。
+     * 表单参数不在这里解析，第一次访问表单时才解析。
      * 
      * @param body 请求体的原始字节数组
      */
     public void setBody(byte[] body) {
         this.body = body != null ? body : new byte[0];
-
-        // 自动解析表单数据
-        String contentType = headerFirst("content-type");
-        if (contentType != null && 
-            contentType.startsWith("application/x-www-form-urlencoded")) {
-            
-            String formString = new String(this.body, java.nio.charset.StandardCharsets.UTF_8);
-            parseForm(formString);
+        this.bodyStream = null;
+        this.contentLength = this.body.length;
+        this.formParams = null;
+    }
+    
+    /**
+     * 以流的形式设置请求体，内容在处理方读取时才从连接上读出
+     * 
+     * @param stream 请求体输入流，最多读出 length 个字节
+     * @param length 请求体长度，-1 表示事先未知（chunked）
+     */
+    public void setBodyStream(InputStream stream, long length) {
+        this.body = null;
+        this.bodyStream = stream;
+        this.contentLength = length;
+        this.formParams = null;
+    }
+    
+    /**
+     * 丢弃请求体中处理方没有读取的部分
+     * 
+     * @param maxBytes 最多愿意读取丢弃的字节数
+     * @return 请求体是否已从连接上完整读出；为false时连接上残留请求体，不能再复用
+     */
+    public boolean discardBody(long maxBytes) throws IOException {
+        if (bodyStream == null) return true;
+        if (bodyStream instanceof BoundedInputStream bounded) {
+            return bounded.drain(maxBytes);
+        }
+        if (bodyStream instanceof ChunkedInputStream chunked) {
+            return chunked.drain(maxBytes);
+        }
+        bodyStream.transferTo(OutputStream.nullOutputStream());
+        return true;
+    }
+    
+    /**
+     * 按需解析表单：只有Content-Type是application/x-www-form-urlencoded时才读取请求体
+     */
+    private Map<String, String> formParams() {
+        if (formParams == null) {
+            Map<String, String> params = new HashMap<>();
+            String contentType = headerFirst("content-type");
+            if (contentType != null && 
+                contentType.startsWith("application/x-www-form-urlencoded")) {
+                try {
+                    String formString = new String(body(), java.nio.charset.StandardCharsets.UTF_8);
+                    parseForm(formString, params);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("读取表单请求体失败", e);
+                }
+            }
+            formParams = params;
         }
+        return formParams;
     }
 
     /**
@@ -199,8 +314,9 @@ public class HttpRequest {
      * 支持URL编码，会自动解码。
      * 
      * @param formString 表单参数字符串
+     * @param formParams 解析结果
      */
-    private void parseForm(String formString) {
+    private void parseForm(String formString, Map<String, String> formParams) {
         String[] pairs = formString.split("&");
         for (String pair : pairs) {
             if (pair.isEmpty()) {
@@ -246,11 +362,13 @@ public class HttpRequest {
     /**
      * 获取指定名称的表单参数值
      * 
+     * 第一次访问表单时读取并解析请求体；读取失败抛出 {@link UncheckedIOException}。
+     * 
      * @param key 参数名称
      * @return 参数值，如果不存在则返回null
      */
     public String form(String key) { 
-        return formParams.get(key); 
+        return formParams().get(key); 
     }
     
     /**
@@ -259,7 +377,26 @@ public class HttpRequest {
      * @return 表单参数Map的只读视图
      */
     public Map<String,String> formAll() { 
-        return Collections.unmodifiableMap(formParams); 
+        return Collections.unmodifiableMap(formParams()); 
+    }
+
+    /**
+     * 获取查询串中的参数
+     * 
+     * 第一次访问时解析，格式与表单相同（key1=value1&key2=value2），会自动URL解码；
+     * 同名参数只保留最后一个，其余参数保持在查询串中的顺序。
+     * 
+     * @return 查询参数Map的只读视图，没有查询串时为空
+     */
+    public Map<String,String> queryParams() {
+        if (queryParams == null) {
+            Map<String, String> params = new LinkedHashMap<>();
+            if (queryString != null) {
+                parseForm(queryString, params);
+            }
+            queryParams = Collections.unmodifiableMap(params);
+        }
+        return queryParams;
     }
 
     // ========== Cookie处理方法 ==========
@@ -1,5 +1,10 @@
 package com.example.http.http;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -19,8 +24,9 @@ import java.util.Map;
  * 主要功能：
  * - 设置HTTP状态码和原因短语
  * - 添加HTTP响应头部
- * - 设置响应体数据（支持文本和二进制）
+ * - 设置响应体数据（支持文本、二进制和ByteBuffer，后者可直接发送内存映射的内容）
  * - 自动处理Content-Length头部
+ * - 流式响应体：边生成边以 chunked 编码发送，支持尾部字段
  * - 支持HTTP Keep-Alive连接控制
  * - 链式构建API，便于使用
  * 
@@ -32,9 +38,20 @@ import java.util.Map;
  *     .bodyText("<h1>Hello World</h1>", "text/html; charset=UTF-8");
  * 
  * byte[] responseData = response.toBytes(true); // 支持Keep-Alive
+ * 
+ * 流式响应示例：
+ * new HttpResponse()
+ *     .header("Trailer", "X-Row-Count")
+ *     .bodyStream("text/csv; charset=UTF-8", (out, trailers) -> {
+ *         int rows = exportRows(out);
+ *         trailers.put("X-Row-Count", String.valueOf(rows));
+ *     });
  */
 public class HttpResponse {
     
+    /** 流式响应体的块大小 */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    
     /** HTTP状态码，默认为200 OK */
     private HttpStatus status = HttpStatus.OK;
     
@@ -43,6 +60,36 @@ public class HttpResponse {
     
     /** 响应体数据，原始字节数组 */
     private byte[] body = new byte[0];
+    
+    /** ByteBuffer形式的响应体（如内存映射区域的切片），不为null时忽略body */
+    private ByteBuffer bodyBuffer;
+    
+    /** 流式响应体，不为null时忽略body */
+    private StreamingBody streamingBody;
+    
+    /** 只发送头部（HEAD请求），Content-Length等头部与完整响应一致 */
+    private boolean headOnly;
+    
+    /** 预先编码好的头部块（每行以CRLF结尾），原样写在其他头部之前 */
+    private byte[] headerBlock;
+    
+    /** 是否自动添加Date头部 */
+    private boolean date = true;
+    
+    /**
+     * 流式响应体的生成逻辑
+     * 
+     * 在发送响应时调用：此时状态行和头部已经发出，写入out的数据分块发送给客户端。
+     * 写完后放入trailers的字段作为尾部字段发送（客户端为HTTP/1.0时无法发送，被丢弃）。
+     */
+    @FunctionalInterface
+    public interface StreamingBody {
+        /**
+         * @param out 响应体输出流，不需要也不应关闭
+         * @param trailers 尾部字段，生成过程中可随时放入
+         */
+        void writeTo(OutputStream out, Map<String, String> trailers) throws IOException;
+    }
 
     // ========== 链式构建方法 ==========
     
@@ -77,9 +124,86 @@ public class HttpResponse {
      */
     public HttpResponse body(byte[] data) { 
         this.body = data != null ? data : new byte[0]; 
+        this.bodyBuffer = null;
+        this.streamingBody = null;
         return this; 
     }
     
+    /**
+     * 设置ByteBuffer形式的响应体
+     * 
+     * 发送的是 position 到 limit 之间的内容，发送时不改变传入缓冲区的位置。
+     * 连接有通道时与头部一起用一次聚集写发出，内存映射的内容不经过堆内存复制。
+     * 
+     * @param data 响应体数据
+     * @return 当前HttpResponse实例，支持链式调用
+     */
+    public HttpResponse body(ByteBuffer data) {
+        this.body = new byte[0];
+        this.bodyBuffer = data;
+        this.streamingBody = null;
+        return this;
+    }
+    
+    /**
+     * 设置流式响应体
+     * 
+     * 响应体不再预先生成：发送时先发出状态行和头部，再调用body边生成边发送，
+     * 使用 chunked 传输编码，不设置Content-Length。
+     * 
+     * @param contentType 内容类型
+     * @param body 响应体的生成逻辑
+     * @return 当前HttpResponse实例，支持链式调用
+     */
+    public HttpResponse bodyStream(String contentType, StreamingBody body) {
+        header("Content-Type", contentType);
+        headers.remove("Content-Length");
+        this.body = new byte[0];
+        this.bodyBuffer = null;
+        this.streamingBody = body;
+        return this;
+    }
+    
+    /**
+     * 只发送状态行和头部，不发送响应体（用于HEAD请求）
+     * 
+     * 头部与完整响应相同：普通响应的Content-Length仍按响应体计算，流式响应仍声明chunked，
+     * 但流式响应体的生成逻辑不会被调用。
+     * 
+     * @return 当前HttpResponse实例，支持链式调用
+     */
+    public HttpResponse headOnly() {
+        this.headOnly = true;
+        return this;
+    }
+    
+    /**
+     * 设置预先编码好的头部块
+     * 
+     * 用于静态资源等头部固定不变的响应：头部块在资源加载时格式化、编码一次，之后每次响应直接复制字节。
+     * 头部块中的名称不会与 {@link #header(String, String)} 设置的头部去重，调用方需保证不重复。
+     * 
+     * @param block 若干头部行的US-ASCII字节，每行以CRLF结尾，不含结束空行
+     * @return 当前HttpResponse实例，支持链式调用
+     */
+    public HttpResponse headerBlock(byte[] block) {
+        this.headerBlock = block;
+        return this;
+    }
+    
+    /**
+     * 不自动添加Date头部
+     * 
+     * 默认所有响应都带上 {@link HttpDate} 共享时钟的当前时间。只序列化一次、反复发送的响应
+     * （如过载时的503）若带上Date，发送时就已过时；RFC 7231 允许5xx响应不带Date。
+     * 
+     * @return 当前HttpResponse实例，支持链式调用
+     */
+    public HttpResponse omitDate() {
+        this.date = false;
+        return this;
+    }
+    
     /**
      * 设置文本响应体
      * 
@@ -95,9 +219,29 @@ public class HttpResponse {
         header("Content-Type", contentType);
         header("Content-Length", String.valueOf(bytes.length));
         this.body = bytes;
+        this.bodyBuffer = null;
+        this.streamingBody = null;
         return this;
     }
 
+    // ========== 访问器方法 ==========
+    
+    /**
+     * 获取当前设置的HTTP状态
+     * 
+     * @return HTTP状态枚举值
+     */
+    public HttpStatus status() {
+        return status;
+    }
+    
+    /**
+     * 是否是流式响应体
+     */
+    public boolean isStreaming() {
+        return streamingBody != null;
+    }
+
     // ========== 响应序列化方法 ==========
     
     /**
@@ -111,13 +255,129 @@ public class HttpResponse {
      * 
      * 会自动处理以下头部：
      * - Connection: 根据keepAlive参数设置
-     * - Content-Length: 自动计算并设置
+     * - Content-Length: 自动计算并设置（204和304除外）
      * 
      * @param keepAlive 是否保持连接（HTTP Keep-Alive）
      * @return 完整HTTP响应的字节数组
      */
     //本类中的主函数，
     public byte[] toBytes(boolean keepAlive) {
+        if (streamingBody != null) {
+            throw new IllegalStateException("流式响应体不能转换为字节数组，请使用 writeTo()");
+        }
+        int bodyLength = bodyBuffer != null ? bodyBuffer.remaining() : body.length;
+        // 自动设置Content-Length（如果尚未设置）；204响应不能带Content-Length，
+        // 304的Content-Length只能是对应200响应体的长度，自动计算出的0会让合并头部的缓存截断已缓存的内容
+        if (status != HttpStatus.NO_CONTENT && status != HttpStatus.NOT_MODIFIED) {
+            headers.putIfAbsent("Content-Length", String.valueOf(bodyLength));
+        }
+        byte[] headerBytes = headerBytes(keepAlive);
+        if (headOnly) {
+            return headerBytes;
+        }
+        
+        // 合并头部和体部
+        byte[] fullResponse = new byte[headerBytes.length + bodyLength];
+        System.arraycopy(headerBytes, 0, fullResponse, 0, headerBytes.length);
+        if (bodyBuffer != null) {
+            bodyBuffer.duplicate().get(fullResponse, headerBytes.length, bodyLength);
+        } else {
+            System.arraycopy(body, 0, fullResponse, headerBytes.length, bodyLength);
+        }
+        
+        return fullResponse;
+    }
+    
+    /**
+     * 把响应写到输出流
+     * 
+     * 普通响应与 {@link #toBytes(boolean)} 相同，一次写出。
+     * 流式响应先写出头部并立即刷新（尽早让客户端收到首字节），再边生成边发送响应体：
+     * - chunked 为true：使用 chunked 传输编码，结束时发送尾部字段
+     * - chunked 为false（客户端为HTTP/1.0）：直接写出原始数据，以关闭连接表示结束，调用方必须传入 keepAlive=false
+     * 
+     * 响应体生成中途失败时，头部已经发出，无法再改为错误响应，调用方应直接关闭连接。
+     * 
+     * @param out 输出流
+     * @param keepAlive 是否保持连接
+     * @param chunked 流式响应是否使用 chunked 传输编码
+     */
+    public void writeTo(OutputStream out, boolean keepAlive, boolean chunked) throws IOException {
+        writeTo(out, null, keepAlive, chunked);
+    }
+    
+    /**
+     * 把响应写到输出流，ByteBuffer响应体优先直接写到通道
+     * 
+     * channel 必须是 out 底层的同一个连接（阻塞模式），out 不能有未刷新的缓冲数据。
+     * 
+     * @param out 输出流
+     * @param channel 连接的通道，可为null
+     * @param keepAlive 是否保持连接
+     * @param chunked 流式响应是否使用 chunked 传输编码
+     */
+    public void writeTo(OutputStream out, GatheringByteChannel channel, boolean keepAlive, boolean chunked)
+            throws IOException {
+        if (bodyBuffer != null && !headOnly) {
+            writeBuffer(out, channel, keepAlive);
+            return;
+        }
+        if (streamingBody == null) {
+            out.write(toBytes(keepAlive));
+            out.flush();
+            return;
+        }
+        headers.remove("Content-Length");
+        if (chunked) {
+            headers.put("Transfer-Encoding", "chunked");
+        } else {
+            headers.remove("Transfer-Encoding");
+            headers.remove("Trailer");
+        }
+        // 块头、块数据和CRLF先合并到缓冲区，避免每个块多次系统调用
+        BufferedOutputStream buffered = new BufferedOutputStream(out, STREAM_BUFFER_SIZE + 16);
+        buffered.write(headerBytes(keepAlive && chunked));
+        buffered.flush();
+        if (headOnly) {
+            return;
+        }
+        Map<String, String> trailers = new LinkedHashMap<>();
+        if (chunked) {
+            ChunkedOutputStream body = new ChunkedOutputStream(buffered, STREAM_BUFFER_SIZE);
+            streamingBody.writeTo(body, trailers);
+            body.finish(trailers);
+        } else {
+            streamingBody.writeTo(buffered, trailers);
+            buffered.flush();
+        }
+    }
+    
+    private void writeBuffer(OutputStream out, GatheringByteChannel channel, boolean keepAlive) throws IOException {
+        ByteBuffer data = bodyBuffer.duplicate();
+        headers.putIfAbsent("Content-Length", String.valueOf(data.remaining()));
+        ByteBuffer head = ByteBuffer.wrap(headerBytes(keepAlive));
+        if (channel != null) {
+            // 头部和响应体一次聚集写，避免小文件多一次系统调用
+            ByteBuffer[] buffers = {head, data};
+            while (head.hasRemaining() || data.hasRemaining()) {
+                channel.write(buffers);
+            }
+            return;
+        }
+        byte[] chunk = new byte[Math.min(data.remaining(), STREAM_BUFFER_SIZE)];
+        out.write(head.array());
+        while (data.hasRemaining()) {
+            int n = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+        out.flush();
+    }
+    
+    /**
+     * 构建状态行和头部
+     */
+    private byte[] headerBytes(boolean keepAlive) {
         // 构建响应头部字符串
         StringBuilder headerBuilder = new StringBuilder();
         
@@ -131,9 +391,6 @@ public class HttpResponse {
             headers.put("Connection", "close");
         }
         
-        // 自动设置Content-Length（如果尚未设置）
-        headers.putIfAbsent("Content-Length", String.valueOf(body.length));
-        
         // 添加所有头部
         headers.forEach((name, value) -> 
             headerBuilder.append(name).append(": ").append(value).append("\r\n"));
@@ -142,13 +399,30 @@ public class HttpResponse {
         headerBuilder.append("\r\n");
         
         // 转换为字节数组
-        byte[] headerBytes = headerBuilder.toString().getBytes(StandardCharsets.US_ASCII);
-        
-        // 合并头部和体部
-        byte[] fullResponse = new byte[headerBytes.length + body.length];
-        System.arraycopy(headerBytes, 0, fullResponse, 0, headerBytes.length);
-        System.arraycopy(body, 0, fullResponse, headerBytes.length, body.length);
-        
-        return fullResponse;
+        byte[] encoded = headerBuilder.toString().getBytes(StandardCharsets.US_ASCII);
+        // Date行直接复制共享时钟每秒编码一次的字节
+        byte[] dateLine = date && !headers.containsKey("Date") ? HttpDate.dateHeaderLine() : null;
+        int blockLength = headerBlock != null ? headerBlock.length : 0;
+        if (dateLine == null && blockLength == 0) {
+            return encoded;
+        }
+        // Date行和预编码头部块插在状态行之后
+        int statusLineEnd = 0;
+        while (encoded[statusLineEnd] != '\n') statusLineEnd++;
+        statusLineEnd++;
+        int dateLength = dateLine != null ? dateLine.length : 0;
+        byte[] result = new byte[encoded.length + dateLength + blockLength];
+        System.arraycopy(encoded, 0, result, 0, statusLineEnd);
+        int p = statusLineEnd;
+        if (dateLine != null) {
+            System.arraycopy(dateLine, 0, result, p, dateLength);
+            p += dateLength;
+        }
+        if (blockLength > 0) {
+            System.arraycopy(headerBlock, 0, result, p, blockLength);
+            p += blockLength;
+        }
+        System.arraycopy(encoded, statusLineEnd, result, p, encoded.length - statusLineEnd);
+        return result;
     }
 }
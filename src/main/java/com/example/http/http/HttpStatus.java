@@ -39,6 +39,26 @@ public enum HttpStatus {
      * - PUT请求成功更新资源
      */
     OK(200, "OK"),
+
+    /**
+     * 201 Created
+     * 
+     * 请求已成功，并创建了新的资源，新资源的URI在Location头部中。
+     * 
+     * 使用场景：
+     * - 创建可续传上传，Location为上传地址
+     */
+    CREATED(201, "Created"),
+
+    /**
+     * 204 No Content
+     * 
+     * 请求已成功，响应没有响应体（也不带Content-Length）。
+     * 
+     * 使用场景：
+     * - 可续传上传的分块写入成功，新的偏移在头部中返回
+     */
+    NO_CONTENT(204, "No Content"),
     
     // ========== 3xx 重定向状态码 ==========
     
@@ -83,6 +103,17 @@ public enum HttpStatus {
     
     // ========== 4xx 客户端错误状态码 ==========
     
+    /**
+     * 400 Bad Request
+     * 
+     * 请求格式错误，服务器无法理解。
+     * 
+     * 使用场景：
+     * - Content-Length 不是合法的非负整数
+     * - 请求头格式错误
+     */
+    BAD_REQUEST(400, "Bad Request"),
+    
     /**
      * 401 Unauthorized
      * 
@@ -96,6 +127,17 @@ public enum HttpStatus {
      */
     UNAUTHORIZED(401, "Unauthorized"),
     
+    /**
+     * 403 Forbidden
+     * 
+     * 服务器理解请求，但拒绝执行。与401不同，重新认证也无济于事。
+     * 
+     * 使用场景：
+     * - 管理端点只允许本机访问
+     * - 访问没有权限的资源
+     */
+    FORBIDDEN(403, "Forbidden"),
+    
     /**
      * 404 Not Found
      * 
@@ -122,6 +164,17 @@ public enum HttpStatus {
      */
     METHOD_NOT_ALLOWED(405, "Method Not Allowed"),
 
+    /**
+     * 408 Request Timeout
+     * 
+     * 服务器等待请求的时间超时。
+     * 
+     * 使用场景：
+     * - 请求头未在期限内发送完毕（慢速攻击，如Slowloris）
+     * - 请求体的发送速率低于下限
+     */
+    REQUEST_TIMEOUT(408, "Request Timeout"),
+
     /**
      * 409 Conflict
      * 
@@ -133,6 +186,33 @@ public enum HttpStatus {
      */
     CONFLICT(409, "Conflict"),
 
+    /**
+     * 412 Precondition Failed
+     * 
+     * 请求头中的前置条件（If-Match、If-Unmodified-Since）不成立。
+     * 
+     * 使用场景：
+     * - 客户端要求资源仍是它持有的版本，但资源已被修改
+     */
+    PRECONDITION_FAILED(412, "Precondition Failed"),
+
+    /**
+     * 413 Payload Too Large
+     * 
+     * 请求体超过服务器允许的大小。
+     * 
+     * 使用场景：
+     * - Content-Length 或 chunked 请求体的累计长度超过上传大小上限
+     */
+    PAYLOAD_TOO_LARGE(413, "Payload Too Large"),
+
+    /**
+     * 414 URI Too Long
+     * 
+     * 请求行（主要是URI）超过服务器允许的长度。
+     */
+    URI_TOO_LONG(414, "URI Too Long"),
+
     /**
      * 422 Unprocessable Entity
      * 
@@ -143,6 +223,23 @@ public enum HttpStatus {
      * - 提交的数据验证失败
      */
     UNPROCESSABLE_ENTITY(422, "Unprocessable Entity"),
+
+    /**
+     * 431 Request Header Fields Too Large
+     * 
+     * 请求头总大小或数量超过服务器允许的上限。
+     */
+    REQUEST_HEADER_FIELDS_TOO_LARGE(431, "Request Header Fields Too Large"),
+
+    /**
+     * 460 Checksum Mismatch
+     * 
+     * 非标准状态码，沿用 tus 可续传上传协议：请求体与客户端给出的校验和不一致，数据没有被接受。
+     * 
+     * 使用场景：
+     * - 可续传上传的分块在传输中损坏，客户端应重发这个分块
+     */
+    CHECKSUM_MISMATCH(460, "Checksum Mismatch"),
     
     // ========== 5xx 服务器错误状态码 ==========
     
@@ -158,7 +255,38 @@ public enum HttpStatus {
      * - 配置错误
      * - 资源不足
      */
-    INTERNAL_SERVER_ERROR(500, "Internal Server Error");
+    INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+    
+    /**
+     * 501 Not Implemented
+     * 
+     * 服务器不支持完成请求所需的功能。
+     * 
+     * 使用场景：
+     * - 请求使用了不支持的 Transfer-Encoding（只支持 chunked）
+     */
+    NOT_IMPLEMENTED(501, "Not Implemented"),
+    
+    /**
+     * 507 Insufficient Storage
+     * 
+     * 服务器没有足够的存储空间完成请求。
+     * 
+     * 使用场景：
+     * - 创建可续传上传时磁盘剩余空间不足以容纳整个文件
+     */
+    INSUFFICIENT_STORAGE(507, "Insufficient Storage"),
+    
+    /**
+     * 503 Service Unavailable
+     * 
+     * 服务器暂时无法处理请求（过载或维护），通常配合Retry-After头部告知客户端何时重试。
+     * 
+     * 使用场景：
+     * - 连接数或排队请求数达到上限时快速拒绝（负载削减）
+     * - 服务器正在启动或关闭
+     */
+    SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
     // ========== 枚举属性和方法 ==========
     
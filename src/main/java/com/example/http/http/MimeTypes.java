@@ -13,6 +13,11 @@ public final class MimeTypes {
         MAP.put(".html", "text/html; charset=UTF-8");
         MAP.put(".htm", "text/html; charset=UTF-8");
         MAP.put(".txt", "text/plain; charset=UTF-8");
+        MAP.put(".css", "text/css; charset=UTF-8");
+        MAP.put(".js", "application/javascript; charset=UTF-8");
+        MAP.put(".json", "application/json; charset=UTF-8");
+        MAP.put(".xml", "application/xml; charset=UTF-8");
+        MAP.put(".svg", "image/svg+xml");
         MAP.put(".png", "image/png");
         MAP.put(".jpg", "image/jpeg");
         MAP.put(".jpeg", "image/jpeg");
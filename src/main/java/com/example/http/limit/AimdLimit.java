@@ -0,0 +1,55 @@
+package com.example.http.limit;
+
+/**
+ * AIMD（加性增、乘性减）并发上限
+ *
+ * - 请求成功且耗时未超过阈值：上限被用到一半以上时 +1
+ * - 请求失败或耗时超过阈值：上限乘以回退系数
+ *
+ * 简单、收敛稳定，适合有明确延迟目标的路由（如静态资源）。
+ */
+public final class AimdLimit implements Limit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long timeoutNanos;
+    private int limit;
+
+    /**
+     * @param initialLimit 初始上限
+     * @param minLimit 最小上限
+     * @param maxLimit 最大上限
+     * @param backoffRatio 过载时的回退系数，取值 (0.5, 1)
+     * @param timeoutNanos 耗时阈值，超过即视为过载
+     */
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long timeoutNanos) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("上限范围无效");
+        if (backoffRatio <= 0.5 || backoffRatio >= 1) throw new IllegalArgumentException("回退系数必须在 (0.5, 1) 之间");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.timeoutNanos = timeoutNanos;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (dropped || rttNanos > timeoutNanos) {
+            limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        } else if (inflight * 2 >= limit) {
+            // 只有上限确实被用起来时才增长，避免空闲时上限无限膨胀
+            limit = Math.min(maxLimit, limit + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AIMD(limit=" + limit + ")";
+    }
+}
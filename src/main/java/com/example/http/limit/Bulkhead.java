@@ -0,0 +1,134 @@
+package com.example.http.limit;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 舱壁：某一类请求专用的有界线程池
+ *
+ * 连接线程解析完请求后，把处理逻辑交给对应类别的舱壁执行并等待结果。
+ * 每个舱壁的线程数和排队上限相互独立，某一类请求的洪峰只会占满自己的线程和队列，
+ * 队列满时立即拒绝，不会拖住其他类别。
+ */
+public final class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    /**
+     * @param name 舱壁名称，也用作线程名前缀
+     * @param threads 线程数
+     * @param queueCapacity 排队上限，0 表示不排队（无空闲线程即拒绝）
+     */
+    public Bulkhead(String name, int threads, int queueCapacity) {
+        if (threads < 1) throw new IllegalArgumentException("舱壁线程数必须大于0: " + name);
+        if (queueCapacity < 0) throw new IllegalArgumentException("舱壁队列上限不能为负数: " + name);
+        this.name = name;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new java.util.concurrent.SynchronousQueue<>(),
+                r -> new Thread(r, "http-" + name + "-" + counter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 在舱壁线程上执行任务，并阻塞等待结果
+     *
+     * @param task 任务
+     * @return 任务结果
+     * @throws RejectedExecutionException 舱壁已满
+     * @throws Exception 任务本身抛出的异常（原样抛出）
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        long enqueued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                totalQueueNanos.addAndGet(started - enqueued);
+                try {
+                    return task.call();
+                } finally {
+                    totalRunNanos.addAndGet(System.nanoTime() - started);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        try {
+            T result = future.get();
+            completed.incrementAndGet();
+            return result;
+        } catch (ExecutionException e) {
+            failed.incrementAndGet();
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        } catch (InterruptedException e) {
+            // 连接线程被中断（通常是服务器关闭），放弃等待
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭舱壁线程池，等待已提交的任务完成
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(timeout, unit)) {
+            executor.shutdownNow();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public String toString() {
+        long done = completed.get() + failed.get();
+        return String.format(java.util.Locale.ROOT,
+                "%s{threads=%d, active=%d, queued=%d, submitted=%d, completed=%d, failed=%d, rejected=%d, avgQueueMs=%.3f, avgRunMs=%.3f}",
+                name, getThreads(), getActive(), getQueued(), submitted.get(), completed.get(), failed.get(), rejected.get(),
+                done == 0 ? 0.0 : totalQueueNanos.get() / 1e6 / done,
+                done == 0 ? 0.0 : totalRunNanos.get() / 1e6 / done);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.http.limit;
+
+import com.example.http.RouteClass;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按路由类别划分的一组舱壁
+ *
+ * 每个类别的规格写作"线程数:队列上限"，如 upload=2:4。
+ */
+public final class Bulkheads {
+
+    private final Map<RouteClass, Bulkhead> bulkheads = new EnumMap<>(RouteClass.class);
+
+    /**
+     * @param specs 各类别的规格，缺失的类别使用 {@link #defaultSpec(RouteClass, int)}
+     * @param threads 服务器工作线程数，用于推算默认规格
+     */
+    public Bulkheads(Map<RouteClass, String> specs, int threads) {
+        for (RouteClass routeClass : RouteClass.values()) {
+            String spec = specs.get(routeClass);
+            if (spec == null) spec = defaultSpec(routeClass, threads);
+            int[] parsed = parseSpec(routeClass, spec);
+            bulkheads.put(routeClass, new Bulkhead(routeClass.name().toLowerCase(Locale.ROOT), parsed[0], parsed[1]));
+        }
+    }
+
+    /**
+     * 默认规格：静态资源与服务器线程数相同；认证一半；上传四分之一；管理端点最少
+     */
+    public static String defaultSpec(RouteClass routeClass, int threads) {
+        switch (routeClass) {
+            case STATIC: return threads + ":" + threads * 2;
+            case AUTH: return Math.max(2, threads / 2) + ":" + threads;
+            case UPLOAD: return Math.max(1, threads / 4) + ":" + Math.max(1, threads / 4);
+            default: return "1:4";
+        }
+    }
+
+    /**
+     * 解析"线程数:队列上限"，只写线程数时队列上限为0
+     */
+    static int[] parseSpec(RouteClass routeClass, String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            int threads = Integer.parseInt(parts[0].trim());
+            int queue = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 0;
+            if (parts.length > 2 || threads < 1 || queue < 0) throw new NumberFormatException();
+            return new int[] {threads, queue};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("舱壁规格无效: " + routeClass + "=" + spec + "（格式为 线程数:队列上限）");
+        }
+    }
+
+    /**
+     * 获取某个路由类别的舱壁
+     */
+    public Bulkhead get(RouteClass routeClass) {
+        return bulkheads.get(routeClass);
+    }
+
+    /**
+     * 关闭全部舱壁
+     */
+    public void shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.shutdown(timeout, unit);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return bulkheads.values().toString();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.http.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个路由类别的并发限制器
+ *
+ * 用法：
+ * <pre>
+ * ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+ * if (permit == null) { 直接返回503 }
+ * try { 处理请求; permit.success(); } catch (...) { permit.dropped(); }
+ * </pre>
+ *
+ * 获取许可是无锁的（只有一次CAS）；样本上报时短暂加锁以串行更新 {@link Limit}。
+ */
+public final class ConcurrencyLimiter {
+
+    private final String name;
+    private final Limit limit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int currentLimit;
+
+    /**
+     * @param name 限制器名称（用于日志和统计）
+     * @param limit 上限算法
+     */
+    public ConcurrencyLimiter(String name, Limit limit) {
+        this.name = name;
+        this.limit = limit;
+        this.currentLimit = limit.getLimit();
+    }
+
+    /**
+     * 尝试获取一个许可
+     *
+     * @return 许可；超过当前上限时返回null，调用方应立即拒绝请求
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= currentLimit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                accepted.incrementAndGet();
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    private void release(long rttNanos, int inflightAtStart, boolean dropped, boolean ignore) {
+        inflight.decrementAndGet();
+        if (ignore) return;
+        synchronized (limit) {
+            limit.onSample(rttNanos, inflightAtStart, dropped);
+            currentLimit = limit.getLimit();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return currentLimit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{limit=" + currentLimit + ", inflight=" + inflight.get()
+                + ", accepted=" + accepted.get() + ", rejected=" + rejected.get() + "}";
+    }
+
+    /**
+     * 一次获取到的许可，必须且只能调用一次 success/dropped/ignore 之一
+     */
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inflightAtStart;
+        private boolean released;
+
+        private Permit(int inflightAtStart) {
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        /** 请求正常完成，耗时作为样本 */
+        public void success() {
+            finish(false, false);
+        }
+
+        /** 请求失败或超时，视为过载信号 */
+        public void dropped() {
+            finish(true, false);
+        }
+
+        /** 请求结果与容量无关（如客户端错误），只释放许可不上报样本 */
+        public void ignore() {
+            finish(false, true);
+        }
+
+        private void finish(boolean dropped, boolean ignore) {
+            if (released) return;
+            released = true;
+            release(System.nanoTime() - startNanos, inflightAtStart, dropped, ignore);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.http.limit;
+
+/**
+ * 基于延迟梯度的并发上限（参考 Netflix concurrency-limits 的 Gradient2）
+ *
+ * 同时维护两条RTT指数移动平均：
+ * - 短期RTT：反映当前排队状况
+ * - 长期RTT：近似无排队时的基准延迟
+ *
+ * 梯度 = 容忍系数 * 长期RTT / 短期RTT，限定在 [0.5, 1]。
+ * 新上限 = 当前上限 * 梯度 + 排队余量（约为 sqrt(上限)），再做平滑。
+ * 延迟上升时梯度小于1，上限按比例收缩；延迟回到基准时，排队余量让上限缓慢回升。
+ *
+ * 不需要事先知道路由的"正常"延迟，因此适合开销差异很大、难以配置固定阈值的路由。
+ */
+public final class GradientLimit implements Limit {
+
+    /** 短期、长期EMA的平滑因子 */
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_ALPHA = 2.0 / (600 + 1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+
+    private double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    /**
+     * @param initialLimit 初始上限
+     * @param minLimit 最小上限
+     * @param maxLimit 最大上限
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 1.5, 0.2);
+    }
+
+    /**
+     * @param initialLimit 初始上限
+     * @param minLimit 最小上限
+     * @param maxLimit 最大上限
+     * @param rttTolerance 容忍系数，短期RTT超过长期RTT的这个倍数才开始收缩
+     * @param smoothing 上限更新的平滑系数，取值 (0, 1]
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double rttTolerance, double smoothing) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("上限范围无效");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public void onSample(long rttNanos, int inflight, boolean dropped) {
+        if (shortRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return;
+        }
+        shortRtt += SHORT_ALPHA * (rttNanos - shortRtt);
+        longRtt += LONG_ALPHA * (rttNanos - longRtt);
+
+        // 长期基准远高于当前延迟时（如一段高延迟过去之后）让它加速衰减，回到新的延迟水平；
+        // 否则梯度长期被钳在1，之后延迟再次上升时上限反应迟钝
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 应用本身没有把上限用起来时，延迟信息不具代表性，不调整
+        if (!dropped && inflight < limit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        if (dropped) gradient = 0.5;
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT, "Gradient(limit=%d, shortRtt=%.2fms, longRtt=%.2fms)",
+                (int) limit, shortRtt / 1e6, longRtt / 1e6);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.http.limit;
+
+/**
+ * 并发上限算法
+ *
+ * 实现类根据每个请求的处理耗时（RTT）和当时的在途请求数不断调整上限，
+ * 思路来自 Netflix concurrency-limits：延迟上升说明开始排队，应收缩上限；
+ * 延迟稳定且上限被用满，说明还有余量，应放大上限。
+ *
+ * 实现类不要求线程安全，由 {@link ConcurrencyLimiter} 负责串行调用。
+ */
+public interface Limit {
+
+    /**
+     * 当前的并发上限
+     */
+    int getLimit();
+
+    /**
+     * 上报一个样本
+     *
+     * @param rttNanos 请求处理耗时（纳秒）
+     * @param inflight 该请求开始时的在途请求数（含自己）
+     * @param dropped 请求是否失败/超时（视为过载信号）
+     */
+    void onSample(long rttNanos, int inflight, boolean dropped);
+}
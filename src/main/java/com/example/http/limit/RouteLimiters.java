@@ -0,0 +1,102 @@
+package com.example.http.limit;
+
+import com.example.http.RouteClass;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按路由类别划分的一组并发限制器
+ *
+ * 每个 {@link RouteClass} 拥有独立的 {@link ConcurrencyLimiter}，
+ * 上传突发只会耗尽上传自己的额度，不会挤占静态资源的额度。
+ */
+public final class RouteLimiters {
+
+    /**
+     * 上限算法
+     */
+    public enum Algorithm {
+        /** 不限制 */
+        OFF,
+        /** 加性增、乘性减，以固定延迟阈值判断过载 */
+        AIMD,
+        /** 延迟梯度，自动学习基准延迟 */
+        GRADIENT;
+
+        /**
+         * 解析配置值（大小写不敏感）
+         */
+        public static Algorithm parse(String value) {
+            if (value == null || value.trim().isEmpty()) return OFF;
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("未知的限流算法: " + value + "（可选 off/aimd/gradient）");
+            }
+        }
+    }
+
+    private final Map<RouteClass, ConcurrencyLimiter> limiters = new EnumMap<>(RouteClass.class);
+
+    private RouteLimiters() {
+    }
+
+    /**
+     * 按算法为每个路由类别创建限制器
+     *
+     * @param algorithm 上限算法
+     * @param maxLimit 每个类别的最大上限（通常取工作线程数）
+     * @return 限制器组；algorithm 为 OFF 时返回null
+     */
+    public static RouteLimiters create(Algorithm algorithm, int maxLimit) {
+        if (algorithm == Algorithm.OFF) return null;
+        RouteLimiters result = new RouteLimiters();
+        for (RouteClass routeClass : RouteClass.values()) {
+            int initial = Math.max(1, Math.min(maxLimit, initialLimit(routeClass, maxLimit)));
+            Limit limit = algorithm == Algorithm.AIMD
+                    ? new AimdLimit(initial, 1, maxLimit, 0.9, timeoutNanos(routeClass))
+                    : new GradientLimit(initial, 1, maxLimit);
+            result.limiters.put(routeClass, new ConcurrencyLimiter(routeClass.name().toLowerCase(Locale.ROOT), limit));
+        }
+        return result;
+    }
+
+    /**
+     * 各类别的初始上限：静态资源可以用满，上传一开始只给一小部分，由算法再放大
+     */
+    private static int initialLimit(RouteClass routeClass, int maxLimit) {
+        switch (routeClass) {
+            case STATIC: return maxLimit;
+            case AUTH: return maxLimit / 2;
+            case UPLOAD: return maxLimit / 4;
+            default: return 2;
+        }
+    }
+
+    /**
+     * AIMD 的过载判定阈值
+     */
+    private static long timeoutNanos(RouteClass routeClass) {
+        switch (routeClass) {
+            case STATIC: return TimeUnit.MILLISECONDS.toNanos(50);
+            case AUTH: return TimeUnit.MILLISECONDS.toNanos(200);
+            case UPLOAD: return TimeUnit.SECONDS.toNanos(2);
+            default: return TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * 获取某个路由类别的限制器
+     */
+    public ConcurrencyLimiter get(RouteClass routeClass) {
+        return limiters.get(routeClass);
+    }
+
+    @Override
+    public String toString() {
+        return limiters.values().toString();
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.http.query;
+
+import com.example.http.query.JsonReader.Token;
+import com.example.http.resource.FileMetadata;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 一个JSON资源的记录索引
+ *
+ * 建立时用 {@link JsonReader} 流式扫描两遍，不构建对象树：
+ * 1. 找出记录数组：元素为对象、字节跨度最大的数组（如 umas.json 的 data.records）
+ * 2. 记下每条记录在原文中的字节范围，并为记录中的每个标量字段建立"值 -> 记录编号"的倒排
+ *
+ * 字段用点号连接的路径表示，如"role_id"、"hero_card.card_id"；
+ * 数组中的元素用"[]"表示，如"hero_card.factors[].name"，任一元素匹配即算记录匹配。
+ * 字符串按解码后的内容比较，数字、true/false/null 按原文比较（1 与 1.0 不相等）。
+ *
+ * 查询时按倒排求交集，只重新解析命中的那几条记录，响应里是压缩掉空白的记录原文或其中的若干字段。
+ *
+ * 建立后不可变，线程安全。
+ */
+public final class JsonIndex {
+
+    /** 建立倒排的最大嵌套层数（相对于记录），更深的字段不参与查询 */
+    private static final int MAX_FIELD_DEPTH = 8;
+
+    /** 超过这个字节数的字符串值不建立倒排（如长URL、大段文本），查询它们没有意义 */
+    private static final int MAX_VALUE_BYTES = 256;
+
+    private final FileMetadata metadata;
+    private final byte[] data;
+    private final String recordsPath;
+    private final int[] recordStart;
+    private final int[] recordEnd;
+    private final Map<String, Map<String, int[]>> fields;
+
+    private JsonIndex(FileMetadata metadata, byte[] data, String recordsPath, int[] recordStart, int[] recordEnd,
+                      Map<String, Map<String, int[]>> fields) {
+        this.metadata = metadata;
+        this.data = data;
+        this.recordsPath = recordsPath;
+        this.recordStart = recordStart;
+        this.recordEnd = recordEnd;
+        this.fields = fields;
+    }
+
+    /**
+     * 解析文档并建立索引
+     *
+     * @param metadata 资源的元数据，用于判断索引是否过期
+     * @param data 文档的UTF-8内容，索引保存它的引用，调用方之后不能修改
+     * @throws JsonParseException 文档不是合法的JSON
+     */
+    public static JsonIndex build(FileMetadata metadata, byte[] data) throws JsonParseException {
+        RecordArray records = findRecords(data);
+        if (records != null) {
+            return indexRecords(metadata, data, records.path(), new JsonReader(data, records.start(), records.end()));
+        }
+        // 没有对象数组：顶层是对象时它本身作为唯一的一条记录，否则没有记录
+        return indexRecords(metadata, data, null, new JsonReader(data));
+    }
+
+    /**
+     * 记录数组在原文中的范围及其路径
+     */
+    private record RecordArray(int start, int end, String path) { }
+
+    /**
+     * 第一遍扫描：找出元素为对象、字节跨度最大的数组
+     *
+     * @return 记录数组，没有元素为对象的数组时返回null
+     */
+    private static RecordArray findRecords(byte[] data) throws JsonParseException {
+        JsonReader reader = new JsonReader(data);
+        // 每层：数组的起始偏移（对象层为-1）、数组中对象元素的个数
+        Deque<int[]> frames = new ArrayDeque<>();
+        Deque<String> path = new ArrayDeque<>();
+        String pendingName = null;
+        RecordArray best = null;
+        Token t;
+        while ((t = reader.next()) != Token.END) {
+            switch (t) {
+                case NAME:
+                    pendingName = reader.stringValue();
+                    break;
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    int[] parent = frames.peek();
+                    if (parent != null && parent[0] >= 0 && t == Token.BEGIN_OBJECT) parent[1]++;
+                    path.push(parent == null ? "" : parent[0] >= 0 ? "[]" : pendingName);
+                    frames.push(new int[] {t == Token.BEGIN_ARRAY ? reader.tokenStart() : -1, 0});
+                    pendingName = null;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    int[] frame = frames.pop();
+                    if (frame[0] >= 0 && frame[1] > 0
+                            && (best == null || reader.tokenEnd() - frame[0] > best.end() - best.start())) {
+                        best = new RecordArray(frame[0], reader.tokenEnd(), joinPath(path));
+                    }
+                    path.pop();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 由从外到内的路径段拼出路径，如 ["", "data", "records"] -> "data.records"，顶层数组为"$"
+     */
+    private static String joinPath(Deque<String> path) {
+        StringBuilder sb = new StringBuilder();
+        var it = path.descendingIterator();
+        while (it.hasNext()) {
+            String segment = it.next();
+            if (segment.isEmpty()) continue;
+            if (segment.equals("[]")) sb.append("[]");
+            else sb.append(sb.length() > 0 ? "." : "").append(segment);
+        }
+        return sb.length() == 0 ? "$" : sb.toString();
+    }
+
+    /**
+     * 第二遍扫描：记下每条记录的范围并建立字段倒排
+     *
+     * @param reader 位于记录数组（recordsPath 不为null）或整个文档（顶层对象作为唯一记录）的开头
+     */
+    private static JsonIndex indexRecords(FileMetadata metadata, byte[] data, String recordsPath, JsonReader reader)
+            throws JsonParseException {
+        Map<String, Map<String, PostingBuilder>> building = new HashMap<>();
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int count = 0;
+        boolean single = recordsPath == null;
+        if (!single) reader.next(); // BEGIN_ARRAY
+        Token t;
+        while ((t = reader.next()) != Token.END && t != Token.END_ARRAY) {
+            if (t != Token.BEGIN_OBJECT) {
+                // 对象以外的元素不是记录
+                reader.skipValue();
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = reader.tokenStart();
+            indexObject(reader, "", 0, count, building);
+            ends[count] = reader.tokenEnd();
+            count++;
+            if (single) break;
+        }
+
+        Map<String, Map<String, int[]>> fields = new HashMap<>(building.size() * 2);
+        building.forEach((field, values) -> {
+            Map<String, int[]> frozen = new HashMap<>(values.size() * 2);
+            values.forEach((value, postings) -> frozen.put(value, postings.toArray()));
+            fields.put(field, frozen);
+        });
+        return new JsonIndex(metadata, data, recordsPath, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count),
+                fields);
+    }
+
+    /**
+     * 为刚读到 BEGIN_OBJECT 的对象中的字段建立倒排，返回时当前记号是对应的 END_OBJECT
+     */
+    private static void indexObject(JsonReader reader, String prefix, int level, int record,
+                                    Map<String, Map<String, PostingBuilder>> building) throws JsonParseException {
+        Token t;
+        while ((t = reader.next()) != Token.END_OBJECT) {
+            // t == NAME
+            String field = prefix + reader.stringValue();
+            indexValue(reader, reader.next(), field, level, record, building);
+        }
+    }
+
+    private static void indexValue(JsonReader reader, Token t, String field, int level, int record,
+                                   Map<String, Map<String, PostingBuilder>> building) throws JsonParseException {
+        switch (t) {
+            case BEGIN_OBJECT:
+                if (level + 1 >= MAX_FIELD_DEPTH) reader.skipValue();
+                else indexObject(reader, field + ".", level + 1, record, building);
+                break;
+            case BEGIN_ARRAY:
+                if (level + 1 >= MAX_FIELD_DEPTH) {
+                    reader.skipValue();
+                    break;
+                }
+                String element = field + "[]";
+                Token e;
+                while ((e = reader.next()) != Token.END_ARRAY) {
+                    indexValue(reader, e, element, level + 1, record, building);
+                }
+                break;
+            default:
+                if (reader.tokenEnd() - reader.tokenStart() > MAX_VALUE_BYTES) break;
+                building.computeIfAbsent(field, k -> new HashMap<>())
+                        .computeIfAbsent(reader.stringValue(), k -> new PostingBuilder())
+                        .add(record);
+        }
+    }
+
+    /**
+     * 升序、去重的记录编号列表
+     */
+    private static final class PostingBuilder {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            // 同一条记录的数组里可能多次出现同一个值
+            if (size > 0 && ids[size - 1] == id) return;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 按字段值过滤记录
+     *
+     * @param filters 字段路径 -> 值，全部满足（交集）；为空时返回全部记录
+     * @return 命中的记录编号（升序）
+     * @throws IllegalArgumentException 字段没有被索引
+     */
+    public int[] find(Map<String, String> filters) {
+        if (filters.isEmpty()) {
+            int[] all = new int[recordStart.length];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+        // 从最短的倒排开始求交集
+        List<int[]> postings = new ArrayList<>(filters.size());
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            Map<String, int[]> values = fields.get(filter.getKey());
+            if (values == null) throw new IllegalArgumentException("字段没有被索引: " + filter.getKey());
+            int[] ids = values.get(filter.getValue());
+            if (ids == null) return new int[0];
+            postings.add(ids);
+        }
+        postings.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = postings.get(0);
+        for (int i = 1; i < postings.size() && result.length > 0; i++) {
+            result = intersect(result, postings.get(i));
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    /**
+     * 把一条记录写成压缩掉空白的JSON
+     *
+     * @param record 记录编号
+     * @param projection 只输出这些字段（点号路径，不含"[]"），输出为以路径为键的扁平对象；为空时输出整条记录
+     */
+    public void writeRecord(int record, List<String> projection, ByteArrayOutputStream out) throws JsonParseException {
+        if (projection.isEmpty()) {
+            JsonReader.writeCompact(data, recordStart[record], recordEnd[record], out);
+            return;
+        }
+        Map<String, int[]> found = new HashMap<>();
+        JsonReader reader = new JsonReader(data, recordStart[record], recordEnd[record]);
+        reader.next();
+        collect(reader, "", Set.copyOf(projection), found);
+        out.write('{');
+        boolean first = true;
+        for (String field : projection) {
+            int[] range = found.get(field);
+            if (range == null) continue;
+            if (!first) out.write(',');
+            first = false;
+            writeString(field, out);
+            out.write(':');
+            JsonReader.writeCompact(data, range[0], range[1], out);
+        }
+        out.write('}');
+    }
+
+    /**
+     * 在刚读到 BEGIN_OBJECT 的对象中找出需要的字段，记下值的字节范围
+     */
+    private static void collect(JsonReader reader, String prefix, Set<String> wanted, Map<String, int[]> found)
+            throws JsonParseException {
+        while (reader.next() != Token.END_OBJECT) {
+            String field = prefix + reader.stringValue();
+            Token t = reader.next();
+            int start = reader.tokenStart();
+            if (wanted.contains(field)) {
+                reader.skipValue();
+                found.put(field, new int[] {start, reader.tokenEnd()});
+            } else if (t == Token.BEGIN_OBJECT && isPrefixOfAny(field + ".", wanted)) {
+                collect(reader, field + ".", wanted, found);
+            } else {
+                reader.skipValue();
+            }
+        }
+    }
+
+    private static boolean isPrefixOfAny(String prefix, Set<String> wanted) {
+        for (String field : wanted) {
+            if (field.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 写出JSON字符串（含引号），转义引号、反斜杠和控制字符；其他生成JSON响应的模块（如全文检索）也使用
+     */
+    public static void writeString(String s, ByteArrayOutputStream out) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        out.writeBytes(sb.append('"').toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 建立索引时的资源元数据
+     */
+    public FileMetadata metadata() {
+        return metadata;
+    }
+
+    /**
+     * 记录数组的路径，如"data.records"；顶层对象作为唯一记录时为null
+     */
+    public String recordsPath() {
+        return recordsPath;
+    }
+
+    /**
+     * 记录数
+     */
+    public int size() {
+        return recordStart.length;
+    }
+
+    /**
+     * 被索引的全部字段路径（按字典序）
+     */
+    public Set<String> fields() {
+        return Collections.unmodifiableSet(new TreeSet<>(fields.keySet()));
+    }
+
+    /**
+     * 字段的不同取值个数，字段没有被索引时为0
+     */
+    public int distinctValues(String field) {
+        Map<String, int[]> values = fields.get(field);
+        return values == null ? 0 : values.size();
+    }
+
+    @Override
+    public String toString() {
+        return metadata.file().getFileName() + " (" + size() + " 条记录, " + fields.size() + " 个字段)";
+    }
+}
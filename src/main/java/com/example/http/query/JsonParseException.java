@@ -0,0 +1,31 @@
+package com.example.http.query;
+
+import java.io.IOException;
+
+/**
+ * JSON文本格式错误
+ *
+ * 与 {@link com.example.http.http.HttpParseException} 类似，带上出错的位置，便于定位被损坏的资源文件。
+ */
+public class JsonParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int offset;
+
+    /**
+     * @param message 错误描述
+     * @param offset 出错处的字节偏移
+     */
+    public JsonParseException(String message, int offset) {
+        super(message + " (偏移 " + offset + ")");
+        this.offset = offset;
+    }
+
+    /**
+     * 出错处的字节偏移
+     */
+    public int offset() {
+        return offset;
+    }
+}
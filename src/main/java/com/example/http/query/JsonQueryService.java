@@ -0,0 +1,215 @@
+package com.example.http.query;
+
+import com.example.http.http.HttpStatus;
+import com.example.http.resource.FileMetadata;
+import com.example.http.resource.ResourceIndex;
+import com.example.http.resource.SingleFlight;
+import com.example.http.resource.StaticResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对静态目录中JSON资源的索引查询
+ *
+ * 每个JSON资源第一次被查询时解析一次并建立 {@link JsonIndex}，之后的查询直接使用索引；
+ * 资源变化后（静态资源索引中的元数据变了）下一次查询重新建立。同一版本的并发建立合并为一次。
+ *
+ * 查询参数（GET /query/umas.json?...）：
+ * - 字段路径=值：按字段值过滤，多个条件同时满足，如 role_id=697929767515、hero_card.factors[].name=速度
+ * - fields=a,b.c：只返回这些字段（以路径为键的扁平对象），不设置时返回整条记录
+ * - offset / limit：分页，limit 默认 10，最大 {@link #MAX_LIMIT}
+ * - 不带任何过滤条件和 fields 且 limit=0 时只返回记录数和可查询的字段
+ *
+ * 线程安全。
+ */
+public final class JsonQueryService {
+
+    /** 每页的默认记录数 */
+    public static final int DEFAULT_LIMIT = 10;
+
+    /** 每页最多的记录数 */
+    public static final int MAX_LIMIT = 100;
+
+    /** 参与索引的资源大小上限：整个文档保存在内存中 */
+    public static final long MAX_DOCUMENT_BYTES = 64L * 1024 * 1024;
+
+    private final ResourceIndex resources;
+    // 按URL路径区分：资源包中所有资源的 metadata.file() 都是包文件本身
+    private final ConcurrentHashMap<String, JsonIndex> indexes = new ConcurrentHashMap<>();
+    private final SingleFlight<FileMetadata, JsonIndex> builds = new SingleFlight<>();
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * @param resources 静态资源索引，查询的资源从这里查找和读取
+     */
+    public JsonQueryService(ResourceIndex resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param status 回复的状态码
+     * @param body JSON响应体（出错时为 {"error": "..."}）
+     */
+    public record Result(HttpStatus status, byte[] body) { }
+
+    /**
+     * 执行查询
+     *
+     * @param urlPath 资源的URL路径，如"/umas.json"
+     * @param params 查询参数（已解码，保持请求中的顺序）
+     */
+    public Result query(String urlPath, Map<String, String> params) throws IOException {
+        queries.incrementAndGet();
+        StaticResource resource = resources.get(urlPath);
+        if (resource == null) {
+            return error(HttpStatus.NOT_FOUND, "资源不存在: " + urlPath);
+        }
+        if (!resource.mimeType().startsWith("application/json")) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "不是JSON资源: " + urlPath);
+        }
+        if (resource.metadata().size() > MAX_DOCUMENT_BYTES) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "资源超过 " + MAX_DOCUMENT_BYTES + " 字节，不建立索引: " + urlPath);
+        }
+
+        Map<String, String> filters = new LinkedHashMap<>(params);
+        List<String> projection = new ArrayList<>();
+        String fields = filters.remove("fields");
+        if (fields != null) {
+            for (String field : fields.split(",")) {
+                if (!field.isBlank()) projection.add(field.trim());
+            }
+        }
+        int offset;
+        int limit;
+        try {
+            offset = intParam(filters.remove("offset"), 0);
+            limit = intParam(filters.remove("limit"), DEFAULT_LIMIT);
+        } catch (NumberFormatException e) {
+            return error(HttpStatus.BAD_REQUEST, "offset/limit 必须是非负整数");
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+
+        JsonIndex index;
+        try {
+            index = index(resource);
+        } catch (JsonParseException e) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "JSON格式错误: " + e.getMessage());
+        }
+        int[] ids;
+        try {
+            ids = index.find(filters);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write('{');
+        field(out, "resource");
+        JsonIndex.writeString(urlPath, out);
+        out.write(',');
+        field(out, "records");
+        if (index.recordsPath() != null) JsonIndex.writeString(index.recordsPath(), out);
+        else out.writeBytes("null".getBytes(StandardCharsets.US_ASCII));
+        out.write(',');
+        field(out, "total");
+        out.writeBytes(String.valueOf(ids.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(',');
+        field(out, "offset");
+        out.writeBytes(String.valueOf(offset).getBytes(StandardCharsets.US_ASCII));
+        if (limit == 0 && filters.isEmpty() && projection.isEmpty()) {
+            // 只要概要：列出可以查询的字段
+            out.write(',');
+            field(out, "fields");
+            out.write('[');
+            boolean first = true;
+            for (String name : index.fields()) {
+                if (!first) out.write(',');
+                first = false;
+                JsonIndex.writeString(name, out);
+            }
+            out.write(']');
+        } else {
+            out.write(',');
+            field(out, "items");
+            out.write('[');
+            int to = (int) Math.min((long) offset + limit, ids.length);
+            for (int i = offset; i < to; i++) {
+                if (i > offset) out.write(',');
+                index.writeRecord(ids[i], projection, out);
+            }
+            out.write(']');
+        }
+        out.write('}');
+        return new Result(HttpStatus.OK, out.toByteArray());
+    }
+
+    /**
+     * 取得资源的索引，没有或已过期时重新建立
+     */
+    JsonIndex index(StaticResource resource) throws IOException {
+        FileMetadata metadata = resource.metadata();
+        JsonIndex index = indexes.get(resource.urlPath());
+        if (index != null && index.metadata().equals(metadata)) {
+            return index;
+        }
+        JsonIndex built = builds.load(metadata, () -> JsonIndex.build(metadata, content(resource)));
+        // 并发的查询可能看到不同版本，保留与资源索引中当前版本一致的那个；
+        // 不按修改时间比较：文件可能被换成修改时间更早的版本（回滚部署、rsync -a、cp -p）
+        indexes.compute(resource.urlPath(), (path, old) -> {
+            StaticResource current = resources.get(path);
+            if (current == null) return null;
+            if (old != null && !built.metadata().equals(current.metadata()) && old.metadata().equals(current.metadata())) {
+                return old;
+            }
+            return built;
+        });
+        return built;
+    }
+
+    private byte[] content(StaticResource resource) throws IOException {
+        if (!resource.inMemory()) {
+            return resources.read(resource);
+        }
+        ByteBuffer buf = resource.content(null);
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static int intParam(String value, int defaultValue) {
+        if (value == null || value.isEmpty()) return defaultValue;
+        int n = Integer.parseInt(value.trim());
+        if (n < 0) throw new NumberFormatException(value);
+        return n;
+    }
+
+    private static void field(ByteArrayOutputStream out, String name) {
+        JsonIndex.writeString(name, out);
+        out.write(':');
+    }
+
+    private static Result error(HttpStatus status, String message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('{');
+        field(out, "error");
+        JsonIndex.writeString(message, out);
+        out.write('}');
+        return new Result(status, out.toByteArray());
+    }
+
+    @Override
+    public String toString() {
+        return "{indexes=" + indexes.size() + ", queries=" + queries.get() + ", builds=" + builds + "}";
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.http.query;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式（拉取式）JSON解析器
+ *
+ * 直接在UTF-8字节数组上逐个产生记号，不构建任何树：
+ * 调用方按需取出字符串、数字的值，或者只记下某个值在数组中的字节范围，之后再回来读取。
+ * 大文档的索引因此只需要保存偏移量，而不是整棵对象树。
+ *
+ * 按 RFC 8259 校验语法（逗号、冒号、括号配对、字符串转义、数字格式），格式错误时抛出 {@link JsonParseException}。
+ * 字符串中的字节不做UTF-8校验，非法序列在解码时替换为U+FFFD。
+ * 嵌套深度有上限，防止恶意构造的深层嵌套耗尽内存。
+ *
+ * 非线程安全，每个解析过程使用自己的实例。
+ */
+public final class JsonReader {
+
+    /**
+     * 记号类型
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY,
+        /** 对象的键 */
+        NAME,
+        STRING, NUMBER, TRUE, FALSE, NULL,
+        /** 文档结束 */
+        END
+    }
+
+    /** 最大嵌套深度 */
+    public static final int MAX_DEPTH = 512;
+
+    // 当前所在结构的状态
+    private static final byte EMPTY_DOCUMENT = 0;
+    private static final byte NONEMPTY_DOCUMENT = 1;
+    private static final byte EMPTY_ARRAY = 2;
+    private static final byte NONEMPTY_ARRAY = 3;
+    private static final byte EMPTY_OBJECT = 4;
+    private static final byte DANGLING_NAME = 5;
+    private static final byte NONEMPTY_OBJECT = 6;
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+
+    private final byte[] stack = new byte[MAX_DEPTH + 1];
+    private int depth;
+
+    private Token token;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean escaped;
+
+    /**
+     * 解析整个数组
+     */
+    public JsonReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    /**
+     * 解析数组中的一段，这一段必须恰好是一个完整的JSON值（前后可以有空白）
+     *
+     * @param from 起始偏移（含）
+     * @param to 结束偏移（不含）
+     */
+    public JsonReader(byte[] data, int from, int to) {
+        if (from < 0 || to > data.length || from > to) {
+            throw new IndexOutOfBoundsException("范围 [" + from + ", " + to + ") 超出长度 " + data.length);
+        }
+        this.data = data;
+        this.pos = from;
+        this.end = to;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * 读取下一个记号
+     */
+    public Token next() throws JsonParseException {
+        int c = skipWhitespace();
+        switch (stack[depth]) {
+            case EMPTY_DOCUMENT:
+                stack[depth] = NONEMPTY_DOCUMENT;
+                return value(c);
+            case NONEMPTY_DOCUMENT:
+                if (c != -1) throw error("文档结束后还有多余内容");
+                return set(Token.END, pos, pos);
+            case EMPTY_ARRAY:
+                if (c == ']') return close(Token.END_ARRAY);
+                stack[depth] = NONEMPTY_ARRAY;
+                return value(c);
+            case NONEMPTY_ARRAY:
+                if (c == ']') return close(Token.END_ARRAY);
+                if (c != ',') throw error("数组元素之间缺少逗号");
+                pos++;
+                return value(skipWhitespace());
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                if (c == '}') return close(Token.END_OBJECT);
+                if (stack[depth] == NONEMPTY_OBJECT) {
+                    if (c != ',') throw error("对象成员之间缺少逗号");
+                    pos++;
+                    c = skipWhitespace();
+                }
+                if (c != '"') throw error("对象的键必须是字符串");
+                string();
+                stack[depth] = DANGLING_NAME;
+                return token = Token.NAME;
+            case DANGLING_NAME:
+                if (c != ':') throw error("键之后缺少冒号");
+                pos++;
+                stack[depth] = NONEMPTY_OBJECT;
+                return value(skipWhitespace());
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private Token value(int c) throws JsonParseException {
+        switch (c) {
+            case '{':
+                return open(EMPTY_OBJECT, Token.BEGIN_OBJECT);
+            case '[':
+                return open(EMPTY_ARRAY, Token.BEGIN_ARRAY);
+            case '"':
+                string();
+                return token = Token.STRING;
+            case 't':
+                return literal("true", Token.TRUE);
+            case 'f':
+                return literal("false", Token.FALSE);
+            case 'n':
+                return literal("null", Token.NULL);
+            case -1:
+                throw error("意外的文档结尾");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return number();
+                throw error("意外的字符 '" + (char) c + "'");
+        }
+    }
+
+    private Token open(byte scope, Token t) throws JsonParseException {
+        if (depth == MAX_DEPTH) throw error("嵌套超过 " + MAX_DEPTH + " 层");
+        stack[++depth] = scope;
+        pos++;
+        return set(t, pos - 1, pos);
+    }
+
+    private Token close(Token t) {
+        depth--;
+        pos++;
+        return set(t, pos - 1, pos);
+    }
+
+    private Token set(Token t, int start, int stop) {
+        tokenStart = start;
+        tokenEnd = stop;
+        return token = t;
+    }
+
+    private Token literal(String word, Token t) throws JsonParseException {
+        int n = word.length();
+        if (end - pos < n) throw error("无效的字面量");
+        for (int i = 0; i < n; i++) {
+            if (data[pos + i] != word.charAt(i)) throw error("无效的字面量");
+        }
+        pos += n;
+        return set(t, pos - n, pos);
+    }
+
+    private Token number() throws JsonParseException {
+        int start = pos;
+        if (peek() == '-') pos++;
+        if (peek() == '0') {
+            pos++;
+        } else if (!digits()) {
+            throw error("无效的数字");
+        }
+        if (peek() == '.') {
+            pos++;
+            if (!digits()) throw error("小数点后缺少数字");
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            pos++;
+            if (peek() == '+' || peek() == '-') pos++;
+            if (!digits()) throw error("指数缺少数字");
+        }
+        return set(Token.NUMBER, start, pos);
+    }
+
+    private boolean digits() {
+        int start = pos;
+        while (pos < end && data[pos] >= '0' && data[pos] <= '9') pos++;
+        return pos > start;
+    }
+
+    private int peek() {
+        return pos < end ? data[pos] : -1;
+    }
+
+    /**
+     * 扫描字符串，记号范围包含两侧的引号
+     */
+    private void string() throws JsonParseException {
+        int start = pos++;
+        boolean hasEscape = false;
+        while (true) {
+            if (pos >= end) throw error("字符串没有结束");
+            byte b = data[pos];
+            if (b == '"') break;
+            if (b == '\\') {
+                hasEscape = true;
+                pos++;
+                if (pos >= end) throw error("字符串没有结束");
+                byte e = data[pos];
+                if (e == 'u') {
+                    if (end - pos < 5) throw error("无效的 \\u 转义");
+                    for (int i = 1; i <= 4; i++) {
+                        if (hex(data[pos + i]) < 0) throw error("无效的 \\u 转义");
+                    }
+                    pos += 4;
+                } else if ("\"\\/bfnrt".indexOf(e) < 0) {
+                    throw error("无效的转义字符");
+                }
+            } else if (b >= 0 && b < 0x20) {
+                throw error("字符串中有未转义的控制字符");
+            }
+            pos++;
+        }
+        pos++;
+        tokenStart = start;
+        tokenEnd = pos;
+        escaped = hasEscape;
+    }
+
+    private int skipWhitespace() {
+        while (pos < end) {
+            byte b = data[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') return b & 0xff;
+            pos++;
+        }
+        return -1;
+    }
+
+    private JsonParseException error(String message) {
+        return new JsonParseException(message, pos);
+    }
+
+    /**
+     * 跳过当前值：刚读到 BEGIN_OBJECT / BEGIN_ARRAY 时跳到配对的结束记号之后（当前记号随之变为结束记号），
+     * 读到其他值时什么也不做
+     */
+    public void skipValue() throws JsonParseException {
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY) return;
+        int target = depth - 1;
+        while (depth > target) {
+            if (next() == Token.END) throw error("意外的文档结尾");
+        }
+    }
+
+    /**
+     * 当前记号
+     */
+    public Token token() {
+        return token;
+    }
+
+    /**
+     * 当前记号的起始字节偏移；对象和数组的起始为左括号的位置，结束记号为右括号的位置
+     */
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * 当前记号的结束字节偏移（不含）；字符串包含右引号
+     */
+    public int tokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * 当前的嵌套深度（顶层值之外为0）
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * 当前 NAME / STRING 记号解码后的字符串，或 NUMBER / TRUE / FALSE / NULL 记号的原文
+     */
+    public String stringValue() {
+        if (token == Token.NAME || token == Token.STRING) {
+            return escaped ? unescape(data, tokenStart + 1, tokenEnd - 1)
+                    : new String(data, tokenStart + 1, tokenEnd - tokenStart - 2, StandardCharsets.UTF_8);
+        }
+        return new String(data, tokenStart, tokenEnd - tokenStart, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 解码字符串内容中的转义（字符串已经过校验）
+     */
+    private static String unescape(byte[] data, int from, int to) {
+        ByteArrayOutputStream utf8 = new ByteArrayOutputStream(to - from);
+        StringBuilder sb = new StringBuilder(to - from);
+        int i = from;
+        while (i < to) {
+            byte b = data[i];
+            if (b != '\\') {
+                utf8.write(b);
+                i++;
+                continue;
+            }
+            // 先把之前累积的UTF-8字节解码
+            if (utf8.size() > 0) {
+                sb.append(utf8.toString(StandardCharsets.UTF_8));
+                utf8.reset();
+            }
+            byte e = data[i + 1];
+            switch (e) {
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    sb.append((char) ((hex(data[i + 2]) << 12) | (hex(data[i + 3]) << 8)
+                            | (hex(data[i + 4]) << 4) | hex(data[i + 5])));
+                    i += 4;
+                    break;
+                default: sb.append((char) e);
+            }
+            i += 2;
+        }
+        if (utf8.size() > 0) sb.append(utf8.toString(StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') return b - '0';
+        if (b >= 'a' && b <= 'f') return b - 'a' + 10;
+        if (b >= 'A' && b <= 'F') return b - 'A' + 10;
+        return -1;
+    }
+
+    /**
+     * 把一段已校验的JSON去掉字符串之外的空白后写出
+     *
+     * @param from 起始偏移（含）
+     * @param to 结束偏移（不含）
+     */
+    public static void writeCompact(byte[] data, int from, int to, ByteArrayOutputStream out) {
+        boolean inString = false;
+        int run = from;
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (inString) {
+                if (b == '\\') i++;
+                else if (b == '"') inString = false;
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                out.write(data, run, i - run);
+                run = i + 1;
+            }
+        }
+        out.write(data, run, to - run);
+    }
+}
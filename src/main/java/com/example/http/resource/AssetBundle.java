@@ -0,0 +1,232 @@
+package com.example.http.resource;
+
+import com.example.http.http.MimeTypes;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 静态资源包
+ *
+ * 把整个静态资源目录打包成一个文件，服务器启动时整体内存映射，各资源的内容就是映射区域的切片：
+ * 启动时只打开一个文件，请求时没有任何文件打开或读取系统调用，部署时替换一个文件即可原子地更新全部资源。
+ *
+ * 文件格式（大端序）：
+ * <pre>
+ * 头部    magic "HTB1"(4) | 版本(4) | 资源数(4) | 索引长度(4)
+ * 索引    每个资源：路径长度(2) 路径(UTF-8) | 修改时间(8) | ETag长度(1) ETag(ASCII)
+ *                   | 内容偏移(8) 内容长度(4) | gzip偏移(8) gzip长度(4，-1表示没有)
+ * 数据    各资源的原始内容和gzip变体，偏移相对于数据区起点（头部+索引之后）
+ * </pre>
+ *
+ * 包在打包时一次生成，之后只读。单个包不超过 2GB（一次映射的上限）。
+ */
+public final class AssetBundle {
+
+    private static final int MAGIC = 0x48544231; // "HTB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 16;
+
+    /**
+     * 包中的一个资源
+     *
+     * @param path 已解码的URL路径，如"/index.html"
+     * @param lastModified 打包时文件的修改时间（毫秒）
+     * @param etag 按内容计算的强ETag（带引号）
+     * @param content 内容（只读切片）
+     * @param gzip gzip变体（只读切片），没有时为null
+     */
+    public record Entry(String path, long lastModified, String etag, ByteBuffer content, ByteBuffer gzip) { }
+
+    private final Path file;
+    private final List<Entry> entries;
+    private final long mappedBytes;
+
+    private AssetBundle(Path file, List<Entry> entries, long mappedBytes) {
+        this.file = file;
+        this.entries = entries;
+        this.mappedBytes = mappedBytes;
+    }
+
+    /**
+     * 映射并解析资源包
+     *
+     * @throws IOException 文件不存在、格式错误或超过 2GB
+     */
+    public static AssetBundle open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("资源包超过 2GB，无法整体映射: " + file);
+            // 映射在通道关闭后仍然有效
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer buf = mapped.asReadOnlyBuffer();
+        try {
+            if (buf.remaining() < HEADER_LENGTH || buf.getInt() != MAGIC) {
+                throw new IOException("不是资源包文件: " + file);
+            }
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("不支持的资源包版本 " + version + ": " + file);
+            int count = buf.getInt();
+            int indexLength = buf.getInt();
+            int dataStart = HEADER_LENGTH + indexLength;
+            if (count < 0 || indexLength < 0 || dataStart > buf.capacity()) {
+                throw new IOException("资源包头部损坏: " + file);
+            }
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String path = readString(buf, Short.toUnsignedInt(buf.getShort()), StandardCharsets.UTF_8);
+                long lastModified = buf.getLong();
+                String etag = readString(buf, Byte.toUnsignedInt(buf.get()), StandardCharsets.US_ASCII);
+                ByteBuffer content = slice(buf, dataStart, buf.getLong(), buf.getInt());
+                long gzipOffset = buf.getLong();
+                int gzipLength = buf.getInt();
+                ByteBuffer gzip = gzipLength < 0 ? null : slice(buf, dataStart, gzipOffset, gzipLength);
+                entries.add(new Entry(path, lastModified, etag, content, gzip));
+            }
+            return new AssetBundle(file, Collections.unmodifiableList(entries), buf.capacity());
+        } catch (RuntimeException e) {
+            // 越界等情况：文件被截断或不是本程序生成的
+            throw new IOException("资源包损坏: " + file + " (" + e + ")", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buf, int length, java.nio.charset.Charset charset) {
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int dataStart, long offset, int length) throws IOException {
+        long start = dataStart + offset;
+        if (offset < 0 || length < 0 || start + length > buf.capacity()) {
+            throw new IOException("资源包数据区越界: 偏移 " + offset + " 长度 " + length);
+        }
+        return buf.slice((int) start, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * 资源包文件
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * 包中的全部资源
+     */
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    /**
+     * 映射的字节数
+     */
+    public long mappedBytes() {
+        return mappedBytes;
+    }
+
+    /**
+     * 打包目录下的全部文件
+     *
+     * 先写入同目录下的临时文件，完成后原子地替换目标文件，正在运行的服务器映射的旧包不受影响。
+     *
+     * @param root 静态资源目录
+     * @param output 资源包文件
+     * @param gzipMinSize 不小于这个字节数的文本类资源附带gzip变体（压缩后缩小不到10%的不附带）；为负数表示不附带
+     * @return 打包的资源数
+     */
+    public static int pack(Path root, Path output, int gzipMinSize) throws IOException {
+        Path base = root.toAbsolutePath().normalize();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(base)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        // 数据区先写入临时文件，同时生成索引；索引各字段长度固定，偏移相对于数据区，不依赖索引自身的长度
+        Path target = output.toAbsolutePath();
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path data = Files.createTempFile(dir, target.getFileName().toString(), ".data");
+        Path packed = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+            DataOutputStream index = new DataOutputStream(indexBytes);
+            long offset = 0;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(data), 64 * 1024)) {
+                for (Path file : files) {
+                    String urlPath = "/" + base.relativize(file).toString().replace('\\', '/');
+                    byte[] path = urlPath.getBytes(StandardCharsets.UTF_8);
+                    if (path.length > 0xFFFF) throw new IOException("路径过长: " + urlPath);
+                    byte[] content = Files.readAllBytes(file);
+                    byte[] etag = FileMetadataCache.computeETag(content).getBytes(StandardCharsets.US_ASCII);
+                    byte[] gzip = null;
+                    if (gzipMinSize >= 0 && content.length >= gzipMinSize
+                            && CompressionCache.isCompressibleType(MimeTypes.get(urlPath))) {
+                        byte[] compressed = CompressionCache.compress(content, CompressionCache.GZIP);
+                        if (compressed.length < content.length * 0.9) gzip = compressed;
+                    }
+
+                    index.writeShort(path.length);
+                    index.write(path);
+                    index.writeLong(Files.getLastModifiedTime(file).toMillis());
+                    index.writeByte(etag.length);
+                    index.write(etag);
+                    index.writeLong(offset);
+                    index.writeInt(content.length);
+                    out.write(content);
+                    offset += content.length;
+                    if (gzip != null) {
+                        index.writeLong(offset);
+                        index.writeInt(gzip.length);
+                        out.write(gzip);
+                        offset += gzip.length;
+                    } else {
+                        index.writeLong(0);
+                        index.writeInt(-1);
+                    }
+                    if (HEADER_LENGTH + indexBytes.size() + offset > Integer.MAX_VALUE) {
+                        throw new IOException("资源总大小超过 2GB，无法打包为一个资源包");
+                    }
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(packed), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(files.size());
+                out.writeInt(indexBytes.size());
+                indexBytes.writeTo(out);
+                Files.copy(data, out);
+            }
+            Files.move(packed, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(data);
+            Files.deleteIfExists(packed);
+        }
+        return files.size();
+    }
+
+    @Override
+    public String toString() {
+        return file + " (" + entries.size() + " 个资源, " + mappedBytes + " 字节)";
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.http.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态资源压缩变体缓存
+ *
+ * 按（文件，修改时间，编码）缓存压缩后的字节，文件被修改后修改时间变化，旧变体不再命中，随LRU淘汰。
+ * - 文件旁存在更新的预压缩文件（如 umas.json.gz）时，gzip 变体直接读取它，不做压缩；并发的读取合并为一次
+ * - 否则第一次请求时把压缩任务交给后台线程，本次先返回未压缩内容，不让请求线程承担压缩开销
+ * - 压缩后缩小不到 10% 的文件记为"不值得压缩"，之后直接返回未压缩内容
+ * - 缓存总字节数有上限，超出时淘汰最久未使用的变体
+ *
+ * 线程安全。
+ */
+public final class CompressionCache {
+
+    /** 支持的编码，按优先级排列 */
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    /** 压缩后不够小时缓存的占位值 */
+    private static final byte[] NOT_WORTH = new byte[0];
+
+    private record Key(Path file, long lastModified, String encoding) { }
+
+    private final int minSize;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+    private final Set<Key> pending = ConcurrentHashMap.newKeySet();
+    private final SingleFlight<Key, byte[]> precompressedReads = new SingleFlight<>();
+    private final ExecutorService compressor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong precompressed = new AtomicLong();
+
+    /**
+     * @param minSize 小于这个字节数的文件不压缩
+     * @param maxBytes 缓存的压缩变体总字节数上限
+     */
+    public CompressionCache(int minSize, long maxBytes) {
+        this.minSize = minSize;
+        this.maxBytes = maxBytes;
+        // 单个后台线程，队列满（大量不同文件同时首次访问）时丢弃任务，下次请求再提交
+        this.compressor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(256), r -> {
+                    Thread t = new Thread(r, "http-compressor");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 判断某个内容类型、大小的资源是否参与压缩协商
+     *
+     * 图片、PDF等本身已压缩的格式不再压缩。参与协商的响应都要带 Vary: Accept-Encoding。
+     */
+    public boolean isCompressible(String contentType, long size) {
+        return size >= minSize && isCompressibleType(contentType);
+    }
+
+    /**
+     * 判断某个内容类型是否值得压缩（文本类），不考虑大小
+     */
+    public static boolean isCompressibleType(String contentType) {
+        if (contentType == null) return false;
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.startsWith("application/json")
+                || type.startsWith("application/javascript")
+                || type.startsWith("application/xml")
+                || type.startsWith("image/svg+xml");
+    }
+
+    /**
+     * 按 Accept-Encoding 选择编码
+     *
+     * 支持 q 值（q=0 表示不接受）和通配符 *，同等 q 值时优先 gzip。
+     *
+     * @param acceptEncoding 请求的 Accept-Encoding 头部，可为null
+     * @return {@link #GZIP}、{@link #DEFLATE}，或 null 表示使用原始内容
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+        double gzip = -1, deflate = -1, any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String coding = part.trim();
+            double q = 1.0;
+            int semicolon = coding.indexOf(';');
+            if (semicolon >= 0) {
+                String params = coding.substring(semicolon + 1).trim();
+                coding = coding.substring(0, semicolon).trim();
+                if (params.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(params.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding.toLowerCase(Locale.ROOT)) {
+                case GZIP, "x-gzip" -> gzip = q;
+                case DEFLATE -> deflate = q;
+                case "*" -> any = q;
+                default -> { }
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip <= 0 && deflate <= 0) return null;
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * 获取压缩变体
+     *
+     * 未命中时：gzip 有预压缩文件则同步读取；否则提交后台压缩并返回null，调用方本次返回原始内容。
+     *
+     * @param file 文件
+     * @param lastModified 文件修改时间（毫秒）
+     * @param encoding 编码，{@link #GZIP} 或 {@link #DEFLATE}
+     * @return 压缩后的字节，没有可用变体时返回null
+     */
+    public byte[] get(Path file, long lastModified, String encoding) {
+        Key key = new Key(file, lastModified, encoding);
+        byte[] cached;
+        synchronized (this) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached == NOT_WORTH ? null : cached;
+        }
+        misses.incrementAndGet();
+        if (GZIP.equals(encoding)) {
+            byte[] gz = loadPrecompressed(key);
+            if (gz != null) {
+                return gz;
+            }
+        }
+        if (pending.add(key)) {
+            try {
+                compressor.execute(() -> {
+                    try {
+                        compressInBackground(key);
+                    } finally {
+                        pending.remove(key);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pending.remove(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只查询已缓存的压缩变体，未命中时不读文件、不提交压缩（用于HEAD请求）
+     *
+     * @return 压缩后的字节，未缓存或不值得压缩时返回null
+     */
+    public byte[] peek(Path file, long lastModified, String encoding) {
+        byte[] cached;
+        synchronized (this) {
+            cached = cache.get(new Key(file, lastModified, encoding));
+        }
+        return cached == null || cached == NOT_WORTH ? null : cached;
+    }
+
+    /**
+     * 读取预压缩文件并放入缓存；同一变体的并发未命中只读一次文件
+     */
+    private byte[] loadPrecompressed(Key key) {
+        try {
+            return precompressedReads.load(key, () -> {
+                // 排队等锁期间可能已经有人放进了缓存
+                synchronized (this) {
+                    byte[] cached = cache.get(key);
+                    if (cached != null) return cached == NOT_WORTH ? null : cached;
+                }
+                byte[] gz = readPrecompressed(key.file(), key.lastModified());
+                if (gz != null) {
+                    precompressed.incrementAndGet();
+                    put(key, gz);
+                }
+                return gz;
+            });
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 读取文件旁的 .gz 预压缩文件，不存在或比原文件旧时返回null
+     */
+    private static byte[] readPrecompressed(Path file, long lastModified) {
+        Path gz = file.resolveSibling(file.getFileName() + ".gz");
+        try {
+            if (!Files.isRegularFile(gz) || Files.getLastModifiedTime(gz).toMillis() < lastModified) return null;
+            return Files.readAllBytes(gz);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void compressInBackground(Key key) {
+        try {
+            // 排队期间文件可能又被修改，按新的修改时间压缩只会产生一个永远不被命中的变体
+            if (Files.getLastModifiedTime(key.file()).toMillis() != key.lastModified()) return;
+            byte[] original = Files.readAllBytes(key.file());
+            byte[] compressed = compress(original, key.encoding());
+            put(key, compressed.length < original.length * 0.9 ? compressed : NOT_WORTH);
+        } catch (IOException e) {
+            System.err.println("[压缩] 压缩 " + key.file() + " 失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按编码压缩数据
+     *
+     * @param data 原始数据
+     * @param encoding {@link #GZIP} 或 {@link #DEFLATE}（zlib 格式，RFC 1950）
+     */
+    public static byte[] compress(byte[] data, String encoding) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        if (GZIP.equals(encoding)) {
+            // 结果会被缓存复用，压缩级别取最高
+            try (OutputStream out = new GZIPOutputStream(bos, 8192) {
+                { def.setLevel(Deflater.BEST_COMPRESSION); }
+            }) {
+                out.write(data);
+            }
+        } else {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try (OutputStream out = new DeflaterOutputStream(bos, deflater, 8192)) {
+                out.write(data);
+            } finally {
+                deflater.end();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private synchronized void put(Key key, byte[] value) {
+        byte[] old = cache.put(key, value);
+        if (old != null) cachedBytes -= old.length;
+        cachedBytes += value.length;
+        Iterator<Map.Entry<Key, byte[]>> it = cache.entrySet().iterator();
+        while (cachedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Key, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            cachedBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * 停止后台压缩线程
+     */
+    public void shutdown() {
+        compressor.shutdownNow();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "{entries=" + cache.size() + ", bytes=" + cachedBytes + ", hits=" + hits.get()
+                + ", misses=" + misses.get() + ", precompressed=" + precompressed.get()
+                + ", pending=" + pending.size() + ", precompressedReads=" + precompressedReads + "}";
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.http.resource;
+
+import java.nio.file.Path;
+
+/**
+ * 静态文件某个版本的元数据
+ *
+ * @param file 文件路径
+ * @param size 文件大小（字节）
+ * @param lastModified 修改时间（毫秒）
+ * @param etag 按内容计算的强 ETag（带引号），内容不变时即使修改时间变化也保持不变
+ */
+public record FileMetadata(Path file, long size, long lastModified, String etag) {
+
+    /**
+     * 某个内容编码变体的 ETag
+     *
+     * 同一内容的 gzip 和原始字节是不同的表示，强 ETag 必须不同：在引号内追加编码名，如 "abc123-gzip"。
+     *
+     * @param encoding 内容编码，null 表示原始内容
+     */
+    public String etag(String encoding) {
+        if (encoding == null) return etag;
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+}
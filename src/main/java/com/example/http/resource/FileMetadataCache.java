@@ -0,0 +1,135 @@
+package com.example.http.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 静态文件元数据缓存
+ *
+ * 每次查询只做一次 stat：大小和修改时间都与缓存一致时直接返回，
+ * 否则重新读取文件计算内容哈希，作为这个版本的强 ETag。
+ * 重新部署时修改时间变了但内容没变，ETag 保持不变，客户端的条件请求仍然可以得到304。
+ * 同一文件同一版本的并发哈希计算合并为一次（{@link SingleFlight}）。
+ *
+ * 线程安全。
+ */
+public final class FileMetadataCache {
+
+    private final ConcurrentHashMap<Path, FileMetadata> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hashed = new AtomicLong();
+
+    /** 按（文件，大小，修改时间）合并并发的哈希计算 */
+    private record Version(Path file, long size, long lastModified) { }
+    private final SingleFlight<Version, FileMetadata> hashing = new SingleFlight<>();
+
+    /**
+     * 获取文件当前版本的元数据
+     *
+     * @param file 文件路径
+     * @return 元数据
+     * @throws IOException 文件不存在或读取失败
+     */
+    public FileMetadata get(Path file) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        FileMetadata cached = cache.get(file);
+        if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            return cached;
+        }
+        return hashing.load(new Version(file, size, lastModified), () -> {
+            FileMetadata metadata = new FileMetadata(file, size, lastModified, computeETag(file));
+            hashed.incrementAndGet();
+            cache.put(file, metadata);
+            return metadata;
+        });
+    }
+
+    /**
+     * 按内容计算强 ETag：SHA-256 的前 16 字节，Base64URL 编码
+     */
+    public static String computeETag(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return toETag(digest.digest());
+    }
+
+    /**
+     * 按内存中的内容计算强 ETag，与 {@link #computeETag(Path)} 结果一致
+     */
+    public static String computeETag(byte[] content) {
+        return toETag(sha256().digest(content));
+    }
+
+    private static String toETag(byte[] hash) {
+        byte[] prefix = java.util.Arrays.copyOf(hash, 16);
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(prefix) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM 不支持 SHA-256", e);
+        }
+    }
+
+    /**
+     * 判断 If-None-Match 是否命中
+     *
+     * If-None-Match 使用弱比较（RFC 7232 2.3.2）：忽略 W/ 前缀，只比较引号内的值。
+     * 头部可以是 "*" 或逗号分隔的多个 ETag。
+     *
+     * @param ifNoneMatch If-None-Match 头部
+     * @param etag 当前表示的 ETag
+     */
+    public static boolean weakMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || stripWeak(value).equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 只保留给定文件的元数据，其余（已删除的文件）丢弃
+     */
+    public void retain(Collection<Path> files) {
+        cache.keySet().retainAll(files instanceof Set ? files : new HashSet<>(files));
+    }
+
+    /**
+     * 缓存的文件数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "{files=" + cache.size() + ", hashed=" + hashed.get() + "}";
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.http.resource;
+
+import com.example.http.http.HttpRequest;
+import com.example.http.http.HttpStatus;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * 条件请求判断（RFC 7232 第6节）
+ *
+ * 只依赖请求头和缓存的元数据（修改时间、ETag），在读取任何文件内容之前得出结论：
+ * 1. If-Match：没有一个强匹配则412（"*" 在资源存在时总是匹配）
+ * 2. 没有 If-Match 时看 If-Unmodified-Since：资源在该时间之后被修改则412
+ * 3. If-None-Match：弱匹配命中时，GET/HEAD 返回304，其他方法返回412
+ * 4. 没有 If-None-Match 时，GET/HEAD 看 If-Modified-Since：之后没有修改则304
+ *
+ * HTTP日期只精确到秒，比较前修改时间按秒截断。
+ */
+public final class Preconditions {
+
+    /**
+     * 判断结果
+     *
+     * @param status 应直接返回的状态码（304或412）
+     * @param etag 304响应应带的ETag（客户端缓存的那个表示的ETag）
+     */
+    public record Outcome(HttpStatus status, String etag) { }
+
+    private Preconditions() {
+    }
+
+    /**
+     * @param req 请求
+     * @param metadata 资源当前版本的元数据
+     * @param variantETag 本次响应会发送的编码变体的ETag；没有协商出编码、或变体尚未压缩好（本次发原始内容）时为null
+     * @param parseDate HTTP日期解析函数，无法解析时返回-1
+     * @return 需要直接返回的结果；条件都成立（应正常返回资源）时返回null
+     */
+    public static Outcome evaluate(HttpRequest req, FileMetadata metadata, String variantETag,
+                                   ToLongFunction<String> parseDate) {
+        long lastModifiedSeconds = metadata.lastModified() / 1000;
+
+        String ifMatch = req.headerFirst("if-match");
+        if (ifMatch != null) {
+            if (!strongMatch(ifMatch, metadata.etag()) && (variantETag == null || !strongMatch(ifMatch, variantETag))) {
+                return new Outcome(HttpStatus.PRECONDITION_FAILED, null);
+            }
+        } else {
+            String ifUnmodifiedSince = req.headerFirst("if-unmodified-since");
+            if (ifUnmodifiedSince != null) {
+                long since = parseDate.applyAsLong(ifUnmodifiedSince);
+                if (since >= 0 && lastModifiedSeconds > since / 1000) {
+                    return new Outcome(HttpStatus.PRECONDITION_FAILED, null);
+                }
+            }
+        }
+
+        boolean safe = "GET".equalsIgnoreCase(req.method()) || "HEAD".equalsIgnoreCase(req.method());
+        String ifNoneMatch = req.headerFirst("if-none-match");
+        if (ifNoneMatch != null) {
+            // 客户端缓存的可能是原始内容，也可能是协商出的压缩变体，两者是同一版本内容，命中任一即可
+            String matched = null;
+            if (FileMetadataCache.weakMatch(ifNoneMatch, metadata.etag())) {
+                matched = metadata.etag();
+            } else if (variantETag != null && FileMetadataCache.weakMatch(ifNoneMatch, variantETag)) {
+                matched = variantETag;
+            }
+            if (matched != null) {
+                return new Outcome(safe ? HttpStatus.NOT_MODIFIED : HttpStatus.PRECONDITION_FAILED, matched);
+            }
+        } else if (safe) {
+            String ifModifiedSince = req.headerFirst("if-modified-since");
+            if (ifModifiedSince != null) {
+                long since = parseDate.applyAsLong(ifModifiedSince);
+                if (since >= 0 && lastModifiedSeconds <= since / 1000) {
+                    return new Outcome(HttpStatus.NOT_MODIFIED, variantETag != null ? variantETag : metadata.etag());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If-Match 使用强比较：带 W/ 的弱ETag永远不匹配
+     */
+    static boolean strongMatch(String ifMatch, String etag) {
+        for (String candidate : ifMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag)) return true;
+        }
+        return false;
+    }
+}
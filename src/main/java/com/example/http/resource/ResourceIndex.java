@@ -0,0 +1,542 @@
+package com.example.http.resource;
+
+import com.example.http.http.HttpDate;
+import com.example.http.http.MimeTypes;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 静态资源索引
+ *
+ * 启动时扫描静态资源目录，建立"已解码URL路径 -> {@link StaticResource}"的不可变Map，
+ * 请求处理时查找资源只需一次哈希查找，不做 resolve/normalize，也没有 exists/isRegularFile 等系统调用。
+ * 只有索引中的路径会被返回，"../"之类的路径天然无法越出目录。
+ *
+ * 目录变化由后台线程通过 WatchService 感知，重新扫描后整体替换索引（volatile 引用，读取方无锁）。
+ * 重新扫描时大小和修改时间都没变的文件沿用原有元数据，不重新计算内容哈希。
+ * 文件变化到索引更新之间有短暂延迟；服务器自己写入的文件（如上传）应调用 {@link #update} 立即生效。
+ * 重新扫描的结果与当前索引相同时（如变化已由 {@link #update} 登记），不替换索引，也不通知监听器。
+ *
+ * 资源指纹：HTML以外的每个文件除原路径外，还以带内容哈希的路径登记，如 /hello.txt 同时登记为 /hello.rB6PAkpbIX.txt。
+ * 内容变化时指纹随之变化，因此带指纹的URL可以永久缓存（{@link #IMMUTABLE}）；
+ * HTML中指向这些文件的 href/src 链接在建索引时改写为带指纹的URL，改写结果保存在内存中。
+ * HTML本身是入口，URL不变，每次都要向服务器验证（ETag命中时只是一个304），才能及时拿到新的指纹链接。
+ * 静态资源都要登录后才能访问，缓存策略一律带 private：只允许浏览器缓存，CDN和共享代理不得保存，
+ * 否则一个已登录用户的响应会被原样提供给任何人。
+ *
+ * 索引也可以由资源包 {@link AssetBundle} 建立（{@link #openBundle}）：资源内容是映射区域的切片，
+ * 请求时不打开任何文件。资源包只读，这种索引不监视变化，{@link #refresh()} 和 {@link #update} 不做任何事。
+ */
+public final class ResourceIndex implements AutoCloseable {
+
+    /** 收到目录变化事件后等待的时间，把一次部署中的大量事件合并为一次重建 */
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    /** 带指纹的URL：内容变化URL就变化，可以永久缓存 */
+    public static final String IMMUTABLE = "private, max-age=31536000, immutable";
+
+    /** HTML入口页面：可以缓存，但每次使用前都要验证 */
+    public static final String REVALIDATE = "private, no-cache";
+
+    /** 其他未带指纹的URL：内容可能随时变化，只缓存很短的时间 */
+    public static final String SHORT_LIVED = "private, max-age=300";
+
+    /** 指纹取ETag哈希的前几个字符 */
+    private static final int FINGERPRINT_LENGTH = 10;
+
+    /** HTML中以"/"开头的 href/src 链接，分组：属性名和等号、引号、路径、查询串或片段 */
+    private static final Pattern LINK = Pattern.compile(
+            "(\\b(?:href|src)\\s*=\\s*)([\"'])(/[^\"'?#]*)([^\"']*)\\2", Pattern.CASE_INSENSITIVE);
+
+    private final Path root;
+    private final AssetBundle bundle;
+    private final CompressionCache compressionCache;
+    private final FileMetadataCache metadataCache = new FileMetadataCache();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final SingleFlight<FileMetadata, byte[]> reads = new SingleFlight<>();
+    /** 已请求的重建次数 / 已完成的重建覆盖到的请求序号，用于合并并发的 refresh()，由 refreshLock 保护 */
+    private final Object refreshLock = new Object();
+    private long refreshRequested;
+    private long refreshCompleted;
+    private volatile Map<String, StaticResource> entries = Map.of();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private WatchService watchService;
+
+    /**
+     * @param root 静态资源目录或资源包文件
+     * @param bundle 资源包，为null表示读取目录
+     * @param compressionCache 压缩变体缓存，用于判断资源是否参与压缩协商；为null表示不压缩
+     */
+    private ResourceIndex(Path root, AssetBundle bundle, CompressionCache compressionCache) {
+        this.root = root.toAbsolutePath().normalize();
+        this.bundle = bundle;
+        this.compressionCache = compressionCache;
+    }
+
+    /**
+     * 扫描目录建立索引
+     *
+     * @param root 静态资源目录，不存在时会被创建
+     * @param compressionCache 压缩变体缓存，为null表示不压缩
+     * @param watch 是否启动后台线程监视目录变化
+     */
+    public static ResourceIndex open(Path root, CompressionCache compressionCache, boolean watch) throws IOException {
+        ResourceIndex index = new ResourceIndex(root, null, compressionCache);
+        Files.createDirectories(index.root);
+        index.refresh();
+        if (watch) {
+            index.startWatching();
+        }
+        return index;
+    }
+
+    /**
+     * 由资源包建立索引
+     *
+     * @param bundleFile 资源包文件（由 {@link AssetBundle#pack} 生成）
+     * @param compressionCache 用于判断资源是否参与压缩协商，为null表示不压缩；资源包中的内容不经过它压缩
+     */
+    public static ResourceIndex openBundle(Path bundleFile, CompressionCache compressionCache) throws IOException {
+        ResourceIndex index = new ResourceIndex(bundleFile, AssetBundle.open(bundleFile), compressionCache);
+        index.loadBundle();
+        return index;
+    }
+
+    /**
+     * 按已解码的URL路径查找资源
+     *
+     * @param urlPath 如"/index.html"
+     * @return 资源，不存在时返回null
+     */
+    public StaticResource get(String urlPath) {
+        return entries.get(urlPath);
+    }
+
+    /**
+     * 当前索引中的资源数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 当前索引中全部资源的URL路径（含带指纹的路径），为某一时刻的快照
+     */
+    public Set<String> paths() {
+        return entries.keySet();
+    }
+
+    /**
+     * 静态资源目录或资源包文件（绝对路径）
+     */
+    public Path root() {
+        return root;
+    }
+
+    /**
+     * 读取文件资源的内容
+     *
+     * 同一文件同一版本（元数据相同）的并发读取合并为一次，所有请求共享读到的数组。
+     *
+     * @return 文件内容，调用方不能修改
+     */
+    public byte[] read(StaticResource resource) throws IOException {
+        FileMetadata metadata = resource.metadata();
+        return reads.load(metadata, () -> Files.readAllBytes(metadata.file()));
+    }
+
+    /**
+     * 登记索引变化的监听器：每次重新扫描目录、替换索引之后，在执行扫描的线程上调用；
+     * {@link #update} 不通知监听器
+     *
+     * 监听器不应阻塞（耗时的处理应交给自己的线程），抛出的异常被记录后忽略。
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 立即重新扫描目录并替换索引；由资源包建立的索引不做任何事
+     *
+     * 返回时，调用之前写入目录的文件一定已在索引中。多个线程同时调用（如并发上传）时，
+     * 排队等待期间已被另一次扫描覆盖的调用直接返回，不重复扫描。
+     */
+    public void refresh() throws IOException {
+        if (bundle != null) return;
+        long ticket;
+        synchronized (refreshLock) {
+            ticket = ++refreshRequested;
+        }
+        synchronized (this) {
+            long covered;
+            synchronized (refreshLock) {
+                if (refreshCompleted >= ticket) return;
+                // 扫描在此之后开始，能看到这之前所有请求者写入的文件
+                covered = refreshRequested;
+            }
+            rebuild();
+            synchronized (refreshLock) {
+                refreshCompleted = covered;
+            }
+        }
+    }
+
+    /**
+     * 只重新登记指定的资源（如刚上传的文件），不扫描整个目录
+     *
+     * 逐个查看文件的当前状态：存在的新增或更新（连同指纹路径），已不存在的删除，其余索引项原样沿用。
+     * HTML以外的资源有变化时，页面中的指纹链接随之过时，所有HTML页面重新改写；否则页面不动。
+     * 不通知监听器：调用方知道变化了什么，应自行增量处理（如全文检索的 update）。
+     * 由资源包建立的索引不做任何事。
+     *
+     * @param urlPaths 已解码的URL路径，如"/a.txt"
+     * @return 索引项有变化的URL路径（不含指纹路径），包括链接被重新改写的HTML页面
+     */
+    public Set<String> update(Collection<String> urlPaths) throws IOException {
+        if (bundle != null) return Set.of();
+        synchronized (this) {
+            Map<String, StaticResource> next = new HashMap<>(entries);
+            Function<String, StaticResource> assets = path -> asset(next.get(path));
+            Set<String> changed = new LinkedHashSet<>();
+            boolean assetsChanged = false;
+            for (String urlPath : urlPaths) {
+                Path file = root.resolve(urlPath.substring(1)).normalize();
+                if (!file.startsWith(root) || file.equals(root)) continue;
+                FileMetadata metadata = null;
+                if (Files.isRegularFile(file)) {
+                    try {
+                        metadata = metadataCache.get(file);
+                    } catch (IOException e) {
+                        // 刚被删除，按删除处理
+                    }
+                }
+                StaticResource old = next.get(urlPath);
+                String mime = MimeTypes.get(urlPath);
+                if (isHtml(mime)) {
+                    StaticResource page = metadata == null ? null : htmlEntry(urlPath, metadata, old, assets);
+                    if (page == old) continue;
+                    if (page != null) {
+                        next.put(urlPath, page);
+                    } else {
+                        next.remove(urlPath);
+                    }
+                    changed.add(urlPath);
+                    continue;
+                }
+                if (asset(old) != null) {
+                    if (old.metadata().equals(metadata)) continue;
+                    next.remove(urlPath);
+                    String oldFingerprint = fingerprint(urlPath, old.metadata().etag());
+                    StaticResource alias = next.get(oldFingerprint);
+                    if (alias != null && IMMUTABLE.equals(alias.cacheControl())) next.remove(oldFingerprint);
+                } else if (metadata == null) {
+                    continue;
+                }
+                if (metadata != null) {
+                    // 同名的真实文件优先于指纹路径
+                    StaticResource resource = newResource(urlPath, metadata, mime, SHORT_LIVED, null);
+                    next.put(urlPath, resource);
+                    next.putIfAbsent(fingerprint(urlPath, metadata.etag()), resource.withUrl(
+                            fingerprint(urlPath, metadata.etag()), IMMUTABLE));
+                }
+                changed.add(urlPath);
+                assetsChanged = true;
+            }
+            if (assetsChanged) {
+                for (StaticResource old : List.copyOf(next.values())) {
+                    if (!isHtml(old.mimeType()) || changed.contains(old.urlPath())) continue;
+                    try {
+                        StaticResource page = htmlEntry(old.urlPath(), metadataCache.get(old.metadata().file()), old, assets);
+                        if (page != old) {
+                            next.put(old.urlPath(), page);
+                            changed.add(old.urlPath());
+                        }
+                    } catch (IOException e) {
+                        // 页面本身的变化留给目录监视线程的重新扫描
+                        System.err.println("[资源索引] 跳过 " + old.metadata().file() + ": " + e.getMessage());
+                    }
+                }
+            }
+            if (!changed.isEmpty()) {
+                entries = Map.copyOf(next);
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * HTML链接可以改写到的资源：真实存在的非HTML文件，指纹路径本身除外
+     */
+    private static StaticResource asset(StaticResource resource) {
+        if (resource == null || IMMUTABLE.equals(resource.cacheControl()) || isHtml(resource.mimeType())) return null;
+        return resource;
+    }
+
+    private void rebuild() throws IOException {
+        Map<String, StaticResource> previous = entries;
+        Map<String, StaticResource> next = new HashMap<>(Math.max(16, previous.size() * 2));
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        // 先登记HTML以外的文件及其指纹，HTML改写链接时要用到
+        Map<String, StaticResource> fingerprinted = new HashMap<>();
+        List<FileMetadata> pages = new ArrayList<>();
+        for (Path file : files) {
+            String urlPath = "/" + root.relativize(file).toString().replace('\\', '/');
+            FileMetadata metadata;
+            try {
+                metadata = metadataCache.get(file);
+            } catch (IOException e) {
+                // 扫描过程中文件被删除等情况，跳过即可，下次变化时还会重新扫描
+                System.err.println("[资源索引] 跳过 " + file + ": " + e.getMessage());
+                continue;
+            }
+            String mime = MimeTypes.get(urlPath);
+            if (isHtml(mime)) {
+                pages.add(metadata);
+                continue;
+            }
+            StaticResource old = previous.get(urlPath);
+            StaticResource resource = old != null && old.metadata().equals(metadata) ? old
+                    : newResource(urlPath, metadata, mime, SHORT_LIVED, null);
+            next.put(urlPath, resource);
+            String fingerprint = fingerprint(urlPath, metadata.etag());
+            StaticResource oldFingerprinted = previous.get(fingerprint);
+            fingerprinted.put(urlPath, oldFingerprinted != null && oldFingerprinted.metadata().equals(metadata)
+                    ? oldFingerprinted : resource.withUrl(fingerprint, IMMUTABLE));
+        }
+        // 同名的真实文件优先于指纹路径
+        fingerprinted.values().forEach(r -> next.putIfAbsent(r.urlPath(), r));
+        for (FileMetadata metadata : pages) {
+            String urlPath = "/" + root.relativize(metadata.file()).toString().replace('\\', '/');
+            try {
+                next.put(urlPath, htmlEntry(urlPath, metadata, previous.get(urlPath), fingerprinted::get));
+            } catch (IOException e) {
+                System.err.println("[资源索引] 跳过 " + metadata.file() + ": " + e.getMessage());
+            }
+        }
+        metadataCache.retain(files);
+        rebuilds.incrementAndGet();
+        // 没有变化的索引项沿用原对象，结果相同说明变化已登记过（update），不必替换、通知
+        if (next.equals(previous)) return;
+        entries = Map.copyOf(next);
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("[资源索引] 监听器出错: " + e);
+            }
+        }
+    }
+
+    /**
+     * 由资源包建立索引，规则与扫描目录相同：HTML以外的资源登记原路径和指纹路径，HTML改写链接
+     */
+    private void loadBundle() {
+        Map<String, StaticResource> next = new HashMap<>();
+        Map<String, StaticResource> fingerprinted = new HashMap<>();
+        List<AssetBundle.Entry> pages = new ArrayList<>();
+        for (AssetBundle.Entry entry : bundle.entries()) {
+            String mime = MimeTypes.get(entry.path());
+            if (isHtml(mime)) {
+                pages.add(entry);
+                continue;
+            }
+            StaticResource resource = bundleResource(entry, mime, SHORT_LIVED);
+            next.put(entry.path(), resource);
+            fingerprinted.put(entry.path(),
+                    resource.withUrl(fingerprint(entry.path(), entry.etag()), IMMUTABLE));
+        }
+        fingerprinted.values().forEach(r -> next.putIfAbsent(r.urlPath(), r));
+        for (AssetBundle.Entry entry : pages) {
+            String mime = MimeTypes.get(entry.path());
+            StaticResource resource = bundleResource(entry, mime, REVALIDATE);
+            ByteBuffer content = entry.content().duplicate();
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            StaticResource page = page(entry.path(), resource.metadata(),
+                    new String(bytes, StandardCharsets.UTF_8), null, fingerprinted::get);
+            next.put(entry.path(), page != null ? page : resource);
+        }
+        entries = Map.copyOf(next);
+        rebuilds.incrementAndGet();
+    }
+
+    /**
+     * 读取HTML文件建立页面的索引项：有可改写的链接时为改写后的内容，否则直接读文件
+     *
+     * @param old 原有的索引项，内容没变时原样返回
+     */
+    private StaticResource htmlEntry(String urlPath, FileMetadata metadata, StaticResource old,
+                                     Function<String, StaticResource> fingerprinted) throws IOException {
+        String html = Files.readString(metadata.file(), StandardCharsets.UTF_8);
+        StaticResource page = page(urlPath, metadata, html, old, fingerprinted);
+        if (page != null) return page;
+        return old != null && old.metadata().equals(metadata) && !old.inMemory() ? old
+                : newResource(urlPath, metadata, MimeTypes.get(urlPath), REVALIDATE, null);
+    }
+
+    private StaticResource bundleResource(AssetBundle.Entry entry, String mime, String cacheControl) {
+        FileMetadata metadata = new FileMetadata(bundle.file(), entry.content().remaining(),
+                entry.lastModified(), entry.etag());
+        boolean compressible = compressionCache != null && compressionCache.isCompressible(mime, metadata.size());
+        return new StaticResource(entry.path(), metadata, mime, compressible,
+                HttpDate.format(metadata.lastModified()), cacheControl, entry.content(), entry.gzip(), null);
+    }
+
+    /**
+     * @param content 内存中的内容，为null表示从文件读取
+     */
+    private StaticResource newResource(String urlPath, FileMetadata metadata, String mime,
+                                       String cacheControl, byte[] content) {
+        boolean compressible = compressionCache != null && compressionCache.isCompressible(mime, metadata.size());
+        String lastModified = HttpDate.format(metadata.lastModified());
+        if (content != null) {
+            return StaticResource.inMemory(urlPath, metadata, mime, compressible, lastModified, cacheControl, content);
+        }
+        return new StaticResource(urlPath, metadata, mime, compressible, lastModified, cacheControl, null, null, null);
+    }
+
+    /**
+     * 建立HTML页面的索引项，把页面中指向其他资源的链接改写为带指纹的URL
+     *
+     * 改写后的内容与文件不同：ETag按改写后的内容计算，修改时间取页面和被引用资源中最新的一个，
+     * 这样只有资源变化时，按 If-Modified-Since 验证的客户端也能拿到新页面。
+     *
+     * @return 改写后的页面；页面中没有需要改写的链接时返回null
+     */
+    private StaticResource page(String urlPath, FileMetadata metadata, String html, StaticResource old,
+                                Function<String, StaticResource> fingerprinted) {
+        String mime = MimeTypes.get(urlPath);
+        long lastModified = metadata.lastModified();
+        Matcher m = LINK.matcher(html);
+        StringBuilder sb = new StringBuilder(html.length() + 64);
+        boolean rewritten = false;
+        while (m.find()) {
+            StaticResource target = fingerprinted.apply(URLDecoder.decode(m.group(3), StandardCharsets.UTF_8));
+            if (target == null) continue;
+            lastModified = Math.max(lastModified, target.metadata().lastModified());
+            String url = fingerprint(m.group(3), target.metadata().etag());
+            m.appendReplacement(sb, Matcher.quoteReplacement(
+                    m.group(1) + m.group(2) + url + m.group(4) + m.group(2)));
+            rewritten = true;
+        }
+        if (!rewritten) return null;
+        m.appendTail(sb);
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        FileMetadata rewrittenMetadata = new FileMetadata(metadata.file(), content.length, lastModified,
+                FileMetadataCache.computeETag(content));
+        if (old != null && old.metadata().equals(rewrittenMetadata)) {
+            return old;
+        }
+        return newResource(urlPath, rewrittenMetadata, mime, REVALIDATE, content);
+    }
+
+    /**
+     * 在文件名的扩展名前插入内容哈希，如 /css/app.css -> /css/app.rB6PAkpbIX.css
+     */
+    static String fingerprint(String urlPath, String etag) {
+        String hash = etag.substring(1, 1 + Math.min(FINGERPRINT_LENGTH, etag.length() - 2));
+        int slash = urlPath.lastIndexOf('/');
+        int dot = urlPath.lastIndexOf('.');
+        if (dot <= slash + 1) return urlPath + "." + hash;
+        return urlPath.substring(0, dot) + "." + hash + urlPath.substring(dot);
+    }
+
+    private static boolean isHtml(String mime) {
+        return mime != null && mime.toLowerCase(Locale.ROOT).startsWith("text/html");
+    }
+
+    private void startWatching() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        registerDirectories();
+        Thread watcher = new Thread(this::watchLoop, "http-resource-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * 注册目录及全部子目录（WatchService不递归）；重复注册同一目录是无害的
+     */
+    private void registerDirectories() throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path dir : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                key.pollEvents();
+                key.reset();
+                // 合并短时间内的后续事件
+                while ((key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                try {
+                    registerDirectories();
+                    refresh();
+                    System.out.println("[资源索引] 目录变化，已重建索引: " + size() + " 个资源");
+                } catch (IOException e) {
+                    System.err.println("[资源索引] 重建索引失败: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 关闭
+        }
+    }
+
+    /**
+     * 停止监视目录
+     */
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (bundle != null) {
+            return "{bundle=" + bundle + ", resources=" + entries.size() + "}";
+        }
+        return "{root=" + root + ", resources=" + entries.size() + ", rebuilds=" + rebuilds.get()
+                + ", hashed=" + metadataCache + ", reads=" + reads + "}";
+    }
+}
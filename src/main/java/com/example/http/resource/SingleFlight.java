@@ -0,0 +1,87 @@
+package com.example.http.resource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并同一个键上并发的加载
+ *
+ * 同一个键同时只有一个线程真正执行加载，其余线程等待它的结果（成功的值或同一个异常）。
+ * 加载结束后立即移除，之后的调用会重新加载——结果的缓存由调用方负责，这里只消除"缓存未命中时大家一起读盘/压缩"的惊群。
+ *
+ * 线程安全。
+ *
+ * @param <K> 键，需正确实现 equals/hashCode；通常包含文件的修改时间，文件变化后自然是新的键
+ * @param <V> 加载结果，会被多个线程共享，调用方不能修改
+ */
+public final class SingleFlight<K, V> {
+
+    /**
+     * 加载逻辑
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws IOException;
+    }
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 加载键对应的值；已有线程在加载同一个键时等待它的结果
+     *
+     * @throws IOException 加载失败（等待的线程收到与加载线程相同的异常），或等待时被中断
+     */
+    public V load(K key, Loader<V> loader) throws IOException {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            shared.incrementAndGet();
+            return await(existing);
+        }
+        loads.incrementAndGet();
+        try {
+            V value = loader.load();
+            mine.complete(value);
+            return value;
+        } catch (IOException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待并发加载结果时被中断");
+        } catch (ExecutionException e) {
+            // 原样抛出加载线程的异常，调用方可以按类型处理（如 NoSuchFileException）
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 正在进行的加载数
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    @Override
+    public String toString() {
+        return "{loads=" + loads.get() + ", coalesced=" + shared.get() + ", inFlight=" + inFlight.size() + "}";
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.http.resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 资源索引中的一个静态文件
+ *
+ * 构建索引时一次性算好响应需要的全部信息：元数据、MIME类型、是否参与压缩协商，
+ * 以及每种内容编码对应的、已编码为字节的头部块（Content-Type、Last-Modified、ETag、Cache-Control、Vary、Content-Encoding），
+ * 请求处理时不再做任何格式化。
+ *
+ * 内容一般在请求时从文件读取；以下两种资源的内容及其压缩变体在内存中，见 {@link #content(String)}：
+ * - 经过改写的资源（如替换了资源链接的HTML），内容与文件不同
+ * - 来自资源包 {@link AssetBundle} 的资源，内容是映射区域的切片
+ */
+public final class StaticResource {
+
+    private final String urlPath;
+    private final FileMetadata metadata;
+    private final String mimeType;
+    private final boolean compressible;
+    private final String lastModifiedHeader;
+    private final String cacheControl;
+    private final byte[] identityHeaders;
+    private final byte[] gzipHeaders;
+    private final byte[] deflateHeaders;
+    private final ByteBuffer content;
+    private final ByteBuffer gzipContent;
+    private final ByteBuffer deflateContent;
+
+    /**
+     * @param urlPath 已解码的URL路径，如"/index.html"
+     * @param metadata 元数据；内存中的内容时，大小和ETag按改写后的内容计算
+     * @param mimeType MIME类型
+     * @param compressible 是否参与压缩协商
+     * @param lastModifiedHeader 格式化好的Last-Modified值
+     * @param cacheControl Cache-Control值
+     * @param content 内存中的内容，为null表示从文件读取
+     * @param gzipContent 内存中的gzip变体，可为null
+     * @param deflateContent 内存中的deflate变体，可为null
+     */
+    StaticResource(String urlPath, FileMetadata metadata, String mimeType, boolean compressible,
+                   String lastModifiedHeader, String cacheControl,
+                   ByteBuffer content, ByteBuffer gzipContent, ByteBuffer deflateContent) {
+        this.urlPath = urlPath;
+        this.metadata = metadata;
+        this.mimeType = mimeType;
+        this.compressible = compressible;
+        this.lastModifiedHeader = lastModifiedHeader;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        this.identityHeaders = encodeHeaders(null);
+        this.gzipHeaders = compressible ? encodeHeaders(CompressionCache.GZIP) : null;
+        this.deflateHeaders = compressible ? encodeHeaders(CompressionCache.DEFLATE) : null;
+        this.gzipContent = compressible ? gzipContent : null;
+        this.deflateContent = compressible ? deflateContent : null;
+    }
+
+    /**
+     * 内容在堆内存中的资源，参与压缩协商时当场生成压缩变体
+     */
+    static StaticResource inMemory(String urlPath, FileMetadata metadata, String mimeType, boolean compressible,
+                                   String lastModifiedHeader, String cacheControl, byte[] content) {
+        return new StaticResource(urlPath, metadata, mimeType, compressible, lastModifiedHeader, cacheControl,
+                ByteBuffer.wrap(content).asReadOnlyBuffer(),
+                compressible ? compressIfWorth(content, CompressionCache.GZIP) : null,
+                compressible ? compressIfWorth(content, CompressionCache.DEFLATE) : null);
+    }
+
+    /**
+     * 同一文件换一个URL和缓存策略（用于带指纹的URL）
+     */
+    StaticResource withUrl(String newUrlPath, String newCacheControl) {
+        return new StaticResource(newUrlPath, metadata, mimeType, compressible, lastModifiedHeader,
+                newCacheControl, content, gzipContent, deflateContent);
+    }
+
+    private byte[] encodeHeaders(String encoding) {
+        StringBuilder sb = new StringBuilder(200);
+        sb.append("Content-Type: ").append(mimeType).append("\r\n");
+        sb.append("Last-Modified: ").append(lastModifiedHeader).append("\r\n");
+        sb.append("ETag: ").append(metadata.etag(encoding)).append("\r\n");
+        if (cacheControl != null) sb.append("Cache-Control: ").append(cacheControl).append("\r\n");
+        if (compressible) sb.append("Vary: Accept-Encoding\r\n");
+        if (encoding != null) sb.append("Content-Encoding: ").append(encoding).append("\r\n");
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 与 {@link CompressionCache} 相同的规则：缩小不到 10% 时不使用压缩变体
+     */
+    private static ByteBuffer compressIfWorth(byte[] data, String encoding) {
+        try {
+            byte[] compressed = CompressionCache.compress(data, encoding);
+            return compressed.length < data.length * 0.9 ? ByteBuffer.wrap(compressed).asReadOnlyBuffer() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String urlPath() { return urlPath; }
+
+    public FileMetadata metadata() { return metadata; }
+
+    public String mimeType() { return mimeType; }
+
+    public boolean compressible() { return compressible; }
+
+    public String lastModifiedHeader() { return lastModifiedHeader; }
+
+    public String cacheControl() { return cacheControl; }
+
+    /**
+     * 内容是否保存在内存中（不从文件读取）
+     */
+    public boolean inMemory() { return content != null; }
+
+    /**
+     * 内存中的内容
+     *
+     * 每次返回一个新的只读视图，各请求各自的读取位置互不影响。
+     *
+     * @param encoding {@link CompressionCache#GZIP}、{@link CompressionCache#DEFLATE}，null 表示原始内容
+     * @return 对应编码的内容；文件资源、或没有该编码的变体时返回null
+     */
+    public ByteBuffer content(String encoding) {
+        ByteBuffer buf = encoding == null ? content
+                : CompressionCache.GZIP.equals(encoding) ? gzipContent
+                : CompressionCache.DEFLATE.equals(encoding) ? deflateContent
+                : null;
+        return buf != null ? buf.duplicate() : null;
+    }
+
+    /**
+     * 某个内容编码的预编码头部块
+     *
+     * @param encoding {@link CompressionCache#GZIP}、{@link CompressionCache#DEFLATE}，null 表示原始内容
+     */
+    public byte[] headerBlock(String encoding) {
+        if (encoding == null) return identityHeaders;
+        if (CompressionCache.GZIP.equals(encoding) && gzipHeaders != null) return gzipHeaders;
+        if (CompressionCache.DEFLATE.equals(encoding) && deflateHeaders != null) return deflateHeaders;
+        throw new IllegalArgumentException("资源不支持编码 " + encoding + ": " + urlPath);
+    }
+
+    @Override
+    public String toString() {
+        return urlPath + " (" + metadata.size() + "B, " + mimeType + ")";
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.http.search;
+
+import java.util.Arrays;
+
+/**
+ * 压缩的倒排列表
+ *
+ * 一个词的倒排列表是按文档号递增的 (文档号, 词频) 序列，编码为字节：
+ * 文档号记与前一个文档号的差，差和词频都用变长整数（每字节7位，最高位表示后面还有字节），
+ * 常见的小差值和小词频各占一个字节。整个结构只使用基本类型数组，不产生装箱对象。
+ */
+final class PostingList {
+
+    private PostingList() { }
+
+    /**
+     * 倒排列表的写入器，文档号必须递增
+     */
+    static final class Writer {
+        private byte[] buf = new byte[16];
+        private int size;
+        private int lastDoc = -1;
+        private int count;
+
+        void add(int doc, int freq) {
+            if (doc <= lastDoc) {
+                throw new IllegalArgumentException("文档号必须递增: " + doc + " <= " + lastDoc);
+            }
+            if (buf.length - size < 10) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            size = writeVarint(buf, size, doc - lastDoc);
+            size = writeVarint(buf, size, freq);
+            lastDoc = doc;
+            count++;
+        }
+
+        /** 文档数 */
+        int count() {
+            return count;
+        }
+
+        /** 编码后的字节数 */
+        int size() {
+            return size;
+        }
+
+        /** 把编码后的字节复制到目标数组 */
+        void copyTo(byte[] dest, int offset) {
+            System.arraycopy(buf, 0, dest, offset, size);
+        }
+    }
+
+    /**
+     * 倒排列表的读取游标
+     */
+    static final class Cursor {
+        private final byte[] data;
+        private int pos;
+        private final int end;
+        private int doc = -1;
+        private int freq;
+
+        Cursor(byte[] data, int from, int to) {
+            this.data = data;
+            this.pos = from;
+            this.end = to;
+        }
+
+        /**
+         * 移到下一个文档
+         *
+         * @return 没有更多文档时返回false
+         */
+        boolean next() {
+            if (pos >= end) return false;
+            int delta = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                delta |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            int f = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                f |= (b & 0x7f) << shift;
+                if (b >= 0) break;
+            }
+            doc += delta;
+            freq = f;
+            return true;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+    }
+
+    private static int writeVarint(byte[] buf, int pos, int value) {
+        while ((value & ~0x7f) != 0) {
+            buf[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+}
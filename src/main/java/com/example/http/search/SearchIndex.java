@@ -0,0 +1,689 @@
+package com.example.http.search;
+
+import com.example.http.http.HttpStatus;
+import com.example.http.query.JsonIndex;
+import com.example.http.resource.FileMetadata;
+import com.example.http.resource.ResourceIndex;
+import com.example.http.resource.StaticResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 静态目录中文本资源（txt、html、json）的全文检索
+ *
+ * 增量的倒排索引：每批新增或变化的文档建立一个不可变的 {@link Segment}，追加到段列表末尾；
+ * 变化和删除的文档只在所在段的删除标记中登记。末尾积累了 {@link Segment#MERGE_FACTOR} 个同一级别的段时，
+ * 后台线程把它们合并为一个高一级的段，段数因此保持在对数级别；已删除的文档超过一半的段也会单独重写。
+ * 合并去掉已删除的文档并重新编号（文档号是段内的局部编号），索引占用的内存随现存文档数而不是历史上索引过的次数增长，
+ * 反复上传同一个文件不会让索引越来越大。
+ *
+ * 写入只发生在后台的索引线程上（启动时的全量同步、目录变化后的同步、上传后的增量更新），
+ * 合并在另一个后台线程上进行；两者都只是发布新的快照（volatile引用），检索读取快照，不加锁。
+ *
+ * 检索按 BM25 打分，返回得分最高的前k个文档。文档频率取自段建立时的统计，包含尚未被合并掉的已删除文档，
+ * 因此文件变化后IDF会略有偏差；删除超过一半的段会被重写，偏差有上限，不为此在检索时逐个过滤倒排列表计数。
+ *
+ * 线程安全。
+ */
+public final class SearchIndex implements AutoCloseable {
+
+    /** 每次检索默认返回的结果数 */
+    public static final int DEFAULT_LIMIT = 10;
+
+    /** 每次检索最多返回的结果数 */
+    public static final int MAX_LIMIT = 50;
+
+    /** 参与索引的资源大小上限 */
+    public static final long MAX_DOCUMENT_BYTES = 8L * 1024 * 1024;
+
+    // BM25参数
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * 已索引的文档
+     *
+     * @param seq 索引的序号，不重复使用，同一个段中的文档按序号递增排列；文档变化后以新的序号重新索引
+     * @param path 资源的URL路径
+     * @param metadata 索引时的资源元数据
+     * @param length 文档长度（词数）
+     */
+    private record Doc(long seq, String path, FileMetadata metadata, int length) { }
+
+    /**
+     * 一个段及其文档：docs[d]是段中文档号为d的文档，deleted是段中已删除的文档号。
+     * 发布后不再修改，登记删除时复制出新的删除标记
+     */
+    private record Part(Segment segment, Doc[] docs, BitSet deleted, int deletedCount) { }
+
+    /**
+     * 某一时刻的索引：发布后不再修改
+     *
+     * @param bases 每个段的第一个文档在全部文档中的位置，检索时用 bases[p]+段内文档号 区分不同段的文档
+     */
+    private record Snapshot(Part[] parts, int[] bases, int live, long totalLength) {
+
+        Snapshot(Part[] parts, int live, long totalLength) {
+            this(parts, bases(parts), live, totalLength);
+        }
+
+        private static int[] bases(Part[] parts) {
+            int[] bases = new int[parts.length];
+            int base = 0;
+            for (int p = 0; p < parts.length; p++) {
+                bases[p] = base;
+                base += parts[p].docs().length;
+            }
+            return bases;
+        }
+
+        /** 由全部文档中的位置找到文档 */
+        Doc doc(int key) {
+            // 段都至少有一个文档，bases严格递增
+            int p = Arrays.binarySearch(bases, key);
+            if (p < 0) p = -p - 2;
+            return parts[p].docs()[key - bases[p]];
+        }
+
+        int deleted() {
+            int deleted = 0;
+            for (Part part : parts) deleted += part.deletedCount();
+            return deleted;
+        }
+    }
+
+    /**
+     * 检索结果中的一个文档
+     */
+    public record Hit(String path, float score) { }
+
+    /**
+     * 检索结果
+     *
+     * @param total 匹配的文档总数
+     * @param hits 得分最高的文档，按得分从高到低
+     */
+    public record Hits(int total, List<Hit> hits) { }
+
+    /**
+     * 检索接口的回复
+     *
+     * @param status 回复的状态码
+     * @param body JSON响应体（出错时为 {"error": "..."}）
+     */
+    public record Result(HttpStatus status, byte[] body) { }
+
+    private final ResourceIndex resources;
+    private final ExecutorService indexer;
+    private final ExecutorService merger;
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong merges = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+
+    // 只由索引线程访问
+    private final Map<String, Doc> byPath = new HashMap<>();
+    private long nextSeq;
+
+    // 发布快照时由this保护
+    private boolean merging;
+    private volatile Snapshot snapshot = new Snapshot(new Part[0], 0, 0);
+
+    /**
+     * @param resources 静态资源索引，检索的文档从这里列出和读取
+     */
+    public SearchIndex(ResourceIndex resources) {
+        this.resources = resources;
+        this.indexer = newThread("http-search-indexer");
+        this.merger = newThread("http-search-merger");
+    }
+
+    private static ExecutorService newThread(String name) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 开始在后台建立索引，并在静态资源索引每次变化后同步
+     */
+    public void start() {
+        resources.addListener(this::requestSync);
+        requestSync();
+    }
+
+    /**
+     * 请求在后台与静态资源索引做一次全量同步；已有同步在排队时不重复提交
+     */
+    public void requestSync() {
+        if (!syncPending.compareAndSet(false, true)) return;
+        submit(() -> {
+            syncPending.set(false);
+            sync();
+        });
+    }
+
+    /**
+     * 在后台增量更新指定的资源（如刚上传的文件）：新增、变化的重新索引，已不存在的删除
+     *
+     * @param urlPaths 资源的URL路径
+     */
+    public void update(Collection<String> urlPaths) {
+        List<String> paths = List.copyOf(urlPaths);
+        submit(() -> {
+            List<StaticResource> changed = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (String path : paths) {
+                StaticResource resource = resources.get(path);
+                Doc doc = byPath.get(path);
+                if (resource != null && searchable(resource)) {
+                    if (doc == null || !doc.metadata().equals(resource.metadata())) changed.add(resource);
+                } else if (doc != null) {
+                    removed.add(path);
+                }
+            }
+            apply(changed, removed);
+        });
+    }
+
+    private void submit(Runnable task) {
+        try {
+            indexer.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[全文检索] 更新索引失败: " + e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 已关闭
+        }
+    }
+
+    /**
+     * 全量同步：对比静态资源索引和已索引的文档，找出新增、变化和删除的资源
+     */
+    private void sync() {
+        List<StaticResource> changed = new ArrayList<>();
+        Set<String> present = new LinkedHashSet<>();
+        for (String path : resources.paths()) {
+            StaticResource resource = resources.get(path);
+            // 带指纹的路径与原路径是同一个文件，只索引原路径
+            if (resource == null || ResourceIndex.IMMUTABLE.equals(resource.cacheControl()) || !searchable(resource)) {
+                continue;
+            }
+            present.add(path);
+            Doc doc = byPath.get(path);
+            if (doc == null || !doc.metadata().equals(resource.metadata())) changed.add(resource);
+        }
+        List<String> removed = new ArrayList<>();
+        for (String path : byPath.keySet()) {
+            if (!present.contains(path)) removed.add(path);
+        }
+        apply(changed, removed);
+    }
+
+    private static boolean searchable(StaticResource resource) {
+        String mime = resource.mimeType().toLowerCase(Locale.ROOT);
+        return (mime.startsWith("text/plain") || mime.startsWith("text/html") || mime.startsWith("application/json"))
+                && resource.metadata().size() <= MAX_DOCUMENT_BYTES;
+    }
+
+    /**
+     * 为变化的资源建立一个新段，登记删除，发布新快照；只在索引线程上调用
+     */
+    private void apply(List<StaticResource> changed, List<String> removed) {
+        if (changed.isEmpty() && removed.isEmpty()) return;
+        List<Doc> deletions = new ArrayList<>();
+        for (String path : removed) {
+            deletions.add(byPath.remove(path));
+        }
+        Segment.Builder builder = new Segment.Builder();
+        List<Doc> added = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        for (StaticResource resource : changed) {
+            Doc old = byPath.remove(resource.urlPath());
+            if (old != null) deletions.add(old);
+            byte[] content;
+            try {
+                content = content(resource);
+            } catch (IOException e) {
+                // 读取期间文件被删除等情况，下次同步时还会处理
+                System.err.println("[全文检索] 跳过 " + resource.urlPath() + ": " + e.getMessage());
+                continue;
+            }
+            tokens.clear();
+            Tokenizer.tokenize(Tokenizer.text(resource.mimeType(), content), true, tokens);
+            int length = builder.add(tokens);
+            Doc doc = new Doc(nextSeq++, resource.urlPath(), resource.metadata(), length);
+            byPath.put(doc.path(), doc);
+            added.add(doc);
+        }
+        Segment segment = builder.isEmpty() ? null : builder.build();
+
+        synchronized (this) {
+            Snapshot cur = snapshot;
+            Part[] parts = Arrays.copyOf(cur.parts(), cur.parts().length + (segment != null ? 1 : 0));
+            int live = cur.live();
+            long totalLength = cur.totalLength();
+            for (Doc doc : deletions) {
+                int p = parts.length - 1;
+                int d = -1;
+                for (; p >= 0; p--) {
+                    Part part = parts[p];
+                    if (part == null || part.docs().length == 0 || part.docs()[0].seq() > doc.seq()) continue;
+                    d = find(part.docs(), doc.seq());
+                    break;
+                }
+                if (d < 0 || parts[p].deleted().get(d)) continue;
+                BitSet deleted = (BitSet) parts[p].deleted().clone();
+                deleted.set(d);
+                parts[p] = new Part(parts[p].segment(), parts[p].docs(), deleted, parts[p].deletedCount() + 1);
+                live--;
+                totalLength -= doc.length();
+            }
+            if (segment != null) {
+                parts[parts.length - 1] = new Part(segment, added.toArray(new Doc[0]), new BitSet(), 0);
+                live += added.size();
+                for (Doc doc : added) totalLength += doc.length();
+            }
+            snapshot = new Snapshot(parts, live, totalLength);
+            maybeMerge();
+        }
+        indexed.addAndGet(added.size());
+    }
+
+    /**
+     * 在按序号递增的文档中二分查找
+     *
+     * @return 下标，不存在时返回-1
+     */
+    private static int find(Doc[] docs, long seq) {
+        int lo = 0;
+        int hi = docs.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = docs[mid].seq();
+            if (v < seq) lo = mid + 1;
+            else if (v > seq) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private byte[] content(StaticResource resource) throws IOException {
+        if (!resource.inMemory()) {
+            return resources.read(resource);
+        }
+        ByteBuffer buf = resource.content(null);
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 末尾有足够多个同一级别的段、或者某个段已删除的文档超过一半，且没有合并在进行时，提交后台合并；调用时持有this
+     */
+    private void maybeMerge() {
+        if (merging) return;
+        Part[] parts = snapshot.parts();
+        int n = parts.length;
+        List<Segment> run = null;
+        if (n >= Segment.MERGE_FACTOR) {
+            int level = parts[n - 1].segment().level();
+            int from = n - 1;
+            while (from > 0 && parts[from - 1].segment().level() == level) from--;
+            if (n - from >= Segment.MERGE_FACTOR) {
+                run = new ArrayList<>();
+                for (int p = from; p < n; p++) run.add(parts[p].segment());
+            }
+        }
+        if (run == null) {
+            for (Part part : parts) {
+                if (part.deletedCount() * 2 > part.docs().length) {
+                    run = List.of(part.segment());
+                    break;
+                }
+            }
+        }
+        if (run == null) return;
+        List<Segment> segments = run;
+        merging = true;
+        try {
+            merger.execute(() -> merge(segments));
+        } catch (RejectedExecutionException e) {
+            merging = false;
+        }
+    }
+
+    /**
+     * 合并相邻的若干个段，完成后在最新的快照中替换它们；只在合并线程上调用
+     */
+    private void merge(List<Segment> run) {
+        // 合并开始时的删除标记；合并期间新登记的删除在替换时转到合并后的段上
+        List<BitSet> deletedAtStart = new ArrayList<>(run.size());
+        Doc[] docs;
+        synchronized (this) {
+            Part[] parts = snapshot.parts();
+            int from = indexOf(parts, run.get(0));
+            int total = 0;
+            for (int s = 0; s < run.size(); s++) {
+                Part part = parts[from + s];
+                deletedAtStart.add(part.deleted());
+                total += part.docs().length - part.deletedCount();
+            }
+            docs = new Doc[total];
+            int next = 0;
+            for (int s = 0; s < run.size(); s++) {
+                Part part = parts[from + s];
+                for (int d = 0; d < part.docs().length; d++) {
+                    if (!part.deleted().get(d)) docs[next++] = part.docs()[d];
+                }
+            }
+        }
+        Segment merged;
+        try {
+            merged = Segment.merge(run, deletedAtStart);
+        } catch (RuntimeException e) {
+            System.err.println("[全文检索] 合并索引段失败: " + e);
+            synchronized (this) {
+                merging = false;
+            }
+            return;
+        }
+        synchronized (this) {
+            Snapshot cur = snapshot;
+            // 合并期间只会在末尾追加新段，被合并的段仍然相邻
+            Part[] parts = cur.parts();
+            int from = indexOf(parts, run.get(0));
+            int[][] newIds = Segment.renumber(run, deletedAtStart);
+            BitSet deleted = new BitSet();
+            for (int s = 0; s < run.size(); s++) {
+                BitSet now = parts[from + s].deleted();
+                for (int d = now.nextSetBit(0); d >= 0; d = now.nextSetBit(d + 1)) {
+                    if (newIds[s][d] >= 0) deleted.set(newIds[s][d]);
+                }
+            }
+            List<Part> next = new ArrayList<>(parts.length);
+            next.addAll(Arrays.asList(parts).subList(0, from));
+            if (docs.length > 0) next.add(new Part(merged, docs, deleted, deleted.cardinality()));
+            next.addAll(Arrays.asList(parts).subList(from + run.size(), parts.length));
+            snapshot = new Snapshot(next.toArray(new Part[0]), cur.live(), cur.totalLength());
+            merges.incrementAndGet();
+            merging = false;
+            maybeMerge();
+        }
+    }
+
+    private static int indexOf(Part[] parts, Segment segment) {
+        int p = 0;
+        while (parts[p].segment() != segment) p++;
+        return p;
+    }
+
+    /**
+     * 检索
+     *
+     * @param query 查询文本，按与建索引相同的规则分词，词之间是"或"的关系，按BM25得分排序
+     * @param limit 返回的结果数
+     */
+    public Hits search(String query, int limit) {
+        searches.incrementAndGet();
+        Snapshot s = snapshot;
+        List<String> tokens = new ArrayList<>();
+        Tokenizer.tokenize(query, false, tokens);
+        if (s.live() <= 0 || tokens.isEmpty()) return new Hits(0, List.of());
+        float avgLength = Math.max(1f, (float) s.totalLength() / s.live());
+
+        ScoreTable scores = new ScoreTable();
+        for (String term : new LinkedHashSet<>(tokens)) {
+            int df = 0;
+            for (Part part : s.parts()) {
+                int t = part.segment().find(term);
+                if (t >= 0) df += part.segment().docFreq(t);
+            }
+            if (df == 0) continue;
+            df = Math.min(df, s.live());
+            float idf = (float) Math.log(1 + (s.live() - df + 0.5) / (df + 0.5));
+            for (int p = 0; p < s.parts().length; p++) {
+                Part part = s.parts()[p];
+                int t = part.segment().find(term);
+                if (t < 0) continue;
+                PostingList.Cursor cursor = part.segment().cursor(t);
+                while (cursor.next()) {
+                    int d = cursor.doc();
+                    if (part.deleted().get(d)) continue;
+                    Doc doc = part.docs()[d];
+                    float tf = cursor.freq();
+                    scores.add(s.bases()[p] + d, idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * doc.length() / avgLength)));
+                }
+            }
+        }
+        return top(scores, Math.min(limit, MAX_LIMIT), s);
+    }
+
+    /**
+     * 用大小为k的小顶堆选出得分最高的k个文档；得分相同时先建立索引的文档优先
+     */
+    private static Hits top(ScoreTable scores, int k, Snapshot s) {
+        int[] heapDoc = new int[k];
+        float[] heapScore = new float[k];
+        int size = 0;
+        for (int i = 0; i < scores.keys.length; i++) {
+            int doc = scores.keys[i];
+            if (doc < 0) continue;
+            float score = scores.values[i];
+            if (size < k) {
+                heapDoc[size] = doc;
+                heapScore[size] = score;
+                siftUp(heapDoc, heapScore, size++);
+            } else if (k > 0 && worse(heapDoc[0], heapScore[0], doc, score)) {
+                heapDoc[0] = doc;
+                heapScore[0] = score;
+                siftDown(heapDoc, heapScore, size);
+            }
+        }
+        List<Hit> hits = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hits.add(new Hit(s.doc(heapDoc[i]).path(), heapScore[i]));
+        }
+        hits.sort((a, b) -> a.score() != b.score() ? Float.compare(b.score(), a.score()) : a.path().compareTo(b.path()));
+        return new Hits(scores.size, hits);
+    }
+
+    /** 文档a是否排在文档b之后 */
+    private static boolean worse(int docA, float scoreA, int docB, float scoreB) {
+        return scoreA != scoreB ? scoreA < scoreB : docA > docB;
+    }
+
+    private static void siftUp(int[] doc, float[] score, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(doc[i], score[i], doc[parent], score[parent])) break;
+            swap(doc, score, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] doc, float[] score, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) break;
+            int min = left + 1 < size && worse(doc[left + 1], score[left + 1], doc[left], score[left]) ? left + 1 : left;
+            if (!worse(doc[min], score[min], doc[i], score[i])) break;
+            swap(doc, score, i, min);
+            i = min;
+        }
+    }
+
+    private static void swap(int[] doc, float[] score, int i, int j) {
+        int d = doc[i];
+        doc[i] = doc[j];
+        doc[j] = d;
+        float f = score[i];
+        score[i] = score[j];
+        score[j] = f;
+    }
+
+    /**
+     * 文档号到累计得分的开放寻址哈希表，键和值都是基本类型
+     */
+    private static final class ScoreTable {
+        int[] keys = newKeys(64);
+        float[] values = new float[64];
+        int size;
+
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, -1);
+            return keys;
+        }
+
+        void add(int doc, float score) {
+            int mask = keys.length - 1;
+            int i = (doc * 0x9E3779B9) >>> 7 & mask;
+            while (keys[i] >= 0 && keys[i] != doc) i = (i + 1) & mask;
+            values[i] += score;
+            if (keys[i] < 0) {
+                keys[i] = doc;
+                if (++size * 2 > keys.length) grow();
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new float[keys.length];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] < 0) continue;
+                int i = (oldKeys[j] * 0x9E3779B9) >>> 7 & mask;
+                while (keys[i] >= 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * 处理检索请求：q=查询文本，limit=结果数（默认 {@link #DEFAULT_LIMIT}，最多 {@link #MAX_LIMIT}）
+     *
+     * @param params 查询参数（已解码）
+     */
+    public Result query(Map<String, String> params) {
+        String q = params.get("q");
+        if (q == null || q.isBlank()) {
+            return error(HttpStatus.BAD_REQUEST, "缺少查询参数 q");
+        }
+        int limit = DEFAULT_LIMIT;
+        String value = params.get("limit");
+        if (value != null && !value.isEmpty()) {
+            try {
+                limit = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 0) return error(HttpStatus.BAD_REQUEST, "limit 必须是非负整数");
+        }
+        long start = System.nanoTime();
+        Hits hits = search(q, limit);
+        long tookMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write('{');
+        field(out, "query");
+        JsonIndex.writeString(q, out);
+        out.write(',');
+        field(out, "total");
+        ascii(out, String.valueOf(hits.total()));
+        out.write(',');
+        field(out, "documents");
+        ascii(out, String.valueOf(snapshot.live()));
+        out.write(',');
+        field(out, "took_us");
+        ascii(out, String.valueOf(tookMicros));
+        out.write(',');
+        field(out, "hits");
+        out.write('[');
+        boolean first = true;
+        for (Hit hit : hits.hits()) {
+            if (!first) out.write(',');
+            first = false;
+            out.write('{');
+            field(out, "path");
+            JsonIndex.writeString(hit.path(), out);
+            out.write(',');
+            field(out, "score");
+            ascii(out, String.format(Locale.ROOT, "%.4f", hit.score()));
+            out.write('}');
+        }
+        out.write(']');
+        out.write('}');
+        return new Result(HttpStatus.OK, out.toByteArray());
+    }
+
+    private static void field(ByteArrayOutputStream out, String name) {
+        JsonIndex.writeString(name, out);
+        out.write(':');
+    }
+
+    private static void ascii(ByteArrayOutputStream out, String s) {
+        out.writeBytes(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Result error(HttpStatus status, String message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('{');
+        field(out, "error");
+        JsonIndex.writeString(message, out);
+        out.write('}');
+        return new Result(status, out.toByteArray());
+    }
+
+    /**
+     * 停止后台线程
+     */
+    @Override
+    public void close() {
+        indexer.shutdownNow();
+        merger.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        Snapshot s = snapshot;
+        long terms = 0;
+        long bytes = 0;
+        for (Part part : s.parts()) {
+            terms += part.segment().terms();
+            bytes += part.segment().bytes();
+        }
+        return "{documents=" + s.live() + ", deleted=" + s.deleted() + ", segments=" + s.parts().length
+                + ", terms=" + terms + ", postingBytes=" + bytes + ", indexed=" + indexed.get()
+                + ", merges=" + merges.get() + ", searches=" + searches.get() + "}";
+    }
+}
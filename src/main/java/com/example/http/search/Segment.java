@@ -0,0 +1,216 @@
+package com.example.http.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的索引段
+ *
+ * 一批文档的倒排索引：有序的词表，每个词的文档频率，以及全部倒排列表拼接成的一个字节数组（按词的偏移切分）。
+ * 查找一个词是对词表的二分查找。段建立后不再修改，文档删除由索引中每个段的删除标记表示，合并时才真正去掉。
+ * 文档号是段内的局部编号，从0开始连续，合并时重新编号，因此删除过的文档号不会一直占用空间。
+ */
+final class Segment {
+
+    /** 合并因子：末尾有这么多个同一级别的段时合并为一个高一级的段 */
+    static final int MERGE_FACTOR = 8;
+
+    private final String[] terms;
+    private final int[] offsets;
+    private final int[] docFreq;
+    private final byte[] postings;
+    private final int docs;
+    private final int level;
+
+    private Segment(String[] terms, int[] offsets, int[] docFreq, byte[] postings, int docs) {
+        this.terms = terms;
+        this.offsets = offsets;
+        this.docFreq = docFreq;
+        this.postings = postings;
+        this.docs = docs;
+        int l = 0;
+        for (long n = MERGE_FACTOR; n <= docs; n *= MERGE_FACTOR) l++;
+        this.level = l;
+    }
+
+    /**
+     * 逐个加入文档建立段，文档号依次为0、1、2……
+     */
+    static final class Builder {
+        private final Map<String, PostingList.Writer> writers = new HashMap<>();
+        private int docs;
+
+        /**
+         * 加入一个文档，文档号为已加入的文档数
+         *
+         * @param tokens 文档切分出的词（可以重复），会被重新排序
+         * @return 文档长度（词数）
+         */
+        int add(List<String> tokens) {
+            int doc = docs++;
+            String[] sorted = tokens.toArray(new String[0]);
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; ) {
+                int j = i + 1;
+                while (j < sorted.length && sorted[j].equals(sorted[i])) j++;
+                writers.computeIfAbsent(sorted[i], t -> new PostingList.Writer()).add(doc, j - i);
+                i = j;
+            }
+            return sorted.length;
+        }
+
+        boolean isEmpty() {
+            return docs == 0;
+        }
+
+        Segment build() {
+            String[] terms = writers.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            int[] offsets = new int[terms.length + 1];
+            int[] docFreq = new int[terms.length];
+            long total = 0;
+            for (int t = 0; t < terms.length; t++) {
+                PostingList.Writer w = writers.get(terms[t]);
+                docFreq[t] = w.count();
+                total += w.size();
+            }
+            if (total > Integer.MAX_VALUE - 8) throw new IllegalStateException("索引段过大");
+            byte[] postings = new byte[(int) total];
+            int pos = 0;
+            for (int t = 0; t < terms.length; t++) {
+                PostingList.Writer w = writers.get(terms[t]);
+                offsets[t] = pos;
+                w.copyTo(postings, pos);
+                pos += w.size();
+            }
+            offsets[terms.length] = pos;
+            return new Segment(terms, offsets, docFreq, postings, docs);
+        }
+    }
+
+    /**
+     * 合并若干个段，去掉已删除的文档
+     *
+     * 合并后的文档号按段的顺序、段内文档号的顺序依次编号，跳过已删除的文档，见 {@link #renumber}。
+     *
+     * @param segments 要合并的段
+     * @param deleted 每个段中已删除的文档号
+     */
+    static Segment merge(List<Segment> segments, List<BitSet> deleted) {
+        int k = segments.size();
+        int[][] newIds = renumber(segments, deleted);
+        int docs = 0;
+        for (int s = 0; s < k; s++) {
+            docs += segments.get(s).docs - deleted.get(s).cardinality();
+        }
+        int[] next = new int[k];
+        String[] terms = new String[16];
+        int[] offsets = new int[17];
+        int[] docFreq = new int[16];
+        byte[] postings = new byte[64];
+        int count = 0;
+        int size = 0;
+        while (true) {
+            // 各段词表中当前最小的词
+            String term = null;
+            for (int s = 0; s < k; s++) {
+                Segment seg = segments.get(s);
+                if (next[s] < seg.terms.length) {
+                    String candidate = seg.terms[next[s]];
+                    if (term == null || candidate.compareTo(term) < 0) term = candidate;
+                }
+            }
+            if (term == null) break;
+            PostingList.Writer w = new PostingList.Writer();
+            for (int s = 0; s < k; s++) {
+                Segment seg = segments.get(s);
+                if (next[s] < seg.terms.length && seg.terms[next[s]].equals(term)) {
+                    PostingList.Cursor c = seg.cursor(next[s]);
+                    while (c.next()) {
+                        int doc = newIds[s][c.doc()];
+                        if (doc >= 0) w.add(doc, c.freq());
+                    }
+                    next[s]++;
+                }
+            }
+            if (w.count() == 0) continue;
+            if (count == terms.length) {
+                terms = Arrays.copyOf(terms, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                docFreq = Arrays.copyOf(docFreq, count * 2);
+            }
+            if (postings.length - size < w.size()) {
+                long grown = Math.max((long) postings.length * 2, (long) size + w.size());
+                if (grown > Integer.MAX_VALUE - 8) throw new IllegalStateException("索引段过大");
+                postings = Arrays.copyOf(postings, (int) grown);
+            }
+            terms[count] = term;
+            offsets[count] = size;
+            docFreq[count] = w.count();
+            w.copyTo(postings, size);
+            size += w.size();
+            count++;
+        }
+        offsets[count] = size;
+        return new Segment(Arrays.copyOf(terms, count), Arrays.copyOf(offsets, count + 1),
+                Arrays.copyOf(docFreq, count), Arrays.copyOf(postings, size), docs);
+    }
+
+    /**
+     * 合并时的重新编号：newIds[s][d] 是第s个段中文档d合并后的文档号，已删除的为-1
+     */
+    static int[][] renumber(List<Segment> segments, List<BitSet> deleted) {
+        int[][] newIds = new int[segments.size()][];
+        int next = 0;
+        for (int s = 0; s < segments.size(); s++) {
+            int[] ids = new int[segments.get(s).docs];
+            for (int d = 0; d < ids.length; d++) {
+                ids[d] = deleted.get(s).get(d) ? -1 : next++;
+            }
+            newIds[s] = ids;
+        }
+        return newIds;
+    }
+
+    /**
+     * 查找词在词表中的序号
+     *
+     * @return 序号，不存在时返回负数
+     */
+    int find(String term) {
+        return Arrays.binarySearch(terms, term);
+    }
+
+    /** 第t个词的文档频率（含之后被删除的文档） */
+    int docFreq(int t) {
+        return docFreq[t];
+    }
+
+    /** 第t个词的倒排列表 */
+    PostingList.Cursor cursor(int t) {
+        return new PostingList.Cursor(postings, offsets[t], offsets[t + 1]);
+    }
+
+    /** 文档数（含之后被删除的文档） */
+    int docs() {
+        return docs;
+    }
+
+    /** 级别：文档数达到 MERGE_FACTOR 的几次方 */
+    int level() {
+        return level;
+    }
+
+    /** 词数 */
+    int terms() {
+        return terms.length;
+    }
+
+    /** 倒排列表的总字节数 */
+    int bytes() {
+        return postings.length;
+    }
+}
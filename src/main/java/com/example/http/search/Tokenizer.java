@@ -0,0 +1,146 @@
+package com.example.http.search;
+
+import com.example.http.query.JsonParseException;
+import com.example.http.query.JsonReader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 分词与正文提取
+ *
+ * 字母数字连续的一段作为一个词（转为小写，单个字母和过长的片段丢弃）；
+ * 中日韩文字没有空格分词，连续的一段按相邻两字切分（二元组），建索引时另外登记单字，
+ * 因此查询两个字以上的词按二元组匹配，查询单字也能命中。
+ */
+final class Tokenizer {
+
+    /** 超过这个长度的字母数字片段（如base64、哈希值）不作为词 */
+    static final int MAX_WORD_LENGTH = 40;
+
+    private Tokenizer() { }
+
+    /**
+     * 提取资源中参与检索的正文
+     *
+     * HTML去掉标签、脚本和样式；JSON取出全部键和字符串、数字值（格式错误时按纯文本处理）；其他按UTF-8纯文本。
+     */
+    static String text(String mimeType, byte[] content) {
+        String mime = mimeType.toLowerCase(Locale.ROOT);
+        if (mime.startsWith("application/json")) {
+            try {
+                return jsonText(content);
+            } catch (JsonParseException e) {
+                // 按纯文本处理
+            }
+        }
+        String text = new String(content, StandardCharsets.UTF_8);
+        return mime.startsWith("text/html") ? htmlText(text) : text;
+    }
+
+    private static String jsonText(byte[] content) throws JsonParseException {
+        StringBuilder sb = new StringBuilder(content.length / 2);
+        JsonReader reader = new JsonReader(content);
+        JsonReader.Token token;
+        while ((token = reader.next()) != JsonReader.Token.END) {
+            if (token == JsonReader.Token.NAME || token == JsonReader.Token.STRING || token == JsonReader.Token.NUMBER) {
+                sb.append(reader.stringValue()).append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 去掉标签、注释、script/style的内容，字符实体按分隔处理
+     */
+    private static String htmlText(String html) {
+        StringBuilder sb = new StringBuilder(html.length());
+        String lower = html.toLowerCase(Locale.ROOT);
+        int i = 0;
+        int n = html.length();
+        while (i < n) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                int close;
+                if (lower.startsWith("<!--", i)) {
+                    close = lower.indexOf("-->", i + 4);
+                    close = close < 0 ? n : close + 3;
+                } else if (lower.startsWith("<script", i) || lower.startsWith("<style", i)) {
+                    String endTag = lower.startsWith("<script", i) ? "</script" : "</style";
+                    close = lower.indexOf(endTag, i);
+                    close = close < 0 ? n : lower.indexOf('>', close);
+                    close = close < 0 ? n : close + 1;
+                } else {
+                    close = html.indexOf('>', i);
+                    close = close < 0 ? n : close + 1;
+                }
+                sb.append(' ');
+                i = close;
+            } else if (c == '&') {
+                int semi = html.indexOf(';', i);
+                i = semi > 0 && semi - i <= 10 ? semi + 1 : i + 1;
+                sb.append(' ');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 切分为词
+     *
+     * @param forIndex 为建索引切分时中日韩文字另外输出单字；为查询切分时只在单独一个字时输出单字
+     * @param out 依次加入切分出的词（可能重复）
+     */
+    static void tokenize(String text, boolean forIndex, List<String> out) {
+        StringBuilder word = new StringBuilder();
+        int cjkStart = -1;
+        int n = text.length();
+        for (int i = 0; i <= n; ) {
+            int cp = i < n ? text.codePointAt(i) : ' ';
+            boolean cjk = i < n && isCjk(cp);
+            // 结束中日韩文字的一段
+            if (!cjk && cjkStart >= 0) {
+                cjk(text, cjkStart, i, forIndex, out);
+                cjkStart = -1;
+            }
+            if (!cjk && Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                if (word.length() > 1 && word.length() <= MAX_WORD_LENGTH) out.add(word.toString());
+                word.setLength(0);
+                if (cjk && cjkStart < 0) cjkStart = i;
+            }
+            i += i < n ? Character.charCount(cp) : 1;
+        }
+    }
+
+    private static void cjk(String text, int from, int to, boolean forIndex, List<String> out) {
+        int first = text.codePointAt(from);
+        int next = from + Character.charCount(first);
+        if (next >= to || forIndex) {
+            // 只有一个字，或建索引时登记单字
+            for (int i = from; i < to; ) {
+                int cp = text.codePointAt(i);
+                out.add(new String(Character.toChars(cp)));
+                i += Character.charCount(cp);
+            }
+        }
+        for (int i = from; i < to; ) {
+            int a = Character.charCount(text.codePointAt(i));
+            if (i + a >= to) break;
+            int b = Character.charCount(text.codePointAt(i + a));
+            out.add(text.substring(i, i + a + b));
+            i += a;
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.http.upload;
+
+import com.example.http.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * 可续传上传
+ *
+ * 大文件分多次请求上传，连接中断后从服务器记录的偏移继续，不必从头再传：
+ * 创建上传时声明文件名和总长度，服务器在临时目录中建立预先扩展到最终大小的文件；
+ * 之后每个分块带着起始偏移写入，分块可以带校验和，不一致时整块丢弃、偏移不前进；
+ * 全部写完后完成上传，文件刷到磁盘后原子地移动到静态资源目录，访问者不会看到写了一半的文件。
+ *
+ * 分块按偏移定位写入（FileChannel的positional write），不经过内存中的整块缓冲；
+ * 偏移必须等于已写入的长度，同一个上传同时只能有一个分块在写入，因此写入的区域总是连续的。
+ * 上传的状态只保存在内存中，服务器重启后未完成的上传作废，临时文件在下次启动时清理。
+ */
+public final class ResumableUploads implements AutoCloseable {
+
+    /** 上传超过这么久没有新的分块就作废 */
+    public static final long EXPIRE_MILLIS = 24L * 60 * 60 * 1000;
+
+    /** 同时进行的上传数上限 */
+    public static final int MAX_ACTIVE = 256;
+
+    /** 临时文件的后缀 */
+    private static final String PART_SUFFIX = ".part";
+
+    /** 与普通上传相同的文件名规则；"."和".."另外排除 */
+    private static final Pattern FILENAME = Pattern.compile("[a-zA-Z0-9._-]{1,64}");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path publicRoot;
+    private final Path dir;
+    private final long maxSize;
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+
+    /**
+     * 一个进行中的上传
+     */
+    public static final class Upload {
+        private final String id;
+        private final String owner;
+        private final String filename;
+        private final long length;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long offset;
+        private volatile long lastActivity;
+        // 已完成或已放弃，由lock保护
+        private boolean closed;
+
+        private Upload(String id, String owner, String filename, long length, Path temp, FileChannel channel) {
+            this.id = id;
+            this.owner = owner;
+            this.filename = filename;
+            this.length = length;
+            this.temp = temp;
+            this.channel = channel;
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public String filename() {
+            return filename;
+        }
+
+        /** 文件总长度 */
+        public long length() {
+            return length;
+        }
+
+        /** 已写入的长度，也就是下一个分块的起始偏移 */
+        public long offset() {
+            return offset;
+        }
+    }
+
+    private ResumableUploads(Path publicRoot, Path dir, long maxSize) {
+        this.publicRoot = publicRoot.toAbsolutePath().normalize();
+        this.dir = dir.toAbsolutePath().normalize();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 打开临时目录，删除上次运行遗留的临时文件
+     *
+     * @param publicRoot 静态资源目录，完成的文件移动到这里
+     * @param dir 临时目录，应与静态资源目录在同一个文件系统上，完成时才能原子地移动
+     * @param maxSize 单个文件的大小上限
+     */
+    public static ResumableUploads open(Path publicRoot, Path dir, long maxSize) throws IOException {
+        ResumableUploads uploads = new ResumableUploads(publicRoot, dir, maxSize);
+        Files.createDirectories(uploads.dir);
+        int stale = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploads.dir, "*" + PART_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+                stale++;
+            }
+        }
+        if (stale > 0) {
+            System.out.println("[可续传上传] 清理上次遗留的临时文件: " + stale + " 个");
+        }
+        return uploads;
+    }
+
+    /**
+     * 创建上传
+     *
+     * 临时文件预先扩展到最终大小（在支持的文件系统上是稀疏文件，不立即占用磁盘），
+     * 之后的分块写入不再改变文件大小；剩余空间不足以容纳整个文件时直接拒绝，而不是写到一半才失败。
+     *
+     * @param owner 创建者，之后只有创建者能访问这个上传
+     * @throws UploadException 文件名非法（422）、超过大小上限（413）、空间不足（507）或上传过多（503）
+     */
+    public Upload create(String owner, String filename, long length) throws IOException {
+        if (filename == null || !FILENAME.matcher(filename).matches() || filename.equals(".") || filename.equals("..")) {
+            throw new UploadException(HttpStatus.UNPROCESSABLE_ENTITY, "非法文件名");
+        }
+        if (length < 0) {
+            throw new UploadException(HttpStatus.BAD_REQUEST, "文件长度不能为负数");
+        }
+        if (length > maxSize) {
+            throw new UploadException(HttpStatus.PAYLOAD_TOO_LARGE, "文件超过大小上限 " + maxSize + " 字节");
+        }
+        expire();
+        if (uploads.size() >= MAX_ACTIVE) {
+            throw new UploadException(HttpStatus.SERVICE_UNAVAILABLE, "进行中的上传过多，请稍后再试");
+        }
+        if (Files.getFileStore(dir).getUsableSpace() < length) {
+            throw new UploadException(HttpStatus.INSUFFICIENT_STORAGE, "磁盘剩余空间不足");
+        }
+        String id = UUID.randomUUID().toString().replace("-", "");
+        Path temp = dir.resolve(id + PART_SUFFIX);
+        FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (length > 0) {
+                channel.write(ByteBuffer.allocate(1), length - 1);
+            }
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Upload upload = new Upload(id, owner, filename, length, temp, channel);
+        uploads.put(id, upload);
+        return upload;
+    }
+
+    /**
+     * 查找上传
+     *
+     * @return 不存在、已结束或不属于owner时返回null
+     */
+    public Upload get(String id, String owner) {
+        Upload upload = uploads.get(id);
+        if (upload == null || !upload.owner.equals(owner)) return null;
+        return upload;
+    }
+
+    /**
+     * 写入一个分块
+     *
+     * 请求体边读边按偏移写入临时文件，同时计算校验和。没有校验和时，即使请求体读到一半连接中断，
+     * 已写入的部分也会被保留，客户端查询偏移后从断点继续；有校验和时只有整块校验一致才前进偏移。
+     *
+     * @param offset 分块的起始偏移，必须等于当前偏移
+     * @param checksum 分块的校验和，可为null
+     * @return 写入后的偏移
+     * @throws UploadException 偏移不符或有其他分块正在写入（409）、超出文件长度（413）、校验和不一致（460）
+     */
+    public long write(Upload upload, long offset, InputStream body, UploadChecksum checksum) throws IOException {
+        if (!upload.lock.tryLock()) {
+            throw new UploadException(HttpStatus.CONFLICT, "这个上传正有另一个分块在写入");
+        }
+        try {
+            if (upload.closed) {
+                throw new UploadException(HttpStatus.NOT_FOUND, "上传已结束");
+            }
+            if (offset != upload.offset) {
+                throw new UploadException(HttpStatus.CONFLICT, "偏移不符，当前偏移为 " + upload.offset);
+            }
+            byte[] buf = new byte[BUFFER_SIZE];
+            long pos = offset;
+            try {
+                int n;
+                while ((n = body.read(buf)) != -1) {
+                    if (n > upload.length - pos) {
+                        throw new UploadException(HttpStatus.PAYLOAD_TOO_LARGE,
+                                "分块超出文件长度 " + upload.length + " 字节");
+                    }
+                    if (checksum != null) checksum.update(buf, 0, n);
+                    ByteBuffer src = ByteBuffer.wrap(buf, 0, n);
+                    while (src.hasRemaining()) {
+                        pos += upload.channel.write(src, pos);
+                    }
+                }
+            } catch (IOException e) {
+                // 没有校验和时保留已写入的部分，客户端从断点继续
+                if (checksum == null && !(e instanceof UploadException)) advance(upload, pos);
+                throw e;
+            }
+            if (checksum != null && !checksum.matches()) {
+                throw new UploadException(HttpStatus.CHECKSUM_MISMATCH, checksum.algorithm() + " 校验和不一致，分块未被接受");
+            }
+            advance(upload, pos);
+            return pos;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    private void advance(Upload upload, long pos) {
+        bytesReceived.addAndGet(pos - upload.offset);
+        upload.offset = pos;
+        upload.lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * 完成上传：把文件刷到磁盘，原子地移动到静态资源目录（替换同名文件）
+     *
+     * @param checksum 整个文件的校验和，可为null；不一致时上传作废
+     * @return 文件的URL路径
+     * @throws UploadException 还有数据没有写完或有分块正在写入（409）、校验和不一致（460）、保存失败（500，上传作废）
+     */
+    public String complete(Upload upload, UploadChecksum checksum) throws IOException {
+        if (!upload.lock.tryLock()) {
+            throw new UploadException(HttpStatus.CONFLICT, "这个上传正有分块在写入");
+        }
+        try {
+            if (upload.closed) {
+                throw new UploadException(HttpStatus.NOT_FOUND, "上传已结束");
+            }
+            if (upload.offset != upload.length) {
+                throw new UploadException(HttpStatus.CONFLICT,
+                        "还有 " + (upload.length - upload.offset) + " 字节没有上传，当前偏移为 " + upload.offset);
+            }
+            if (checksum != null && !verify(upload, checksum)) {
+                discard(upload);
+                throw new UploadException(HttpStatus.CHECKSUM_MISMATCH, checksum.algorithm() + " 校验和与整个文件不一致，上传已作废");
+            }
+            Path target = publicRoot.resolve(upload.filename).normalize();
+            try {
+                upload.channel.force(true);
+                upload.channel.close();
+                Files.createDirectories(publicRoot);
+                try {
+                    Files.move(upload.temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    System.err.println("[可续传上传] 临时目录与静态资源目录不在同一文件系统，不能原子地移动: " + target);
+                    Files.move(upload.temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                // 通道已关闭，上传无法继续：作废，不留下半完成的状态；路径等细节只写日志
+                System.err.println("[可续传上传] 保存文件失败: " + target + " - " + e);
+                discard(upload);
+                throw new UploadException(HttpStatus.INTERNAL_SERVER_ERROR, "保存文件失败，上传已作废");
+            }
+            upload.closed = true;
+            uploads.remove(upload.id);
+            completed.incrementAndGet();
+            return "/" + upload.filename;
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /**
+     * 重新读取临时文件，计算整个文件的校验和
+     */
+    private static boolean verify(Upload upload, UploadChecksum checksum) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        ByteBuffer dst = ByteBuffer.wrap(buf);
+        long pos = 0;
+        while (pos < upload.length) {
+            dst.clear();
+            int n = upload.channel.read(dst, pos);
+            if (n < 0) break;
+            checksum.update(buf, 0, n);
+            pos += n;
+        }
+        return checksum.matches();
+    }
+
+    /**
+     * 放弃上传，删除临时文件
+     *
+     * @throws UploadException 有分块正在写入（409）
+     */
+    public void abort(Upload upload) throws IOException {
+        if (!upload.lock.tryLock()) {
+            throw new UploadException(HttpStatus.CONFLICT, "这个上传正有分块在写入");
+        }
+        try {
+            if (!upload.closed) discard(upload);
+        } finally {
+            upload.lock.unlock();
+        }
+    }
+
+    /** 调用方持有lock */
+    private void discard(Upload upload) throws IOException {
+        upload.closed = true;
+        uploads.remove(upload.id);
+        upload.channel.close();
+        Files.deleteIfExists(upload.temp);
+    }
+
+    /**
+     * 作废长时间没有新分块的上传；正在写入的跳过
+     */
+    private void expire() {
+        long deadline = System.currentTimeMillis() - EXPIRE_MILLIS;
+        for (Upload upload : uploads.values()) {
+            if (upload.lastActivity >= deadline || !upload.lock.tryLock()) continue;
+            try {
+                if (!upload.closed) {
+                    discard(upload);
+                    System.out.println("[可续传上传] 上传超时作废: " + upload.filename
+                            + " (" + upload.offset + "/" + upload.length + " 字节)");
+                }
+            } catch (IOException e) {
+                System.err.println("[可续传上传] 删除临时文件失败: " + upload.temp + " - " + e.getMessage());
+            } finally {
+                upload.lock.unlock();
+            }
+        }
+    }
+
+    /** 进行中的上传数 */
+    public int size() {
+        return uploads.size();
+    }
+
+    /**
+     * 作废全部进行中的上传：状态只在内存中，服务器停止后无法继续
+     */
+    @Override
+    public void close() {
+        for (Upload upload : uploads.values()) {
+            try {
+                upload.channel.close();
+                Files.deleteIfExists(upload.temp);
+            } catch (IOException e) {
+                System.err.println("[可续传上传] 删除临时文件失败: " + upload.temp + " - " + e.getMessage());
+            }
+        }
+        uploads.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + uploads.size() + " completed=" + completed.get() + " received=" + bytesReceived.get() + "B";
+    }
+}
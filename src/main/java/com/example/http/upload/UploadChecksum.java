@@ -0,0 +1,94 @@
+package com.example.http.upload;
+
+import com.example.http.http.HttpStatus;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.zip.CRC32C;
+
+/**
+ * 客户端给出的校验和，格式同 tus 协议的 Upload-Checksum 头部："算法 base64编码的值"
+ *
+ * 支持 crc32c（4字节，大端）和 sha256（32字节）。数据边写入边计算，不需要再读一遍。
+ */
+public final class UploadChecksum {
+
+    private final String algorithm;
+    private final byte[] expected;
+    private final CRC32C crc;
+    private final MessageDigest sha256;
+
+    private UploadChecksum(String algorithm, byte[] expected) {
+        this.algorithm = algorithm;
+        this.expected = expected;
+        if (algorithm.equals("crc32c")) {
+            this.crc = new CRC32C();
+            this.sha256 = null;
+        } else {
+            this.crc = null;
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("JDK 缺少 SHA-256", e);
+            }
+        }
+    }
+
+    /**
+     * 解析 Upload-Checksum 头部
+     *
+     * @return 头部不存在时返回null
+     * @throws UploadException 格式错误或算法不支持（400）
+     */
+    public static UploadChecksum parse(String header) throws UploadException {
+        if (header == null) return null;
+        String[] parts = header.trim().split("\\s+");
+        if (parts.length != 2) {
+            throw new UploadException(HttpStatus.BAD_REQUEST, "Upload-Checksum 格式应为\"算法 base64值\"");
+        }
+        String algorithm = parts[0].toLowerCase(Locale.ROOT);
+        byte[] expected;
+        try {
+            expected = Base64.getDecoder().decode(parts[1]);
+        } catch (IllegalArgumentException e) {
+            throw new UploadException(HttpStatus.BAD_REQUEST, "Upload-Checksum 的值不是合法的 base64");
+        }
+        int length = switch (algorithm) {
+            case "crc32c" -> 4;
+            case "sha256" -> 32;
+            default -> throw new UploadException(HttpStatus.BAD_REQUEST, "不支持的校验算法: " + parts[0] + "（支持 crc32c、sha256）");
+        };
+        if (expected.length != length) {
+            throw new UploadException(HttpStatus.BAD_REQUEST, algorithm + " 校验和应为 " + length + " 字节");
+        }
+        return new UploadChecksum(algorithm, expected);
+    }
+
+    /** 算法名称 */
+    public String algorithm() {
+        return algorithm;
+    }
+
+    /** 计入一段数据 */
+    void update(byte[] b, int off, int len) {
+        if (crc != null) {
+            crc.update(b, off, len);
+        } else {
+            sha256.update(b, off, len);
+        }
+    }
+
+    /** 已计入的数据是否与期望的校验和一致 */
+    boolean matches() {
+        byte[] actual;
+        if (crc != null) {
+            long v = crc.getValue();
+            actual = new byte[] {(byte) (v >>> 24), (byte) (v >>> 16), (byte) (v >>> 8), (byte) v};
+        } else {
+            actual = sha256.digest();
+        }
+        return MessageDigest.isEqual(actual, expected);
+    }
+}
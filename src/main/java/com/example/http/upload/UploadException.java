@@ -0,0 +1,31 @@
+package com.example.http.upload;
+
+import com.example.http.http.HttpStatus;
+
+import java.io.IOException;
+
+/**
+ * 可续传上传的请求不能被接受，携带应回复给客户端的状态码
+ */
+public class UploadException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+
+    /**
+     * @param status 回复客户端的状态码
+     * @param message 错误说明，可直接回复给客户端
+     */
+    public UploadException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    /**
+     * 回复客户端的状态码
+     */
+    public HttpStatus status() {
+        return status;
+    }
+}